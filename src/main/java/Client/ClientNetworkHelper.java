@@ -3,19 +3,42 @@ package Client;
 import Client.util.adapter.LocalDateAdapter;
 import Client.util.adapter.UUIDAdapter;
 import Client.model.Request;
+import Client.util.Config;
+import Client.util.EventBus;
+import Common.codec.BinaryJsonDecoder;
+import Common.codec.BinaryJsonWriter;
+import Common.codec.WireFormat;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 import java.lang.reflect.Type;
 
 /**
@@ -26,8 +49,12 @@ import java.lang.reflect.Type;
  * 设计说明:
  * - 当前未设置 socket connect/read 超时, 在网络异常/服务端无响应时线程可能长期阻塞。
  * - 调用方如需增强(超时/重试/熔断/日志) 可在外层包装；本类保持最小核心职责。
- * - 使用单次请求短连接，避免持久连接状态管理复杂度；高并发可改为连接池。
- * - 线程安全: 方法内仅使用局部变量与不可变常量，无共享可变状态。
+ * - 每条连接先发送 hello 协商响应压缩与编码，压缩帧、二进制帧在读取时自动还原为 JSON 字符串。
+ * - send 使用单次请求短连接；sendAsync 复用一条持久连接，以 requestId 匹配乱序返回的响应。
+ * - 课程、教学班、商品等列表请求经 {@link ConditionalCache} 条件获取，数据未变化时复用上次的响应。
+ * - subscribe 订阅服务端推送，推送经持久连接到达后转发到 {@link EventBus}。
+ * - stream 接收分块流式响应（如 streamExport 导出），每收到一块即回调，整个结果不在客户端内存中堆积。
+ * - 线程安全: send 无共享可变状态；sendAsync 的共享连接由锁保护。
  * @author Msgo-srAm
  */
 public final class ClientNetworkHelper {
@@ -38,9 +65,34 @@ public final class ClientNetworkHelper {
             .registerTypeAdapter(UUID.class, new UUIDAdapter())
             .create();
 
+    // 是否向服务端声明支持压缩响应，可通过 client.compression=false 关闭
+    private static final boolean COMPRESSION = !"false".equalsIgnoreCase(Config.get("client.compression"));
+    // 希望服务端使用的响应编码：json（默认）或 binary；二进制响应在读取时还原为 JSON 字符串，调用方无感知
+    private static final boolean BINARY_CODEC = WireFormat.CODEC_BINARY.equalsIgnoreCase(Config.get("client.codec"));
+    private static final ReentrantLock PIPELINE_LOCK = new ReentrantLock();
+    private static PipelinedConnection pipeline;
+
+    // 推送主题类别
+    public static final String PUSH_SEATS = "seats";
+    public static final String PUSH_STOCK = "stock";
+    public static final String PUSH_BALANCE = "balance";
+    // 当前订阅的推送主题，重连后自动恢复
+    private static final Set<String> SUBSCRIPTIONS = ConcurrentHashMap.newKeySet();
+    private static final AtomicBoolean RESUBSCRIBE_SCHEDULED = new AtomicBoolean();
+    private static final int RESUBSCRIBE_DELAY_SECONDS = 3;
+    // 流式响应中数据块帧的响应码，其后还有帧；其余响应码的帧为结束帧
+    private static final int CODE_CHUNK = 206;
+    // 单个 batch 请求的最大子请求数，与服务端 server.batch.maxSize 一致（同一配置文件，可按部署调整）
+    private static final int BATCH_MAX_SIZE = batchMaxSize();
+
     private ClientNetworkHelper() {}
 
     public static String send(Request request) throws IOException {
+        ConditionalCache.Exchange exchange = ConditionalCache.prepare(request);
+        return exchange.complete(sendOnce(exchange.request()));
+    }
+
+    private static String sendOnce(Request request) throws IOException {
         Socket socket = null;
         DataInputStream dis = null;
         DataOutputStream dos = null;
@@ -48,14 +100,16 @@ public final class ClientNetworkHelper {
             socket = new Socket(SERVER_HOST, SERVER_PORT);
             dis = new DataInputStream(socket.getInputStream());
             dos = new DataOutputStream(socket.getOutputStream());
-            byte[] jsonBytes = GSON.toJson(request).getBytes(StandardCharsets.UTF_8);
-            dos.writeInt(jsonBytes.length);
-            dos.write(jsonBytes);
+            // hello 与业务请求连续写出，不额外增加往返
+            if (needsHello()) {
+                writeFrame(dos, GSON.toJson(newHelloRequest()).getBytes(StandardCharsets.UTF_8));
+            }
+            writeFrame(dos, GSON.toJson(request).getBytes(StandardCharsets.UTF_8));
             dos.flush();
-            int respLen = dis.readInt();
-            byte[] respBytes = new byte[respLen];
-            dis.readFully(respBytes);
-            return new String(respBytes, StandardCharsets.UTF_8);
+            if (needsHello()) {
+                readFrame(dis); // hello 应答，不支持协商的旧服务端返回错误响应，同样忽略
+            }
+            return readFrame(dis);
         } finally {
             safeClose(dis);
             safeClose(dos);
@@ -63,6 +117,212 @@ public final class ClientNetworkHelper {
         }
     }
 
+    /**
+     * 流式请求：服务端以一串 206 数据块帧分块返回结果，每收到一块即在调用线程上交给 onChunk，
+     * 调用方可边收边渲染或写文件。使用独立短连接，不占用 sendAsync 的共享连接。
+     * @param onChunk 接收一块数据（行数组）；抛出异常时中止接收并关闭连接，服务端随之停止读取
+     * @return 结束帧的 JSON（成功时 code 为 200，data 为汇总；出错时为错误响应，已收到的数据不完整）
+     */
+    public static String stream(Request request, Consumer<JsonArray> onChunk) throws IOException {
+        Socket socket = null;
+        DataInputStream dis = null;
+        DataOutputStream dos = null;
+        try {
+            socket = new Socket(SERVER_HOST, SERVER_PORT);
+            dis = new DataInputStream(socket.getInputStream());
+            dos = new DataOutputStream(socket.getOutputStream());
+            if (needsHello()) {
+                writeFrame(dos, GSON.toJson(newHelloRequest()).getBytes(StandardCharsets.UTF_8));
+            }
+            writeFrame(dos, GSON.toJson(request).getBytes(StandardCharsets.UTF_8));
+            dos.flush();
+            if (needsHello()) {
+                readFrame(dis);
+            }
+            while (true) {
+                String frame = readFrame(dis);
+                JsonObject root = JsonParser.parseString(frame).getAsJsonObject();
+                if (root.get("code").getAsInt() != CODE_CHUNK) {
+                    return frame;
+                }
+                onChunk.accept(root.getAsJsonArray("data"));
+            }
+        } finally {
+            safeClose(dis);
+            safeClose(dos);
+            safeClose(socket);
+        }
+    }
+
+    private static int batchMaxSize() {
+        try {
+            String value = Config.get("server.batch.maxSize");
+            return value == null ? 500 : Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return 500;
+        }
+    }
+
+    /**
+     * 能力协商请求：声明本客户端可解压 deflate 压缩帧、希望使用的响应编码
+     */
+    static Request newHelloRequest() {
+        Map<String, Object> data = new HashMap<>();
+        if (COMPRESSION) data.put("compression", "deflate");
+        data.put("codec", BINARY_CODEC ? WireFormat.CODEC_BINARY : WireFormat.CODEC_JSON);
+        return new Request("hello", data);
+    }
+
+    /**
+     * 默认配置（JSON、不压缩）与旧协议一致，无需协商
+     */
+    static boolean needsHello() {
+        return COMPRESSION || BINARY_CODEC;
+    }
+
+    static void writeFrame(DataOutputStream dos, byte[] body) throws IOException {
+        writeFrame(dos, body, 0);
+    }
+
+    static void writeFrame(DataOutputStream dos, byte[] body, int flags) throws IOException {
+        dos.writeInt(body.length | flags);
+        dos.write(body);
+    }
+
+    /**
+     * 读取一帧响应并还原为 JSON 字符串；帧标记见 {@link WireFormat}
+     */
+    static String readFrame(DataInputStream dis) throws IOException {
+        int header = dis.readInt();
+        byte[] body = new byte[WireFormat.bodyLength(header)];
+        dis.readFully(body);
+        if (WireFormat.isCompressed(header)) {
+            body = inflate(body);
+        }
+        if (WireFormat.isBinary(header)) {
+            return BinaryJsonDecoder.decode(body, 0, body.length).toString();
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] inflate(byte[] body) throws IOException {
+        Inflater inflater = new Inflater();
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(body), inflater)) {
+            return in.readAllBytes();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 以二进制编码写出请求帧体（仅在服务端已确认支持 binary 后使用）
+     */
+    static byte[] encodeBinary(Request request) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GSON.toJson(request, Request.class, new BinaryJsonWriter(bytes));
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 异步发送：请求携带 requestId，在共享的持久连接上流水线发出，不等待前一个响应。
+     * 适用于界面一次加载需要多个相互独立的请求的场景（先全部发出，再依次 get）。
+     * 连接断开时返回的 future 以异常结束，下次调用自动重连。
+     */
+    public static CompletableFuture<String> sendAsync(Request request) {
+        ConditionalCache.Exchange exchange = ConditionalCache.prepare(request);
+        PipelinedConnection conn;
+        try {
+            conn = pipeline();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return conn.send(exchange.request()).thenApply(exchange::complete);
+    }
+
+    /**
+     * 取得共享的持久连接，断开时重新建立并恢复推送订阅
+     */
+    private static PipelinedConnection pipeline() throws IOException {
+        PIPELINE_LOCK.lock();
+        try {
+            if (pipeline == null || pipeline.isClosed()) {
+                pipeline = new PipelinedConnection(SERVER_HOST, SERVER_PORT, GSON);
+                if (!SUBSCRIPTIONS.isEmpty()) {
+                    pipeline.send(subscriptionRequest("subscribe", new ArrayList<>(SUBSCRIPTIONS)));
+                }
+            }
+            return pipeline;
+        } finally {
+            PIPELINE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * 订阅服务端推送，主题有变化时以 "push:类别" 事件携带最新数据转发到 {@link EventBus}（在 FX 线程上）。
+     * 推送经 sendAsync 的持久连接送达；连接断开后自动重连并恢复订阅。
+     * @param topics 主题，用 {@link #pushTopic(String, Object)} 构造，如 seats:教学班UUID、stock:商品UUID、balance:一卡通号
+     * @return 服务端应答，data 为实际生效的主题
+     */
+    public static CompletableFuture<String> subscribe(Collection<String> topics) {
+        CompletableFuture<String> result = sendAsync(subscriptionRequest("subscribe", new ArrayList<>(topics)));
+        // 先发送再登记，避免新建连接时恢复订阅与本次订阅重复发送
+        SUBSCRIPTIONS.addAll(topics);
+        return result;
+    }
+
+    public static CompletableFuture<String> unsubscribe(Collection<String> topics) {
+        SUBSCRIPTIONS.removeAll(topics);
+        return sendAsync(subscriptionRequest("unsubscribe", new ArrayList<>(topics)));
+    }
+
+    /**
+     * 推送主题名
+     * @param kind {@link #PUSH_SEATS}、{@link #PUSH_STOCK} 或 {@link #PUSH_BALANCE}
+     * @param key 教学班 UUID、商品 UUID 或一卡通号
+     */
+    public static String pushTopic(String kind, Object key) {
+        return kind + ":" + key;
+    }
+
+    /**
+     * 推送事件在 EventBus 上的事件名，如 "push:seats"
+     */
+    public static String pushEvent(String kind) {
+        return "push:" + kind;
+    }
+
+    private static Request subscriptionRequest(String type, List<String> topics) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("topics", topics);
+        return new Request(type, data);
+    }
+
+    /**
+     * 读线程收到推送帧时调用：按主题类别转发到 EventBus
+     */
+    static void onPush(JsonObject frame) {
+        String topic = frame.get("topic").getAsString();
+        int colon = topic.indexOf(':');
+        String kind = colon < 0 ? topic : topic.substring(0, colon);
+        Object data = GSON.fromJson(frame.get("data"), Object.class);
+        EventBus.post(pushEvent(kind), data);
+    }
+
+    /**
+     * 持久连接断开时调用：仍有订阅则稍后重连以恢复推送
+     */
+    static void onPipelineClosed() {
+        if (SUBSCRIPTIONS.isEmpty() || !RESUBSCRIBE_SCHEDULED.compareAndSet(false, true)) return;
+        CompletableFuture.runAsync(() -> {
+            RESUBSCRIBE_SCHEDULED.set(false);
+            try {
+                pipeline();
+            } catch (IOException e) {
+                onPipelineClosed();
+            }
+        }, CompletableFuture.delayedExecutor(RESUBSCRIBE_DELAY_SECONDS, TimeUnit.SECONDS));
+    }
+
     public static String getServerHost() {
         return SERVER_HOST;
     }
@@ -235,6 +495,45 @@ public final class ClientNetworkHelper {
         req.setData(data);
         return send(req);
     }
+    // 与已选课程时间冲突的全部教学班 UUID
+    public static String getConflictingTeachingClasses(String cardNumber) throws IOException {
+        Request req = new Request();
+        req.setType("getConflictingTeachingClasses");
+        Map<String, Object> data = new HashMap<>();
+        data.put("cardNumber", normalizeCardNumberValue(cardNumber));
+        req.setData(data);
+        return send(req);
+    }
+    // 批量导入课表前检查教室/教师重复占用；teachingClasses 为空时检查已有教学班
+    public static String checkTimetableCollisions(List<Map<String, Object>> teachingClasses) throws IOException {
+        Request req = new Request();
+        req.setType("checkTimetableCollisions");
+        Map<String, Object> data = new HashMap<>();
+        if (teachingClasses != null) data.put("teachingClasses", teachingClasses);
+        req.setData(data);
+        return send(req);
+    }
+    // 某天第 startPeriod ~ endPeriod 节有课的教学班，weekday 1 = 周一 ... 7 = 周日
+    public static String getTeachingClassesAt(int weekday, int startPeriod, int endPeriod) throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("weekday", weekday);
+        data.put("startPeriod", startPeriod);
+        data.put("endPeriod", endPeriod);
+        return send(new Request("getTeachingClassesAt", data));
+    }
+    // 教师一周课表：data.slots 为上课时间列表，data.periods 为总课时（节数）
+    public static String getTeacherWeeklySchedule(String teacherName) throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("teacherName", teacherName);
+        return send(new Request("getTeacherWeeklySchedule", data));
+    }
+    // 教室和/或教师一周的空闲节次（两者都给出时为共同空闲），不限定的一方传 null
+    public static String getFreePeriods(String place, String teacherName) throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        if (place != null) data.put("place", place);
+        if (teacherName != null) data.put("teacherName", teacherName);
+        return send(new Request("getFreePeriods", data));
+    }
     public static String dropCourse(String cardNumber, String courseId) throws IOException {
         Request req = new Request();
         req.setType("dropCourse");
@@ -254,6 +553,26 @@ public final class ClientNetworkHelper {
         return send(req);
     }
 
+    /**
+     * 课程目录增量同步：返回游标之后变化过的课程、教学班与选课人数
+     * @param since 上次响应中的 cursor，首次传 null；响应 reset 为 true 时需整表重新加载
+     */
+    public static String getCatalogChanges(String since) throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("since", since);
+        return send(new Request("getCatalogChanges", data));
+    }
+
+    /**
+     * 教学班实时选课人数与容量；目录响应可能来自服务端缓存，其中的 selectedCount 只是快照
+     * @return data 为 UUID -> {selectedCount, capacity}
+     */
+    public static String getSeatCounts(Collection<String> uuids) throws IOException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("uuids", new ArrayList<>(uuids));
+        return send(new Request("getSeatCounts", data));
+    }
+
     // 获取所有教学班
     public static String getAllTeachingClasses() throws IOException {
         Request req = new Request();
@@ -263,6 +582,55 @@ public final class ClientNetworkHelper {
         return send(req);
     }
 
+    /**
+     * 批量发送：多个请求合并为 batch 请求，一次往返返回全部结果。
+     * 超过服务端单批上限（server.batch.maxSize）时按上限分成多个 batch 依次发送，结果按原顺序合并。
+     * @param requests 子请求列表（不可再嵌套 batch）
+     * @param parallel 子请求互不依赖时可令服务端并发执行
+     * @return 与 requests 一一对应的原始 JSON 响应字符串，调用方可按单个 send 的方式解析
+     * @throws IOException 网络异常或服务端拒绝某个批次
+     */
+    public static List<String> sendBatch(List<Request> requests, boolean parallel) throws IOException {
+        List<String> results = new ArrayList<>(requests.size());
+        for (int from = 0; from < requests.size(); from += BATCH_MAX_SIZE) {
+            int to = Math.min(requests.size(), from + BATCH_MAX_SIZE);
+            results.addAll(sendBatchChunk(requests.subList(from, to), parallel));
+        }
+        return results;
+    }
+
+    private static List<String> sendBatchChunk(List<Request> requests, boolean parallel) throws IOException {
+        List<Map<String, Object>> items = new ArrayList<>(requests.size());
+        List<ConditionalCache.Exchange> exchanges = new ArrayList<>(requests.size());
+        for (Request r : requests) {
+            ConditionalCache.Exchange exchange = ConditionalCache.prepare(r);
+            exchanges.add(exchange);
+            Map<String, Object> item = new HashMap<>();
+            item.put("type", exchange.request().getType());
+            item.put("data", exchange.request().getData());
+            items.add(item);
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("requests", items);
+        data.put("parallel", parallel);
+        String resp = sendOnce(new Request("batch", data));
+
+        JsonObject root = JsonParser.parseString(resp).getAsJsonObject();
+        if (root.get("code").getAsInt() != 200 || !root.get("data").isJsonArray()) {
+            throw new IOException("批量请求失败: " + root.get("message"));
+        }
+        List<String> results = new ArrayList<>(requests.size());
+        JsonArray responses = root.getAsJsonArray("data");
+        // 分批合并依赖子响应与子请求一一对应，数量不符时整体失败，避免结果错位
+        if (responses.size() != exchanges.size()) {
+            throw new IOException("批量请求失败: 子响应数量 " + responses.size() + " 与子请求数量 " + exchanges.size() + " 不一致");
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            results.add(exchanges.get(i).complete(responses.get(i).toString()));
+        }
+        return results;
+    }
+
     private static void safeClose(AutoCloseable c) {
         if (c != null) {
             try {
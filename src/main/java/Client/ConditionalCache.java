@@ -0,0 +1,119 @@
+package Client;
+
+import Client.model.Request;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 目录类列表（课程、教学班、商品、挂失一卡通）的条件获取缓存。
+ * 服务端在这些响应中附带 version；再次请求同一列表时自动带上 ifNoneMatch，
+ * 数据未变化时服务端只回 304，此处换回上次的完整响应，调用方无感知。
+ * 由 {@link ClientNetworkHelper} 的 send / sendAsync / sendBatch 统一调用。
+ */
+final class ConditionalCache {
+    private static final Set<String> CACHEABLE_TYPES = Set.of(
+            "getAllCourses", "getCoursesBySchool", "getAllTeachingClasses", "getTeachingClassesByCourseId",
+            "getAllItems", "getItemsByCategory", "findAllLostCards");
+    private static final int MAX_ENTRIES = 64;
+    private static final int NOT_MODIFIED = 304;
+
+    private static final Gson GSON = new Gson();
+    // 以 LinkedHashMap 自身为锁
+    private static final LinkedHashMap<String, Entry> ENTRIES = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private ConditionalCache() {}
+
+    /**
+     * 发送前调用
+     * @return 一次条件获取；{@link Exchange#request()} 为实际要发送的请求：有本地副本时是带 ifNoneMatch 的副本，
+     *         否则是原请求（不修改调用方的 data）
+     */
+    static Exchange prepare(Request request) {
+        String key = keyOf(request);
+        if (key == null) return new Exchange(request, null, null);
+        Entry cached;
+        synchronized (ENTRIES) {
+            cached = ENTRIES.get(key);
+        }
+        if (cached == null) return new Exchange(request, key, null);
+        Map<String, Object> data = request.getData() == null ? new HashMap<>() : new HashMap<>(request.getData());
+        data.put("ifNoneMatch", cached.version);
+        return new Exchange(new Request(request.getType(), data), key, cached);
+    }
+
+    /**
+     * 一次条件获取：记录发送时所用的本地副本，收到 304 时即使副本已被淘汰也能换回
+     */
+    static final class Exchange {
+        private final Request request;
+        private final String key;
+        private final Entry cached;
+
+        private Exchange(Request request, String key, Entry cached) {
+            this.request = request;
+            this.key = key;
+            this.cached = cached;
+        }
+
+        Request request() {
+            return request;
+        }
+
+        /**
+         * 收到响应后调用：304 换回本地副本，带 version 的成功响应存为新副本
+         * @return 交给调用方的响应 JSON
+         */
+        String complete(String response) {
+            if (key == null || response == null) return response;
+            JsonObject root;
+            try {
+                root = JsonParser.parseString(response).getAsJsonObject();
+            } catch (RuntimeException e) {
+                return response;
+            }
+            JsonElement code = root.get("code");
+            JsonElement version = root.get("version");
+            if (code == null || version == null || version.isJsonNull()) return response;
+
+            if (code.getAsInt() == NOT_MODIFIED && cached != null) {
+                return cached.response;
+            }
+            if (code.getAsInt() == 200) {
+                // 响应编号只对当次请求有意义，不随副本复用
+                root.remove("requestId");
+                synchronized (ENTRIES) {
+                    ENTRIES.put(key, new Entry(version.getAsString(), root.toString()));
+                }
+            }
+            return response;
+        }
+    }
+
+    private static String keyOf(Request request) {
+        if (request == null || !CACHEABLE_TYPES.contains(request.getType())) return null;
+        Map<String, Object> data = request.getData();
+        return request.getType() + (data == null || data.isEmpty() ? "" : GSON.toJson(data));
+    }
+
+    private static final class Entry {
+        final String version;
+        final String response;
+
+        Entry(String version, String response) {
+            this.version = version;
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package Client;
+
+import Client.model.Request;
+import Common.codec.WireFormat;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单条持久连接上的请求流水线。
+ * 每个请求携带自增 requestId，写出后立即返回 future；后台读线程按响应中的 requestId 完成对应 future，
+ * 因此多个在途请求只需一次 TCP 握手、约一个 RTT。
+ * 连接出错时所有在途请求以异常结束，下次发送时由 {@link ClientNetworkHelper} 重新建立连接。
+ * 服务端推送帧不带 requestId，交给 {@link ClientNetworkHelper#onPush} 转发到 EventBus。
+ */
+final class PipelinedConnection {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Gson gson;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Long, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+    private volatile boolean binaryRequests;
+
+    PipelinedConnection(String host, int port, Gson gson) throws IOException {
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(socket.getInputStream());
+        this.out = new DataOutputStream(socket.getOutputStream());
+        this.gson = gson;
+        if (ClientNetworkHelper.needsHello()) {
+            // hello 不带 requestId，其应答由读线程处理
+            ClientNetworkHelper.writeFrame(out, gson.toJson(ClientNetworkHelper.newHelloRequest()).getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        Thread reader = new Thread(this::readLoop, "pipeline-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    CompletableFuture<String> send(Request request) {
+        long id = nextId.incrementAndGet();
+        request.setRequestId(id);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        pending.put(id, future);
+        writeLock.lock();
+        try {
+            if (binaryRequests) {
+                ClientNetworkHelper.writeFrame(out, ClientNetworkHelper.encodeBinary(request), WireFormat.BINARY_FLAG);
+            } else {
+                ClientNetworkHelper.writeFrame(out, gson.toJson(request).getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+        } catch (IOException e) {
+            fail(e);
+        } finally {
+            writeLock.unlock();
+        }
+        return future;
+    }
+
+    private void readLoop() {
+        try {
+            while (true) {
+                String json = ClientNetworkHelper.readFrame(in);
+                Long id = readRequestId(json);
+                if (id == null) {
+                    // 不带 requestId 的帧：服务端推送（带 topic）或 hello 应答
+                    JsonObject frame;
+                    try {
+                        frame = JsonParser.parseString(json).getAsJsonObject();
+                    } catch (RuntimeException e) {
+                        continue;
+                    }
+                    if (frame.has("topic") && !frame.get("topic").isJsonNull()) {
+                        try {
+                            ClientNetworkHelper.onPush(frame);
+                        } catch (RuntimeException e) {
+                            // 推送处理出错不能中断读线程，否则在途请求都将等不到响应
+                            System.err.println("[Pipeline] 处理推送失败: " + e.getMessage());
+                        }
+                    } else {
+                        onHelloReply(frame);
+                    }
+                    continue;
+                }
+                CompletableFuture<String> future = pending.remove(id);
+                if (future != null) {
+                    future.complete(json);
+                } else {
+                    System.err.println("[Pipeline] 丢弃无法匹配的响应: requestId=" + id);
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * 服务端确认使用二进制编码后，后续请求也以二进制发送
+     */
+    private void onHelloReply(JsonObject frame) {
+        try {
+            JsonObject data = frame.getAsJsonObject("data");
+            binaryRequests = data != null && data.has("codec")
+                    && WireFormat.CODEC_BINARY.equals(data.get("codec").getAsString());
+        } catch (RuntimeException ignored) {
+            // 旧服务端不认识 hello，保持 JSON
+        }
+    }
+
+    /**
+     * 只读取顶层 requestId 字段（服务端将其放在首位，通常读到第一个字段即可返回），不解析整个响应
+     */
+    private static Long readRequestId(String json) {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("requestId".equals(reader.nextName())) {
+                    if (reader.peek() == JsonToken.NULL) return null;
+                    return reader.nextLong();
+                }
+                reader.skipValue();
+            }
+        } catch (Exception ignored) {
+        }
+        return null;
+    }
+
+    private void fail(IOException cause) {
+        if (!closed) {
+            closed = true;
+            ClientNetworkHelper.onPipelineClosed();
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+        for (Long id : pending.keySet()) {
+            CompletableFuture<String> future = pending.remove(id);
+            if (future != null) future.completeExceptionally(cause);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.util.Map;
  * 用于接收客户端发送的JSON数据
  */
 public class Request {
+    private Long requestId; // 可选的请求编号：携带时服务端可在同一连接上并发处理并乱序应答，响应原样带回
     private String type; // 请求类型，如 "login", "query", "control"
     private Map<String, Object> data; // 请求数据
 
@@ -19,6 +20,14 @@ public class Request {
     }
 
     // Getter和Setter方法
+    public Long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(Long requestId) {
+        this.requestId = requestId;
+    }
+
     public String getType() {
         return type;
     }
@@ -38,7 +47,8 @@ public class Request {
     @Override
     public String toString() {
         return "Request{" +
-                "type='" + type + '\'' +
+                "requestId=" + requestId +
+                ", type='" + type + '\'' +
                 ", data=" + data +
                 '}';
     }
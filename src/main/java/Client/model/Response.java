@@ -5,6 +5,7 @@ package Client.model;
  * 用于向客户端返回JSON格式的响应
  */
 public class Response {
+    private Long requestId; // 对应请求的编号（请求未携带时为 null）
     private int code;    // 状态码：200成功，400客户端错误，500服务器错误
     private String message; // 响应消息
     private Object data; // 响应数据
@@ -39,6 +40,14 @@ public class Response {
     }
 
     // Getter和Setter方法
+    public Long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(Long requestId) {
+        this.requestId = requestId;
+    }
+
     public int getCode() {
         return code;
     }
@@ -75,7 +84,8 @@ public class Response {
     @Override
     public String toString() {
         return "Response{" +
-                "code=" + code +
+                "requestId=" + requestId +
+                ", code=" + code +
                 ", message='" + message + '\'' +
                 ", data=" + data +
                 ", success=" + success +
@@ -2,6 +2,7 @@ package Client.panel.course.coursemgmt;
 
 import Client.ClientNetworkHelper;
 import Client.model.Request;
+import Common.schedule.Schedule;
 import com.google.gson.Gson;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -300,119 +301,7 @@ public class TimetableSearchPanel extends BorderPane {
             unscheduledCourses.add(new TimetableSearchPanel.CourseSlot(courseName, location, teacher, null, 0, 0, COURSE_COLORS[Math.abs(courseName.hashCode()) % COURSE_COLORS.length]));
             return;
         }
-
-        boolean parsedAny = false;
-        for (String day : DAYS_OF_WEEK) {
-            if (!schedule.contains(day)) continue;
-            String timePart = schedule.replace(day, "").trim();
-
-            // 支持多种格式：单个或多个时间段，用逗号/分号分隔，例如 "1-2节,11-13节"
-            String tp = timePart;
-            // 将时间段按常见分隔符拆分
-            String[] segments = tp.split("\\s*[,，;；]\\s*");
-            for (String seg : segments) {
-                String part = seg.trim();
-                if (part.endsWith("节")) part = part.substring(0, part.length() - 1).trim();
-
-                int[] res = parseTimeToSlots(part);
-                if (res != null) {
-                    int startSlot = res[0];
-                    int duration = res[1];
-                    if (duration > 0 && startSlot >= 1) {
-                        TimetableSearchPanel.CourseSlot slot = new TimetableSearchPanel.CourseSlot(courseName, location, teacher, day, startSlot, duration,
-                                COURSE_COLORS[Math.abs(courseName.hashCode()) % COURSE_COLORS.length]);
-                        scheduleMap.computeIfAbsent(day, k -> new ArrayList<>()).add(slot);
-                        System.out.println("[Timetable] added slot -> " + day + " " + startSlot + "-" + (startSlot + duration - 1) + " for " + courseName);
-                        parsedAny = true;
-                    }
-                } else {
-                    System.err.println("[Timetable] 无法解析时间片段: '" + seg + "' for course: " + courseName);
-                }
-            }
-        }
-
-        if (!parsedAny) {
-            // 如果无法解析出具体 week-day 节次，尝试按纯时间解析并加入未排课
-            int[] res = parseTimeToSlots(schedule.replaceAll("节", "").trim());
-            if (res != null) {
-                // 时间存在但没有 day 信息，加入未排课，用 day=null 表示
-                unscheduledCourses.add(new TimetableSearchPanel.CourseSlot(courseName, location, teacher, null, res[0], res[1], COURSE_COLORS[Math.abs(courseName.hashCode()) % COURSE_COLORS.length]));
-                System.out.println("[Timetable] added unscheduled (time-only) -> " + courseName + " slots=" + res[0] + ",dur=" + res[1]);
-                return;
-            } else {
-                // 完全无法解析，加入未排课占位
-                unscheduledCourses.add(new TimetableSearchPanel.CourseSlot(courseName, location, teacher, null, 0, 0, COURSE_COLORS[Math.abs(courseName.hashCode()) % COURSE_COLORS.length]));
-                System.out.println("[Timetable] added unscheduled (unknown) -> " + courseName);
-            }
-        }
-    }
-
-    // 将类似 "1-2" / "1" / "08:00-09:40" 映射到节次 start & duration
-    private int[] parseTimeToSlots(String tp) {
-        if (tp == null) return null;
-        tp = tp.trim();
-        if (tp.isEmpty()) return null;
-        // 1-2 或 1
-        try {
-            if (tp.matches("\\d+-\\d+")) {
-                String[] parts = tp.split("-");
-                int s = Integer.parseInt(parts[0].trim());
-                int e = Integer.parseInt(parts[1].trim());
-                if (s >= 1 && e >= s) return new int[]{s, e - s + 1};
-            }
-            if (tp.matches("\\d+")) {
-                int s = Integer.parseInt(tp);
-                if (s >= 1) return new int[]{s, 1};
-            }
-        } catch (NumberFormatException ignored) {}
-
-        // 时间段 HH:mm-HH:mm，尝试匹配 TIME_SLOTS
-        if (tp.matches("\\d{1,2}:\\d{2}\\s*-\\s*\\d{1,2}:\\d{2}")) {
-            String[] parts = tp.split("-");
-            String start = parts[0].trim();
-            String end = parts[1].trim();
-            // 找到第一个 slot whose start equals start (or contains start)
-            int first = -1;
-            int last = -1;
-            for (int i = 0; i < TIME_SLOTS.length; i++) {
-                String slot = TIME_SLOTS[i]; // e.g. "08:00-08:45"
-                String[] se = slot.split("-");
-                String s = se[0].trim();
-                String e = se.length > 1 ? se[1].trim() : s;
-                if (first == -1) {
-                    if (s.equals(start) || start.startsWith(s) || s.startsWith(start)) {
-                        first = i + 1; // slots are 1-based
-                    }
-                }
-                if (first != -1) {
-                    // if this slot end equals or overlaps end time, mark last
-                    if (e.equals(end) || end.startsWith(e) || e.startsWith(end) || compareTime(e, end) >= 0) {
-                        last = i + 1;
-                        break;
-                    }
-                }
-            }
-            if (first != -1) {
-                if (last == -1) last = first;
-                return new int[]{first, last - first + 1};
-            }
-        }
-        return null;
-    }
-
-    // 比较时间字符串 HH:mm，返回 negative if a < b, 0 if equal, positive if a > b
-    private int compareTime(String a, String b) {
-        try {
-            String[] pa = a.split(":");
-            String[] pb = b.split(":");
-            int ha = Integer.parseInt(pa[0].trim());
-            int ma = Integer.parseInt(pa[1].trim());
-            int hb = Integer.parseInt(pb[0].trim());
-            int mb = Integer.parseInt(pb[1].trim());
-            return (ha * 60 + ma) - (hb * 60 + mb);
-        } catch (Exception ex) {
-            return 0;
-        }
+        parseScheduleEntry(courseName, schedule, location, teacher);
     }
 
     private void renderTimetable() {
@@ -712,40 +601,6 @@ public class TimetableSearchPanel extends BorderPane {
         );
     }
 
-    // 将各种 day 表示��中文/英文缩写/英文全名/数字1-7）规范化为中文 "周一".."周日"
-    private String normalizeDay(String raw) {
-        if (raw == null) return null;
-        String s = raw.trim();
-        if (s.isEmpty()) return null;
-        // 中文直接返回含周的形式
-        if (s.startsWith("周") || s.startsWith("星期")) {
-            if (s.length() >= 2) {
-                // 处理 "星期一" 或 "周一"
-                if (s.startsWith("星期")) return "周" + s.substring(2, 3);
-                return s.startsWith("周") && s.length() >= 2 ? s.substring(0, 2) : null;
-            }
-        }
-        // 数字形式 1..7 或 01..07
-        try {
-            int v = Integer.parseInt(s);
-            if (v >= 1 && v <= 7) {
-                return DAYS_OF_WEEK[v - 1];
-            }
-        } catch (Exception ignored) {}
-        // 英文全称/缩写
-        String lower = s.toLowerCase();
-        switch (lower) {
-            case "mon": case "monday": return "周一";
-            case "tue": case "tues": case "tuesday": return "周二";
-            case "wed": case "wednesday": return "周三";
-            case "thu": case "thurs": case "thursday": return "周四";
-            case "fri": case "friday": return "周五";
-            case "sat": case "saturday": return "周六";
-            case "sun": case "sunday": return "周日";
-            default: return null;
-        }
-    }
-
     // 课程槽位数据类
     private static class CourseSlot {
         String name;
@@ -768,246 +623,26 @@ public class TimetableSearchPanel extends BorderPane {
         }
     }
 
-    // 解析单个教学班的 schedule 字符串并加入 scheduleMap
+    // 解析单个教学班的 schedule 字符串并加入 scheduleMap（兼容的写法见 Common.schedule.Schedule）
     private void parseScheduleEntry(String courseName, String schedule, String place, String teacher) {
-        if (schedule == null) schedule = "";
-        schedule = schedule.trim();
-        if (schedule.isEmpty()) return;
-
-        // 如果是 JSON 格式，尝试解析为 Map 或 List 并抽取常见字段
-        if ((schedule.startsWith("{") && schedule.endsWith("}")) || (schedule.startsWith("[") && schedule.endsWith("]"))) {
-            Gson gson = new Gson();
-            try {
-                if (schedule.startsWith("[")) {
-                    // JSON 数组，解析为 List
-                    List<Map<String, Object>> arr = gson.fromJson(schedule, List.class);
-                    for (Map<String, Object> item : arr) {
-                        if (item == null) continue;
-                        // 尝试从 item 中抽取 day/time 或作为 time 值
-                        String day = extractDayFromMap(item);
-                        String time = extractTimeFromMap(item);
-                        if (day != null && time != null) {
-                            String combined = normalizeDay(day);
-                            combined = (combined == null ? day : combined) + time;
-                            Map<String, Object> tmp = new HashMap<>();
-                            tmp.put("courseName", courseName);
-                            tmp.put("schedule", combined);
-                            tmp.put("place", place);
-                            tmp.put("teacher", teacher);
-                            parseCourseSchedule(tmp);
-                        } else if (time != null) {
-                            // 没有 day，只能作为未排课程（带时间）
-                            int[] res = parseTimeToSlots(time);
-                            if (res != null) {
-                                unscheduledCourses.add(new TimetableSearchPanel.CourseSlot(courseName, place, teacher, null, res[0], res[1], COURSE_COLORS[Math.abs(courseName.hashCode()) % COURSE_COLORS.length]));
-                            }
-                        }
-                    }
-                    return;
-                } else {
-                    Map<String, Object> s = gson.fromJson(schedule, Map.class);
-                    // 先尝试从常见字段抽取 day/time
-                    String day = extractDayFromMap(s);
-                    String time = extractTimeFromMap(s);
-
-                    // 如果这是一个多键的对象（可能是 day->time 映射，例如 {"周一":"9-11节","周日":"9-11节"}），应遍历每个条目而不是把整个 Map 当作单个 day/time 处理
-                    boolean multiKeyDayMap = false;
-                    if (s.size() > 1) {
-                        int dayLike = 0;
-                        for (String k : s.keySet()) {
-                            if (normalizeDay(k) != null) dayLike++;
-                        }
-                        if (dayLike >= 1) multiKeyDayMap = true;
-                    }
-
-                    if (multiKeyDayMap) {
-                        for (Map.Entry<String, Object> e : s.entrySet()) {
-                            String k = e.getKey();
-                            Object v = e.getValue();
-                            if (k == null) continue;
-                            String key = String.valueOf(k);
-                            String val = v == null ? null : String.valueOf(v);
-                            String norm = normalizeDay(key);
-                            if (norm != null) {
-                                // 如果值中包含多个时间段，用分隔符拆开并分别解析
-                                if (val != null && !val.trim().isEmpty()) {
-                                    String[] parts = val.split("\\s*[,，;；]\\s*");
-                                    for (String part : parts) {
-                                        if (part == null) continue;
-                                        String timeStr = part.trim();
-                                        if (timeStr.isEmpty()) continue;
-                                        Map<String, Object> tmp = new HashMap<>();
-                                        tmp.put("courseName", courseName);
-                                        tmp.put("schedule", norm + timeStr);
-                                        tmp.put("place", place);
-                                        tmp.put("teacher", teacher);
-                                        parseCourseSchedule(tmp);
-                                    }
-                                } else {
-                                    unscheduledCourses.add(new TimetableSearchPanel.CourseSlot(courseName, place, teacher, norm, 0, 0, COURSE_COLORS[Math.abs(courseName.hashCode()) % COURSE_COLORS.length]));
-                                }
-                            } else {
-                                String timeStr = extractTimeFromString(val == null ? key : (key + " " + val));
-                                String dayFromKey = normalizeDay(key);
-                                if (dayFromKey != null) {
-                                    // 如果 key 是可解析为 day 的形式，优先使用原始值作为时间段（可能包含多个段）
-                                    String rawTime = val == null ? key : val;
-                                    String[] parts = rawTime.split("\\s*[,，;；]\\s*");
-                                    for (String part : parts) {
-                                        if (part == null) continue;
-                                        String timePart = part.trim();
-                                        if (timePart.isEmpty()) continue;
-                                        Map<String, Object> tmp = new HashMap<>();
-                                        tmp.put("courseName", courseName);
-                                        tmp.put("schedule", dayFromKey + timePart);
-                                        tmp.put("place", place);
-                                        tmp.put("teacher", teacher);
-                                        parseCourseSchedule(tmp);
-                                    }
-                                } else if (timeStr != null) {
-                                    int[] res = parseTimeToSlots(timeStr);
-                                    if (res != null) {
-                                        unscheduledCourses.add(new TimetableSearchPanel.CourseSlot(courseName, place, teacher, null, res[0], res[1], COURSE_COLORS[Math.abs(courseName.hashCode()) % COURSE_COLORS.length]));
-                                    }
-                                }
-                            }
-                        }
-                        return;
-                    }
-
-                    // 处理单键或含显式 day/time 字段的情况（保持原有行为）
-                    if (day == null && (time == null)) {
-                        for (Map.Entry<String, Object> e : s.entrySet()) {
-                            String k = e.getKey();
-                            String v = e.getValue() == null ? null : String.valueOf(e.getValue());
-                            if (v == null) continue;
-                            String extracted = extractTimeFromString(v);
-                            if (extracted != null) {
-                                time = extracted;
-                                break;
-                            }
-                        }
-                    }
-
-                    if (day != null && time != null) {
-                        String combined = normalizeDay(day);
-                        combined = (combined == null ? day : combined) + time;
-                        Map<String, Object> tmp = new HashMap<>();
-                        tmp.put("courseName", courseName);
-                        tmp.put("schedule", combined);
-                        tmp.put("place", place);
-                        tmp.put("teacher", teacher);
-                        parseCourseSchedule(tmp);
-                        System.out.println("[Timetable] parsed JSON schedule -> " + combined + " for " + courseName);
-                        return;
-                    }
-
-                    if (time != null && day == null) {
-                        int[] res = parseTimeToSlots(time);
-                        if (res != null) {
-                            unscheduledCourses.add(new TimetableSearchPanel.CourseSlot(courseName, place, teacher, null, res[0], res[1], COURSE_COLORS[Math.abs(courseName.hashCode()) % COURSE_COLORS.length]));
-                            return;
-                        }
-                    }
-
-                    // 如果到这里仍未处理，则继续后续文本解析逻辑
-                }
-            } catch (Exception ex) {
-                System.err.println("[Timetable] JSON schedule parse failed: " + ex.getMessage());
-                // fallthrough to plain text handling
-            }
-        }
-
-        // 不是 JSON 或 JSON 解析失败，按纯文本尝试解析（例如: "周一1-2节","周二5节","周三3-4"、或者只有时间段）
-        // 先尝试把字符串中的时间片提取出来
-        String extractedTime = extractTimeFromString(schedule);
-        String dayFound = null;
-        for (String d : DAYS_OF_WEEK) {
-            if (schedule.contains(d)) { dayFound = d; break; }
-            // 也支持数字/英文 day 放在字符串中
-        }
-        if (dayFound != null && extractedTime != null) {
-            Map<String, Object> tmp = new HashMap<>();
-            tmp.put("courseName", courseName);
-            tmp.put("schedule", dayFound + extractedTime);
-            tmp.put("place", place);
-            tmp.put("teacher", teacher);
-            parseCourseSchedule(tmp);
+        if (schedule == null || schedule.trim().isEmpty()) return;
+        String color = COURSE_COLORS[Math.abs(courseName.hashCode()) % COURSE_COLORS.length];
+        List<Schedule.Slot> slots = Schedule.parse(schedule).slots();
+        if (slots.isEmpty()) {
+            // 完全无法解析，加入未排课占位
+            unscheduledCourses.add(new TimetableSearchPanel.CourseSlot(courseName, place, teacher, null, 0, 0, color));
             return;
         }
-
-        // 无 day 信息但有时间
-        if (extractedTime != null) {
-            int[] res = parseTimeToSlots(extractedTime);
-            if (res != null) {
-                unscheduledCourses.add(new TimetableSearchPanel.CourseSlot(courseName, place, teacher, null, res[0], res[1], COURSE_COLORS[Math.abs(courseName.hashCode()) % COURSE_COLORS.length]));
-                return;
+        for (Schedule.Slot slot : slots) {
+            if (slot.day() < 0) {
+                // 时间存在但没有 day 信息，加入未排课，用 day=null 表示
+                unscheduledCourses.add(new TimetableSearchPanel.CourseSlot(courseName, place, teacher, null, slot.startPeriod(), slot.length(), color));
+            } else {
+                String day = DAYS_OF_WEEK[slot.day()];
+                scheduleMap.computeIfAbsent(day, k -> new ArrayList<>())
+                        .add(new TimetableSearchPanel.CourseSlot(courseName, place, teacher, day, slot.startPeriod(), slot.length(), color));
             }
         }
-
-        // 其它情况作为未排课占位
-        unscheduledCourses.add(new TimetableSearchPanel.CourseSlot(courseName, place, teacher, null, 0, 0, COURSE_COLORS[Math.abs(courseName.hashCode()) % COURSE_COLORS.length]));
-    }
-
-    // 尝试从 Map 中提取 day 字段��支持多种命名）
-    private String extractDayFromMap(Map<String, Object> m) {
-        if (m == null) return null;
-        Object o = null;
-        if (m.get("day") != null) o = m.get("day");
-        else if (m.get("weekday") != null) o = m.get("weekday");
-        else if (m.get("week") != null) o = m.get("week");
-        else if (m.get("dayOfWeek") != null) o = m.get("dayOfWeek");
-        if (o != null) return String.valueOf(o);
-        // 也检查键是否本身是 day-like
-        for (String k : m.keySet()) {
-            String norm = normalizeDay(k);
-            if (norm != null) return k;
-        }
-        return null;
-    }
-
-    // 尝试从 Map 中提取 time 字段或第一个匹配的时间值
-    private String extractTimeFromMap(Map<String, Object> m) {
-        if (m == null) return null;
-        Object o = null;
-        if (m.get("time") != null) o = m.get("time");
-        else if (m.get("timeRange") != null) o = m.get("timeRange");
-        else if (m.get("range") != null) o = m.get("range");
-        if (o != null) return String.valueOf(o);
-        // 其他可能：值本身可能是时间
-        for (Object v : m.values()) {
-            if (v == null) continue;
-            String s = String.valueOf(v);
-            String extracted = extractTimeFromString(s);
-            if (extracted != null) return extracted;
-        }
-        return null;
-    }
-
-    // 从任意字符串中提取首个时间片样式（如 1-2, 1, 08:00-09:40），容忍非数字/乱码
-    private String extractTimeFromString(String s) {
-        if (s == null) return null;
-        String t = s.trim();
-        // 先尝试数字区间
-        java.util.regex.Pattern p1 = java.util.regex.Pattern.compile("(\\d{1,2}\\s*-\\s*\\d{1,2})");
-        java.util.regex.Matcher m1 = p1.matcher(t);
-        if (m1.find()) return m1.group(1).replaceAll("\\s", "");
-        java.util.regex.Pattern p2 = java.util.regex.Pattern.compile("(\\d{1,2})\\s*节");
-        java.util.regex.Matcher m2 = p2.matcher(t);
-        if (m2.find()) return m2.group(1);
-        // 时间段 HH:MM-HH:MM
-        java.util.regex.Pattern p3 = java.util.regex.Pattern.compile("(\\d{1,2}:\\d{2}\\s*-\\s*\\d{1,2}:\\d{2})");
-        java.util.regex.Matcher m3 = p3.matcher(t);
-        if (m3.find()) return m3.group(1).replaceAll("\\s", "");
-        // 退化到查找简单数字范围例如 '1-2节' 中的 '1-2'
-        java.util.regex.Pattern p4 = java.util.regex.Pattern.compile("(\\d{1,2}\\s*-\\s*\\d{1,2})");
-        java.util.regex.Matcher m4 = p4.matcher(t);
-        if (m4.find()) return m4.group(1).replaceAll("\\s", "");
-        // 查找单个数字
-        java.util.regex.Pattern p5 = java.util.regex.Pattern.compile("(\\d{1,2})");
-        java.util.regex.Matcher m5 = p5.matcher(t);
-        if (m5.find()) return m5.group(1);
-        return null;
     }
 
     private TextField createStyledTextField(String prompt) {
@@ -4,12 +4,14 @@ import Client.panel.course.coursemgmt.CourseAdminPanel;
 import Client.panel.course.coursemgmt.dialog.AddStudentDialog;
 import Client.panel.course.coursemgmt.service.TeachingClassCrud;
 import Client.model.course.TeachingClass;
+import Common.schedule.Schedule;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 
+import java.util.List;
 import java.util.Objects;
 
 
@@ -198,45 +200,11 @@ public class TeachingClassCard extends VBox {
         if (s.isEmpty()) return "";
         if (s.contains(":")) return s;
 
-        String[] periodStart = new String[]{"", "08:00", "08:50", "9:50", "10:40","11:30",
-                "14:00", "14:50", "15:50", "16:40",
-                "17:30", "19:00", "19:50", "20:40"};
-        String[] periodEnd = new String[]{"", "08:45", "09:35", "10:35", "11:25", "12:15",
-                "14:45", "15:35", "16:35", "17:25",
-                "18:15", "19:45", "20:35", "21:25"};
-
-        java.util.regex.Pattern rangePat = java.util.regex.Pattern.compile("^(\\d+)\\s*-\\s*(\\d+)\\s*节?$");
-        java.util.regex.Matcher m = rangePat.matcher(s);
-        if (m.find()) {
-            try {
-                int a = Integer.parseInt(m.group(1));
-                int b = Integer.parseInt(m.group(2));
-                if (a < 1) a = 1;
-                if (b < 1) b = 1;
-                if (a >= periodStart.length) a = periodStart.length - 1;
-                if (b >= periodEnd.length) b = periodEnd.length - 1;
-                if (a > b) { int tmp=a; a=b; b=tmp; }
-                String start = periodStart[a];
-                String end = periodEnd[b];
-                if (start != null && !start.isEmpty() && end != null && !end.isEmpty()) {
-                    return s + " (" + start + "-" + end + ")";
-                }
-            } catch (Exception ignored) {}
-        }
-
-        java.util.regex.Pattern singlePat = java.util.regex.Pattern.compile("^(\\d+)\\s*节?$");
-        m = singlePat.matcher(s);
-        if (m.find()) {
-            try {
-                int p = Integer.parseInt(m.group(1));
-                if (p < 1) p = 1;
-                if (p >= periodStart.length) p = periodStart.length - 1;
-                String start = periodStart[p];
-                String end = periodEnd[p];
-                if (start != null && !start.isEmpty() && end != null && !end.isEmpty()) {
-                    return s + " (" + start + "-" + end + ")";
-                }
-            } catch (Exception ignored) {}
+        // 节次（如 "1-2节"、"3节"）后附上对应的时间段
+        List<Schedule.Slot> slots = Schedule.parse(s).slots();
+        if (slots.size() == 1) {
+            Schedule.Slot slot = slots.get(0);
+            return s + " (" + Schedule.periodTime(slot.startPeriod(), slot.endPeriod()) + ")";
         }
 
         return s;
@@ -18,24 +18,12 @@ import javafx.scene.layout.VBox;
 
 import java.lang.reflect.Type;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 从 CourseAdminPanel 中拆分出来的“新增教学班”对话框
  */
 public class AddTeachingClassDialog {
     public static void showForCourse(CourseAdminPanel owner, String courseId) {
-        // 预取所有教学班以便在提交时进行冲突检测，避免在 UI 线程阻塞网络请求
-        AtomicReference<List<TeachingClass>> allRef = new AtomicReference<>();
-        new Thread(() -> {
-            try {
-                List<TeachingClass> fetched = CourseService.fetchAllTeachingClasses();
-                allRef.set(fetched == null ? new ArrayList<>() : fetched);
-            } catch (Exception ignored) {
-                allRef.set(null); // 标记无法获取
-            }
-        }).start();
-
         Dialog<TeachingClass> dialog = new Dialog<>();
         dialog.initStyle(javafx.stage.StageStyle.UNDECORATED);
         dialog.setTitle("新增教学班");
@@ -165,17 +153,6 @@ public class AddTeachingClassDialog {
                     tc.setPlace(place);
                     tc.setCapacity(Integer.parseInt(capacityText));
                     tc.setSelectedCount(0);
-                    // 前端冲突检测（使用预取的数据进行冲突检测）
-                    List<TeachingClass> all = allRef.get();
-                    if (all == null) {
-                        showErrorAlert("网络异常", "无法验证时间冲突（未能获取教学班列表）");
-                        return null;
-                    }
-                    String conflict = detectConflict(tc, place, all);
-                    if (conflict != null) {
-                        showErrorAlert("时间冲突", conflict);
-                        return null;
-                    }
 
                     return tc;
                 } catch (NumberFormatException ex) {
@@ -190,19 +167,7 @@ public class AddTeachingClassDialog {
         res.ifPresent(tc -> {
             new Thread(() -> {
                 try {
-                    // 最终同步冲突检查，避免预取数据过时导致漏检
-                    try {
-                        List<TeachingClass> latest = CourseService.fetchAllTeachingClasses();
-                        String conflictNow = detectConflict(tc, tc.getPlace(), latest);
-                        if (conflictNow != null) {
-                            Platform.runLater(() -> showErrorAlert("时间冲突", "提交前检测到冲突: " + conflictNow));
-                            return;
-                        }
-                    } catch (Exception ex) {
-                        Platform.runLater(() -> showErrorAlert("网络异常", "无法完成提交前的冲突校验: " + ex.getMessage()));
-                        return;
-                    }
-
+                    // 教室、教师的时间冲突由服务端按占用索引检查，冲突时返回失败原因
                     Map<String, Object> data = new HashMap<>();
                     data.put("uuid", tc.getUuid());
                     data.put("courseId", tc.getCourseId());
@@ -237,17 +202,6 @@ public class AddTeachingClassDialog {
         if (selected == null) {
             return;
         }
-        // 预取所有教学班以便在提交时进行冲突检测，避免在 UI 线程阻塞网络请求
-        AtomicReference<List<TeachingClass>> allRef = new AtomicReference<>();
-        new Thread(() -> {
-            try {
-                List<TeachingClass> fetched = CourseService.fetchAllTeachingClasses();
-                allRef.set(fetched == null ? new ArrayList<>() : fetched);
-            } catch (Exception ignored) {
-                allRef.set(null);
-            }
-        }).start();
-
         Dialog<TeachingClass> dialog = new Dialog<>();
         dialog.initStyle(javafx.stage.StageStyle.UNDECORATED);
         dialog.setTitle("编辑教学班");
@@ -433,17 +387,6 @@ public class AddTeachingClassDialog {
                     tc.setPlace(placeField.getText());
                     tc.setCapacity(Integer.parseInt(capacityField.getText()));
                     tc.setSelectedCount(selected.getSelectedCount());
-                    // 前端冲突检测
-                    List<TeachingClass> all = allRef.get();
-                    if (all == null) {
-                        showErrorAlert("网络异常", "无法验证时间冲突（未能获取教学班列表）");
-                        return null;
-                    }
-                    String conflict = detectConflict(tc, tc.getPlace(), all);
-                    if (conflict != null) {
-                        showErrorAlert("时间冲突", conflict);
-                        return null;
-                    }
                     return tc;
                 } catch (NumberFormatException ex) {
                     showErrorAlert("输入错误", "容量必须为有效的整数");
@@ -457,19 +400,7 @@ public class AddTeachingClassDialog {
         res.ifPresent(tc -> {
             new Thread(() -> {
                 try {
-                    // 最终同步冲突检查（与新增流程一致）
-                    try {
-                        List<TeachingClass> latest = CourseService.fetchAllTeachingClasses();
-                        String conflictNow = detectConflict(tc, tc.getPlace(), latest);
-                        if (conflictNow != null) {
-                            Platform.runLater(() -> showErrorAlert("时间冲突", "提交前检测到冲突: " + conflictNow));
-                            return;
-                        }
-                    } catch (Exception ex) {
-                        Platform.runLater(() -> showErrorAlert("网络异常", "无法完成提交前的冲突校验: " + ex.getMessage()));
-                        return;
-                    }
-
+                    // 教室、教师的时间冲突由服务端按占用索引检查，冲突时返回失败原因
                     Map<String, Object> data = new HashMap<>();
                     data.put("uuid", tc.getUuid());
                     data.put("teacherName", tc.getTeacherName());
@@ -535,226 +466,4 @@ public class AddTeachingClassDialog {
         alert.setContentText(message);
         alert.showAndWait();
     }
-
-    // 冲突检测主逻辑，返回冲突描述或 null
-    private static String detectConflict(TeachingClass candidate, String place, List<TeachingClass> all) {
-        if (candidate == null || all == null) {
-            return null;
-        }
-        String candTeacher = candidate.getTeacherName() == null ? "" : candidate.getTeacherName().trim();
-
-        // 将候选与已有教学班的 schedule 统一解析为 Map<day, List<range>> 格式
-        Map<String, List<int[]>> candMap = buildScheduleRangesMapFromJson(candidate.getSchedule());
-        if (candMap == null || candMap.isEmpty()) {
-            return null;
-        }
-
-        for (TeachingClass ex : all) {
-            if (ex == null) {
-                continue;
-            }
-            // skip self when editing
-            if (candidate.getUuid() != null && candidate.getUuid().equals(ex.getUuid())) {
-                continue;
-            }
-
-            Map<String, List<int[]>> exMap = buildScheduleRangesMapFromJson(ex.getSchedule());
-            if (exMap == null || exMap.isEmpty()) {
-                continue;
-            }
-
-            // teacher conflict
-            String exTeacher = ex.getTeacherName() == null ? "" : ex.getTeacherName().trim();
-            boolean sameTeacher = !candTeacher.isEmpty() && !exTeacher.isEmpty() && candTeacher.equalsIgnoreCase(exTeacher);
-
-            // place conflict
-            String exPlace = ex.getPlace() == null ? "" : ex.getPlace().trim();
-            boolean samePlace = place != null && !place.trim().isEmpty() && exPlace.equalsIgnoreCase(place.trim());
-
-            if (!sameTeacher && !samePlace) {
-                continue;
-            }
-
-            // compare per day using normalized maps
-            for (Map.Entry<String, List<int[]>> ce : candMap.entrySet()) {
-                String day = ce.getKey();
-                if (day == null) {
-                    continue;
-                }
-                List<int[]> candRanges = ce.getValue();
-                List<int[]> exRanges = exMap.get(day);
-                if (exRanges == null || exRanges.isEmpty()) {
-                    continue;
-                }
-                for (int[] a : candRanges) {
-                    for (int[] b : exRanges) {
-                        if (rangesOverlap(a, b)) {
-                            // 构建更友好的冲突描述，包含课程与教师信息（若可用）
-                            String exCourseInfo = ex.getCourse() != null && ex.getCourse().getCourseName() != null
-                                    ? (ex.getCourseId() + " " + ex.getCourse().getCourseName())
-                                    : ex.getCourseId();
-                            String exTeacherName = ex.getTeacherName() == null ? "未知" : ex.getTeacherName();
-                            if (sameTeacher) {
-                                return String.format("教师 %s 在 %s 的时间 %s 与课程 %s 的教学班（教师：%s）冲突", candTeacher, day, formatRange(a), exCourseInfo, exTeacherName);
-                            }
-                            if (samePlace) {
-                                return String.format("教室 %s 在 %s 的时间 %s 与课程 %s 的教学班（教师：%s）冲突", place, day, formatRange(a), exCourseInfo, exTeacherName);
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
-    // 将任意 JSON schedule 字符串解析为 Map<day, List<range>>，兼容值为字符串/数组/对象等
-    private static Map<String, List<int[]>> buildScheduleRangesMapFromJson(String scheduleJson) {
-        Map<String, List<int[]>> out = new LinkedHashMap<>();
-        if (scheduleJson == null || scheduleJson.trim().isEmpty()) {
-            return out;
-        }
-        try {
-            Gson g = new Gson();
-            Type token = new TypeToken<Map<String, Object>>(){}.getType();
-            Map<String, Object> raw = g.fromJson(scheduleJson, token);
-            if (raw == null) {
-                return out;
-            }
-            for (Map.Entry<String, Object> en : raw.entrySet()) {
-                String day = en.getKey() == null ? null : en.getKey().trim();
-                if (day == null || day.isEmpty()) {
-                    continue;
-                }
-                Object val = en.getValue();
-                List<int[]> ranges = parseRangesFromObject(val);
-                if (ranges != null && !ranges.isEmpty()) {
-                    out.put(day, ranges);
-                }
-            }
-        } catch (Exception ex) {
-            // 解析失败返回空 map
-        }
-        return out;
-    }
-
-    // 解析任意类型的 schedule 值（String / List / Map），返回分钟区间列表
-    private static List<int[]> parseRangesFromObject(Object val) {
-        List<int[]> out = new ArrayList<>();
-        if (val == null) {
-            return out;
-        }
-        if (val instanceof String) {
-            return parseRangesFromValue((String) val);
-        }
-        if (val instanceof Number) {
-            // treat as single period number
-            String s = String.valueOf(((Number) val).intValue());
-            return parseRangesFromValue(s);
-        }
-        if (val instanceof List) {
-            for (Object it : (List<?>) val) {
-                if (it == null) {
-                    continue;
-                }
-                if (it instanceof String) {
-                    out.addAll(parseRangesFromValue((String) it));
-                } else if (it instanceof Number) {
-                    out.addAll(parseRangesFromValue(String.valueOf(((Number) it).intValue())));
-                } else {
-                    // fallback to toString
-                    out.addAll(parseRangesFromValue(String.valueOf(it)));
-                }
-            }
-            return out;
-        }
-        // fallback: use toString
-        return parseRangesFromValue(String.valueOf(val));
-    }
-
-    // 解析单个 schedule value（可能包含逗号分隔多个 token），返回分钟范围列表
-    private static List<int[]> parseRangesFromValue(String val) {
-        List<int[]> out = new ArrayList<>();
-        if (val == null) return out;
-        // 支持中英文逗号分隔
-        String normalized = val.replace('，', ',');
-        String[] parts = normalized.split("\\s*,\\s*");
-        for (String p : parts) {
-            String t = p == null ? "" : p.trim();
-            if (t.isEmpty()) continue;
-            int[] r = parseSingleTokenToRange(t);
-            if (r != null) out.add(r);
-        }
-        return out;
-    }
-
-    // 将单个 token 转换为 [startMin,endMin]
-    private static int[] parseSingleTokenToRange(String t) {
-        if (t == null || t.trim().isEmpty()) return null;
-        t = t.trim();
-        // 移除常见中文修饰，如“第”“节”等，便于匹配数字或时间格式
-        t = t.replaceAll("[第节\u3000]", "").trim();
-        // 如果包含 ':'，视为具体时间段 hh:mm-hh:mm
-        if (t.contains(":")) {
-            String[] parts = t.split("-", 2);
-            try {
-                int s = parseTimeToMinutes(parts[0].trim());
-                int e = parts.length > 1 ? parseTimeToMinutes(parts[1].trim()) : s + 45;
-                return new int[]{s, e};
-            } catch (Exception ex) { return null; }
-        }
-        // 如果是数字范围 9-11 或 单个数字 9
-        java.util.regex.Pattern rangePat = java.util.regex.Pattern.compile("^(\\d+)\\s*-\\s*(\\d+)$");
-        java.util.regex.Matcher m = rangePat.matcher(t);
-        if (m.find()) {
-            try {
-                int a = Integer.parseInt(m.group(1));
-                int b = Integer.parseInt(m.group(2));
-                return periodIndexRangeToMinutes(Math.min(a,b), Math.max(a,b));
-            } catch (Exception ex) { return null; }
-        }
-        java.util.regex.Pattern singlePat = java.util.regex.Pattern.compile("^(\\d+)$");
-        m = singlePat.matcher(t);
-        if (m.find()) {
-            try {
-                int p = Integer.parseInt(m.group(1));
-                return periodIndexRangeToMinutes(p, p);
-            } catch (Exception ex) { return null; }
-        }
-        return null;
-    }
-
-    private static int parseTimeToMinutes(String hhmm) {
-        String[] a = hhmm.split(":");
-        int hh = Integer.parseInt(a[0]);
-        int mm = a.length > 1 ? Integer.parseInt(a[1]) : 0;
-        return hh * 60 + mm;
-    }
-
-    private static int[] periodIndexRangeToMinutes(int a, int b) {
-        String[] periodStart = new String[]{"", "08:00", "08:50", "09:50", "10:40","11:30",
-                "14:00", "14:50", "15:50", "16:40",
-                "17:30", "19:00", "19:50", "20:40"};
-        String[] periodEnd = new String[]{"", "08:45", "09:35", "10:35", "11:25", "12:15",
-                "14:45", "15:35", "16:35", "17:25",
-                "18:15", "19:45", "20:35", "21:25"};
-        if (a < 1) a = 1; if (b < 1) b = 1;
-        if (a >= periodStart.length) a = periodStart.length - 1;
-        if (b >= periodEnd.length) b = periodEnd.length - 1;
-        int s = parseTimeToMinutes(periodStart[a]);
-        int e = parseTimeToMinutes(periodEnd[b]);
-        return new int[]{s, e};
-    }
-
-    private static boolean rangesOverlap(int[] a, int[] b) {
-        if (a == null || b == null) return false;
-        return a[0] < b[1] && b[0] < a[1];
-    }
-
-    private static String formatRange(int[] r) {
-        if (r == null) return "";
-        int sh = r[0] / 60, sm = r[0] % 60, eh = r[1] / 60, em = r[1] % 60;
-        return String.format("%02d:%02d-%02d:%02d", sh, sm, eh, em);
-    }
 }
-
@@ -48,6 +48,7 @@ public class CourseService {
                 list.add(tc);
             }
         }
+        applySeatCounts(list);
         return list;
     }
 
@@ -125,6 +126,36 @@ public class CourseService {
             Object tcData = resp.getData();
             list = G.fromJson(G.toJson(tcData), new com.google.gson.reflect.TypeToken<List<TeachingClass>>(){}.getType());
         }
+        applySeatCounts(list);
         return list;
     }
+
+    /**
+     * 用实时选课人数覆盖目录中的快照（目录可能来自服务端缓存，选课人数变化不会使其失效）
+     * 查询失败时保留快照，不影响目录加载
+     */
+    public static void applySeatCounts(List<TeachingClass> teachingClasses) {
+        if (teachingClasses == null || teachingClasses.isEmpty()) return;
+        List<String> uuids = new ArrayList<>();
+        for (TeachingClass tc : teachingClasses) {
+            if (tc != null && tc.getUuid() != null) uuids.add(tc.getUuid());
+        }
+        if (uuids.isEmpty()) return;
+        try {
+            Response resp = G.fromJson(ClientNetworkHelper.getSeatCounts(uuids), Response.class);
+            if (resp.getCode() != 200 || !(resp.getData() instanceof Map)) return;
+            Map<?, ?> seats = (Map<?, ?>) resp.getData();
+            for (TeachingClass tc : teachingClasses) {
+                if (tc == null) continue;
+                Object seat = seats.get(tc.getUuid());
+                if (!(seat instanceof Map)) continue;
+                Object selected = ((Map<?, ?>) seat).get("selectedCount");
+                if (selected instanceof Number) tc.setSelectedCount(((Number) selected).intValue());
+                Object capacity = ((Map<?, ?>) seat).get("capacity");
+                if (capacity instanceof Number) tc.setCapacity(((Number) capacity).intValue());
+            }
+        } catch (Exception e) {
+            System.err.println("获取实时选课人数失败: " + e.getMessage());
+        }
+    }
 }
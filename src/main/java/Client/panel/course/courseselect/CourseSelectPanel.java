@@ -6,6 +6,8 @@ import Client.model.Request;
 import Client.model.Response;
 import Client.model.course.StudentTeachingClass;
 import Client.model.course.TeachingClass;
+import Client.panel.course.coursemgmt.service.CourseService;
+import Common.schedule.Schedule;
 import com.google.gson.Gson;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -21,8 +23,6 @@ import javafx.scene.layout.*;
 
 import java.util.*;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * 学生选课界面，重构版。后端数据类型安全，支持多教学班，容量校验，冲突检测。
@@ -43,12 +43,19 @@ public class CourseSelectPanel extends BorderPane {
     private final Set<String> selectedUuids = Collections.synchronizedSet(new HashSet<>());
     // 当前是否显示已选课程视图
     private boolean showingSelectedView = false;
+    // 教学班卡片上的容量标签与选课按钮（键为小写 UUID），收到人数推送时就地更新，仅在 FX 线程访问
+    private final Map<String, Label> capacityLabels = new HashMap<>();
+    private final Map<String, Button> selectButtons = new HashMap<>();
+    // 已订阅人数推送的教学班主题
+    private final Set<String> seatTopics = new HashSet<>();
 
     public CourseSelectPanel(int studentId) {
         this.studentId = studentId;
         this.teachingClassMap = new HashMap<>();
         this.selectedClasses = new ArrayList<>();
         initializeUI();
+        // 选课人数由服务端推送，无需反复点刷新
+        EventBus.addDataListener(ClientNetworkHelper.pushEvent(ClientNetworkHelper.PUSH_SEATS), this::onSeatsPushed);
         loadCourseData();
     }
 
@@ -138,14 +145,23 @@ public class CourseSelectPanel extends BorderPane {
                         courseList.addAll(new Gson().fromJson(new Gson().toJson(dataObj), List.class));
                     }
 
-                    // 第二步：根据每个课程ID获取教学班
-                    List<TeachingClass> allTeachingClasses = new ArrayList<>();
+                    // 第二、三步的请求互不依赖：各课程的教学班查询与已选课程查询合并为一次批量请求
+                    List<Request> batchRequests = new ArrayList<>();
                     for (Map<String, Object> course : courseList) {
                         String courseId = String.valueOf(course.get("courseId"));
                         Map<String, Object> tcReqData = new HashMap<>();
                         tcReqData.put("courseId", courseId);
-                        Request tcRequest = new Request("getTeachingClassesByCourseId", tcReqData);
-                        String tcResponseStr = ClientNetworkHelper.send(tcRequest);
+                        batchRequests.add(new Request("getTeachingClassesByCourseId", tcReqData));
+                    }
+                    Map<String, Object> selectedReqData = new HashMap<>();
+                    selectedReqData.put("cardNumber", studentId);
+                    batchRequests.add(new Request("getStudentSelectedCourses", selectedReqData));
+                    List<String> batchResponses = ClientNetworkHelper.sendBatch(batchRequests, true);
+
+                    // 第二步：根据每个课程ID获取教学班
+                    List<TeachingClass> allTeachingClasses = new ArrayList<>();
+                    for (int i = 0; i < courseList.size(); i++) {
+                        String tcResponseStr = batchResponses.get(i);
                         Response tcResponse = new Gson().fromJson(tcResponseStr, Response.class);
                         if (tcResponse.getCode() == 200 && tcResponse.getData() != null) {
                             Object tcDataObj = tcResponse.getData();
@@ -158,12 +174,11 @@ public class CourseSelectPanel extends BorderPane {
                             }
                         }
                     }
+                    // 教学班目录可能来自服务端缓存，选课人数以实时查询为准
+                    CourseService.applySeatCounts(allTeachingClasses);
 
                     // 第三步：获取学生已选课程
-                    Map<String, Object> selectedReqData = new HashMap<>();
-                    selectedReqData.put("cardNumber", studentId);
-                    Request selectedRequest = new Request("getStudentSelectedCourses", selectedReqData);
-                    String selectedResponseStr = ClientNetworkHelper.send(selectedRequest);
+                    String selectedResponseStr = batchResponses.get(courseList.size());
                     Response selectedResponse = new Gson().fromJson(selectedResponseStr, Response.class);
                     if (selectedResponse.getCode() == 200 && selectedResponse.getData() != null) {
                         String selectedJson = new Gson().toJson(selectedResponse.getData());
@@ -221,9 +236,12 @@ public class CourseSelectPanel extends BorderPane {
                         System.out.println("[CourseSelectPanel] selectedUuids=" + selectedUuids);
 
                         teachingClassMap.clear();
+                        capacityLabels.clear();
+                        selectButtons.clear();
                         for (TeachingClass tc : allTeachingClassesCopy) {
                             if (tc != null && tc.getUuid() != null) teachingClassMap.put(tc.getUuid().trim().toLowerCase(), tc);
                         }
+                        subscribeSeats(allTeachingClassesCopy);
                         // 显示课程为一级卡片，展开后显示该课程的教学班卡片
                         displayCoursesByCourse(courseListCopy, teachingClassesByCourseCopy);
                         // 显示按课程分组的课程数量，而不是教学班总数
@@ -344,24 +362,16 @@ public class CourseSelectPanel extends BorderPane {
                     if (selUuid == null) continue;
                     TeachingClass existTc = teachingClassMap.get(selUuid.trim().toLowerCase());
                     if (existTc == null) continue;
-                    if (schedulesConflict(existTc.getSchedule(), tc.getSchedule())) {
+                    if (Schedule.parse(existTc.getSchedule()).conflictsWith(Schedule.parse(tc.getSchedule()))) {
                         isConflict = true;
                         break;
                     }
                 }
             }
 
-            // 检查是否已在相同课程下选择了其他教学班（只要已选集合中存在相同 courseId 的不同 uuid 即为已选该课程）
-            if (!isSelected && tc != null && tc.getCourseId() != null && !selectedUuids.isEmpty()) {
-                for (String selUuid : selectedUuids) {
-                    if (selUuid == null) continue;
-                    TeachingClass existTc = teachingClassMap.get(selUuid.trim().toLowerCase());
-                    if (existTc == null || existTc.getCourseId() == null) continue;
-                    if (existTc.getCourseId().equals(tc.getCourseId()) && !selUuid.trim().equalsIgnoreCase(tc.getUuid())) {
-                        sameCourseSelected = true;
-                        break;
-                    }
-                }
+            // 检查是否已在相同课程下选择了其他教学班
+            if (!isSelected) {
+                sameCourseSelected = isSameCourseSelected(tc);
             }
         } catch (Exception ignored) {}
 
@@ -435,6 +445,7 @@ public class CourseSelectPanel extends BorderPane {
         Label capacity = new Label("容量: " + tc.getSelectedCount() + "/" + tc.getCapacity());
         capacity.setStyle("-fx-font-size: 12px; -fx-text-fill: #666666;");
         info.getChildren().addAll(teacher, timeRow, placeLabel, capacity);
+        if (tc.getUuid() != null) capacityLabels.put(tc.getUuid().trim().toLowerCase(), capacity);
 
         // 用可伸缩区域把按钮推到卡片底部
         Region vSpacer = new Region();
@@ -480,6 +491,7 @@ public class CourseSelectPanel extends BorderPane {
         }
         selectButton.setPrefWidth(90);
         selectButton.setMaxWidth(Double.MAX_VALUE);
+        if (tc.getUuid() != null) selectButtons.put(tc.getUuid().trim().toLowerCase(), selectButton);
         HBox buttonRow = new HBox(selectButton);
         buttonRow.setAlignment(Pos.CENTER_RIGHT);
 
@@ -541,54 +553,11 @@ public class CourseSelectPanel extends BorderPane {
         // 如果已经是时间范围（包含 ':'），直接返回原样
         if (s.contains(":")) return s;
 
-        // 简单映射：节次 -> 时间段。可根据实际校历调整。
-        String[] periodStart = new String[]{
-                "", // 0 占位
-                "08:00", "08:50", "9:50", "10:40","11:30",
-                "14:00", "14:50", "15:50", "16:40",
-                "17:30", "19:00", "19:50", "20:40"
-        };
-        String[] periodEnd = new String[]{
-                "", // 0 占位
-                "08:45", "09:35", "10:35", "11:25", "12:15",
-                "14:45", "15:35", "16:35", "17:25",
-                "18:15", "19:45", "20:35", "21:25"
-        };
-
-        // 匹配范围，例如 "1-2节" 或 "1-2"
-        Pattern rangePat = Pattern.compile("^(\\d+)\\s*-\\s*(\\d+)\\s*节?$");
-        Matcher m = rangePat.matcher(s);
-        if (m.find()) {
-            try {
-                int a = Integer.parseInt(m.group(1));
-                int b = Integer.parseInt(m.group(2));
-                if (a < 1) a = 1;
-                if (b < 1) b = 1;
-                if (a >= periodStart.length) a = periodStart.length - 1;
-                if (b >= periodEnd.length) b = periodEnd.length - 1;
-                if (a > b) { int tmp=a; a=b; b=tmp; }
-                String start = periodStart[a];
-                String end = periodEnd[b];
-                if (start != null && !start.isEmpty() && end != null && !end.isEmpty()) {
-                    return s + " (" + start + "-" + end + ")";
-                }
-            } catch (Exception ignored) {}
-        }
-
-        // 匹配单节 "3节" 或 "3"
-        Pattern singlePat = Pattern.compile("^(\\d+)\\s*节?$");
-        m = singlePat.matcher(s);
-        if (m.find()) {
-            try {
-                int p = Integer.parseInt(m.group(1));
-                if (p < 1) p = 1;
-                if (p >= periodStart.length) p = periodStart.length - 1;
-                String start = periodStart[p];
-                String end = periodEnd[p];
-                if (start != null && !start.isEmpty() && end != null && !end.isEmpty()) {
-                    return s + " (" + start + "-" + end + ")";
-                }
-            } catch (Exception ignored) {}
+        // 节次（如 "1-2节"、"3节"）后附上对应的时间段
+        List<Schedule.Slot> slots = Schedule.parse(s).slots();
+        if (slots.size() == 1) {
+            Schedule.Slot slot = slots.get(0);
+            return s + " (" + Schedule.periodTime(slot.startPeriod(), slot.endPeriod()) + ")";
         }
 
         // 退回原始字符串
@@ -778,117 +747,74 @@ public class CourseSelectPanel extends BorderPane {
         alert.showAndWait();
     }
 
-    // 客户端用于表示时间段的简单类型
-    private static class TimeRange {
-        java.time.LocalTime start;
-        java.time.LocalTime end;
-        TimeRange(java.time.LocalTime s, java.time.LocalTime e) { start = s; end = e; }
+    public void refreshData() {
+        loadCourseData();
     }
 
-    // 客户端解析 schedule JSON 为 Map<day, List<TimeRange>>，兼容节次格式
-    private Map<String, List<TimeRange>> parseScheduleClient(String scheduleJson) {
-        Map<String, List<TimeRange>> map = new HashMap<>();
-        if (scheduleJson == null || scheduleJson.trim().isEmpty()) return map;
-        try {
-            java.lang.reflect.Type mapType = new com.google.gson.reflect.TypeToken<java.util.Map<String, String>>(){}.getType();
-            Map<String, String> raw = new Gson().fromJson(scheduleJson, mapType);
-            if (raw == null) return map;
-
-            String[] periodStart = new String[]{"", "08:00", "08:50", "9:50", "10:40", "11:30", "14:00", "14:50", "15:50", "16:40", "17:30", "19:00", "19:50", "20:40"};
-            String[] periodEnd = new String[]{"", "08:45", "09:35", "10:35", "11:25", "12:15", "14:45", "15:35", "16:35", "17:25", "18:15", "19:45", "20:35", "21:25"};
-
-            for (Map.Entry<String, String> e : raw.entrySet()) {
-                String day = e.getKey();
-                String val = e.getValue();
-                if (val == null) continue;
-                String[] parts = val.split("[,;]\\s*");
-                List<TimeRange> ranges = new ArrayList<>();
-                for (String p : parts) {
-                    String rawPart = p.replace('：', ':').replace('－', '-').replace('—', '-').replace('–', '-').trim();
-                    if (rawPart.isEmpty()) continue;
-                    if (rawPart.contains(":")) {
-                        String[] se = rawPart.split("-"); if (se.length != 2) continue;
-                        String startStr = se[0].trim(); String endStr = se[1].trim();
-                        java.time.LocalTime s = null, t = null;
-                        java.time.format.DateTimeFormatter[] fmts = new java.time.format.DateTimeFormatter[] {
-                                java.time.format.DateTimeFormatter.ofPattern("H:mm"), java.time.format.DateTimeFormatter.ofPattern("HH:mm") };
-                        for (java.time.format.DateTimeFormatter fmt : fmts) {
-                            if (s == null) try { s = java.time.LocalTime.parse(startStr, fmt); } catch (Exception ignored) {}
-                            if (t == null) try { t = java.time.LocalTime.parse(endStr, fmt); } catch (Exception ignored) {}
-                            if (s != null && t != null) break;
-                        }
-                        if (s != null && t != null) ranges.add(new TimeRange(s, t));
-                        continue;
-                    }
-                    java.util.regex.Pattern rangePat = java.util.regex.Pattern.compile("^(\\d+)\\s*-\\s*(\\d+)\\s*节?$");
-                    java.util.regex.Matcher m = rangePat.matcher(rawPart);
-                    if (m.find()) {
-                        try { int a = Integer.parseInt(m.group(1)); int b = Integer.parseInt(m.group(2));
-                            if (a < 1) a = 1; if (b < 1) b = 1;
-                            if (a >= periodStart.length) a = periodStart.length - 1;
-                            if (b >= periodEnd.length) b = periodEnd.length - 1;
-                            if (a > b) { int tmp=a; a=b; b=tmp; }
-                            String ss = periodStart[a]; String ee = periodEnd[b];
-                            if (ss != null && ee != null && !ss.isEmpty() && !ee.isEmpty()) ranges.add(new TimeRange(java.time.LocalTime.parse(ss), java.time.LocalTime.parse(ee)));
-                            continue; } catch (Exception ignored) {}
-                    }
-                    java.util.regex.Pattern singlePat = java.util.regex.Pattern.compile("^(\\d+)\\s*节?$");
-                    m = singlePat.matcher(rawPart);
-                    if (m.find()) {
-                        try { int pnum = Integer.parseInt(m.group(1)); if (pnum < 1) pnum = 1; if (pnum >= periodStart.length) pnum = periodStart.length - 1;
-                            String ss = periodStart[pnum]; String ee = periodEnd[pnum];
-                            if (ss != null && ee != null && !ss.isEmpty() && !ee.isEmpty()) ranges.add(new TimeRange(java.time.LocalTime.parse(ss), java.time.LocalTime.parse(ee)));
-                            continue; } catch (Exception ignored) {}
-                    }
-                    String[] se = rawPart.split("-"); if (se.length == 2) {
-                        String startStr = se[0].trim(); String endStr = se[1].trim();
-                        java.time.LocalTime s = null, t = null;
-                        java.time.format.DateTimeFormatter[] fmts = new java.time.format.DateTimeFormatter[] { java.time.format.DateTimeFormatter.ofPattern("H:mm"), java.time.format.DateTimeFormatter.ofPattern("HH:mm") };
-                        for (java.time.format.DateTimeFormatter fmt : fmts) {
-                            if (s == null) try { s = java.time.LocalTime.parse(startStr, fmt); } catch (Exception ignored) {}
-                            if (t == null) try { t = java.time.LocalTime.parse(endStr, fmt); } catch (Exception ignored) {}
-                            if (s != null && t != null) break;
-                        }
-                        if (s != null && t != null) ranges.add(new TimeRange(s, t));
-                    }
+    // 是否已在相同课程下选择了其他教学班（只要已选集合中存在相同 courseId 的不同 uuid 即为已选该课程）
+    private boolean isSameCourseSelected(TeachingClass tc) {
+        if (tc == null || tc.getCourseId() == null || selectedUuids.isEmpty()) return false;
+        synchronized (selectedUuids) {
+            for (String selUuid : selectedUuids) {
+                if (selUuid == null) continue;
+                TeachingClass existTc = teachingClassMap.get(selUuid.trim().toLowerCase());
+                if (existTc == null || existTc.getCourseId() == null) continue;
+                if (existTc.getCourseId().equals(tc.getCourseId()) && !selUuid.trim().equalsIgnoreCase(tc.getUuid())) {
+                    return true;
                 }
-                if (!ranges.isEmpty()) map.put(e.getKey(), ranges);
             }
-        } catch (Exception ex) { }
-        return map;
+        }
+        return false;
     }
 
-    private boolean schedulesConflict(String s1, String s2) {
-        if (s1 == null || s2 == null) return false;
-        Map<String, List<TimeRange>> m1 = parseScheduleClient(s1);
-        Map<String, List<TimeRange>> m2 = parseScheduleClient(s2);
-
-        for (String day : m1.keySet()) {
-            if (!m2.containsKey(day)) continue;
-            List<TimeRange> r1 = m1.get(day);
-            List<TimeRange> r2 = m2.get(day);
-
-            for (TimeRange a : r1) {
-                for (TimeRange b : r2) {
-                    // 打印调试信息
-                    System.out.printf(
-                            "比较 %s：A=[%s - %s), B=[%s - %s)%n",
-                            day, a.start, a.end, b.start, b.end
-                    );
-
-                    if (a.start.isBefore(b.end) && b.start.isBefore(a.end)) {
-                        System.out.printf("⚠️ 冲突: %s 与 %s%n", a, b);
-                        return true;
-                    }
-                }
+    // 订阅当前加载的教学班的人数推送，并取消已不在列表中的订阅
+    private void subscribeSeats(List<TeachingClass> classes) {
+        Set<String> topics = new HashSet<>();
+        for (TeachingClass tc : classes) {
+            if (tc != null && tc.getUuid() != null) {
+                topics.add(ClientNetworkHelper.pushTopic(ClientNetworkHelper.PUSH_SEATS, tc.getUuid()));
             }
         }
-        return false;
+        Set<String> stale = new HashSet<>(seatTopics);
+        stale.removeAll(topics);
+        Set<String> added = new HashSet<>(topics);
+        added.removeAll(seatTopics);
+        seatTopics.clear();
+        seatTopics.addAll(topics);
+        if (!stale.isEmpty()) ClientNetworkHelper.unsubscribe(stale);
+        if (!added.isEmpty()) ClientNetworkHelper.subscribe(added);
     }
 
-
-    public void refreshData() {
-        loadCourseData();
+    // 收到教学班人数推送（FX 线程）：更新容量显示，满员/有空位时切换选课按钮
+    private void onSeatsPushed(Object data) {
+        if (!(data instanceof Map)) return;
+        Map<?, ?> seats = (Map<?, ?>) data;
+        if (!(seats.get("selectedCount") instanceof Number) || !(seats.get("capacity") instanceof Number)) return;
+        String key = String.valueOf(seats.get("uuid")).trim().toLowerCase();
+        TeachingClass tc = teachingClassMap.get(key);
+        if (tc == null) return;
+        tc.setSelectedCount(((Number) seats.get("selectedCount")).intValue());
+        tc.setCapacity(((Number) seats.get("capacity")).intValue());
+
+        Label capacity = capacityLabels.get(key);
+        if (capacity != null) capacity.setText("容量: " + tc.getSelectedCount() + "/" + tc.getCapacity());
+        Button button = selectButtons.get(key);
+        if (button == null || isCourseSelected(tc.getUuid()) || pendingSelections.contains(tc.getUuid())) return;
+        boolean isFull = tc.getSelectedCount() >= tc.getCapacity();
+        if (isFull && "选课".equals(button.getText())) {
+            button.setText("已满");
+            button.setStyle("-fx-background-color: #dc3545; -fx-text-fill: white; -fx-font-weight: bold;");
+            button.setDisable(true);
+        } else if (!isFull && "已满".equals(button.getText()) && !isSameCourseSelected(tc)) {
+            button.setText("选课");
+            button.setStyle("-fx-background-color: #4e8cff; -fx-text-fill: white; -fx-font-weight: bold;");
+            button.setDisable(false);
+            button.setOnAction(e -> {
+                button.setDisable(true);
+                pendingSelections.add(tc.getUuid());
+                selectCourse(tc, button);
+            });
+        }
     }
 }
 
@@ -2,9 +2,11 @@ package Client.panel.finance;
 
 import Client.ClientNetworkHelper;
 import Client.model.Request;
+import com.google.gson.JsonArray;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 一卡通/交易管理请求发送封装。
@@ -35,5 +37,45 @@ public final class FinanceRequestSender {
         }
         return ClientNetworkHelper.send(new Request("getTransactions", data));
     }
+
+    /**
+     * 分页获取交易记录（按时间倒序）
+     * @param cursor 上一页响应中的 nextCursor，为空表示第一页
+     */
+    public static String getTransactions(int cardNumber, String type, int pageSize, String cursor) throws Exception {
+        Map<String, Object> data = new HashMap<>();
+        data.put("cardNumber", cardNumber);
+        if (type != null && !type.isBlank()) {
+            data.put("type", type);
+        }
+        data.put("pageSize", pageSize);
+        if (cursor != null) {
+            data.put("cursor", cursor);
+        }
+        return ClientNetworkHelper.send(new Request("getTransactions", data));
+    }
+
+    /**
+     * 流式导出交易记录（管理员），按时间升序分块返回
+     * @param adminCardNumber 管理员一卡通号
+     * @param password 管理员密码，服务端校验不通过时返回 403
+     * @param cardNumber 一卡通号，为空表示全部用户
+     * @param onChunk 每收到一块交易记录即调用（在调用线程上）
+     * @return 结束帧 JSON，成功时 data.rows 为导出的总行数
+     */
+    public static String exportTransactions(int adminCardNumber, String password, Integer cardNumber, String type,
+                                            Consumer<JsonArray> onChunk) throws Exception {
+        Map<String, Object> data = new HashMap<>();
+        data.put("dataset", "transactions");
+        data.put("adminCardNumber", adminCardNumber);
+        data.put("password", password);
+        if (cardNumber != null) {
+            data.put("cardNumber", cardNumber);
+        }
+        if (type != null && !type.isBlank()) {
+            data.put("type", type);
+        }
+        return ClientNetworkHelper.stream(new Request("streamExport", data), onChunk);
+    }
 }
 
@@ -10,8 +10,15 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -31,6 +38,8 @@ class TransactionPanel extends BorderPane {
     private static final String SUB = "#6c757d";
     private static final String BORDER = "#e9ecef";
     private static final String BACKGROUND = "white";
+    // 每次加载的交易记录条数，其余通过“加载更多”按页获取
+    private static final int PAGE_SIZE = 50;
 
     private final String selfCardNumber;
     private final boolean admin;
@@ -41,6 +50,8 @@ class TransactionPanel extends BorderPane {
     private Button queryTxBtn;
     private ProgressIndicator loadingIndicator;
     private Label resultsLabel;
+    private Button loadMoreBtn;
+    private int loadedCount;
 
     private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
     private final DateTimeFormatter isoOutFmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
@@ -137,6 +148,16 @@ class TransactionPanel extends BorderPane {
         HBox.setHgrow(spacer, Priority.ALWAYS);
         controlBar.getChildren().addAll(cardLb, cardField, typeLb, typeFilter, spacer, queryTxBtn, loadingIndicator);
 
+        // 管理员可将查询条件下的交易记录导出为 CSV（一卡通号为空时导出全部用户）
+        if (admin) {
+            Button exportBtn = new Button("导出");
+            exportBtn.setStyle("-fx-background-color: " + PRIMARY_LIGHT + "; " +
+                    "-fx-text-fill: " + PRIMARY + "; -fx-font-weight: bold; -fx-font-size: 14px; " +
+                    "-fx-min-width: 90px; -fx-pref-height: 40px; -fx-background-radius: 5;");
+            exportBtn.setOnAction(e -> exportTransactions());
+            controlBar.getChildren().add(controlBar.getChildren().indexOf(queryTxBtn) + 1, exportBtn);
+        }
+
         // 结果标签
         resultsLabel = new Label("找到 0 条交易记录");
         resultsLabel.setStyle("-fx-font-size: 14px; -fx-text-fill: #34495e;");
@@ -186,12 +207,20 @@ class TransactionPanel extends BorderPane {
     }
 
     private void fetchTransactions(String type) {
+        fetchTransactions(type, null);
+    }
+
+    /**
+     * 加载一页交易记录
+     * @param cursor 上一页返回的游标，为空时重新加载第一页
+     */
+    private void fetchTransactions(String type, String cursor) {
         Integer card = parseTargetCard();
         if (card == null) {
             return;
         }
 
-        runAsync(() -> FinanceRequestSender.getTransactions(card, type), json -> {
+        runAsync(() -> FinanceRequestSender.getTransactions(card, type, PAGE_SIZE, cursor), json -> {
             JsonObject obj = GSON.fromJson(json, JsonObject.class);
             if (obj.get("code").getAsInt() != 200) {
                 showAlert("错误", obj.get("message").getAsString(), Alert.AlertType.ERROR);
@@ -199,12 +228,25 @@ class TransactionPanel extends BorderPane {
             }
 
             Platform.runLater(() -> {
-                recordsContainer.getChildren().clear();
+                if (cursor == null) {
+                    recordsContainer.getChildren().clear();
+                    loadedCount = 0;
+                } else {
+                    recordsContainer.getChildren().remove(loadMoreBtn);
+                }
 
+                // 分页响应为 {items, nextCursor}；旧版服务端直接返回全部记录的数组
                 JsonElement dataEl = obj.get("data");
+                String nextCursor = null;
+                if (dataEl != null && dataEl.isJsonObject()) {
+                    JsonObject page = dataEl.getAsJsonObject();
+                    nextCursor = page.has("nextCursor") && !page.get("nextCursor").isJsonNull()
+                            ? page.get("nextCursor").getAsString() : null;
+                    dataEl = page.get("items");
+                }
                 if (dataEl != null && dataEl.isJsonArray()) {
                     JsonArray arr = dataEl.getAsJsonArray();
-                    if (arr.size() == 0) {
+                    if (arr.size() == 0 && loadedCount == 0) {
                         Label emptyLabel = new Label("暂无交易记录");
                         emptyLabel.setStyle("-fx-text-fill: " + SUB + "; -fx-font-size: 16px; -fx-padding: 40;");
                         recordsContainer.getChildren().add(emptyLabel);
@@ -212,8 +254,6 @@ class TransactionPanel extends BorderPane {
                         return;
                     }
 
-                    resultsLabel.setText("找到 " + arr.size() + " 条交易记录");
-
                     for (JsonElement el : arr) {
                         if (!el.isJsonObject()) {
                             continue;
@@ -247,12 +287,113 @@ class TransactionPanel extends BorderPane {
                         // 创建交易记录卡片
                         VBox transactionCard = createTransactionCard(id, tp, amountStr, desc, timeDisplay);
                         recordsContainer.getChildren().add(transactionCard);
+                        loadedCount++;
                     }
                 }
+
+                if (nextCursor != null) {
+                    resultsLabel.setText("已显示 " + loadedCount + " 条交易记录，还有更多");
+                    String next = nextCursor;
+                    loadMoreBtn = new Button("加载更多");
+                    loadMoreBtn.setStyle("-fx-background-color: " + PRIMARY_LIGHT + "; -fx-text-fill: " + PRIMARY + "; " +
+                            "-fx-font-size: 14px; -fx-background-radius: 5; -fx-padding: 8 20;");
+                    loadMoreBtn.setMaxWidth(Double.MAX_VALUE);
+                    loadMoreBtn.setOnAction(e -> fetchTransactions(type, next));
+                    recordsContainer.getChildren().add(loadMoreBtn);
+                } else {
+                    resultsLabel.setText("找到 " + loadedCount + " 条交易记录");
+                }
             });
         });
     }
 
+    private void exportTransactions() {
+        String v = cardField.getText().trim();
+        Integer card;
+        try {
+            card = v.isEmpty() ? null : Integer.valueOf(v);
+        } catch (NumberFormatException e) {
+            showAlert("错误", "一卡通号需为数字", Alert.AlertType.WARNING);
+            return;
+        }
+        String sel = typeFilter.getValue();
+        String type = sel == null || "全部".equals(sel) ? null : sel;
+        // 导出为管理员功能，服务端按管理员账号密码校验
+        Optional<String> password = askAdminPassword();
+        if (password.isEmpty()) {
+            return;
+        }
+
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("导出交易记录");
+        chooser.setInitialFileName("交易记录" + (card == null ? "" : "_" + card) + ".csv");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV 文件", "*.csv"));
+        File file = chooser.showSaveDialog(getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+
+        runAsync(() -> writeTransactionsCsv(card, type, password.get(), file), json -> {
+            JsonObject obj = GSON.fromJson(json, JsonObject.class);
+            if (obj.get("code").getAsInt() != 200) {
+                showAlert("导出失败", obj.get("message").getAsString() + "（文件内容不完整）", Alert.AlertType.ERROR);
+                return;
+            }
+            long rows = obj.getAsJsonObject("data").get("rows").getAsLong();
+            showAlert("导出完成", "已导出 " + rows + " 条交易记录到 " + file.getAbsolutePath(), Alert.AlertType.INFORMATION);
+        });
+    }
+
+    /**
+     * 流式导出为 CSV：服务端分块返回，每收到一块即写入文件，客户端不保留全部记录
+     * @return 结束帧 JSON
+     */
+    private String writeTransactionsCsv(Integer card, String type, String password, File file) throws Exception {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            // BOM 便于 Excel 以 UTF-8 打开
+            writer.write('\ufeff');
+            writer.write("交易ID,一卡通号,类型,金额(元),时间,描述\n");
+            return FinanceRequestSender.exportTransactions(Integer.valueOf(selfCardNumber), password, card, type, chunk -> {
+                try {
+                    for (JsonElement el : chunk) {
+                        JsonObject t = el.getAsJsonObject();
+                        long amountCents = t.has("amount") && !t.get("amount").isJsonNull() ? t.get("amount").getAsLong() : 0L;
+                        BigDecimal yuan = BigDecimal.valueOf(amountCents).divide(BigDecimal.valueOf(100), 2, RoundingMode.DOWN);
+                        writer.write(String.join(",", csv(valStr(t, "transactionId")), csv(valStr(t, "cardNumber")),
+                                csv(valStr(t, "type")), yuan.toPlainString(), csv(valStr(t, "timestamp").replace('T', ' ')),
+                                csv(valStr(t, "description"))));
+                        writer.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * 请管理员输入密码以确认导出
+     * @return 取消或未输入时为空
+     */
+    private Optional<String> askAdminPassword() {
+        Dialog<String> dialog = new Dialog<>();
+        dialog.setTitle("导出交易记录");
+        dialog.setHeaderText("请输入管理员密码以确认导出");
+        PasswordField field = new PasswordField();
+        dialog.getDialogPane().setContent(field);
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        dialog.setResultConverter(button -> button == ButtonType.OK ? field.getText() : null);
+        Platform.runLater(field::requestFocus);
+        return dialog.showAndWait().filter(p -> !p.isEmpty());
+    }
+
+    private static String csv(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
     private VBox createTransactionCard(String id, String type, String amount, String description, String time) {
         VBox card = new VBox(12);
         card.setPadding(new Insets(15));
@@ -21,7 +21,6 @@ import javafx.scene.text.Font;
 import java.lang.reflect.Type;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 public class LibrarySearchPanel extends BorderPane {
@@ -172,14 +171,15 @@ public class LibrarySearchPanel extends BorderPane {
                         allBookClasses.addAll(bookClasses);
                     }
                 } else {
-                    // 对每个选中的类别发送请求
+                    // 每个选中的类别一个查询，合并为一次批量请求
+                    List<Request> categoryRequests = new ArrayList<>();
                     for (Category category : selectedCategories) {
                         Map<String, Object> data = new HashMap<>();
                         data.put("searchText", searchText.isEmpty() ? "" : searchText);
                         data.put("category", category.name());
-
-                        Request request = new Request("searchBooks", data);
-                        String response = ClientNetworkHelper.send(request);
+                        categoryRequests.add(new Request("searchBooks", data));
+                    }
+                    for (String response : ClientNetworkHelper.sendBatch(categoryRequests, true)) {
                         Map<String, Object> responseMap = gson.fromJson(response, Map.class);
                         int code = ((Double) responseMap.get("code")).intValue();
 
@@ -191,49 +191,36 @@ public class LibrarySearchPanel extends BorderPane {
                     }
                 }
 
-                // 为每个图书类别获取对应的图书副本
-                List<CompletableFuture<Book>> bookFutures = allBookClasses.stream()
-                        .map(bookClass -> CompletableFuture.supplyAsync(() -> {
-                            try {
-                                Map<String, Object> itemData = new HashMap<>();
-                                itemData.put("isbn", bookClass.getIsbn());
-                                Request itemRequest = new Request("searchBookItems", itemData);
-
-                                String itemResponse = ClientNetworkHelper.send(itemRequest);
-                                Map<String, Object> itemResponseMap = gson.fromJson(itemResponse, Map.class);
-                                int itemCode = ((Double) itemResponseMap.get("code")).intValue();
-
-                                if (itemCode == 200) {
-                                    Type itemListType = new TypeToken<List<BookItem>>(){}.getType();
-                                    List<BookItem> items = gson.fromJson(
-                                            gson.toJson(itemResponseMap.get("data")), itemListType);
-
-                                    Book book = new Book();
-                                    book.setBookClass(bookClass);
-                                    book.setItems(items);
-                                    return book;
-                                } else {
-                                    Book book = new Book();
-                                    book.setBookClass(bookClass);
-                                    book.setItems(List.of());
-                                    return book;
-                                }
-                            } catch (Exception e) {
-                                Book book = new Book();
-                                book.setBookClass(bookClass);
-                                book.setItems(List.of());
-                                return book;
-                            }
-                        }))
-                        .collect(Collectors.toList());
-
-                // 等待所有异步任务完成
-                CompletableFuture.allOf(bookFutures.toArray(new CompletableFuture[0])).join();
-
-                // 获取所有Book对象
-                List<Book> books = bookFutures.stream()
-                        .map(CompletableFuture::join)
-                        .collect(Collectors.toList());
+                // 为每个图书类别获取对应的图书副本：所有副本查询合并为一次批量请求
+                List<Request> itemRequests = new ArrayList<>();
+                for (BookClass bookClass : allBookClasses) {
+                    Map<String, Object> itemData = new HashMap<>();
+                    itemData.put("isbn", bookClass.getIsbn());
+                    itemRequests.add(new Request("searchBookItems", itemData));
+                }
+                List<String> itemResponses = itemRequests.isEmpty()
+                        ? List.of()
+                        : ClientNetworkHelper.sendBatch(itemRequests, true);
+
+                List<Book> books = new ArrayList<>();
+                for (int i = 0; i < allBookClasses.size(); i++) {
+                    Book book = new Book();
+                    book.setBookClass(allBookClasses.get(i));
+                    book.setItems(List.of());
+                    try {
+                        Map<String, Object> itemResponseMap = gson.fromJson(itemResponses.get(i), Map.class);
+                        int itemCode = ((Double) itemResponseMap.get("code")).intValue();
+                        if (itemCode == 200) {
+                            Type itemListType = new TypeToken<List<BookItem>>(){}.getType();
+                            List<BookItem> items = gson.fromJson(
+                                    gson.toJson(itemResponseMap.get("data")), itemListType);
+                            book.setItems(items);
+                        }
+                    } catch (Exception e) {
+                        // 单本书解析失败时显示为无副本
+                    }
+                    books.add(book);
+                }
 
                 // 在UI线程中更新界面
                 Platform.runLater(() -> {
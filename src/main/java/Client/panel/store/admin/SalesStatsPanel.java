@@ -4,6 +4,7 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import Client.model.store.SalesStatItem;
 import com.google.gson.Gson;
@@ -180,9 +181,14 @@ public class SalesStatsPanel extends BorderPane {
     public void loadSalesData() {
         new Thread(() -> {
             try {
+                // 四个统计请求互不依赖：先在同一连接上全部发出，再依次等待结果
+                CompletableFuture<String> todaySalesFuture = ClientNetworkHelper.sendAsync(new Request("getTodaySales", null));
+                CompletableFuture<String> totalSalesFuture = ClientNetworkHelper.sendAsync(new Request("getSales", null));
+                CompletableFuture<String> todayStatsFuture = ClientNetworkHelper.sendAsync(new Request("getTodaySalesStats", null));
+                CompletableFuture<String> totalStatsFuture = ClientNetworkHelper.sendAsync(new Request("getSalesStats", null));
+
                 // 获取今日销售总额
-                Request todaySalesRequest = new Request("getTodaySales", null);
-                String todaySalesResponse = ClientNetworkHelper.send(todaySalesRequest);
+                String todaySalesResponse = todaySalesFuture.get();
                 Map<String, Object> todaySalesResponseMap = gson.fromJson(todaySalesResponse, Map.class);
                 int todaySalesCode = ((Double) todaySalesResponseMap.get("code")).intValue();
 
@@ -197,8 +203,7 @@ public class SalesStatsPanel extends BorderPane {
                 }
 
                 // 获取全部销售总额
-                Request totalSalesRequest = new Request("getSales", null);
-                String totalSalesResponse = ClientNetworkHelper.send(totalSalesRequest);
+                String totalSalesResponse = totalSalesFuture.get();
                 Map<String, Object> totalSalesResponseMap = gson.fromJson(totalSalesResponse, Map.class);
                 int totalSalesCode = ((Double) totalSalesResponseMap.get("code")).intValue();
 
@@ -213,8 +218,7 @@ public class SalesStatsPanel extends BorderPane {
                 }
 
                 // 获取当日销售统计
-                Request todayStatsRequest = new Request("getTodaySalesStats", null);
-                String todayStatsResponse = ClientNetworkHelper.send(todayStatsRequest);
+                String todayStatsResponse = todayStatsFuture.get();
                 Map<String, Object> todayStatsResponseMap = gson.fromJson(todayStatsResponse, Map.class);
                 int todayStatsCode = ((Double) todayStatsResponseMap.get("code")).intValue();
 
@@ -238,8 +242,7 @@ public class SalesStatsPanel extends BorderPane {
                 }
 
                 // 获取全部销售统计
-                Request totalStatsRequest = new Request("getSalesStats", null);
-                String totalStatsResponse = ClientNetworkHelper.send(totalStatsRequest);
+                String totalStatsResponse = totalStatsFuture.get();
                 Map<String, Object> totalStatsResponseMap = gson.fromJson(totalStatsResponse, Map.class);
                 int totalStatsCode = ((Double) totalStatsResponseMap.get("code")).intValue();
 
@@ -5,8 +5,10 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -18,6 +20,7 @@ import Client.ClientNetworkHelper;
 import Client.panel.store.util.StoreUtils;
 import Client.model.store.CartItem;
 import Client.model.store.Item;
+import Client.util.EventBus;
 import Client.util.adapter.LocalDateAdapter;
 import Client.util.adapter.UUIDAdapter;
 import Client.model.Request;
@@ -51,6 +54,12 @@ public class ProductSearchPanel extends BorderPane {
     // 添加对购物卡片车的引用
     private ExpandableCartCard cartCard;
 
+    // 商品卡片上的销量标签与加购按钮（键为商品 UUID），收到库存推送时就地更新，仅在 FX 线程访问
+    private final Map<String, Label> salesLabels = new HashMap<>();
+    private final Map<String, Button> addCartButtons = new HashMap<>();
+    // 已订阅库存推送的商品主题
+    private final Set<String> stockTopics = new HashSet<>();
+
     public ProductSearchPanel(String cardNumber) {
         this.cardNumber = cardNumber;
 
@@ -61,6 +70,8 @@ public class ProductSearchPanel extends BorderPane {
         gson = gsonBuilder.create();
 
         initializeUI();
+        // 库存与销量由服务端推送，无需重新搜索
+        EventBus.addDataListener(ClientNetworkHelper.pushEvent(ClientNetworkHelper.PUSH_STOCK), this::onStockPushed);
         loadAllItems();
     }
 
@@ -171,6 +182,9 @@ public class ProductSearchPanel extends BorderPane {
 
     private void displayItems(List<Item> items) {
         productsContainer.getChildren().clear();
+        salesLabels.clear();
+        addCartButtons.clear();
+        subscribeStock(items);
 
         for (Item item : items) {
             VBox productCard = createProductCard(item);
@@ -266,6 +280,11 @@ public class ProductSearchPanel extends BorderPane {
         addCartBtn.setStyle("-fx-background-color: #176B3A; -fx-text-fill: white; -fx-font-size: 12px; " +
                 "-fx-padding: 5 10; -fx-background-radius: 3;");
         addCartBtn.setOnAction(e -> addToCart(item));
+        applyStock(addCartBtn, item.getStock());
+        if (item.getUuid() != null) {
+            salesLabels.put(item.getUuid(), salesLabel);
+            addCartButtons.put(item.getUuid(), addCartBtn);
+        }
 
         bottomBox.getChildren().addAll(priceSalesBox, spacer, addCartBtn);
 
@@ -288,6 +307,44 @@ public class ProductSearchPanel extends BorderPane {
         return card;
     }
 
+    // 订阅当前显示的商品的库存推送，并取消已不在列表中的订阅
+    private void subscribeStock(List<Item> items) {
+        Set<String> topics = new HashSet<>();
+        for (Item item : items) {
+            if (item.getUuid() != null) {
+                topics.add(ClientNetworkHelper.pushTopic(ClientNetworkHelper.PUSH_STOCK, item.getUuid()));
+            }
+        }
+        Set<String> stale = new HashSet<>(stockTopics);
+        stale.removeAll(topics);
+        Set<String> added = new HashSet<>(topics);
+        added.removeAll(stockTopics);
+        stockTopics.clear();
+        stockTopics.addAll(topics);
+        if (!stale.isEmpty()) ClientNetworkHelper.unsubscribe(stale);
+        if (!added.isEmpty()) ClientNetworkHelper.subscribe(added);
+    }
+
+    // 收到库存推送（FX 线程）：更新销量显示，售罄时禁用加购按钮
+    private void onStockPushed(Object data) {
+        if (!(data instanceof Map)) return;
+        Map<?, ?> stock = (Map<?, ?>) data;
+        String uuid = String.valueOf(stock.get("uuid"));
+        Label salesLabel = salesLabels.get(uuid);
+        if (salesLabel != null && stock.get("salesVolume") instanceof Number) {
+            salesLabel.setText("已售 " + ((Number) stock.get("salesVolume")).intValue() + " 件");
+        }
+        Button addCartBtn = addCartButtons.get(uuid);
+        if (addCartBtn != null && stock.get("stock") instanceof Number) {
+            applyStock(addCartBtn, ((Number) stock.get("stock")).intValue());
+        }
+    }
+
+    private void applyStock(Button addCartBtn, int stock) {
+        addCartBtn.setDisable(stock <= 0);
+        addCartBtn.setText(stock <= 0 ? "已售罄" : "加入购物车");
+    }
+
     private void addToCart(Item item) {
         // 检查购物车中是否已有该商品
         for (CartItem cartItem : cartItems) {
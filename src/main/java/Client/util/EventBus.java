@@ -6,13 +6,18 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Very small application event bus for cross-panel notifications.
  * Listeners are run on the JavaFX Application Thread.
+ * Server push events are re-posted here by ClientNetworkHelper as "push:<kind>" (e.g. "push:seats")
+ * with the pushed data; subscribe to them with {@link #addDataListener}.
  */
 public final class EventBus {
     private static final Map<String, List<Runnable>> listeners = new ConcurrentHashMap<>();
+    private static final Map<String, List<Consumer<Object>>> dataListeners = new ConcurrentHashMap<>();
 
     private EventBus() {}
 
@@ -39,5 +44,33 @@ public final class EventBus {
             }
         });
     }
-}
 
+    /**
+     * Listen for an event together with its data (e.g. pushed seat counts).
+     */
+    public static void addDataListener(String event, Consumer<Object> listener) {
+        dataListeners.computeIfAbsent(event, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public static void removeDataListener(String event, Consumer<Object> listener) {
+        List<Consumer<Object>> list = dataListeners.get(event);
+        if (list != null) {
+            list.remove(listener);
+        }
+    }
+
+    /**
+     * Post an event with data: data listeners receive the data, plain listeners are run as with {@link #post(String)}.
+     */
+    public static void post(String event, Object data) {
+        List<Consumer<Object>> list = dataListeners.get(event);
+        if (list != null && !list.isEmpty()) {
+            Platform.runLater(() -> {
+                for (Consumer<Object> c : list) {
+                    try { c.accept(data); } catch (Exception ignored) {}
+                }
+            });
+        }
+        post(event);
+    }
+}
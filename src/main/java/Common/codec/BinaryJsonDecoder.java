@@ -0,0 +1,125 @@
+package Common.codec;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 将 {@link WireFormat} 二进制帧体解码为 Gson 的 JsonElement 树
+ * 整数解码为 Long、浮点数解码为 Double；经 Gson 绑定到 Map&lt;String,Object&gt; 时数值仍为 Double，
+ * 与 JSON 编码下的行为一致。
+ */
+public final class BinaryJsonDecoder {
+    private static final int MAX_DEPTH = 256;
+
+    private final byte[] data;
+    private final int end;
+    private int pos;
+    private final List<String> dictionary = new ArrayList<>();
+
+    private BinaryJsonDecoder(byte[] data, int offset, int length) {
+        this.data = data;
+        this.pos = offset;
+        this.end = offset + length;
+    }
+
+    public static JsonElement decode(byte[] data, int offset, int length) {
+        BinaryJsonDecoder decoder = new BinaryJsonDecoder(data, offset, length);
+        JsonElement root = decoder.readValue(decoder.readByte(), 0);
+        if (decoder.pos != decoder.end) {
+            throw new JsonParseException("二进制帧体末尾存在多余数据");
+        }
+        return root;
+    }
+
+    private JsonElement readValue(int tag, int depth) {
+        if (depth > MAX_DEPTH) throw new JsonParseException("二进制帧体嵌套过深");
+        switch (tag) {
+            case WireFormat.TAG_NULL:
+                return JsonNull.INSTANCE;
+            case WireFormat.TAG_FALSE:
+                return new JsonPrimitive(false);
+            case WireFormat.TAG_TRUE:
+                return new JsonPrimitive(true);
+            case WireFormat.TAG_INT: {
+                long raw = readVarint();
+                return new JsonPrimitive((raw >>> 1) ^ -(raw & 1));
+            }
+            case WireFormat.TAG_DOUBLE: {
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = (bits << 8) | readByte();
+                }
+                return new JsonPrimitive(Double.longBitsToDouble(bits));
+            }
+            case WireFormat.TAG_STRING:
+            case WireFormat.TAG_DICT_DEF:
+            case WireFormat.TAG_DICT_REF:
+                return new JsonPrimitive(readString(tag));
+            case WireFormat.TAG_ARRAY: {
+                JsonArray array = new JsonArray();
+                int next;
+                while ((next = readByte()) != WireFormat.TAG_ARRAY_END) {
+                    array.add(readValue(next, depth + 1));
+                }
+                return array;
+            }
+            case WireFormat.TAG_OBJECT: {
+                JsonObject object = new JsonObject();
+                int next;
+                while ((next = readByte()) != WireFormat.TAG_OBJECT_END) {
+                    String name = readString(next);
+                    object.add(name, readValue(readByte(), depth + 1));
+                }
+                return object;
+            }
+            default:
+                throw new JsonParseException("未知的二进制类型标签: " + tag);
+        }
+    }
+
+    private String readString(int tag) {
+        if (tag == WireFormat.TAG_DICT_REF) {
+            long index = readVarint();
+            if (index < 0 || index >= dictionary.size()) {
+                throw new JsonParseException("二进制帧体字典编号越界: " + index);
+            }
+            return dictionary.get((int) index);
+        }
+        if (tag != WireFormat.TAG_STRING && tag != WireFormat.TAG_DICT_DEF) {
+            throw new JsonParseException("此处应为字符串，实际类型标签: " + tag);
+        }
+        long length = readVarint();
+        if (length < 0 || length > end - pos) {
+            throw new JsonParseException("二进制帧体字符串长度越界: " + length);
+        }
+        String value = new String(data, pos, (int) length, StandardCharsets.UTF_8);
+        pos += (int) length;
+        if (tag == WireFormat.TAG_DICT_DEF) {
+            dictionary.add(value);
+        }
+        return value;
+    }
+
+    private long readVarint() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new JsonParseException("二进制帧体 varint 过长");
+    }
+
+    private int readByte() {
+        if (pos >= end) throw new JsonParseException("二进制帧体意外结束");
+        return data[pos++] & 0xFF;
+    }
+}
@@ -0,0 +1,244 @@
+package Common.codec;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 以 {@link WireFormat} 二进制编码输出的 JsonWriter
+ * Gson 的类型适配器通过 JsonWriter 接口逐字段写出，因此 gson.toJson(obj, type, writer)
+ * 可直接流式生成二进制帧体，不经过 JSON 文本，也不构建中间树。
+ * 每个实例对应一帧，字段名字典在帧内有效，不可跨帧复用。
+ */
+public class BinaryJsonWriter extends JsonWriter {
+    private final OutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private String deferredName;
+
+    public BinaryJsonWriter(OutputStream out) {
+        super(Writer.nullWriter());
+        this.out = out;
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        writeDeferredName();
+        out.write(WireFormat.TAG_ARRAY);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        out.write(WireFormat.TAG_ARRAY_END);
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        writeDeferredName();
+        out.write(WireFormat.TAG_OBJECT);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        // 未跟随取值的字段名（值为 null 且不输出 null）直接丢弃
+        deferredName = null;
+        out.write(WireFormat.TAG_OBJECT_END);
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(String name) throws IOException {
+        if (name == null) throw new NullPointerException("name == null");
+        if (deferredName != null) throw new IllegalStateException("连续写入字段名: " + name);
+        deferredName = name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) return nullValue();
+        writeDeferredName();
+        writeString(value, true);
+        return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) throws IOException {
+        if (value == null) return nullValue();
+        writeDeferredName();
+        writeTree(JsonParser.parseString(value));
+        return this;
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        if (deferredName != null && !getSerializeNulls()) {
+            deferredName = null;
+            return this;
+        }
+        writeDeferredName();
+        out.write(WireFormat.TAG_NULL);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        writeDeferredName();
+        out.write(value ? WireFormat.TAG_TRUE : WireFormat.TAG_FALSE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) throws IOException {
+        return value == null ? nullValue() : value(value.booleanValue());
+    }
+
+    @Override
+    public JsonWriter value(float value) throws IOException {
+        return value((double) value);
+    }
+
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        writeDeferredName();
+        writeNumber(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        writeDeferredName();
+        writeInt(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) return nullValue();
+        writeDeferredName();
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+                || value instanceof AtomicInteger || value instanceof AtomicLong) {
+            writeInt(value.longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            writeNumber(value.doubleValue());
+        } else {
+            // BigDecimal、LazilyParsedNumber 等：能精确表示为整数的按整数写出
+            BigDecimal decimal = new BigDecimal(value.toString());
+            try {
+                writeInt(decimal.longValueExact());
+            } catch (ArithmeticException e) {
+                writeNumber(decimal.doubleValue());
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        // 输出流由调用方管理
+    }
+
+    private void writeDeferredName() throws IOException {
+        if (deferredName != null) {
+            writeString(deferredName, false);
+            deferredName = null;
+        }
+    }
+
+    /**
+     * 整数值的浮点数按整数写出（解码后 JSON 中为 30 而非 30.0，Gson 解析为 double/Double 时结果相同）
+     */
+    private void writeNumber(double value) throws IOException {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15 && !(value == 0 && 1 / value < 0)) {
+            writeInt((long) value);
+            return;
+        }
+        out.write(WireFormat.TAG_DOUBLE);
+        long bits = Double.doubleToLongBits(value);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (bits >>> shift));
+        }
+    }
+
+    private void writeInt(long value) throws IOException {
+        out.write(WireFormat.TAG_INT);
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * 写出字符串；字段名总是尝试进入字典，字符串值仅较短时进入字典
+     */
+    private void writeString(String value, boolean isValue) throws IOException {
+        Integer index = dictionary.get(value);
+        if (index != null) {
+            out.write(WireFormat.TAG_DICT_REF);
+            writeVarint(index);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        boolean define = dictionary.size() < WireFormat.DICT_MAX_ENTRIES
+                && (!isValue || bytes.length <= WireFormat.DICT_MAX_VALUE_BYTES);
+        if (define) {
+            dictionary.put(value, dictionary.size());
+        }
+        out.write(define ? WireFormat.TAG_DICT_DEF : WireFormat.TAG_STRING);
+        writeVarint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private void writeTree(JsonElement element) throws IOException {
+        if (element == null || element.isJsonNull()) {
+            out.write(WireFormat.TAG_NULL);
+        } else if (element.isJsonObject()) {
+            out.write(WireFormat.TAG_OBJECT);
+            for (Map.Entry<String, JsonElement> entry : ((JsonObject) element).entrySet()) {
+                writeString(entry.getKey(), false);
+                writeTree(entry.getValue());
+            }
+            out.write(WireFormat.TAG_OBJECT_END);
+        } else if (element.isJsonArray()) {
+            out.write(WireFormat.TAG_ARRAY);
+            for (JsonElement item : (JsonArray) element) {
+                writeTree(item);
+            }
+            out.write(WireFormat.TAG_ARRAY_END);
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.write(primitive.getAsBoolean() ? WireFormat.TAG_TRUE : WireFormat.TAG_FALSE);
+            } else if (primitive.isNumber()) {
+                value(primitive.getAsNumber());
+            } else {
+                writeString(primitive.getAsString(), true);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package Common.codec;
+
+/**
+ * 客户端与服务端共用的线路格式常量
+ * 每帧为 "4字节长度前缀 + 帧体"。长度前缀高两位为帧标记，低 30 位为帧体字节数：
+ * - 最高位：帧体为 deflate 压缩数据（仅响应，需 hello 协商）
+ * - 次高位：帧体为紧凑二进制编码，否则为 UTF-8 JSON
+ * 二进制编码为带类型标签的 JSON 等价结构，对象字段名与短字符串在帧内建立字典，重复出现时只写编号。
+ */
+public final class WireFormat {
+    public static final int COMPRESSED_FLAG = 0x80000000;
+    public static final int BINARY_FLAG = 0x40000000;
+    public static final int LENGTH_MASK = 0x3FFFFFFF;
+
+    public static final String CODEC_JSON = "json";
+    public static final String CODEC_BINARY = "binary";
+
+    // 二进制编码的类型标签
+    static final int TAG_NULL = 0;
+    static final int TAG_FALSE = 1;
+    static final int TAG_TRUE = 2;
+    static final int TAG_INT = 3;        // zigzag varint
+    static final int TAG_DOUBLE = 4;     // 8 字节 IEEE 754，大端序
+    static final int TAG_STRING = 5;     // varint 字节数 + UTF-8
+    static final int TAG_ARRAY = 6;
+    static final int TAG_ARRAY_END = 7;
+    static final int TAG_OBJECT = 8;
+    static final int TAG_OBJECT_END = 9;
+    static final int TAG_DICT_DEF = 10;  // varint 字节数 + UTF-8，同时加入字典
+    static final int TAG_DICT_REF = 11;  // varint 字典编号
+
+    // 可进入字典的字符串值的最大字节数，以及单帧字典的最大条目数
+    static final int DICT_MAX_VALUE_BYTES = 32;
+    static final int DICT_MAX_ENTRIES = 4096;
+
+    private WireFormat() {}
+
+    public static boolean isCompressed(int header) {
+        return (header & COMPRESSED_FLAG) != 0;
+    }
+
+    public static boolean isBinary(int header) {
+        return (header & BINARY_FLAG) != 0;
+    }
+
+    public static int bodyLength(int header) {
+        return header & LENGTH_MASK;
+    }
+}
@@ -0,0 +1,387 @@
+package Common.schedule;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 教学班上课时间（客户端与服务端共用的唯一解析实现）
+ * 兼容库中与界面上出现过的各种写法：
+ * - {"周一":"1-2节,6-7节"}、{"周一":["1-2节"]}、{"周一":{"time":"1-2节"}}
+ * - [{"day":"周一","time":"1-2节"}]、{"day":"周一","time":"08:00-09:35"}
+ * - 纯文本 "周一1-2节"、"周二5节,周四3-4"，以及未加引号的键 {周一: "1-2节"}
+ * - 星期可写作 周一/星期一/礼拜一、1 ~ 7 或英文（缩写）；节次可写作 1-2节、第3节、3；时间区间 08:00-09:40 按与之重叠的节次记入
+ * 解析结果是不可变的规范形式：按星期、起始节排序去重的 {@link Slot} 列表，以及对应的 {@link ScheduleMask}。
+ * {@link #parse(String)} 按原始字符串驻留，同一 schedule 在进程内只解析一次，返回同一实例。
+ */
+public final class Schedule {
+    public static final int DAYS = 7;
+    public static final int PERIODS = 13;
+    /** 规范形式中的星期写法，下标 0 = 周一 */
+    public static final List<String> DAY_NAMES = Collections.unmodifiableList(
+            Arrays.asList("周一", "周二", "周三", "周四", "周五", "周六", "周日"));
+    public static final Schedule EMPTY = new Schedule(Collections.emptyList());
+
+    // 各节次的起止时间（自零点起的分钟数），下标为节次，0 不用
+    private static final int[] PERIOD_START = {0, 480, 530, 590, 640, 690, 840, 890, 950, 1000, 1050, 1140, 1190, 1240};
+    private static final int[] PERIOD_END = {0, 525, 575, 635, 685, 735, 885, 935, 995, 1045, 1095, 1185, 1235, 1285};
+
+    private static final Pattern PART_SEPARATOR = Pattern.compile("\\s*[,;，；、]\\s*");
+    private static final Pattern DAY_TOKEN = Pattern.compile("(?:星期|礼拜|周)[一二三四五六日天1-7]");
+    private static final Pattern TIME_RANGE = Pattern.compile("(\\d{1,2}):(\\d{2})(?::\\d{2})?\\s*-\\s*(\\d{1,2}):(\\d{2})(?::\\d{2})?");
+    private static final Pattern PERIOD_RANGE = Pattern.compile("(\\d{1,2})\\s*-\\s*(\\d{1,2})");
+    private static final Pattern SINGLE_PERIOD = Pattern.compile("(\\d{1,2})");
+    private static final String[] DAY_FIELDS = {"day", "weekday", "week", "dayOfWeek", "d"};
+    private static final String[] TIME_FIELDS = {"time", "timeRange", "range", "t"};
+    private static final String CHINESE_DAYS = "一二三四五六日";
+
+    // 不同的 schedule 字符串通常只有几百种，超过上限时整体清空
+    private static final int CACHE_LIMIT = 4096;
+    private static final Map<String, Schedule> CACHE = new ConcurrentHashMap<>();
+
+    private final List<Slot> slots;
+    private final ScheduleMask mask;
+
+    /**
+     * 一段上课时间：某天的第 startPeriod ~ endPeriod 节
+     */
+    public static final class Slot implements Comparable<Slot> {
+        private final int day;
+        private final int startPeriod;
+        private final int endPeriod;
+
+        Slot(int day, int startPeriod, int endPeriod) {
+            this.day = day;
+            this.startPeriod = startPeriod;
+            this.endPeriod = endPeriod;
+        }
+
+        /**
+         * 星期下标，0 = 周一；只写了时间没写星期时为 -1
+         */
+        public int day() {
+            return day;
+        }
+
+        public int startPeriod() {
+            return startPeriod;
+        }
+
+        public int endPeriod() {
+            return endPeriod;
+        }
+
+        /**
+         * 连续的节数
+         */
+        public int length() {
+            return endPeriod - startPeriod + 1;
+        }
+
+        /**
+         * 规范写法的星期（如 "周一"），没有星期时为 null
+         */
+        public String dayName() {
+            return day < 0 ? null : DAY_NAMES.get(day);
+        }
+
+        /**
+         * 规范写法的节次（如 "1-2节"、"3节"）
+         */
+        public String periodText() {
+            return startPeriod == endPeriod ? startPeriod + "节" : startPeriod + "-" + endPeriod + "节";
+        }
+
+        @Override
+        public int compareTo(Slot o) {
+            if (day != o.day) return Integer.compare(day, o.day);
+            if (startPeriod != o.startPeriod) return Integer.compare(startPeriod, o.startPeriod);
+            return Integer.compare(endPeriod, o.endPeriod);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Slot)) return false;
+            Slot slot = (Slot) o;
+            return day == slot.day && startPeriod == slot.startPeriod && endPeriod == slot.endPeriod;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(day, startPeriod, endPeriod);
+        }
+
+        @Override
+        public String toString() {
+            return (day < 0 ? "" : dayName()) + periodText();
+        }
+    }
+
+    private Schedule(List<Slot> slots) {
+        this.slots = slots;
+        long low = 0L;
+        long high = 0L;
+        for (Slot slot : slots) {
+            if (slot.day < 0) continue;
+            for (int p = slot.startPeriod; p <= slot.endPeriod; p++) {
+                int bit = slot.day * PERIODS + (p - 1);
+                if (bit < 64) {
+                    low |= 1L << bit;
+                } else {
+                    high |= 1L << (bit - 64);
+                }
+            }
+        }
+        this.mask = ScheduleMask.of(low, high);
+    }
+
+    /**
+     * 解析 schedule，结果按原始字符串驻留
+     * @param raw 库中或界面上的 schedule，可为空
+     * @return 规范形式；为空或无法识别时返回 {@link #EMPTY}
+     */
+    public static Schedule parse(String raw) {
+        if (raw == null || raw.trim().isEmpty()) return EMPTY;
+        Schedule schedule = CACHE.get(raw);
+        if (schedule == null) {
+            schedule = parseUncached(raw);
+            if (CACHE.size() >= CACHE_LIMIT) CACHE.clear();
+            Schedule existing = CACHE.putIfAbsent(raw, schedule);
+            if (existing != null) schedule = existing;
+        }
+        return schedule;
+    }
+
+    private static Schedule parseUncached(String raw) {
+        String text = normalizePunctuation(raw.trim());
+        List<Slot> slots = new ArrayList<>();
+        if (text.startsWith("{") || text.startsWith("[") || text.startsWith("\"")) {
+            try {
+                // Gson 的 JsonParser 为宽松模式，可接受未加引号的键
+                collect(JsonParser.parseString(text), -1, slots);
+            } catch (RuntimeException e) {
+                slots.clear();
+                collectText(text, -1, slots);
+            }
+        } else {
+            collectText(text, -1, slots);
+        }
+        if (slots.isEmpty()) return EMPTY;
+        Collections.sort(slots);
+        List<Slot> unique = new ArrayList<>(slots.size());
+        for (Slot slot : slots) {
+            if (unique.isEmpty() || !unique.get(unique.size() - 1).equals(slot)) unique.add(slot);
+        }
+        return new Schedule(Collections.unmodifiableList(unique));
+    }
+
+    private static void collect(JsonElement element, int day, List<Slot> out) {
+        if (element == null || element.isJsonNull()) return;
+        if (element.isJsonPrimitive()) {
+            collectText(element.getAsString(), day, out);
+        } else if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            for (JsonElement item : array) {
+                collect(item, day, out);
+            }
+        } else {
+            JsonObject object = element.getAsJsonObject();
+            String dayField = firstString(object, DAY_FIELDS);
+            String timeField = firstString(object, TIME_FIELDS);
+            if (dayField != null || timeField != null) {
+                // {"day":"周一","time":"1-2节"} 形式
+                int fieldDay = dayField == null ? day : dayIndex(dayField);
+                if (timeField != null) collectText(timeField, fieldDay, out);
+                return;
+            }
+            // {"周一":"1-2节", ...} 形式；键不是星期时值中可能自带星期
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                int keyDay = dayIndex(entry.getKey());
+                collect(entry.getValue(), keyDay >= 0 ? keyDay : day, out);
+            }
+        }
+    }
+
+    private static String firstString(JsonObject object, String[] names) {
+        for (String name : names) {
+            JsonElement value = object.get(name);
+            if (value != null && value.isJsonPrimitive()) return value.getAsString();
+        }
+        return null;
+    }
+
+    /**
+     * 解析一段文本，如 "1-2节,6-7节"、"周二5节;周四3-4"；片段中没写星期时沿用前一片段的星期（最初为 day）
+     */
+    private static void collectText(String text, int day, List<Slot> out) {
+        if (text == null) return;
+        int current = day;
+        for (String part : PART_SEPARATOR.split(normalizePunctuation(text))) {
+            if (part.isEmpty()) continue;
+            String rest = part;
+            Matcher dm = DAY_TOKEN.matcher(part);
+            if (dm.find()) {
+                current = dayIndex(dm.group());
+                rest = part.substring(0, dm.start()) + " " + part.substring(dm.end());
+            }
+            int[] periods = periodsOf(rest);
+            if (periods != null) {
+                out.add(new Slot(current, periods[0], periods[1]));
+            }
+        }
+    }
+
+    /**
+     * 一段上课时间对应的节次范围
+     * @return {起始节, 结束节}；无法识别或不与任何节次重叠时返回 null
+     */
+    private static int[] periodsOf(String text) {
+        Matcher m = TIME_RANGE.matcher(text);
+        if (m.find()) {
+            int start = Integer.parseInt(m.group(1)) * 60 + Integer.parseInt(m.group(2));
+            int end = Integer.parseInt(m.group(3)) * 60 + Integer.parseInt(m.group(4));
+            int first = -1;
+            int last = -1;
+            for (int p = 1; p <= PERIODS; p++) {
+                if (PERIOD_START[p] < end && start < PERIOD_END[p]) {
+                    if (first < 0) first = p;
+                    last = p;
+                }
+            }
+            return first < 0 ? null : new int[]{first, last};
+        }
+        m = PERIOD_RANGE.matcher(text);
+        if (m.find()) {
+            int a = clampPeriod(Integer.parseInt(m.group(1)));
+            int b = clampPeriod(Integer.parseInt(m.group(2)));
+            return new int[]{Math.min(a, b), Math.max(a, b)};
+        }
+        m = SINGLE_PERIOD.matcher(text);
+        if (m.find()) {
+            int p = clampPeriod(Integer.parseInt(m.group(1)));
+            return new int[]{p, p};
+        }
+        return null;
+    }
+
+    private static int clampPeriod(int period) {
+        return Math.max(1, Math.min(period, PERIODS));
+    }
+
+    private static String normalizePunctuation(String s) {
+        return s.replace('：', ':').replace('，', ',').replace('；', ';')
+                .replace('－', '-').replace('—', '-').replace('–', '-').replace('~', '-').replace('～', '-')
+                .replace('“', '"').replace('”', '"').replace('‘', '\'').replace('’', '\'');
+    }
+
+    /**
+     * 星期的下标（0 = 周一），支持 周一/星期一/礼拜一/周天、数字 1 ~ 7 与英文（缩写）
+     * @return 下标；无法识别时返回 -1
+     */
+    public static int dayIndex(String raw) {
+        if (raw == null) return -1;
+        String s = raw.trim();
+        for (String prefix : new String[]{"星期", "礼拜", "周"}) {
+            if (s.startsWith(prefix) && s.length() > prefix.length()) {
+                char d = s.charAt(prefix.length());
+                if (d == '天') return 6;
+                if (d >= '1' && d <= '7') return d - '1';
+                return CHINESE_DAYS.indexOf(d);
+            }
+        }
+        switch (s.toLowerCase()) {
+            case "1": case "mon": case "monday": return 0;
+            case "2": case "tue": case "tues": case "tuesday": return 1;
+            case "3": case "wed": case "wednesday": return 2;
+            case "4": case "thu": case "thurs": case "thursday": return 3;
+            case "5": case "fri": case "friday": return 4;
+            case "6": case "sat": case "saturday": return 5;
+            case "7": case "sun": case "sunday": return 6;
+            default: return -1;
+        }
+    }
+
+    /**
+     * 第 startPeriod ~ endPeriod 节的起止时间，如 "08:00-09:35"
+     */
+    public static String periodTime(int startPeriod, int endPeriod) {
+        int start = PERIOD_START[clampPeriod(Math.min(startPeriod, endPeriod))];
+        int end = PERIOD_END[clampPeriod(Math.max(startPeriod, endPeriod))];
+        return String.format("%02d:%02d-%02d:%02d", start / 60, start % 60, end / 60, end % 60);
+    }
+
+    /**
+     * 按星期、起始节排序的上课时间（不可修改）
+     */
+    public List<Slot> slots() {
+        return slots;
+    }
+
+    /**
+     * 节次位图；没写星期的时间段不计入
+     */
+    public ScheduleMask mask() {
+        return mask;
+    }
+
+    /**
+     * 与另一 schedule 是否有共同的节次
+     */
+    public boolean conflictsWith(Schedule other) {
+        return mask.intersects(other.mask);
+    }
+
+    public boolean isEmpty() {
+        return slots.isEmpty();
+    }
+
+    /**
+     * 写入数据库的规范 JSON，如 {"周一":"1-2节,6-7节","周三":"3节"}
+     * @return 没有任何带星期的时间段时返回 null
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{");
+        int lastDay = -1;
+        for (Slot slot : slots) {
+            if (slot.day < 0) continue;
+            if (slot.day != lastDay) {
+                if (lastDay >= 0) sb.append("\",");
+                sb.append('"').append(slot.dayName()).append("\":\"");
+                lastDay = slot.day;
+            } else {
+                sb.append(',');
+            }
+            sb.append(slot.periodText());
+        }
+        if (lastDay < 0) return null;
+        return sb.append("\"}").toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        return o instanceof Schedule && slots.equals(((Schedule) o).slots);
+    }
+
+    @Override
+    public int hashCode() {
+        return slots.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return slots.toString();
+    }
+}
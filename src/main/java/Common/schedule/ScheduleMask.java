@@ -0,0 +1,91 @@
+package Common.schedule;
+
+/**
+ * 教学班每周上课时间的节次位图（客户端与服务端共用）
+ * 一周 7 天 × 每天 13 节共 91 位，第 d 天（0 = 周一）第 p 节（1 ~ 13）对应位 d * 13 + (p - 1)，
+ * 存放在两个 long 中。两个教学班时间冲突当且仅当位图有交集，只需两次按位与。
+ * 以时间区间（如 08:00-09:40）表示的上课时间按与之重叠的节次记入，冲突判断的粒度为一节课。
+ * 由 {@link Schedule} 解析得到；{@link #of(String)} 沿用其按字符串驻留的缓存，同一 schedule 只解析一次。
+ */
+public final class ScheduleMask {
+    public static final int DAYS = 7;
+    public static final int PERIODS = 13;
+    public static final ScheduleMask EMPTY = new ScheduleMask(0L, 0L);
+
+    private final long low;
+    private final long high;
+
+    private ScheduleMask(long low, long high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * 取得 schedule 的位图，等价于 {@code Schedule.parse(scheduleJson).mask()}
+     * @param scheduleJson 教学班的 schedule，可为空
+     * @return 位图；为空或无法识别时返回 {@link #EMPTY}
+     */
+    public static ScheduleMask of(String scheduleJson) {
+        return Schedule.parse(scheduleJson).mask();
+    }
+
+    /**
+     * 由两个 long 还原位图（与 {@link #low()}、{@link #high()} 对应）
+     */
+    public static ScheduleMask of(long low, long high) {
+        return low == 0L && high == 0L ? EMPTY : new ScheduleMask(low, high);
+    }
+
+    /**
+     * 是否与另一位图有共同的节次（时间冲突）
+     */
+    public boolean intersects(ScheduleMask other) {
+        return (low & other.low) != 0L || (high & other.high) != 0L;
+    }
+
+    /**
+     * 两个位图的并集，用于合并一个学生的全部已选教学班
+     */
+    public ScheduleMask or(ScheduleMask other) {
+        return of(low | other.low, high | other.high);
+    }
+
+    /**
+     * 第 day 天（0 = 周一）第 period 节（1 ~ 13）是否有课
+     */
+    public boolean has(int day, int period) {
+        if (day < 0 || day >= DAYS || period < 1 || period > PERIODS) return false;
+        int bit = day * PERIODS + (period - 1);
+        return bit < 64 ? (low & (1L << bit)) != 0L : (high & (1L << (bit - 64))) != 0L;
+    }
+
+    public boolean isEmpty() {
+        return low == 0L && high == 0L;
+    }
+
+    public long low() {
+        return low;
+    }
+
+    public long high() {
+        return high;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ScheduleMask)) return false;
+        ScheduleMask that = (ScheduleMask) o;
+        return low == that.low && high == that.high;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(low) * 31 + Long.hashCode(high);
+    }
+
+    @Override
+    public String toString() {
+        return "ScheduleMask{" + Long.toHexString(high) + ":" + Long.toHexString(low) + "}";
+    }
+}
@@ -5,10 +5,7 @@ import Server.model.*;
 import Server.model.login.User;
 import Server.model.book.*;
 import Server.model.shop.*;
-import Server.model.student.Gender;
-import Server.model.student.PoliticalStatus;
 import Server.model.student.Student;
-import Server.model.student.StudentStatus;
 import Server.service.course.*;
 import Server.service.login.UserService;
 import Server.service.student.StudentService;
@@ -17,6 +14,7 @@ import Server.service.shop.StoreService;
 import Server.dao.shop.StoreMapper;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.TypeAdapter;
 import com.google.gson.TypeAdapterFactory;
 import com.google.gson.reflect.TypeToken;
@@ -26,6 +24,7 @@ import com.google.gson.stream.JsonToken;
 import Server.model.book.Category;
 import Server.model.course.Course;
 import Server.model.course.TeachingClass;
+import Server.model.course.TeachingClassSlot;
 import Server.model.course.ClassStudent;
 import Server.model.course.StudentTeachingClass;
 import Server.service.course.ClassStudentService;
@@ -34,15 +33,47 @@ import Server.service.course.TeachingClassService;
 import Server.service.course.StudentTeachingClassService;
 import Server.model.course.Teacher;
 import Server.service.book.BookService;
+import Common.codec.WireFormat;
+import Common.schedule.Schedule;
+import Common.schedule.ScheduleMask;
+import Server.codec.BinaryCodec;
+import Server.codec.Codec;
+import Server.codec.JsonCodec;
+import Server.cache.CatalogCache;
+import Server.codec.RawJson;
+import Server.codec.RequestTypeAdapterFactory;
+import Server.log.AccessLog;
+import Server.stats.ServerStats;
+import Server.model.payload.*;
+import Server.net.ChunkWriter;
+import Server.net.FrameBuffer;
+import Server.push.PushHub;
+import Server.push.PushQueue;
+import Server.service.course.SeatEngine;
+import Server.util.AdmissionControl;
+import Server.util.DatabaseUtil;
+import Server.util.PageCursor;
+import Server.util.ServerConfig;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
 
 /**
  * 客户端处理器
@@ -109,6 +140,8 @@ public class ClientHandler implements Runnable {
             .registerTypeAdapter(LocalDateTime.class, LOCAL_DATE_TIME_ADAPTER)
             .registerTypeAdapter(LocalDate.class, LOCAL_DATE_ADAPTER)
             .registerTypeAdapterFactory(JAVA_TIME_FALLBACK_FACTORY)
+            .registerTypeAdapterFactory(new RequestTypeAdapterFactory())
+            .registerTypeAdapter(RawJson.class, new RawJson.Adapter())
             .serializeNulls()
             .create();
     private final UserService userService = new UserService();
@@ -116,1137 +149,1915 @@ public class ClientHandler implements Runnable {
     private final ClassStudentService classStudentService = new ClassStudentService();
     private final CourseService courseService = new CourseService();
     private final TeachingClassService teachingClassService = new TeachingClassService();
+    private final CatalogSyncService catalogSyncService = new CatalogSyncService();
     private final StudentTeachingClassService studentTeachingClassService = new StudentTeachingClassService();
     private final TeacherService teacherService = new TeacherService();
     private final StoreService storeService = new StoreService();
     private final FinanceService financeService = new FinanceService();
     private final BookService bookService = new BookService();
+
+    // 流水线（携带 requestId）请求的共享执行线程池
+    private static final ExecutorService PIPELINE_POOL = Executors.newFixedThreadPool(
+            ServerConfig.getInt("server.pipeline.threads", 64), r -> {
+                Thread t = new Thread(r, "pipeline-worker");
+                t.setDaemon(true);
+                return t;
+            });
+    // 批量请求中并发子请求的执行线程池；与流水线线程池分开，避免批次在同一池中等待自身子任务而耗尽线程
+    private static final ExecutorService BATCH_POOL = Executors.newFixedThreadPool(
+            ServerConfig.getInt("server.batch.threads", 16), r -> {
+                Thread t = new Thread(r, "batch-worker");
+                t.setDaemon(true);
+                return t;
+            });
+    private static final int BATCH_MAX_SIZE = ServerConfig.getInt("server.batch.maxSize", 500);
+    // 整个处理过程在一个事务中执行的请求类型：共用一个连接，响应成功才提交
+    private static final Set<String> TRANSACTIONAL_TYPES = new HashSet<>(
+            Arrays.asList(ServerConfig.get("server.tx.requestTypes", "selectCourse,dropCourse").split("\\s*,\\s*")));
+    // 单连接最大在途流水线请求数
+    private final Semaphore inFlight = new Semaphore(ServerConfig.getInt("server.pipeline.maxInFlight", 32));
+    // 使用 ReentrantLock 而非 synchronized，虚拟线程模式下阻塞写不会钉住载体线程
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // 阻塞模式下本连接复用的响应帧缓冲，由 writeLock 保护
+    private final FrameBuffer frameBuffer = new FrameBuffer();
+    // NIO 模式下工作线程复用的响应帧缓冲
+    private static final ThreadLocal<FrameBuffer> THREAD_FRAME_BUFFER = ThreadLocal.withInitial(FrameBuffer::new);
+    // 响应压缩：客户端通过 hello 请求声明支持后，对超过阈值的响应帧启用 deflate
+    private static final boolean COMPRESSION_ENABLED = ServerConfig.getBoolean("server.compression.enabled", true);
+    private static final int COMPRESSION_THRESHOLD = ServerConfig.getInt("server.compression.threshold", 8192);
+    private static final int COMPRESSION_LEVEL = ServerConfig.getInt("server.compression.level", Deflater.BEST_SPEED);
+    private volatile boolean compressResponses;
+    // 线路编解码：请求按帧标记选择，响应使用 hello 协商结果（默认 JSON）
+    private static final Codec JSON_CODEC = new JsonCodec(gson);
+    private static final Codec BINARY_CODEC = new BinaryCodec(gson);
+    private static final boolean BINARY_CODEC_ENABLED = ServerConfig.getBoolean("server.codec.binary.enabled", true);
+    private volatile Codec responseCodec = JSON_CODEC;
+    // 服务端推送与流式响应的数据块：阻塞模式直接写本连接的输出流，NIO 模式交给连接的发送队列
+    // 推送先进入本连接的推送队列，由本连接的发送任务写出，推送线程不做套接字 I/O
+    private final PushQueue pushQueue = new PushQueue(this::writePush, this::dropSlowConnection);
+    private final PushHub.Subscriber pushSubscriber = pushQueue::offer;
+    private volatile DataOutputStream connectionOut;
+    private volatile Consumer<ByteBuffer> pushFrameSink;
+    private volatile Consumer<ByteBuffer> streamFrameSink;
+    private volatile Runnable connectionCloser;
     public ClientHandler(Socket socket) {
         this.clientSocket = socket;
     }
 
+    /**
+     * 不绑定 Socket 的处理器，由调用方读写帧、通过 {@link #decodeRequest(int, byte[])} 与 {@link #handleRequest(Request)} 分发请求（NIO 模式使用）
+     */
+    public ClientHandler() {
+        this(null);
+    }
+
     @Override
     public void run() {
         try (DataInputStream in = new DataInputStream(clientSocket.getInputStream());
              DataOutputStream out = new DataOutputStream(clientSocket.getOutputStream())) {
 
-            System.out.println("客户端连接: " + clientSocket.getInetAddress());
+            AccessLog.event("客户端连接: " + clientSocket.getInetAddress());
+            connectionOut = out;
 
             while (true) {
-                // 1. 读取消息长度（4字节int）
-                int length = in.readInt();
+                // 1. 读取长度前缀（4字节int，高位为帧标记）
+                int header = in.readInt();
                 // 2. 根据长度读取字节数组
-                byte[] messageBytes = new byte[length];
+                byte[] messageBytes = new byte[WireFormat.bodyLength(header)];
                 in.readFully(messageBytes);
-                // 3. 将字节数组转为JSON字符串
-                String jsonStr = new String(messageBytes, StandardCharsets.UTF_8);
-
-                System.out.println("收到请求: " + jsonStr);
 
-                // 4. 将JSON字符串解析为Request对象
-                Request request = gson.fromJson(jsonStr, Request.class);
+                // 3~4. 按帧标记选择编解码器，解析为Request对象
+                Request request = decodeRequest(header, messageBytes);
 
-                // 5. 根据请求类型处理业务逻辑
-                Response response = null;
-                switch (request.getType()) {
-                    // 用户登录
-                    case "login":
-                        response = userService.login(request.getData());
-                        break;
-
-                    // （学生）查询自己的学籍信息
-                    case "getSelf":
-                        Integer cardNumber = ((Double) request.getData().get("cardNumber")).intValue();
-                        Student student = studentService.getSelf(cardNumber);
-                        response = (student != null) ?
-                                Response.success("查询成功", student) :
-                                Response.error("未找到学生信息");
-                        break;
+                // 5~6. 处理业务逻辑并发送响应：携带 requestId 的请求并发处理、乱序应答，否则保持一问一答
+                if (request.getRequestId() != null) {
+                    dispatchPipelined(out, request);
+                } else {
+                    sendResponse(out, request, handleRequest(request));
+                }
+            }
+        } catch (IOException e) {
+            AccessLog.event("客户端连接断开: " + e.getMessage());
+        } finally {
+            releaseSubscriptions();
+            writeLock.lock();
+            try {
+                frameBuffer.close();
+            } finally {
+                writeLock.unlock();
+            }
+            try {
+                clientSocket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            AdmissionControl.releaseConnection();
+        }
+    }
 
-                    // 忘记密码
-                    case "forgetPwd":
-                        Map<String, Object> forgetData = request.getData();
+    /**
+     * NIO 模式下设置推送帧的去向（连接的发送队列）；在推送发送线程上调用，允许在发送队列积压过多时阻塞，
+     * 连接已关闭时抛出 UncheckedIOException
+     */
+    public void setPushFrameSink(Consumer<ByteBuffer> sink) {
+        this.pushFrameSink = sink;
+    }
 
-                        // 获取一卡通号和身份证号
-                        Integer card_number = ((Double) forgetData.get("cardNumber")).intValue();
-                        String identity = (String) forgetData.get("id");
+    /**
+     * NIO 模式下设置流式响应数据块的去向；该去向应在发送队列积压过多时阻塞调用线程，
+     * 连接已关闭时抛出 UncheckedIOException
+     */
+    public void setStreamFrameSink(Consumer<ByteBuffer> sink) {
+        this.streamFrameSink = sink;
+    }
 
-                        // 调用忘记密码验证
-                        response = userService.forgetPassword(card_number, identity);
-                        break;
+    /**
+     * NIO 模式下设置关闭连接的方法，推送队列溢出时调用；阻塞模式直接关闭 Socket
+     */
+    public void setConnectionCloser(Runnable closer) {
+        this.connectionCloser = closer;
+    }
 
-                    // 重置密码
-                    case "resetPwd":
-                        Map<String, Object> resetData = request.getData();
+    /**
+     * 取消本连接的全部推送订阅，连接关闭时调用
+     */
+    public void releaseSubscriptions() {
+        PushHub.unsubscribeAll(pushSubscriber);
+        pushQueue.close();
+    }
 
-                        // 获取一卡通号和密码
-                        Integer CardNumber = ((Double) resetData.get("cardNumber")).intValue();
-                        String password = (String) resetData.get("password");
+    /**
+     * 在本连接的推送发送线程上把变更事件写给客户端，客户端读得慢时在此阻塞，不影响其他连接
+     */
+    private void writePush(Response event) throws IOException {
+        Consumer<ByteBuffer> sink = pushFrameSink;
+        if (sink != null) {
+            sink.accept(encodeFrame(null, event));
+            return;
+        }
+        DataOutputStream out = connectionOut;
+        if (out == null) return;
+        sendResponse(out, null, event);
+    }
 
-                        // 调用重置密码验证
-                        response = userService.resetPassword(CardNumber, password);
-                        break;
+    /**
+     * 推送队列溢出或写出失败：客户端跟不上推送，断开连接，读线程（或 selector）随后结束并清理
+     */
+    private void dropSlowConnection() {
+        AccessLog.event("推送积压过多或写出失败，断开客户端连接");
+        releaseSubscriptions();
+        Runnable closer = connectionCloser;
+        if (closer != null) {
+            closer.run();
+            return;
+        }
+        if (clientSocket != null) {
+            try {
+                clientSocket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
 
-                    // 搜索学生学籍信息
-                    case "searchStudents":
-                        Map<String, Object> searchData = request.getData();
-                        String searchType = (String) searchData.get("searchType");
-                        String searchValue = (String) searchData.get("searchValue");
-                        Boolean fuzzy = (Boolean) searchData.get("fuzzy"); // 新增参数，可选
+    /**
+     * 解码一帧请求，阻塞模式与 NIO 模式共用
+     * @param header 长度前缀（含帧标记）
+     * @param body 帧体
+     * @return 请求对象
+     */
+    public Request decodeRequest(int header, byte[] body) {
+        if (WireFormat.isCompressed(header)) {
+            throw new JsonParseException("请求帧不支持压缩");
+        }
+        Codec codec = WireFormat.isBinary(header) ? BINARY_CODEC : JSON_CODEC;
+        Request request = codec.decode(body, 0, body.length);
+        request.setReceivedNanos(System.nanoTime());
+        request.setFrameBytes(body.length);
+        return request;
+    }
 
-                        // 验证必要参数
-                        if (searchType == null || searchValue == null) {
-                            response = Response.error("搜索参数不完整");
-                            break;
-                        }
+    /**
+     * 将携带 requestId 的请求提交到流水线线程池处理，响应完成后即写回（可能与请求顺序不同）
+     * 单连接在途请求数受限，超过上限时读线程阻塞等待，形成背压
+     */
+    private void dispatchPipelined(DataOutputStream out, Request request) throws IOException {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("连接处理线程被中断");
+        }
+        PIPELINE_POOL.execute(() -> {
+            try {
+                Response response;
+                try {
+                    response = handleRequest(request);
+                } catch (RuntimeException e) {
+                    // 流水线请求必须有应答，否则客户端对应的等待永远不会结束
+                    e.printStackTrace();
+                    response = Response.error(500, "服务器内部错误: " + e.getMessage());
+                    response.setRequestId(request.getRequestId());
+                }
+                sendResponse(out, request, response);
+            } catch (IOException e) {
+                AccessLog.event("客户端连接断开: " + e.getMessage());
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
 
-                        try {
-                            List<Student> students = studentService.searchStudents(searchType, searchValue, fuzzy);
-                            response = Response.success("搜索完成", students);
-                        } catch (IllegalArgumentException e) {
-                            response = Response.error(e.getMessage());
-                        } catch (Exception e) {
-                            response = Response.error(500, "搜索过程中发生错误: " + e.getMessage());
-                        }
-                        break;
+    /**
+     * 处理一个请求：先按请求类型做准入控制，额度已满时直接返回 429，否则分发到业务逻辑
+     * server.tx.requestTypes 中的请求在一个工作单元中处理：各服务方法共用同一连接与事务，响应码为 200 时提交，否则回滚
+     * @param request 请求对象
+     * @return 响应对象
+     */
+    public Response handleRequest(Request request) {
+        Semaphore permit = AdmissionControl.tryAcquire(request.getType());
+        if (permit == null) {
+            Response response = Response.error(AdmissionControl.CODE_TOO_MANY_REQUESTS,
+                    "请求过多（" + request.getType() + "），请稍后重试");
+            response.setRequestId(request.getRequestId());
+            return response;
+        }
+        try {
+            if (TRANSACTIONAL_TYPES.contains(request.getType())) {
+                return DatabaseUtil.inUnitOfWork(() -> dispatch(request),
+                        response -> response != null && response.getCode() == 200);
+            }
+            return dispatch(request);
+        } finally {
+            AdmissionControl.release(permit);
+        }
+    }
 
-                    // 更新学生学籍信息
-                    case "updateStudent":
-                        // 从请求数据中创建Student对象
-                        Map<String, Object> studentData = (Map<String, Object>) request.getData().get("student");
-                        Student studentToUpdate = createStudentFromMap(studentData);
+    /**
+     * 根据请求类型分发到对应的业务逻辑
+     * @param request 请求对象
+     * @return 响应对象
+     */
+    private Response dispatch(Request request) {
+        Response response = null;
+        switch (request.getType()) {
+            // 能力协商：客户端声明支持的传输特性，服务端返回本连接实际启用的特性
+            case "hello":
+                response = negotiate(request.getData());
+                break;
+
+            // 用户登录
+            case "login":
+                response = userService.login(request.getData());
+                break;
+
+            // （学生）查询自己的学籍信息
+            case "getSelf":
+                Integer cardNumber = payload(request, CardNumberPayload.class).getCardNumber();
+                Student student = studentService.getSelf(cardNumber);
+                response = (student != null) ?
+                        Response.success("查询成功", student) :
+                        Response.error("未找到学生信息");
+                break;
+
+            // 忘记密码
+            case "forgetPwd":
+                Map<String, Object> forgetData = request.getData();
+
+                // 获取一卡通号和身份证号
+                Integer card_number = ((Double) forgetData.get("cardNumber")).intValue();
+                String identity = (String) forgetData.get("id");
+
+                // 调用忘记密码验证
+                response = userService.forgetPassword(card_number, identity);
+                break;
+
+            // 重置密码
+            case "resetPwd":
+                Map<String, Object> resetData = request.getData();
+
+                // 获取一卡通号和密码
+                Integer CardNumber = ((Double) resetData.get("cardNumber")).intValue();
+                String password = (String) resetData.get("password");
+
+                // 调用重置密码验证
+                response = userService.resetPassword(CardNumber, password);
+                break;
+
+            // 搜索学生学籍信息
+            case "searchStudents":
+                Map<String, Object> searchData = request.getData();
+                String searchType = (String) searchData.get("searchType");
+                String searchValue = (String) searchData.get("searchValue");
+                Boolean fuzzy = (Boolean) searchData.get("fuzzy"); // 新增参数，可选
+
+                // 验证必要参数
+                if (searchType == null || searchValue == null) {
+                    response = Response.error("搜索参数不完整");
+                    break;
+                }
 
-                        boolean updateResult = studentService.updateStudent(studentToUpdate);
-                        response = updateResult ?
-                                Response.success("更新成功") :
-                                Response.error("更新失败");
-                        break;
+                // 带 pageSize 时按一卡通号分页返回
+                response = pagedResponse(searchData.get("pageSize"), searchData.get("cursor"), "搜索完成",
+                        (after, size) -> studentService.searchStudentsPage(searchType, searchValue, fuzzy, after, size));
+                if (response != null) break;
 
-                    // 添加学生学籍信息
-                    case "addStudent":
-                        Map<String, Object> newStudentData = (Map<String, Object>) request.getData().get("student");
-                        Student newStudent = createStudentFromMap(newStudentData);
+                try {
+                    List<Student> students = studentService.searchStudents(searchType, searchValue, fuzzy);
+                    response = Response.success("搜索完成", students);
+                } catch (IllegalArgumentException e) {
+                    response = Response.error(e.getMessage());
+                } catch (Exception e) {
+                    response = Response.error(500, "搜索过程中发生错误: " + e.getMessage());
+                }
+                break;
+
+            // 更新学生学籍信息
+            case "updateStudent":
+                // 请求数据在解码时已绑定为Student对象
+                Student studentToUpdate = payload(request, StudentPayload.class).getStudent();
+
+                boolean updateResult = studentService.updateStudent(studentToUpdate);
+                response = updateResult ?
+                        Response.success("更新成功") :
+                        Response.error("更新失败");
+                break;
+
+            // 添加学生学籍信息
+            case "addStudent":
+                Student newStudent = payload(request, StudentPayload.class).getStudent();
+
+                boolean addResult = studentService.addStudent(newStudent);
+                response = addResult ?
+                        Response.success("添加成功", newStudent.getCardNumber()) :
+                        Response.error("添加失败");
+                break;
+
+            // 删除学生学籍信息
+            case "deleteStudent":
+                Integer deleteCardNumber = payload(request, CardNumberPayload.class).getCardNumber();
+                boolean deleteResult = studentService.deleteStudent(deleteCardNumber);
+                response = deleteResult ?
+                        Response.success("删除成功") :
+                        Response.error("删除失败");
+                break;
+
+            // 获取所有课程
+            case "getAllCourses":
+                response = catalogResponse(request, CatalogCache.Region.COURSES, "all",
+                        "获取所有课程成功", courseService::getAllCourses);
+                break;
+
+            // 根据 courseId 获取单条课程详情（客户端需要的接口）
+            case "getCourseById":
+                if (request.getData() == null) {
+                    response = Response.error("缺少参数: courseId");
+                    break;
+                }
+                Object cidObj = request.getData().get("courseId");
+                String queryCourseId = null;
+                if (cidObj instanceof String) queryCourseId = (String) cidObj;
+                else if (cidObj != null) queryCourseId = String.valueOf(cidObj);
+
+                if (queryCourseId == null || queryCourseId.trim().isEmpty()) {
+                    response = Response.error("缺少参数: courseId");
+                    break;
+                }
 
-                        boolean addResult = studentService.addStudent(newStudent);
-                        response = addResult ?
-                                Response.success("添加成功", newStudent.getCardNumber()) :
-                                Response.error("添加失败");
+                try {
+                    Course course = courseService.findByCourseId(queryCourseId);
+                    if (course != null) {
+                        response = Response.success("获取课程成功", course);
+                    } else {
+                        response = Response.error("未找到课程: " + queryCourseId);
+                    }
+                } catch (Exception e) {
+                    response = Response.error(500, "查询课程失败: " + e.getMessage());
+                }
+                break;
+
+            // 根据学院查询课程
+            case "getCoursesBySchool":
+                String school = (String) request.getData().get("school");
+                response = catalogResponse(request, CatalogCache.Region.COURSES, "school:" + school,
+                        "获取学院课程成功", () -> courseService.getCoursesBySchool(school));
+                break;
+
+            // 获取所在教学班
+            case "getAllTeachingClasses":
+                response = pagedCatalogResponse(request, CatalogCache.Region.TEACHING_CLASSES,
+                        "获取所有教学班成功", teachingClassService::getTeachingClassesPage);
+                if (response == null) {
+                    response = catalogResponse(request, CatalogCache.Region.TEACHING_CLASSES, "all",
+                            "获取所有教学班成功", teachingClassService::getAllTeachingClasses);
+                }
+                break;
+
+            // 根据课程ID获取教学班
+            case "getTeachingClassesByCourseId":
+                String courseId = (String) request.getData().get("courseId");
+                response = catalogResponse(request, CatalogCache.Region.TEACHING_CLASSES, "course:" + courseId,
+                        "获取课程教学班成功", () -> teachingClassService.findByCourseId(courseId));
+                break;
+
+            // 教学班实时选课人数（不经目录缓存，目录中的 selectedCount 只是快照）
+            case "getSeatCounts":
+                Object seatUuidsObj = request.getData().get("uuids");
+                if (!(seatUuidsObj instanceof List)) {
+                    response = Response.error("缺少 uuids 参数");
+                    break;
+                }
+                List<String> seatUuids = new ArrayList<>();
+                for (Object u : (List<?>) seatUuidsObj) {
+                    seatUuids.add(String.valueOf(u));
+                }
+                Map<String, Map<String, Object>> seatCounts = teachingClassService.getSeatCounts(seatUuids);
+                response = seatCounts != null
+                        ? Response.success("获取选课人数成功", seatCounts)
+                        : Response.error("获取选课人数失败");
+                break;
+
+            // 课程目录增量同步：只返回游标之后变化过的课程、教学班与选课人数
+            case "getCatalogChanges":
+                Object since = request.getData() == null ? null : request.getData().get("since");
+                response = catalogSyncService.getCatalogChanges(since == null ? null : String.valueOf(since));
+                break;
+
+            // 根据教师姓名获取教学班
+            case "getTeachingClassesByTeacherName":
+                String teacherName = (String) request.getData().get("teacherName");
+                List<TeachingClass> teacherTeachingClasses = teachingClassService.getTeachingClassesByTeacherName(teacherName);
+                response = Response.success("获取教师教学班成功", teacherTeachingClasses);
+                break;
+
+            // 根据一卡通号查询教师负责的教学班（服务端负责将 cardNumber -> 用户姓名 -> 查询教学班）
+            case "getTeachingClassesByTeacherCardNumber":
+                try {
+                    Object cardObj = request.getData().get("cardNumber");
+                    Integer queryCard = null;
+                    if (cardObj instanceof Number) {
+                        queryCard = ((Number) cardObj).intValue();
+                    } else if (cardObj instanceof String) {
+                        try { queryCard = Integer.parseInt(((String) cardObj).trim()); } catch (NumberFormatException ignored) {}
+                    }
+                    if (queryCard == null) {
+                        response = Response.error("无效的 cardNumber 参数");
                         break;
-
-                    // 删除学生学籍信息
-                    case "deleteStudent":
-                        Integer deleteCardNumber = ((Double) request.getData().get("cardNumber")).intValue();
-                        boolean deleteResult = studentService.deleteStudent(deleteCardNumber);
-                        response = deleteResult ?
-                                Response.success("删除成功") :
-                                Response.error("删除失败");
+                    }
+                    // 查用户以取得姓名
+                    User user = userService.findUserByCardNumber(queryCard);
+                    if (user == null || user.getName() == null || user.getName().trim().isEmpty()) {
+                        response = Response.error("未找到对应用户或姓名为空");
                         break;
+                    }
+                    String realTeacherName = user.getName();
+                    List<TeachingClass> classes = teachingClassService.getTeachingClassesByTeacherName(realTeacherName);
+                    response = Response.success("获取教师教学班成功", classes);
+                } catch (Exception e) {
+                    response = Response.error(500, "根据一卡通号查询教学班失败: " + e.getMessage());
+                }
+                break;
+
+            // 学生选课
+            case "selectCourse":
+                CourseSelectionPayload selection = payload(request, CourseSelectionPayload.class);
+                Integer selectCardNumber = selection.getCardNumber();
+                String teachingClassUuid = selection.getTeachingClassUuid();
+                if (SeatEngine.isActive()) {
+                    response = rushSelectionResponse(SeatEngine.select(selectCardNumber, teachingClassUuid), "选课成功");
+                    break;
+                }
 
-                    // 获取所有课程
-                    case "getAllCourses":
-                        List<Course> courses = courseService.getAllCourses();
-                        response = Response.success("获取所有课程成功", courses);
+                try {
+                    TeachingClass targetTcForConflict = teachingClassService.findByUuid(teachingClassUuid);
+                    if (targetTcForConflict == null) {
+                        response = Response.error("教学班不存在");
                         break;
-
-                    // 根据 courseId 获取单条课程详情（客户端需要的接口）
-                    case "getCourseById":
-                        if (request.getData() == null) {
-                            response = Response.error("缺少参数: courseId");
-                            break;
+                    }
+                    // 时间冲突检测：学生已选教学班（一次 JOIN 查出）的节次位图与目标教学班按位求交
+                    List<TeachingClass> existingSelections = teachingClassService.findSelectedByStudentCardNumber(selectCardNumber);
+                    if (existingSelections != null) {
+                        ScheduleMask targetMask = targetTcForConflict.getScheduleMask();
+                        boolean conflict = false;
+                        for (TeachingClass existTc : existingSelections) {
+                            if (existTc != null && existTc.getScheduleMask().intersects(targetMask)) {
+                                conflict = true;
+                                break;
+                            }
                         }
-                        Object cidObj = request.getData().get("courseId");
-                        String queryCourseId = null;
-                        if (cidObj instanceof String) queryCourseId = (String) cidObj;
-                        else if (cidObj != null) queryCourseId = String.valueOf(cidObj);
-
-                        if (queryCourseId == null || queryCourseId.trim().isEmpty()) {
-                            response = Response.error("缺少参数: courseId");
+                        if (conflict) {
+                            response = Response.error("选课失败: 与已选课程时间冲突");
                             break;
                         }
+                    }
 
-                        try {
-                            Course course = courseService.findByCourseId(queryCourseId);
-                            if (course != null) {
-                                response = Response.success("获取课程成功", course);
-                            } else {
-                                response = Response.error("未找到课程: " + queryCourseId);
-                            }
-                        } catch (Exception e) {
-                            response = Response.error(500, "查询课程失败: " + e.getMessage());
-                        }
+                    // 按刚读到的人数快速拒绝已满的教学班，省去注定回滚的写操作；是否真有空位以下面的条件 UPDATE 为准
+                    if (targetTcForConflict.getSelectedCount() >= targetTcForConflict.getCapacity()) {
+                        response = Response.error("教学班已满，无法选课");
                         break;
-
-                    // 根据学院查询课程
-                    case "getCoursesBySchool":
-                        String school = (String) request.getData().get("school");
-                        List<Course> schoolCourses = courseService.getCoursesBySchool(school);
-                        response = Response.success("获取学院课程成功", schoolCourses);
+                    }
+                    // 选课只有两条写语句，不再先查后改。先占座位：条件 UPDATE 原子地检查并加一，同时锁住教学班行；
+                    // 若先插入选课关系，外键检查会在教学班行上加共享锁，并发选同一教学班时两个事务互等升级而死锁
+                    if (!teachingClassService.incrementSelectedCount(teachingClassUuid)) {
+                        response = Response.error("教学班已满，无法选课");
                         break;
-
-                    // 获取所在教学班
-                    case "getAllTeachingClasses":
-                        List<TeachingClass> teachingClasses = teachingClassService.getAllTeachingClasses();
-                        response = Response.success("获取所有教学班成功", teachingClasses);
+                    }
+                    // 再插入选课关系，重复选课由唯一键拦截；失败时返回错误，整个请求的事务回滚，占用的座位一并释放
+                    int inserted = studentTeachingClassService.insertSelection(selectCardNumber, teachingClassUuid);
+                    if (inserted == 0) {
+                        response = Response.error("您已经选过该课程");
                         break;
-
-                    // 根据课程ID获取教学班
-                    case "getTeachingClassesByCourseId":
-                        String courseId = (String) request.getData().get("courseId");
-                        List<TeachingClass> courseTeachingClasses = teachingClassService.findByCourseId(courseId);
-                        response = Response.success("获取课程教学班成功", courseTeachingClasses);
+                    }
+                    if (inserted < 0) {
+                        response = Response.error("选课失败");
                         break;
+                    }
+                    response = Response.success("选课成功");
+                 } catch (Exception e) {
+                     response = Response.error("选课过程中发生错误: " + e.getMessage());
+                 }
+                 break;
+
+            // 学生退课
+            case "dropCourse":
+                CourseSelectionPayload dropSelection = payload(request, CourseSelectionPayload.class);
+                Integer dropCardNumber = dropSelection.getCardNumber();
+                String dropTeachingClassUuid = dropSelection.getTeachingClassUuid();
+                if (SeatEngine.isActive()) {
+                    response = rushSelectionResponse(SeatEngine.drop(dropCardNumber, dropTeachingClassUuid), "退课成功");
+                    break;
+                }
 
-                    // 根据教师姓名获取教学班
-                    case "getTeachingClassesByTeacherName":
-                        String teacherName = (String) request.getData().get("teacherName");
-                        List<TeachingClass> teacherTeachingClasses = teachingClassService.getTeachingClassesByTeacherName(teacherName);
-                        response = Response.success("获取教师教学班成功", teacherTeachingClasses);
+                try {
+                    // 检查是否选过该课程
+                    boolean isSelected = studentTeachingClassService.findByStudentAndTeachingClass(dropCardNumber, dropTeachingClassUuid) != null;
+                    if (!isSelected) {
+                        response = Response.error("您没有选过该课程");
                         break;
+                    }
 
-                    // 根据一卡通号查询教师负责的教学班（服务端负责将 cardNumber -> 用户姓名 -> 查询教学班）
-                    case "getTeachingClassesByTeacherCardNumber":
-                        try {
-                            Object cardObj = request.getData().get("cardNumber");
-                            Integer queryCard = null;
-                            if (cardObj instanceof Number) {
-                                queryCard = ((Number) cardObj).intValue();
-                            } else if (cardObj instanceof String) {
-                                try { queryCard = Integer.parseInt(((String) cardObj).trim()); } catch (NumberFormatException ignored) {}
-                            }
-                            if (queryCard == null) {
-                                response = Response.error("无效的 cardNumber 参数");
-                                break;
-                            }
-                            // 查用户以取得姓名
-                            User user = userService.findUserByCardNumber(queryCard);
-                            if (user == null || user.getName() == null || user.getName().trim().isEmpty()) {
-                                response = Response.error("未找到对应用户或姓名为空");
-                                break;
-                            }
-                            String realTeacherName = user.getName();
-                            List<TeachingClass> classes = teachingClassService.getTeachingClassesByTeacherName(realTeacherName);
-                            response = Response.success("获取教师教学班成功", classes);
-                        } catch (Exception e) {
-                            response = Response.error(500, "根据一卡通号查询教学班失败: " + e.getMessage());
-                        }
-                        break;
+                    // 删除选课关系
+                    boolean dropResult = studentTeachingClassService.deleteStudentTeachingClass(dropCardNumber, dropTeachingClassUuid);
 
-                    // 学生选课
-                    case "selectCourse":
-                        Integer selectCardNumber = ((Double) request.getData().get("cardNumber")).intValue();
-                        String teachingClassUuid = (String) request.getData().get("teachingClassUuid");
+                    // 更新教学班选课人数，失败时整个请求回滚
+                    if (dropResult && teachingClassService.decrementSelectedCount(dropTeachingClassUuid)) {
+                        response = Response.success("退课成功");
+                    } else {
+                        response = Response.error("退课失败");
+                    }
+                } catch (Exception e) {
+                    response = Response.error("退课过程中发生错误: " + e.getMessage());
+                }
+                break;
 
-                        try {
-                            // 时间冲突检测：获取目标教学班的 schedule，与学生已选教学班逐一对比
-                            TeachingClass targetTcForConflict = teachingClassService.findByUuid(teachingClassUuid);
-                            if (targetTcForConflict != null) {
-                                List<StudentTeachingClass> existingSelections = studentTeachingClassService.findByStudentCardNumber(selectCardNumber);
-                                if (existingSelections != null) {
-                                    for (StudentTeachingClass stc : existingSelections) {
-                                        if (stc == null || stc.getTeachingClassUuid() == null) continue;
-                                        TeachingClass existTc = teachingClassService.findByUuid(stc.getTeachingClassUuid());
-                                        if (existTc == null) continue;
-                                        if (schedulesConflict(existTc.getSchedule(), targetTcForConflict.getSchedule())) {
-                                            response = Response.error("选课失败: 与已选课程时间冲突");
-                                            break;
-                                        }
-                                    }
-                                    if (response != null && response.getCode() != 200) break; // 已设置冲突响应，跳出
-                                }
-                            }
-                             // 检查教学班是否有空位
-                             boolean hasSeats = teachingClassService.hasAvailableSeats(teachingClassUuid);
-                             if (!hasSeats) {
-                                 response = Response.error("教学班已满，无法选课");
-                                 break;
-                             }
-
-                             // 检查是否已经选过该课程
-                             boolean alreadySelected = studentTeachingClassService.findByStudentAndTeachingClass(selectCardNumber, teachingClassUuid) != null;
-                             if (alreadySelected) {
-                                 response = Response.error("您已经选过该课程");
-                                 break;
-                             }
-
-                             // 创建选课关系
-                             boolean selectResult = studentTeachingClassService.addStudentTeachingClass(
-                                     new StudentTeachingClass(selectCardNumber, teachingClassUuid));
-
-                             if (selectResult) {
-                                 // 更新教学班选课人数
-                                 teachingClassService.incrementSelectedCount(teachingClassUuid);
-                                 response = Response.success("选课成功");
-                             } else {
-                                 response = Response.error("选课失败");
-                             }
-                         } catch (Exception e) {
-                             response = Response.error("选课过程中发生错误: " + e.getMessage());
-                         }
-                         break;
+            // 获取学生已选课程
+            case "getStudentSelectedCourses":
+                Integer studentCardNumber = payload(request, CardNumberPayload.class).getCardNumber();
 
-                    // 学生退课
-                    case "dropCourse":
-                        Integer dropCardNumber = ((Double) request.getData().get("cardNumber")).intValue();
-                        String dropTeachingClassUuid = (String) request.getData().get("teachingClassUuid");
+                try {
+                    // 使用一次性 JOIN 查询获取该学生所有已选教学班，避免逐条查询导致的 N+1 问题
+                    List<TeachingClass> teachingClasses1 = teachingClassService.findByStudentCardNumber(studentCardNumber);
+                    response = Response.success("获取已选课程成功", teachingClasses1);
+                } catch (Exception e) {
+                    response = Response.error("获取已选课程失败: " + e.getMessage());
+                }
+                break;
 
-                        try {
-                            // 检查是否选过该课程
-                            boolean isSelected = studentTeachingClassService.findByStudentAndTeachingClass(dropCardNumber, dropTeachingClassUuid) != null;
-                            if (!isSelected) {
-                                response = Response.error("您没有选过该课程");
-                                break;
-                            }
+            // 与学生已选课程时间冲突的全部教学班 UUID（节次位图批量求交）
+            case "getConflictingTeachingClasses":
+                Integer conflictCardNumber = payload(request, CardNumberPayload.class).getCardNumber();
+                List<String> conflictingUuids = teachingClassService.findConflictingUuids(conflictCardNumber);
+                response = conflictingUuids != null
+                        ? Response.success("获取冲突教学班成功", conflictingUuids)
+                        : Response.error("获取冲突教学班失败");
+                break;
 
-                            // 删除选课关系
-                            boolean dropResult = studentTeachingClassService.deleteStudentTeachingClass(dropCardNumber, dropTeachingClassUuid);
+            // 获取教学班的学生列表
+            case "getTeachingClassStudents":
+                String classUuid = (String) request.getData().get("teachingClassUuid");
 
-                            if (dropResult) {
-                                // 更新教学班选课人数
-                                teachingClassService.decrementSelectedCount(dropTeachingClassUuid);
-                                response = Response.success("退课成功");
+                try {
+                    // 获取教学班的选课关系
+                    List<StudentTeachingClass> classStudents = studentTeachingClassService.findByTeachingClassUuid(classUuid);
+
+                    // 获取学生详细信息
+                    List<Map<String, Object>> students = new ArrayList<>();
+                    for (StudentTeachingClass stc : classStudents) {
+                        ClassStudent student1 = classStudentService.findByCardNumber(stc.getStudentCardNumber());
+                        if (student1 != null) {
+                            Map<String, Object> m = new HashMap<>();
+                            m.put("cardNumber", student1.getCardNumber());
+                            // 强制将学号按字符串返回，保留前导零，若为数字则左补0到8位
+                            Object stuNoObj = null;
+                            try { stuNoObj = student1.getStudentNumber(); } catch (Exception ignore) {}
+                            String stuNoStr = "";
+                            if (stuNoObj == null) {
+                                stuNoStr = "";
+                            } else if (stuNoObj instanceof String) {
+                                stuNoStr = (String) stuNoObj;
+                            } else if (stuNoObj instanceof Number) {
+                                // 转为整数并左补零
+                                long val = ((Number) stuNoObj).longValue();
+                                stuNoStr = String.format("%08d", val);
                             } else {
-                                response = Response.error("退课失败");
+                                stuNoStr = String.valueOf(stuNoObj);
                             }
-                        } catch (Exception e) {
-                            response = Response.error("退课过程中发生错误: " + e.getMessage());
-                        }
-                        break;
-
-                    // 获取学生已选课程
-                    case "getStudentSelectedCourses":
-                        Integer studentCardNumber = ((Double) request.getData().get("cardNumber")).intValue();
-
-                        try {
-                            // 使用一次性 JOIN 查询获取该学生所有已选教学班，避免逐条查询导致的 N+1 问题
-                            List<TeachingClass> teachingClasses1 = teachingClassService.findByStudentCardNumber(studentCardNumber);
-                            response = Response.success("获取已选课程成功", teachingClasses1);
-                        } catch (Exception e) {
-                            response = Response.error("获取已选课程失败: " + e.getMessage());
+                            m.put("studentNumber", stuNoStr);
+                            m.put("major", student1.getMajor());
+                            m.put("school", student1.getSchool());
+                            m.put("status", student1.getStatus());
+                            // 返回学生姓名而不是 selectedClasses
+                            m.put("name", student1.getName());
+                            students.add(m);
                         }
-                        break;
-
-                    // 获取教学班的学生列表
-                    case "getTeachingClassStudents":
-                        String classUuid = (String) request.getData().get("teachingClassUuid");
-
-                        try {
-                            // 获取教学班的选课关系
-                            List<StudentTeachingClass> classStudents = studentTeachingClassService.findByTeachingClassUuid(classUuid);
-
-                            // 获取学生详细信息
-                            List<Map<String, Object>> students = new ArrayList<>();
-                            for (StudentTeachingClass stc : classStudents) {
-                                ClassStudent student1 = classStudentService.findByCardNumber(stc.getStudentCardNumber());
-                                if (student1 != null) {
-                                    Map<String, Object> m = new HashMap<>();
-                                    m.put("cardNumber", student1.getCardNumber());
-                                    // 强制将学号按字符串返回，保留前导零，若为数字则左补0到8位
-                                    Object stuNoObj = null;
-                                    try { stuNoObj = student1.getStudentNumber(); } catch (Exception ignore) {}
-                                    String stuNoStr = "";
-                                    if (stuNoObj == null) {
-                                        stuNoStr = "";
-                                    } else if (stuNoObj instanceof String) {
-                                        stuNoStr = (String) stuNoObj;
-                                    } else if (stuNoObj instanceof Number) {
-                                        // 转为整数并左补零
-                                        long val = ((Number) stuNoObj).longValue();
-                                        stuNoStr = String.format("%08d", val);
-                                    } else {
-                                        stuNoStr = String.valueOf(stuNoObj);
-                                    }
-                                    m.put("studentNumber", stuNoStr);
-                                    m.put("major", student1.getMajor());
-                                    m.put("school", student1.getSchool());
-                                    m.put("status", student1.getStatus());
-                                    // 返回学生姓名而不是 selectedClasses
-                                    m.put("name", student1.getName());
-                                    students.add(m);
-                                }
-                            }
-
-                            response = Response.success("获取教学班学生列表成功", students);
-                        } catch (Exception e) {
-                            response = Response.error("获取教学班学生列表失败: " + e.getMessage());
-                        }
-                        break;
-
-                    // 添加课程（管理员功能）
-                    case "addCourse":
-                        Map<String, Object> courseData;
-                        if (request.getData().containsKey("course")) {
-                            courseData = (Map<String, Object>) request.getData().get("course");
-                        } else {
-                            courseData = request.getData();
-                        }
-                        Course newCourse = createCourseFromMap(courseData);
-
-                        boolean addCourseResult = courseService.addCourse(newCourse);
-                        response = addCourseResult ?
-                                Response.success("添加课程成功") :
-                                Response.error("添加课程失败");
-                        break;
+                    }
 
-                    // 更新课程（部分更新）
-                    case "updateCourse":
-                        String updateCourseId = (String) request.getData().get("courseId");
-                        Map<String, Object> courseUpdates;
-                        if (request.getData().containsKey("updates")) {
-                            courseUpdates = (Map<String, Object>) request.getData().get("updates");
-                        } else {
-                            courseUpdates = request.getData();
-                        }
-                        // 获取现有课程信息
-                        Course existingCourse = courseService.findByCourseId(updateCourseId);
-                        if (existingCourse == null) {
-                            response = Response.error("课程不存在");
-                            break;
-                        }
-                        // 应用更新 - 检查并更新所有可能的字段
-                        if (courseUpdates.containsKey("courseName")) {
-                            existingCourse.setCourseName((String) courseUpdates.get("courseName"));
-                        }
-                        if (courseUpdates.containsKey("school")) {
-                            existingCourse.setSchool((String) courseUpdates.get("school"));
-                        }
-                        if (courseUpdates.containsKey("credit")) {
-                            existingCourse.setCredit(((Double) courseUpdates.get("credit")).floatValue());
-                        }
+                    response = Response.success("获取教学班学生列表成功", students);
+                } catch (Exception e) {
+                    response = Response.error("获取教学班学生列表失败: " + e.getMessage());
+                }
+                break;
+
+            // 添加课程（管理员功能）
+            case "addCourse":
+                Map<String, Object> courseData;
+                if (request.getData().containsKey("course")) {
+                    courseData = (Map<String, Object>) request.getData().get("course");
+                } else {
+                    courseData = request.getData();
+                }
+                Course newCourse = createCourseFromMap(courseData);
+
+                boolean addCourseResult = courseService.addCourse(newCourse);
+                response = addCourseResult ?
+                        Response.success("添加课程成功") :
+                        Response.error("添加课程失败");
+                break;
+
+            // 更新课程（部分更新）
+            case "updateCourse":
+                String updateCourseId = (String) request.getData().get("courseId");
+                Map<String, Object> courseUpdates;
+                if (request.getData().containsKey("updates")) {
+                    courseUpdates = (Map<String, Object>) request.getData().get("updates");
+                } else {
+                    courseUpdates = request.getData();
+                }
+                // 获取现有课程信息
+                Course existingCourse = courseService.findByCourseId(updateCourseId);
+                if (existingCourse == null) {
+                    response = Response.error("课程不存在");
+                    break;
+                }
+                // 应用更新 - 检查并更新所有可能的字段
+                if (courseUpdates.containsKey("courseName")) {
+                    existingCourse.setCourseName((String) courseUpdates.get("courseName"));
+                }
+                if (courseUpdates.containsKey("school")) {
+                    existingCourse.setSchool((String) courseUpdates.get("school"));
+                }
+                if (courseUpdates.containsKey("credit")) {
+                    existingCourse.setCredit(((Double) courseUpdates.get("credit")).floatValue());
+                }
 
-                        // 保存更新
-                        boolean updateCourseResult = courseService.updateCourse(existingCourse);
-                        response = updateCourseResult ?
-                                Response.success("更新课程成功") :
-                                Response.error("更新课程失败");
-                        break;
+                // 保存更新
+                boolean updateCourseResult = courseService.updateCourse(existingCourse);
+                response = updateCourseResult ?
+                        Response.success("更新课程成功") :
+                        Response.error("更新课程失败");
+                break;
+
+            // 删除课程（管理员功能）
+            case "deleteCourse":
+                String deleteCourseId = (String) request.getData().get("courseId");
+
+                boolean deleteCourseResult = courseService.deleteCourse(deleteCourseId);
+                response = deleteCourseResult ?
+                        Response.success("删除课程成功") :
+                        Response.error("删除课程失败");
+                break;
+
+            // 添加教学班（管理员功能）
+            case "addTeachingClass":
+                // 兼容两种前端格式：
+                // 1) data.teachingClass = { ... }
+                // 2) data 直接包含教学班字段
+                Map<String, Object> teachingClassData = null;
+                if (request.getData() != null) {
+                    Object tcObj = request.getData().get("teachingClass");
+                    if (tcObj instanceof Map) {
+                        teachingClassData = (Map<String, Object>) tcObj;
+                    } else {
+                        teachingClassData = request.getData();
+                    }
+                }
 
-                    // 删除课程（管理员功能）
-                    case "deleteCourse":
-                        String deleteCourseId = (String) request.getData().get("courseId");
+                // 如果 data 为 null，则直接返回错误，避免在 createTeachingClassFromMap 中触发 NPE
+                if (teachingClassData == null) {
+                    response = Response.error("请求参数不完整: teachingClass 数据缺失");
+                    break;
+                }
 
-                        boolean deleteCourseResult = courseService.deleteCourse(deleteCourseId);
-                        response = deleteCourseResult ?
-                                Response.success("删除课程成功") :
-                                Response.error("删除课程失败");
+                TeachingClass newTeachingClass = createTeachingClassFromMap(teachingClassData);
+                // 规范并校验 schedule 字段，确保写入数据库的为合法 JSON 字符串
+                if (newTeachingClass != null && newTeachingClass.getSchedule() != null) {
+                    String normalized = normalizeScheduleForStorage(newTeachingClass.getSchedule());
+                    if (normalized == null) {
+                        response = Response.error("schedule 字段格式不正确，应为合法的 JSON，例如 {\"周三\": \"1-2节\"}");
                         break;
+                    }
+                    newTeachingClass.setSchedule(normalized);
+                }
+                // 保证写入数据库时 selectedCount 和 capacity 不为 null（数据库有 NOT NULL 约束）
+                if (newTeachingClass.getSelectedCount() == null) newTeachingClass.setSelectedCount(0);
+                if (newTeachingClass.getCapacity() == null) newTeachingClass.setCapacity(0);
+                // 教室、教师不能在同一时间被两个教学班占用
+                response = teachingClassService.addTeachingClassIfFree(newTeachingClass);
+                break;
+
+            // 更新教学班（部分更新）
+            case "updateTeachingClass":
+                String updateUuid = null;
+                if (request.getData() != null && request.getData().containsKey("uuid")) {
+                    updateUuid = (String) request.getData().get("uuid");
+                }
 
-                    // 添加教学班（管理员功能）
-                    case "addTeachingClass":
-                        // 兼容两种前端格式：
-                        // 1) data.teachingClass = { ... }
-                        // 2) data 直接包含教学班字段
-                        Map<String, Object> teachingClassData = null;
-                        if (request.getData() != null) {
-                            Object tcObj = request.getData().get("teachingClass");
-                            if (tcObj instanceof Map) {
-                                teachingClassData = (Map<String, Object>) tcObj;
-                            } else {
-                                teachingClassData = request.getData();
-                            }
-                        }
-
-                        // 如果 data 为 null，则直接返回错误，避免在 createTeachingClassFromMap 中触发 NPE
-                        if (teachingClassData == null) {
-                            response = Response.error("请求参数不完整: teachingClass 数据缺失");
-                            break;
-                        }
-
-                        TeachingClass newTeachingClass = createTeachingClassFromMap(teachingClassData);
-                        // 规范并校验 schedule 字段，确保写入数据库的为合法 JSON 字符串
-                        if (newTeachingClass != null && newTeachingClass.getSchedule() != null) {
-                            String normalized = normalizeScheduleForStorage(newTeachingClass.getSchedule());
-                            if (normalized == null) {
-                                response = Response.error("schedule 字段格式不正确，应为合法的 JSON，例如 {\"周三\": \"1-2节\"}");
-                                break;
-                            }
-                            newTeachingClass.setSchedule(normalized);
-                        }
-                        // 保证写入数据库时 selectedCount 和 capacity 不为 null（数据库有 NOT NULL 约束）
-                        if (newTeachingClass.getSelectedCount() == null) newTeachingClass.setSelectedCount(0);
-                        if (newTeachingClass.getCapacity() == null) newTeachingClass.setCapacity(0);
-                        boolean addTeachingClassResult = teachingClassService.addTeachingClass(newTeachingClass);
-                         response = addTeachingClassResult ?
-                                 Response.success("添加教学班成功") :
-                                 Response.error("添加教学班失败");
-                         break;
-
-                    // 更新教学班（部分更新）
-                    case "updateTeachingClass":
-                        String updateUuid = null;
-                        if (request.getData() != null && request.getData().containsKey("uuid")) {
-                            updateUuid = (String) request.getData().get("uuid");
-                        }
-
-                        // 兼容两种前端格式：
-                        // 1) data.updates = {...}（原有）
-                        // 2) data 直接包含要更新的字段（如示例）
-                        Map<String, Object> updates = null;
-                        if (request.getData() != null) {
-                            Object u = request.getData().get("updates");
-                            if (u instanceof Map) {
-                                updates = (Map<String, Object>) u;
-                            } else {
-                                updates = request.getData();
-                            }
-                        }
+                // 兼容两种前端格式：
+                // 1) data.updates = {...}（原有）
+                // 2) data 直接包含要更新的字段（如示例）
+                Map<String, Object> updates = null;
+                if (request.getData() != null) {
+                    Object u = request.getData().get("updates");
+                    if (u instanceof Map) {
+                        updates = (Map<String, Object>) u;
+                    } else {
+                        updates = request.getData();
+                    }
+                }
 
-                        if (updateUuid == null || updateUuid.trim().isEmpty()) {
-                            response = Response.error("缺少参数: uuid");
-                            break;
-                        }
+                if (updateUuid == null || updateUuid.trim().isEmpty()) {
+                    response = Response.error("缺少参数: uuid");
+                    break;
+                }
 
-                        // 获取现有教学班信息
-                        TeachingClass existingTeachingClass = teachingClassService.findByUuid(updateUuid);
-                        if (existingTeachingClass == null) {
-                            response = Response.error("教学班不存在");
-                            break;
-                        }
+                // 获取现有教学班信息
+                TeachingClass existingTeachingClass = teachingClassService.findByUuid(updateUuid);
+                if (existingTeachingClass == null) {
+                    response = Response.error("教学班不存在");
+                    break;
+                }
 
-                        // 应用更新 - 检查并更新所有可能的字段（updates 可能是 request.data 本身）
-                        if (updates != null && updates.containsKey("courseId")) {
-                            existingTeachingClass.setCourseId((String) updates.get("courseId"));
-                        }
-                        if (updates != null && updates.containsKey("teacherName")) {
-                            existingTeachingClass.setTeacherName((String) updates.get("teacherName"));
+                // 应用更新 - 检查并更新所有可能的字段（updates 可能是 request.data 本身）
+                if (updates != null && updates.containsKey("courseId")) {
+                    existingTeachingClass.setCourseId((String) updates.get("courseId"));
+                }
+                if (updates != null && updates.containsKey("teacherName")) {
+                    existingTeachingClass.setTeacherName((String) updates.get("teacherName"));
+                }
+                if (updates != null && updates.containsKey("schedule")) {
+                    Object schedObj = updates.get("schedule");
+                    if (schedObj != null) {
+                        // 如果前端直接传了 Map 或 List，则直接传递原始对象给 normalize 函数
+                        String normalized;
+                        if (schedObj instanceof Map || schedObj instanceof java.util.List) {
+                            normalized = normalizeScheduleForStorage(schedObj);
+                        } else {
+                            String schedStr = String.valueOf(schedObj);
+                            normalized = normalizeScheduleForStorage(schedStr);
                         }
-                        if (updates != null && updates.containsKey("schedule")) {
-                            Object schedObj = updates.get("schedule");
-                            if (schedObj != null) {
-                                // 如果前端直接传了 Map 或 List，则直接传递原始对象给 normalize 函数
-                                String normalized;
-                                if (schedObj instanceof Map || schedObj instanceof java.util.List) {
-                                    normalized = normalizeScheduleForStorage(schedObj);
-                                } else {
-                                    String schedStr = String.valueOf(schedObj);
-                                    normalized = normalizeScheduleForStorage(schedStr);
-                                }
-                                 if (normalized == null) {
-                                     response = Response.error("schedule 字段格式不正确，应为合法的 JSON，例如 {\"周三\": \"1-2节\"}");
-                                     break;
-                                 }
-                                 existingTeachingClass.setSchedule(normalized);
-                             }
+                         if (normalized == null) {
+                             response = Response.error("schedule 字段格式不正确，应为合法的 JSON，例如 {\"周三\": \"1-2节\"}");
+                             break;
                          }
-                        if (updates != null && updates.containsKey("place")) {
-                            existingTeachingClass.setPlace((String) updates.get("place"));
-                        }
-                        if (updates != null && updates.containsKey("capacity")) {
-                            Object capObj = updates.get("capacity");
-                            if (capObj instanceof Number) {
-                                existingTeachingClass.setCapacity(((Number) capObj).intValue());
-                            } else if (capObj instanceof String) {
-                                try { existingTeachingClass.setCapacity(Integer.parseInt((String) capObj)); } catch (NumberFormatException ignored) {}
-                            }
-                        }
-                        if (updates != null && updates.containsKey("selectedCount")) {
-                            Object scObj = updates.get("selectedCount");
-                            if (scObj instanceof Number) {
-                                existingTeachingClass.setSelectedCount(((Number) scObj).intValue());
-                            } else if (scObj instanceof String) {
-                                try { existingTeachingClass.setSelectedCount(Integer.parseInt((String) scObj)); } catch (NumberFormatException ignored) {}
-                            }
-                        }
-
-                        // 保存更新
-                        boolean updateResult1 = teachingClassService.updateTeachingClass(existingTeachingClass);
-                        response = updateResult1 ?
-                                Response.success("更新教学班成功") :
-                                Response.error("更新教学班失败");
-                        break;
+                         existingTeachingClass.setSchedule(normalized);
+                     }
+                 }
+                if (updates != null && updates.containsKey("place")) {
+                    existingTeachingClass.setPlace((String) updates.get("place"));
+                }
+                if (updates != null && updates.containsKey("capacity")) {
+                    Object capObj = updates.get("capacity");
+                    if (capObj instanceof Number) {
+                        existingTeachingClass.setCapacity(((Number) capObj).intValue());
+                    } else if (capObj instanceof String) {
+                        try { existingTeachingClass.setCapacity(Integer.parseInt((String) capObj)); } catch (NumberFormatException ignored) {}
+                    }
+                }
+                if (updates != null && updates.containsKey("selectedCount")) {
+                    Object scObj = updates.get("selectedCount");
+                    if (scObj instanceof Number) {
+                        existingTeachingClass.setSelectedCount(((Number) scObj).intValue());
+                    } else if (scObj instanceof String) {
+                        try { existingTeachingClass.setSelectedCount(Integer.parseInt((String) scObj)); } catch (NumberFormatException ignored) {}
+                    }
+                }
 
-                    // 删除教学班（管理员功能）
-                    case "deleteTeachingClass":
-                        // 兼容前端可能使用的字段名：teachingClassUuid 或 uuid
-                        String deleteTeachingClassUuid = null;
-                        if (request.getData() != null) {
-                            if (request.getData().containsKey("teachingClassUuid")) {
-                                deleteTeachingClassUuid = (String) request.getData().get("teachingClassUuid");
-                            } else if (request.getData().containsKey("uuid")) {
-                                deleteTeachingClassUuid = (String) request.getData().get("uuid");
-                            }
-                        }
+                // 保存更新，教室、教师不能在同一时间被两个教学班占用
+                response = teachingClassService.updateTeachingClassIfFree(existingTeachingClass);
+                break;
+
+            // 课表重复占用检查（批量导入前）：data.teachingClasses 为待导入的教学班列表，
+            // 返回它们与已有教学班及彼此之间的全部教室/教师重复占用；不给出时检查已有教学班之间的重复占用
+            case "checkTimetableCollisions": {
+                Object batchObj = request.getData() == null ? null : request.getData().get("teachingClasses");
+                List<TeachingClass> batch = null;
+                if (batchObj instanceof List) {
+                    batch = new ArrayList<>();
+                    for (Object item : (List<?>) batchObj) {
+                        // 保持下标与请求一致，无法识别的项以 null 占位
+                        batch.add(item instanceof Map ? createTeachingClassFromMap((Map<String, Object>) item) : null);
+                    }
+                }
+                List<Map<String, Object>> collisionReport = new ArrayList<>();
+                for (BookingIndex.Collision c : teachingClassService.findBookingCollisions(batch)) {
+                    collisionReport.add(c.toMap());
+                }
+                response = Response.success(collisionReport.isEmpty() ? "没有重复占用" : "发现 " + collisionReport.size() + " 处重复占用", collisionReport);
+                break;
+            }
 
-                        if (deleteTeachingClassUuid == null || deleteTeachingClassUuid.trim().isEmpty()) {
-                            response = Response.error("缺少参数: teachingClassUuid 或 uuid");
-                            break;
-                        }
+            // 某天第 startPeriod ~ endPeriod 节有课的教学班（排课时查看时段占用）
+            case "getTeachingClassesAt": {
+                Integer weekday = intParam(request.getData().get("weekday"));
+                Integer startPeriod = intParam(request.getData().get("startPeriod"));
+                Integer endPeriod = intParam(request.getData().get("endPeriod"));
+                if (weekday == null || startPeriod == null || endPeriod == null) {
+                    response = Response.error("缺少 weekday / startPeriod / endPeriod 参数");
+                    break;
+                }
+                List<TeachingClass> atTime = teachingClassService.findTeachingClassesAt(weekday, startPeriod, endPeriod);
+                response = atTime != null
+                        ? Response.success("获取该时段教学班成功", atTime)
+                        : Response.error("获取该时段教学班失败");
+                break;
+            }
 
-                        boolean deleteTeachingClassResult = teachingClassService.deleteTeachingClass(deleteTeachingClassUuid);
-                        response = deleteTeachingClassResult ?
-                                Response.success("删除教学班成功") :
-                                Response.error("删除教学班失败");
-                         break;
+            // 教师一周课表：上课时间列表与总课时（节数）
+            case "getTeacherWeeklySchedule": {
+                String weeklyTeacher = (String) request.getData().get("teacherName");
+                if (weeklyTeacher == null || weeklyTeacher.isBlank()) {
+                    response = Response.error("缺少 teacherName 参数");
+                    break;
+                }
+                List<TeachingClassSlot> weeklySlots = teachingClassService.getTeacherWeeklySlots(weeklyTeacher);
+                int weeklyPeriods = teachingClassService.getTeacherWeeklyPeriods(weeklyTeacher);
+                if (weeklySlots == null || weeklyPeriods < 0) {
+                    response = Response.error("获取教师课表失败");
+                    break;
+                }
+                Map<String, Object> weekly = new HashMap<>();
+                weekly.put("slots", weeklySlots);
+                weekly.put("periods", weeklyPeriods);
+                response = Response.success("获取教师课表成功", weekly);
+                break;
+            }
 
-                    // 获取所有教师
-                    case "getAllTeachers":
-                        List<Teacher> teachers = teacherService.getAllTeachers();
-                        response = Response.success("获取所有教师成功", teachers);
-                        break;
+            // 教室和/或教师一周的空闲节次（两者都给出时为共同空闲），排课时选择时段用
+            case "getFreePeriods": {
+                String freePlace = (String) request.getData().get("place");
+                String freeTeacher = (String) request.getData().get("teacherName");
+                if (freePlace == null && freeTeacher == null) {
+                    response = Response.error("place 与 teacherName 至少给出一个");
+                    break;
+                }
+                Map<String, List<Integer>> freePeriods = teachingClassService.findFreePeriods(freePlace, freeTeacher);
+                response = freePeriods != null
+                        ? Response.success("获取空闲节次成功", freePeriods)
+                        : Response.error("获取空闲节次失败");
+                break;
+            }
 
-                    // 根据学院查询教师
-                    case "getTeachersBySchool":
-                        String teacherSchool = (String) request.getData().get("school");
-                        List<Teacher> schoolTeachers = teacherService.findBySchool(teacherSchool);
-                        response = Response.success("获取学院教师成功", schoolTeachers);
-                        break;
+            // 删除教学班（管理员功能）
+            case "deleteTeachingClass":
+                // 兼容前端可能使用的字段名：teachingClassUuid 或 uuid
+                String deleteTeachingClassUuid = null;
+                if (request.getData() != null) {
+                    if (request.getData().containsKey("teachingClassUuid")) {
+                        deleteTeachingClassUuid = (String) request.getData().get("teachingClassUuid");
+                    } else if (request.getData().containsKey("uuid")) {
+                        deleteTeachingClassUuid = (String) request.getData().get("uuid");
+                    }
+                }
 
-                    // 添加教师（管理员功能）
-                    case "addTeacher":
-                        Map<String, Object> teacherData = (Map<String, Object>) request.getData().get("teacher");
-                        Teacher newTeacher = createTeacherFromMap(teacherData);
+                if (deleteTeachingClassUuid == null || deleteTeachingClassUuid.trim().isEmpty()) {
+                    response = Response.error("缺少参数: teachingClassUuid 或 uuid");
+                    break;
+                }
 
-                        boolean addTeacherResult = teacherService.addTeacher(newTeacher);
-                        response = addTeacherResult ?
-                                Response.success("添加教师成功") :
-                                Response.error("添加教师失败");
-                        break;
+                boolean deleteTeachingClassResult = teachingClassService.deleteTeachingClass(deleteTeachingClassUuid);
+                response = deleteTeachingClassResult ?
+                        Response.success("删除教学班成功") :
+                        Response.error("删除教学班失败");
+                 break;
+
+            // 获取所有教师
+            case "getAllTeachers":
+                List<Teacher> teachers = teacherService.getAllTeachers();
+                response = Response.success("获取所有教师成功", teachers);
+                break;
+
+            // 根据学院查询教师
+            case "getTeachersBySchool":
+                String teacherSchool = (String) request.getData().get("school");
+                List<Teacher> schoolTeachers = teacherService.findBySchool(teacherSchool);
+                response = Response.success("获取学院教师成功", schoolTeachers);
+                break;
+
+            // 添加教师（管理员功能）
+            case "addTeacher":
+                Map<String, Object> teacherData = (Map<String, Object>) request.getData().get("teacher");
+                Teacher newTeacher = createTeacherFromMap(teacherData);
+
+                boolean addTeacherResult = teacherService.addTeacher(newTeacher);
+                response = addTeacherResult ?
+                        Response.success("添加教师成功") :
+                        Response.error("添加教师失败");
+                break;
+
+            // 更新教师信息
+            case "updateTeacher":
+                Integer updateTeacherId = ((Double) request.getData().get("teacherId")).intValue();
+                Map<String, Object> teacherUpdates = (Map<String, Object>) request.getData().get("updates");
+
+                // 获取现有教师信息
+                Teacher existingTeacher = teacherService.findByTeacherId(updateTeacherId);
+                if (existingTeacher == null) {
+                    response = Response.error("教师不存在");
+                    break;
+                }
 
-                    // 更新教师信息
-                    case "updateTeacher":
-                        Integer updateTeacherId = ((Double) request.getData().get("teacherId")).intValue();
-                        Map<String, Object> teacherUpdates = (Map<String, Object>) request.getData().get("updates");
+                // 应用更新
+                if (teacherUpdates.containsKey("name")) {
+                    existingTeacher.setName((String) teacherUpdates.get("name"));
+                }
+                if (teacherUpdates.containsKey("school")) {
+                    existingTeacher.setSchool((String) teacherUpdates.get("school"));
+                }
+                if (teacherUpdates.containsKey("title")) {
+                    existingTeacher.setTitle((String) teacherUpdates.get("title"));
+                }
 
-                        // 获取现有教师信息
-                        Teacher existingTeacher = teacherService.findByTeacherId(updateTeacherId);
-                        if (existingTeacher == null) {
-                            response = Response.error("教师不存在");
-                            break;
-                        }
+                // 保存更新
+                boolean updateTeacherResult = teacherService.updateTeacher(existingTeacher);
+                response = updateTeacherResult ?
+                        Response.success("更新教师成功") :
+                        Response.error("更新教师失败");
+                break;
+
+            // 删除教师（管理员功能）
+            case "deleteTeacher":
+                Integer deleteTeacherId = ((Double) request.getData().get("teacherId")).intValue();
+
+                boolean deleteTeacherResult = teacherService.deleteTeacher(deleteTeacherId);
+                response = deleteTeacherResult ?
+                        Response.success("删除教师成功") :
+                        Response.error("删除教师失败");
+                break;
+
+            case "getFinanceCard":
+                Integer cardNumber1 = payload(request, CardNumberPayload.class).getCardNumber();
+                if (cardNumber1 == null) {
+                    response = Response.error("缺少参数: cardNumber");
+                    break;
+                }
+                try {
+                    FinanceCard financeCard = financeService.getFinanceCard(cardNumber1);
+                    if (financeCard != null) {
+                        response = Response.success("获取一卡通信息成功", financeCard);
+                    } else {
+                        response = Response.error("未找到一卡通信息");
+                    }
+                } catch (Exception e) {
+                    response = Response.error("获取一卡通信息失败: " + e.getMessage());
+                }
+                break;
 
-                        // 应用更新
-                        if (teacherUpdates.containsKey("name")) {
-                            existingTeacher.setName((String) teacherUpdates.get("name"));
-                        }
-                        if (teacherUpdates.containsKey("school")) {
-                            existingTeacher.setSchool((String) teacherUpdates.get("school"));
-                        }
-                        if (teacherUpdates.containsKey("title")) {
-                            existingTeacher.setTitle((String) teacherUpdates.get("title"));
-                        }
+            case "rechargeFinanceCard":
+                RechargePayload recharge = payload(request, RechargePayload.class);
+                Integer rechargeCardNumber = recharge.getCardNumber();
+                Integer amount = recharge.getAmount();
+                String description = recharge.getDescription();
 
-                        // 保存更新
-                        boolean updateTeacherResult = teacherService.updateTeacher(existingTeacher);
-                        response = updateTeacherResult ?
-                                Response.success("更新教师成功") :
-                                Response.error("更新教师失败");
-                        break;
+                try {
+                    boolean rechargeResult = financeService.rechargeFinanceCard(rechargeCardNumber, amount, description);
+                    response = rechargeResult ?
+                            Response.success("充值成功") :
+                            Response.error("充值失败");
+                } catch (Exception e) {
+                    response = Response.error("充值失败: " + e.getMessage());
+                }
+                break;
+
+            case "reportLoss":
+                // 用户挂失自己的卡
+                Integer reportCardNumber = payload(request, CardNumberPayload.class).getCardNumber();
+
+                response = financeService.reportLoss(reportCardNumber);
+                break;
+
+            case "cancelReportLoss":
+                // 管理员解除挂失
+                Map<String, Object> cancelReportData = request.getData();
+                Integer targetCardNumber = ((Double) cancelReportData.get("targetCardNumber")).intValue();
+
+                response = financeService.cancelReportLoss(targetCardNumber);
+                break;
+
+            case "findAllLostCards":
+                // 管理员查询所有挂失的一卡通账号
+                response = catalogResponse(request, CatalogCache.Region.LOST_CARDS, "all",
+                        "查询挂失一卡通成功", financeService::getLostCards);
+                break;
+
+            case "getTransactions":
+                TransactionQueryPayload transactionQuery = payload(request, TransactionQueryPayload.class);
+                Integer transactionCardNumber = transactionQuery.getCardNumber();
+                String transactionType = transactionQuery.getType();
+
+                // 带 pageSize 时按时间倒序分页返回
+                response = pagedResponse(transactionQuery.getPageSize(), transactionQuery.getCursor(), "获取交易记录成功",
+                        (after, size) -> {
+                            Page<CardTransaction> page = financeService.getTransactionsPage(
+                                    transactionCardNumber, transactionType, after, size);
+                            return new Page<>(transactionDtos(page.getItems()), page.getNextCursor());
+                        });
+                if (response != null) break;
+
+                List<CardTransaction> transactions = financeService.getTransactions(transactionCardNumber, transactionType);
+                response = Response.success("获取交易记录成功", transactionDtos(transactions));
+                break;
+
+            case "getAllItems":
+                response = pagedCatalogResponse(request, CatalogCache.Region.STORE_ITEMS,
+                        "获取商品列表成功", storeService::getItemsPage);
+                if (response == null) {
+                    response = catalogResponse(request, CatalogCache.Region.STORE_ITEMS, "all",
+                            "获取商品列表成功", storeService::getAllItems);
+                }
+                break;
 
-                    // 删除教师（管理员功能）
-                    case "deleteTeacher":
-                        Integer deleteTeacherId = ((Double) request.getData().get("teacherId")).intValue();
+            case "searchItems":
+                String keyword = (String) request.getData().get("keyword");
+                List<StoreItem> searchResults = storeService.searchItems(keyword);
+                response = Response.success("搜索完成", searchResults);
+                break;
 
-                        boolean deleteTeacherResult = teacherService.deleteTeacher(deleteTeacherId);
-                        response = deleteTeacherResult ?
-                                Response.success("删除教师成功") :
-                                Response.error("删除教师失败");
-                        break;
+            case "getItemById":
+                String itemIdStr = (String) request.getData().get("itemId");
+                try {
+                    UUID itemId = UUID.fromString(itemIdStr);
+                    StoreItem item = storeService.getItemById(itemId);
+                    response = item != null ? Response.success("获取商品成功", item) : Response.error("商品不存在");
+                } catch (IllegalArgumentException e) {
+                    response = Response.error("商品ID格式不正确");
+                }
+                break;
+
+            case "addItem":
+                // 管理员功能：添加商品
+                StoreItem newItem = payload(request, StoreItemPayload.class).getItem();
+                if (newItem == null) {
+                    response = Response.error("缺少参数: item");
+                    break;
+                }
+                if (newItem.getUuid() == null) newItem.setUuid(UUID.randomUUID());
+                boolean addItemResult = storeService.addItem(newItem);
+                response = addItemResult ? Response.success("添加商品成功") : Response.error("添加商品失败");
+                break;
+
+            case "updateItem":
+                // 管理员功能：更新商品
+                StoreItem updateItem = payload(request, StoreItemPayload.class).getItem();
+                if (updateItem == null || updateItem.getUuid() == null) {
+                    response = Response.error("更新商品需要提供uuid");
+                    break;
+                }
+                boolean updateItemResult = storeService.updateItem(updateItem);
+                response = updateItemResult ? Response.success("更新商品成功") : Response.error("更新商品失败");
+                break;
 
-                    case "getFinanceCard":
-                        Object cardNumberObj = request.getData().get("cardNumber");
-                        if (cardNumberObj == null) {
-                            response = Response.error("缺少参数: cardNumber");
+            case "deleteItem":
+                // 管理员功能：删除商品
+                String deleteItemIdStr = (String) request.getData().get("itemId");
+                try {
+                    UUID deleteItemId = UUID.fromString(deleteItemIdStr);
+                    boolean deleteItemResult = storeService.deleteItem(deleteItemId);
+                    response = deleteItemResult ? Response.success("删除商品成功") : Response.error("删除商品失败");
+                } catch (IllegalArgumentException e) {
+                    response = Response.error("商品ID格式不正确");
+                }
+                break;
+
+            // 商品类别相关功能
+            case "getItemsByCategory":
+                String category = (String) request.getData().get("category");
+                response = catalogResponse(request, CatalogCache.Region.STORE_ITEMS, "category:" + category,
+                        "获取类别商品成功", () -> storeService.getItemsByCategory(category));
+                break;
+
+            case "searchItemsByCategory":
+                String searchCategory = (String) request.getData().get("category");
+                String searchKeyword = (String) request.getData().get("keyword");
+                List<StoreItem> categorySearchResults = storeService.searchItemsByCategoryAndKeyword(searchCategory, searchKeyword);
+                response = Response.success("按类别搜索完成", categorySearchResults);
+                break;
+
+            case "createOrder":
+                OrderPayload orderData = payload(request, OrderPayload.class);
+                Integer orderCardNumber = orderData.getCardNumber();
+                String orderRemark = orderData.getRemark();
+
+                // 解析订单商品项
+                List<OrderPayload.Item> itemsData = orderData.getItems();
+                List<StoreOrderItem> orderItems = new ArrayList<>();
+                Integer totalAmount = 0;
+                boolean orderItemError = false;
+
+                for (OrderPayload.Item itemData1 : itemsData) {
+                    String itemIdStr1 = itemData1.getItemId();
+                    Integer itemAmount = itemData1.getAmount();
+
+                    try {
+                        UUID itemId = UUID.fromString(itemIdStr1);
+
+                        // 获取商品信息以获取价格
+                        StoreItem item = storeService.getItemById(itemId);
+                        if (item == null) {
+                            response = Response.error("商品不存在: " + itemIdStr1);
+                            orderItemError = true;
                             break;
                         }
-                        try {
-                            Integer cardNumber1 = ((Double) cardNumberObj).intValue();
-                            FinanceCard financeCard = financeService.getFinanceCard(cardNumber1);
-                            if (financeCard != null) {
-                                response = Response.success("获取一卡通信息成功", financeCard);
-                            } else {
-                                response = Response.error("未找到一卡通信息");
-                            }
-                        } catch (ClassCastException e) {
-                            response = Response.error("cardNumber参数类型错误");
-                        } catch (Exception e) {
-                            response = Response.error("获取一卡通信息失败: " + e.getMessage());
-                        }
-                        break;
-
-                    case "rechargeFinanceCard":
-                        Integer rechargeCardNumber = ((Double) request.getData().get("cardNumber")).intValue();
-                        Integer amount = ((Double) request.getData().get("amount")).intValue();
-                        String description = (String) request.getData().get("description");
-
-                        try {
-                            boolean rechargeResult = financeService.rechargeFinanceCard(rechargeCardNumber, amount, description);
-                            response = rechargeResult ?
-                                    Response.success("充值成功") :
-                                    Response.error("充值失败");
-                        } catch (Exception e) {
-                            response = Response.error("充值失败: " + e.getMessage());
-                        }
-                        break;
 
-                    case "reportLoss":
-                        // 用户挂失自己的卡
-                        Map<String, Object> reportLossData = request.getData();
-                        Integer reportCardNumber = ((Double) reportLossData.get("cardNumber")).intValue();
+                        StoreOrderItem orderItem = new StoreOrderItem(null, itemId, item.getPrice(), itemAmount);
+                        orderItems.add(orderItem);
+                        totalAmount += item.getPrice() * itemAmount;
 
-                        response = financeService.reportLoss(reportCardNumber);
+                    } catch (IllegalArgumentException e) {
+                        response = Response.error("商品ID格式不正确: " + itemIdStr1);
+                        orderItemError = true;
                         break;
+                    }
+                }
 
-                    case "cancelReportLoss":
-                        // 管理员解除挂失
-                        Map<String, Object> cancelReportData = request.getData();
-                        Integer targetCardNumber = ((Double) cancelReportData.get("targetCardNumber")).intValue();
-
-                        response = financeService.cancelReportLoss(targetCardNumber);
-                        break;
+                if (orderItemError) break; // 直接结束switch
+                try {
+                    StoreOrder order = new StoreOrder(orderCardNumber, totalAmount, orderRemark, orderItems);
+                    StoreOrder createdOrder = storeService.createOrder(order);
+                    response = Response.success("创建订单成功", createdOrder);
+                } catch (Exception e) {
+                    response = Response.error(e.getMessage());
+                }
+                break;
 
-                    case "findAllLostCards":
-                        // 管理员查询所有挂失的一卡通账号
-                        response = financeService.findAllLostCards();
-                        break;
+            case "payOrder":
+                String payOrderIdStr = (String) request.getData().get("orderId");
+                try {
+                    boolean payResult = storeService.payOrder(payOrderIdStr);
+                    response = payResult ? Response.success("支付成功") : Response.error("支付失败");
+                } catch (IllegalArgumentException e) {
+                    response = Response.error("订单ID格式不正确");
+                } catch (Exception e) {
+                    response = Response.error("支付失败！" + e.getMessage());
+                }
+                break;
 
-                    case "getTransactions":
-                        Integer transactionCardNumber = ((Double) request.getData().get("cardNumber")).intValue();
-                        String transactionType = (String) request.getData().get("type");
-
-                        List<CardTransaction> transactions = financeService.getTransactions(transactionCardNumber, transactionType);
-                        // 手动转换为 DTO，避免直接序列化 LocalDateTime
-                        List<Map<String, Object>> txDtoList = new ArrayList<>();
-                        if (transactions != null) {
-                            for (CardTransaction ct : transactions) {
-                                Map<String, Object> m = new LinkedHashMap<>();
-                                m.put("transactionId", ct.getUuid() == null ? null : ct.getUuid().toString());
-                                m.put("cardNumber", ct.getCardNumber());
-                                m.put("amount", ct.getAmount());
-                                m.put("type", ct.getType());
-                                m.put("description", ct.getDescription());
-                                // 继续输出 ISO 字符串（客户端已兼容）
-                                m.put("timestamp", ct.getTime() == null ? null : ct.getTime().toString());
-                                txDtoList.add(m);
-                            }
-                        }
-                        response = Response.success("获取交易记录成功", txDtoList);
-                        break;
+            case "cancelOrder":
+                String cancelOrderIdStr = (String) request.getData().get("orderId");
+                try {
+                    boolean cancelResult = storeService.cancelOrder(cancelOrderIdStr);
+                    response = cancelResult ? Response.success("取消订单成功") : Response.error("取消订单失败");
+                } catch (IllegalArgumentException e) {
+                    response = Response.error("订单ID格式不正确");
+                } catch (Exception e) {
+                    response = Response.error("取消订单失败: " + e.getMessage());
+                }
+                break;
+
+            case "getUserOrders":
+                OrderQueryPayload orderQuery = payload(request, OrderQueryPayload.class);
+                Integer userCardNumber = orderQuery.getCardNumber();
+                // 带 pageSize 时按时间倒序分页返回
+                response = pagedResponse(orderQuery.getPageSize(), orderQuery.getCursor(), "获取用户订单成功",
+                        (after, size) -> storeService.getOrdersPage(userCardNumber, after, size));
+                if (response != null) break;
+
+                List<StoreOrder> userOrders = storeService.getUserOrders(userCardNumber);
+                response = Response.success("获取用户订单成功", userOrders);
+                break;
+
+            case "getAllOrders":
+                // 管理员功能：获取所有订单，带 pageSize 时按时间倒序分页返回
+                response = pagedResponse(request.getData().get("pageSize"), request.getData().get("cursor"),
+                        "获取所有订单成功", (after, size) -> storeService.getOrdersPage(null, after, size));
+                if (response != null) break;
+
+                List<StoreOrder> allOrders = storeService.getAllOrders();
+                response = Response.success("获取所有订单成功", allOrders);
+                break;
+
+            case "getOrder":
+                String getOrderIdStr = (String) request.getData().get("orderId");
+                try {
+                    StoreOrder order = storeService.getOrderById(getOrderIdStr);
+                    response = (order != null) ? Response.success("获取订单成功", order) : Response.error("订单不存在");
+                } catch (IllegalArgumentException e) {
+                    response = Response.error("订单ID格式不正确");
+                }
+                break;
+
+            case "getSalesStats":
+                // 管理员功能：获取销售统计
+                List<StoreMapper.SalesStats> salesStats = storeService.getSalesStatistics();
+                response = Response.success("获取销售统计成功", salesStats);
+                break;
+
+            case "serverStats":
+                // 管理员功能：各请求类型与 SQL 的耗时分布，用于容量评估
+                if (!isAdmin(request.getData().get("cardNumber"), request.getData().get("password"))) {
+                    response = Response.error(403, "仅管理员可查看服务器统计");
+                    break;
+                }
+                response = Response.success("获取服务器统计成功", ServerStats.snapshot());
+                break;
+
+            case "getTodaySalesStats":
+                // 管理员功能：获取今日销售统计
+                List<StoreMapper.SalesStats> todaySalesStats = storeService.getTodaySalesStatistics();
+                response = Response.success("获取今日销售统计成功", todaySalesStats);
+                break;
+
+            case "getTodaySales":
+                // 管理员功能：获取今日销售总额
+                Integer todaySales = storeService.getTodaySalesRevenue();
+                response = Response.success("获取今日销售总额成功", todaySales);
+                break;
+
+            case "getSales":
+                // 管理员功能：获取销售总额
+                Integer Sales = storeService.getSalesRevenue();
+                response = Response.success("获取销售总额成功", Sales);
+                break;
+
+            case "refundOrder":
+                // 管理员功能：订单退款
+                Map<String, Object> refundData = request.getData();
+                String refundOrderIdStr = (String) refundData.get("orderId");
+                String refundReason = (String) refundData.get("reason");
 
-                    case "getAllItems":
-                        List<StoreItem> items = storeService.getAllItems();
-                        response = Response.success("获取商品列表成功", items);
-                        break;
+                try {
+                    boolean refundResult = storeService.refundOrder(refundOrderIdStr, refundReason);
+                    response = refundResult ?
+                            Response.success("退款成功") :
+                            Response.error("退款失败");
+                } catch (IllegalArgumentException e) {
+                    response = Response.error("订单ID格式不正确");
+                } catch (Exception e) {
+                    response = Response.error("退款失败: " + e.getMessage());
+                }
+                break;
 
-                    case "searchItems":
-                        String keyword = (String) request.getData().get("keyword");
-                        List<StoreItem> searchResults = storeService.searchItems(keyword);
-                        response = Response.success("搜索完成", searchResults);
-                        break;
+            // 🔍 搜索书籍（通过书名）
+            case "searchBooks":
+                String searchBookText = (String) request.getData().get("searchText");
+                String categoryStr = (String) request.getData().get("category"); // 前端传类别字符串，比如 "SCIENCE" 或 null/空表示全部
 
-                    case "getItemById":
-                        String itemIdStr = (String) request.getData().get("itemId");
-                        try {
-                            UUID itemId = UUID.fromString(itemIdStr);
-                            StoreItem item = storeService.getItemById(itemId);
-                            response = item != null ? Response.success("获取商品成功", item) : Response.error("商品不存在");
-                        } catch (IllegalArgumentException e) {
-                            response = Response.error("商品ID格式不正确");
-                        }
-                        break;
+                Category categorybook = null;
+                if (categoryStr != null) {
+                    categorybook = Category.valueOf(categoryStr); // 将字符串转为枚举
+                }
 
-                    case "addItem":
-                        // 管理员功能：添加商品
-                        Map<String, Object> itemData = (Map<String, Object>) request.getData().get("item");
-                        StoreItem newItem = createStoreItemFromMap(itemData);
-                        boolean addItemResult = storeService.addItem(newItem);
-                        response = addItemResult ? Response.success("添加商品成功") : Response.error("添加商品失败");
-                        break;
+                // 带 pageSize 时按 ISBN 分页返回
+                Category bookCategory = categorybook;
+                response = pagedResponse(request.getData().get("pageSize"), request.getData().get("cursor"), "搜索完成",
+                        (after, size) -> bookService.searchBooksPage(searchBookText, bookCategory, after, size));
+                if (response != null) break;
 
-                    case "updateItem":
-                        // 管理员功能：更新商品
-                        Map<String, Object> updateItemData = (Map<String, Object>) request.getData().get("item");
-                        if (updateItemData == null || updateItemData.get("uuid") == null) {
-                            response = Response.error("更新商品需要提供uuid");
-                            break;
-                        }
-                        StoreItem updateItem = createStoreItemFromMap(updateItemData);
-                        boolean updateItemResult = storeService.updateItem(updateItem);
-                        response = updateItemResult ? Response.success("更新商品成功") : Response.error("更新商品失败");
-                        break;
+                try {
+                    List<Book> books = bookService.searchBooks(searchBookText, categorybook);
+                    response = Response.success("搜索完成", books);
+                } catch (Exception e) {
+                    response = Response.error(500, "搜索过程中发生错误: " + e.getMessage());
+                }
 
-                    case "deleteItem":
-                        // 管理员功能：删除商品
-                        String deleteItemIdStr = (String) request.getData().get("itemId");
-                        try {
-                            UUID deleteItemId = UUID.fromString(deleteItemIdStr);
-                            boolean deleteItemResult = storeService.deleteItem(deleteItemId);
-                            response = deleteItemResult ? Response.success("删除商品成功") : Response.error("删除商品失败");
-                        } catch (IllegalArgumentException e) {
-                            response = Response.error("商品ID格式不正确");
-                        }
-                        break;
+                break;
 
-                    // 商品类别相关功能
-                    case "getItemsByCategory":
-                        String category = (String) request.getData().get("category");
-                        List<StoreItem> categoryItems = storeService.getItemsByCategory(category);
-                        response = Response.success("获取类别商品成功", categoryItems);
-                        break;
+            // 📖 获取个人借阅记录（通过 userId）
+            case "getOwnRecords": {
+                Integer userId = ((Double) request.getData().get("userId")).intValue();
+                if (userId == 0) {
+                    response = Response.error("缺少 userId 参数");
+                    break;
+                }
+                try {
+                    List<BookRecord> records = bookService.userRecords(userId);
+                    response = Response.success("查询成功", records);
+                } catch (Exception e) {
+                    response = Response.error(500, "查询过程中发生错误: " + e.getMessage());
+                }
+                break;
+            }
 
-                    case "searchItemsByCategory":
-                        String searchCategory = (String) request.getData().get("category");
-                        String searchKeyword = (String) request.getData().get("keyword");
-                        List<StoreItem> categorySearchResults = storeService.searchItemsByCategoryAndKeyword(searchCategory, searchKeyword);
-                        response = Response.success("按类别搜索完成", categorySearchResults);
-                        break;
+            // 🔄 续借图书
+            case "renewBook": {
+                String uuid = (String) request.getData().get("uuid");
+                if (uuid == null) {
+                    response = Response.error("缺少图书 uuid 参数");
+                    break;
+                }
+                try {
+                    boolean result = bookService.renewBook(uuid);
+                    response = result ? Response.success("续借成功") : Response.error("续借失败");
+                } catch (Exception e) {
+                    response = Response.error(500, "续借过程中发生错误: " + e.getMessage());
+                }
+                break;
+            }
 
-                    case "createOrder":
-                        Map<String, Object> orderData = request.getData();
-                        Integer orderCardNumber =  Integer.valueOf((String) orderData.get("cardNumber"));
-                        String orderRemark = (String) orderData.get("remark");
-
-                        // 解析订单商品项
-                        List<Map<String, Object>> itemsData = (List<Map<String, Object>>) orderData.get("items");
-                        List<StoreOrderItem> orderItems = new ArrayList<>();
-                        Integer totalAmount = 0;
-                        boolean orderItemError = false;
-
-                        for (Map<String, Object> itemData1 : itemsData) {
-                            String itemIdStr1 = (String) itemData1.get("itemId");
-                            Integer itemAmount = ((Double) itemData1.get("amount")).intValue();
-
-                            try {
-                                UUID itemId = UUID.fromString(itemIdStr1);
-
-                                // 获取商品信息以获取价格
-                                StoreItem item = storeService.getItemById(itemId);
-                                if (item == null) {
-                                    response = Response.error("商品不存在: " + itemIdStr1);
-                                    orderItemError = true;
-                                    break;
-                                }
-
-                                StoreOrderItem orderItem = new StoreOrderItem(null, itemId, item.getPrice(), itemAmount);
-                                orderItems.add(orderItem);
-                                totalAmount += item.getPrice() * itemAmount;
-
-                            } catch (IllegalArgumentException e) {
-                                response = Response.error("商品ID格式不正确: " + itemIdStr1);
-                                orderItemError = true;
-                                break;
-                            }
-                        }
+            // ✏ 更新书籍信息
+            case "updateBook": {
+                Map<String, Object> bookData = (Map<String, Object>) request.getData().get("book");
+                Book bookUpdate = createBookFromMap(bookData);
+                boolean result = bookService.updateBook(bookUpdate);
+                response = result ? Response.success("更新成功") : Response.error("更新失败");
+                break;
+            }
 
-                        if (orderItemError) break; // 直接结束switch
-                        try {
-                            StoreOrder order = new StoreOrder(orderCardNumber, totalAmount, orderRemark, orderItems);
-                            StoreOrder createdOrder = storeService.createOrder(order);
-                            response = Response.success("创建订单成功", createdOrder);
-                        } catch (Exception e) {
-                            response = Response.error(e.getMessage());
-                        }
-                        break;
+            // ❌ 删除书籍（根据 ISBN）
+            case "deleteBook": {
+                String isbn = (String) request.getData().get("isbn");
+                if (isbn == null) {
+                    response = Response.error("缺少 ISBN 参数");
+                    break;
+                }
+                boolean result = bookService.deleteBook(isbn);
+                response = result ? Response.success("删除成功") : Response.error("删除失败");
+                break;
+            }
 
-                    case "payOrder":
-                        String payOrderIdStr = (String) request.getData().get("orderId");
-                        try {
-                            boolean payResult = storeService.payOrder(payOrderIdStr);
-                            response = payResult ? Response.success("支付成功") : Response.error("支付失败");
-                        } catch (IllegalArgumentException e) {
-                            response = Response.error("订单ID格式不正确");
-                        } catch (Exception e) {
-                            response = Response.error("支付失败！" + e.getMessage());
-                        }
-                        break;
+            // ➕ 添加书籍
+            case "addBook": {
+                Map<String, Object> bookData = (Map<String, Object>) request.getData().get("book");
+                Book newBook = createBookFromMap(bookData);
+                boolean result = bookService.addBook(newBook);
+                response = result ? Response.success("添加成功", newBook.getIsbn()) : Response.error("添加失败");
+                break;
+            }
 
-                    case "cancelOrder":
-                        String cancelOrderIdStr = (String) request.getData().get("orderId");
-                        try {
-                            boolean cancelResult = storeService.cancelOrder(cancelOrderIdStr);
-                            response = cancelResult ? Response.success("取消订单成功") : Response.error("取消订单失败");
-                        } catch (IllegalArgumentException e) {
-                            response = Response.error("订单ID格式不正确");
-                        } catch (Exception e) {
-                            response = Response.error("取消订单失败: " + e.getMessage());
-                        }
-                        break;
+            // 📚 借书
+            case "borrowBook": {
+                String isbn = (String) request.getData().get("uuid");
+                Integer userId = ((Double) request.getData().get("userId")).intValue();
+                if (isbn == null || userId == 0) {
+                    response = Response.error("缺少 uuid 或 userId 参数");
+                    break;
+                }
+                response = bookService.borrowBook(userId, isbn);
+                break;
+            }
 
-                    case "getUserOrders":
-                        Integer userCardNumber = ((Double) request.getData().get("cardNumber")).intValue();
-                        List<StoreOrder> userOrders = storeService.getUserOrders(userCardNumber);
-                        response = Response.success("获取用户订单成功", userOrders);
-                        break;
+            // 🔙 还书
+            case "returnBook": {
+                String uuid = (String) request.getData().get("uuid");
+                if (uuid == null) {
+                    response = Response.error("缺少 uuid 参数");
+                    break;
+                }
+                boolean result = bookService.returnBook(uuid);
+                response = result ? Response.success("还书成功") : Response.error("还书失败");
+                break;
+            }
 
-                    case "getAllOrders":
-                        // 管理员功能：获取所有订单
-                        List<StoreOrder> allOrders = storeService.getAllOrders();
-                        response = Response.success("获取所有订单成功", allOrders);
-                        break;
+            // ➕ 添加书籍实体
+            case "addBookItem": {
+                Map<String, Object> bookitemData = (Map<String, Object>) request.getData().get("bookItem");
+                BookItem newbookItem = createBookItemFromMap(bookitemData); // 需要自己写的方法，将 Map 转成 BookItem
+                boolean result = bookService.addBookItem(newbookItem);
+                response = result ? Response.success("添加成功", newbookItem.getUuid()) : Response.error("添加失败");
+                break;
+            }
 
-                    case "getOrder":
-                        String getOrderIdStr = (String) request.getData().get("orderId");
-                        try {
-                            StoreOrder order = storeService.getOrderById(getOrderIdStr);
-                            response = (order != null) ? Response.success("获取订单成功", order) : Response.error("订单不存在");
-                        } catch (IllegalArgumentException e) {
-                            response = Response.error("订单ID格式不正确");
-                        }
-                        break;
+            // ❌ 删除书籍实体
+            case "deleteBookItem": {
+                String uuid = (String) request.getData().get("uuid");
+                if (uuid == null) {
+                    response = Response.error("缺少 uuid 参数");
+                    break;
+                }
+                boolean result = bookService.deleteBookItem(uuid);
+                response = result ? Response.success("删除成功") : Response.error("删除失败");
+                break;
+            }
 
-                    case "getSalesStats":
-                        // 管理员功能：获取销售统计
-                        List<StoreMapper.SalesStats> salesStats = storeService.getSalesStatistics();
-                        response = Response.success("获取销售统计成功", salesStats);
-                        break;
+            // ✏ 更新书籍实体
+            case "updateBookItem": {
+                Map<String, Object> bookitemData = (Map<String, Object>) request.getData().get("bookItem");
+                BookItem itemUpdate = createBookItemFromMap(bookitemData);
+                boolean result = bookService.updateBookItem(itemUpdate);
+                response = result ? Response.success("更新成功") : Response.error("更新失败");
+                break;
+            }
 
-                    case "getTodaySalesStats":
-                        // 管理员功能：获取今日销售统计
-                        List<StoreMapper.SalesStats> todaySalesStats = storeService.getTodaySalesStatistics();
-                        response = Response.success("获取今日销售统计成功", todaySalesStats);
-                        break;
+            // 🔍 查询书籍实体（根据 UUID）
+            case "findBookItem": {
+                String uuid = (String) request.getData().get("uuid");
+                if (uuid == null) {
+                    response = Response.error("缺少 uuid 参数");
+                    break;
+                }
+                try {
+                    BookItem item = bookService.getBookItemByUuid(uuid);
+                    response = item != null ? Response.success("查询成功", item) : Response.error("未找到对应书籍实体");
+                } catch (Exception e) {
+                    response = Response.error(500, "查询过程中发生错误: " + e.getMessage());
+                }
+                break;
+            }
 
-                    case "getTodaySales":
-                        // 管理员功能：获取今日销售总额
-                        Integer todaySales = storeService.getTodaySalesRevenue();
-                        response = Response.success("获取今日销售总额成功", todaySales);
-                        break;
+            // 🔍 根据 ISBN 搜索书籍实体
+            case "searchBookItems": {
+                String isbn = (String) request.getData().get("isbn");
+                if (isbn == null) {
+                    response = Response.error("缺少 ISBN 参数");
+                    break;
+                }
+                try {
+                    List<BookItem> itembooks = bookService.retrieveBookItems(isbn);
+                    response = Response.success("查询成功", itembooks);
+                } catch (Exception e) {
+                    response = Response.error(500, "查询过程中发生错误: " + e.getMessage());
+                }
+                break;
+            }
 
-                    case "getSales":
-                        // 管理员功能：获取销售总额
-                        Integer Sales = storeService.getSalesRevenue();
-                        response = Response.success("获取销售总额成功", Sales);
-                        break;
+            // 批量请求：data.requests 为子请求列表 [{type, data}]，按顺序返回子响应列表
+            case "batch":
+                response = handleBatch(request.getData());
+                break;
+
+            // 流式导出（管理员功能）：逐行读取数据库游标，分块写出 206 数据块帧，最后一帧为汇总
+            case "streamExport":
+                response = streamExport(request);
+                break;
+
+            // 订阅/取消订阅服务端推送，之后主题有变化时服务端主动推送不带 requestId、带 topic 的帧
+            case "subscribe":
+            case "unsubscribe":
+                response = handleSubscription(request);
+                break;
+
+            default:
+                response = Response.error("不支持的请求类型: " + request.getType());
+                break;
+        }
 
-                    case "refundOrder":
-                        // 管理员功能：订单退款
-                        Map<String, Object> refundData = request.getData();
-                        String refundOrderIdStr = (String) refundData.get("orderId");
-                        String refundReason = (String) refundData.get("reason");
+        if (response != null && request.getRequestId() != null) {
+            response.setRequestId(request.getRequestId());
+        }
+        return response;
+    }
 
-                        try {
-                            boolean refundResult = storeService.refundOrder(refundOrderIdStr, refundReason);
-                            response = refundResult ?
-                                    Response.success("退款成功") :
-                                    Response.error("退款失败");
-                        } catch (IllegalArgumentException e) {
-                            response = Response.error("订单ID格式不正确");
-                        } catch (Exception e) {
-                            response = Response.error("退款失败: " + e.getMessage());
-                        }
-                        break;
+    /**
+     * 目录类列表查询：经 {@link CatalogCache} 缓存，并支持条件获取
+     * 请求数据中的 ifNoneMatch 与区域当前版本号一致时直接返回 304（不查库、无数据），客户端沿用本地副本；
+     * 否则返回完整列表并在 version 中带上其版本号
+     * @param loader 查询数据库，失败时返回 null
+     */
+    private static Response catalogResponse(Request request, CatalogCache.Region region, String key,
+                                            String message, Supplier<?> loader) {
+        Object ifNoneMatch = request.getData() == null ? null : request.getData().get("ifNoneMatch");
+        String current = CatalogCache.version(region);
+        if (current.equals(ifNoneMatch)) {
+            Response notModified = new Response(304, "数据未变化", null);
+            notModified.setVersion(current);
+            return notModified;
+        }
+        CatalogCache.Versioned result = CatalogCache.get(region, key, loader, gson::toJson);
+        if (result == null) {
+            return Response.error(500, "查询失败，请稍后重试");
+        }
+        Response response = Response.success(message, result.json());
+        response.setVersion(result.version());
+        return response;
+    }
 
-                    // 🔍 搜索书籍（通过书名）
-                    case "searchBooks":
-                        String searchBookText = (String) request.getData().get("searchText");
-                        String categoryStr = (String) request.getData().get("category"); // 前端传类别字符串，比如 "SCIENCE" 或 null/空表示全部
+    /**
+     * 按页查询数据
+     */
+    @FunctionalInterface
+    private interface PageLoader {
+        /**
+         * @param after 上一页返回的游标，为空表示第一页
+         * @return 一页数据（通常为 {@link Page}）；查询失败时返回 null
+         */
+        Object load(PageCursor after, int pageSize);
+    }
 
-                        Category categorybook = null;
-                        if (categoryStr != null) {
-                            categorybook = Category.valueOf(categoryStr); // 将字符串转为枚举
-                        }
+    /**
+     * 键集分页请求的公共处理
+     * @param pageSize 请求中的页大小；为空表示客户端未要求分页
+     * @param cursor 请求中的游标，为空表示第一页
+     * @return 分页响应；未要求分页时返回 null，由调用方按原方式返回全部数据
+     */
+    private static Response pagedResponse(Object pageSize, Object cursor, String message, PageLoader loader) {
+        if (pageSize == null) return null;
+        try {
+            int size = PageCursor.pageSize(pageSize);
+            Object page = loader.load(PageCursor.decode(cursor == null ? null : cursor.toString()), size);
+            return page == null ? Response.error(500, "查询失败，请稍后重试") : Response.success(message, page);
+        } catch (IllegalArgumentException e) {
+            return Response.error(e.getMessage());
+        }
+    }
 
-                        try {
-                            List<Book> books = bookService.searchBooks(searchBookText, categorybook);
-                            response = Response.success("搜索完成", books);
-                        } catch (Exception e) {
-                            response = Response.error(500, "搜索过程中发生错误: " + e.getMessage());
-                        }
+    /**
+     * 目录类列表的分页请求：每一页与整表一样走 {@link #catalogResponse} 的缓存与条件获取
+     * @return 分页响应；请求未带 pageSize 时返回 null
+     */
+    private static Response pagedCatalogResponse(Request request, CatalogCache.Region region, String message,
+                                                 PageLoader loader) {
+        Map<String, Object> data = request.getData();
+        if (data == null || data.get("pageSize") == null) return null;
+        int size;
+        PageCursor after;
+        String cursor = data.get("cursor") == null ? "" : data.get("cursor").toString();
+        try {
+            size = PageCursor.pageSize(data.get("pageSize"));
+            after = PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Response.error(e.getMessage());
+        }
+        return catalogResponse(request, region, "page:" + size + ":" + cursor, message, () -> loader.load(after, size));
+    }
 
-                        break;
+    /**
+     * 交易记录转换为 DTO，避免直接序列化 LocalDateTime
+     */
+    private static List<Map<String, Object>> transactionDtos(List<CardTransaction> transactions) {
+        List<Map<String, Object>> txDtoList = new ArrayList<>();
+        if (transactions != null) {
+            for (CardTransaction ct : transactions) {
+                txDtoList.add(transactionDto(ct));
+            }
+        }
+        return txDtoList;
+    }
 
-                    // 📖 获取个人借阅记录（通过 userId）
-                    case "getOwnRecords": {
-                        Integer userId = ((Double) request.getData().get("userId")).intValue();
-                        if (userId == 0) {
-                            response = Response.error("缺少 userId 参数");
-                            break;
-                        }
-                        try {
-                            List<BookRecord> records = bookService.userRecords(userId);
-                            response = Response.success("查询成功", records);
-                        } catch (Exception e) {
-                            response = Response.error(500, "查询过程中发生错误: " + e.getMessage());
-                        }
-                        break;
-                    }
+    private static Map<String, Object> transactionDto(CardTransaction ct) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("transactionId", ct.getUuid() == null ? null : ct.getUuid().toString());
+        m.put("cardNumber", ct.getCardNumber());
+        m.put("amount", ct.getAmount());
+        m.put("type", ct.getType());
+        m.put("description", ct.getDescription());
+        // 继续输出 ISO 字符串（客户端已兼容）
+        m.put("timestamp", ct.getTime() == null ? null : ct.getTime().toString());
+        return m;
+    }
 
-                    // 🔄 续借图书
-                    case "renewBook": {
-                        String uuid = (String) request.getData().get("uuid");
-                        if (uuid == null) {
-                            response = Response.error("缺少图书 uuid 参数");
-                            break;
-                        }
-                        try {
-                            boolean result = bookService.renewBook(uuid);
-                            response = result ? Response.success("续借成功") : Response.error("续借失败");
-                        } catch (Exception e) {
-                            response = Response.error(500, "续借过程中发生错误: " + e.getMessage());
-                        }
-                        break;
-                    }
+    /**
+     * 流式导出：从数据库游标逐行读取，按块写出 206 数据块帧，结果集不在服务端内存中整体加载
+     * data.dataset 取值：
+     * - transactions：交易记录，可选 cardNumber、type、from、to
+     * - orders：订单，可选 cardNumber、from、to
+     * - students：全部学生
+     * from（含）、to（不含）为 ISO 日期或日期时间，如 "2024-01-01"、"2024-01-01T08:00:00"
+     * 仅管理员可导出：data.adminCardNumber、data.password 为管理员账号（cardNumber 是导出的筛选条件，不是身份），
+     * 校验不通过时返回 403，不打开游标
+     * @return 结束帧：成功时 data 为 {rows, chunks}；中途出错时为错误响应，已收到的数据块不完整
+     */
+    private Response streamExport(Request request) {
+        Map<String, Object> data = request.getData();
+        String dataset = data == null ? null : (String) data.get("dataset");
+        if (dataset == null) {
+            return Response.error("缺少参数: dataset");
+        }
+        Integer cardNumber;
+        String type;
+        LocalDateTime from;
+        LocalDateTime to;
+        try {
+            Object rawCard = data.get("cardNumber");
+            cardNumber = rawCard == null ? null
+                    : rawCard instanceof Number ? ((Number) rawCard).intValue() : Integer.valueOf(rawCard.toString());
+            type = (String) data.get("type");
+            from = exportTime(data.get("from"));
+            to = exportTime(data.get("to"));
+        } catch (ClassCastException | NumberFormatException | DateTimeParseException e) {
+            return Response.error("导出参数格式不正确");
+        }
+        if (!isAdmin(data.get("adminCardNumber"), data.get("password"))) {
+            return Response.error(403, cardNumber != null ? "仅管理员可按一卡通号导出数据" : "仅管理员可导出数据");
+        }
 
-                    // ✏ 更新书籍信息
-                    case "updateBook": {
-                        Map<String, Object> bookData = (Map<String, Object>) request.getData().get("book");
-                        Book bookUpdate = createBookFromMap(bookData);
-                        boolean result = bookService.updateBook(bookUpdate);
-                        response = result ? Response.success("更新成功") : Response.error("更新失败");
-                        break;
-                    }
+        ChunkWriter.Sink sink = chunk -> writeChunk(request, chunk);
+        long rows;
+        long chunks;
+        try {
+            switch (dataset) {
+                case "transactions": {
+                    ChunkWriter<CardTransaction> writer =
+                            new ChunkWriter<>(request.getRequestId(), sink, ClientHandler::transactionDto);
+                    rows = financeService.forEachTransaction(cardNumber, type, from, to, writer::accept);
+                    writer.flush();
+                    chunks = writer.chunks();
+                    break;
+                }
+                case "orders": {
+                    ChunkWriter<StoreOrder> writer = new ChunkWriter<>(request.getRequestId(), sink, order -> order);
+                    rows = storeService.forEachOrder(cardNumber, from, to, writer::accept);
+                    writer.flush();
+                    chunks = writer.chunks();
+                    break;
+                }
+                case "students": {
+                    ChunkWriter<Student> writer = new ChunkWriter<>(request.getRequestId(), sink, student -> student);
+                    rows = studentService.forEachStudent(writer::accept);
+                    writer.flush();
+                    chunks = writer.chunks();
+                    break;
+                }
+                default:
+                    return Response.error("不支持的导出数据集: " + dataset);
+            }
+        } catch (UncheckedIOException e) {
+            // 连接已断开，游标已随会话关闭
+            AccessLog.event("流式导出中断: " + e.getCause().getMessage());
+            return Response.error(500, "导出中断");
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return Response.error(500, "导出失败: " + e.getMessage());
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("rows", rows);
+        summary.put("chunks", chunks);
+        return Response.success("导出完成", summary);
+    }
 
-                    // ❌ 删除书籍（根据 ISBN）
-                    case "deleteBook": {
-                        String isbn = (String) request.getData().get("isbn");
-                        if (isbn == null) {
-                            response = Response.error("缺少 ISBN 参数");
-                            break;
-                        }
-                        boolean result = bookService.deleteBook(isbn);
-                        response = result ? Response.success("删除成功") : Response.error("删除失败");
-                        break;
-                    }
+    /**
+     * 管理员身份校验：一卡通号须为数字、密码须为字符串，且账号密码正确并为管理员
+     */
+    private boolean isAdmin(Object cardNumber, Object password) {
+        return cardNumber instanceof Number && password instanceof String
+                && userService.verifyAdmin(((Number) cardNumber).intValue(), (String) password);
+    }
 
-                    // ➕ 添加书籍
-                    case "addBook": {
-                        Map<String, Object> bookData = (Map<String, Object>) request.getData().get("book");
-                        Book newBook = createBookFromMap(bookData);
-                        boolean result = bookService.addBook(newBook);
-                        response = result ? Response.success("添加成功", newBook.getIsbn()) : Response.error("添加失败");
-                        break;
-                    }
+    /**
+     * 整数参数：JSON 数字（解析后为 Double）或数字字符串，缺失或无法识别时返回 null
+     */
+    private static Integer intParam(Object raw) {
+        if (raw instanceof Number) return ((Number) raw).intValue();
+        if (raw instanceof String) {
+            try {
+                return Integer.parseInt(((String) raw).trim());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return null;
+    }
 
-                    // 📚 借书
-                    case "borrowBook": {
-                        String isbn = (String) request.getData().get("uuid");
-                        Integer userId = ((Double) request.getData().get("userId")).intValue();
-                        if (isbn == null || userId == 0) {
-                            response = Response.error("缺少 uuid 或 userId 参数");
-                            break;
-                        }
-                        response = bookService.borrowBook(userId, isbn);
-                        break;
-                    }
+    private static LocalDateTime exportTime(Object raw) {
+        if (raw == null || raw.toString().isEmpty()) return null;
+        String text = raw.toString();
+        return text.length() == 10 ? LocalDate.parse(text).atStartOfDay() : LocalDateTime.parse(text);
+    }
 
-                    // 🔙 还书
-                    case "returnBook": {
-                        String uuid = (String) request.getData().get("uuid");
-                        if (uuid == null) {
-                            response = Response.error("缺少 uuid 参数");
-                            break;
-                        }
-                        boolean result = bookService.returnBook(uuid);
-                        response = result ? Response.success("还书成功") : Response.error("还书失败");
-                        break;
-                    }
+    /**
+     * 写出流式响应的一个数据块：NIO 模式交给连接的发送队列（积压过多时等待客户端读走），
+     * 阻塞模式直接写本连接的输出流（写满时自然阻塞）
+     */
+    private void writeChunk(Request request, Response chunk) throws IOException {
+        Consumer<ByteBuffer> sink = streamFrameSink;
+        if (sink != null) {
+            try {
+                sink.accept(encodeFrame(request, chunk));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+        DataOutputStream out = connectionOut;
+        if (out == null) {
+            throw new IOException("当前连接不支持流式响应");
+        }
+        sendResponse(out, request, chunk);
+    }
 
-                    // ➕ 添加书籍实体
-                    case "addBookItem": {
-                        Map<String, Object> bookitemData = (Map<String, Object>) request.getData().get("bookItem");
-                        BookItem newbookItem = createBookItemFromMap(bookitemData); // 需要自己写的方法，将 Map 转成 BookItem
-                        boolean result = bookService.addBookItem(newbookItem);
-                        response = result ? Response.success("添加成功", newbookItem.getUuid()) : Response.error("添加失败");
-                        break;
-                    }
+    /**
+     * 取得已注册请求类型的强类型请求数据（解码时由 {@link RequestTypeAdapterFactory} 绑定）
+     */
+    private static <T> T payload(Request request, Class<T> type) {
+        return type.cast(request.getPayload());
+    }
 
-                    // ❌ 删除书籍实体
-                    case "deleteBookItem": {
-                        String uuid = (String) request.getData().get("uuid");
-                        if (uuid == null) {
-                            response = Response.error("缺少 uuid 参数");
-                            break;
-                        }
-                        boolean result = bookService.deleteBookItem(uuid);
-                        response = result ? Response.success("删除成功") : Response.error("删除失败");
-                        break;
-                    }
+    /**
+     * 处理 hello 能力协商，协商结果对本连接后续的响应生效
+     * 未发送 hello 的旧客户端始终收到明文 JSON 帧
+     * @param data compression: 客户端支持的压缩算法（目前仅 "deflate"）；codec: 客户端可解码的响应编码（"json"/"binary"）
+     * @return 本连接启用的特性
+     */
+    private Response negotiate(Map<String, Object> data) {
+        // 请求解码时缺少 data 会得到空表，同样视为缺少参数
+        if (data == null || data.isEmpty()) {
+            return Response.error("缺少协商参数");
+        }
+        Object compression = data.get("compression");
+        Object codec = data.get("codec");
+        if ((compression != null && !(compression instanceof String)) || (codec != null && !(codec instanceof String))) {
+            return Response.error("协商参数格式错误");
+        }
+        Map<String, Object> accepted = new HashMap<>();
+        compressResponses = COMPRESSION_ENABLED && "deflate".equals(compression);
+        accepted.put("compression", compressResponses ? "deflate" : "none");
+        accepted.put("compressionThreshold", COMPRESSION_THRESHOLD);
+        boolean binary = BINARY_CODEC_ENABLED && WireFormat.CODEC_BINARY.equals(codec);
+        responseCodec = binary ? BINARY_CODEC : JSON_CODEC;
+        accepted.put("codec", responseCodec.name());
+        return Response.success("协商成功", accepted);
+    }
 
-                    // ✏ 更新书籍实体
-                    case "updateBookItem": {
-                        Map<String, Object> bookitemData = (Map<String, Object>) request.getData().get("bookItem");
-                        BookItem itemUpdate = createBookItemFromMap(bookitemData);
-                        boolean result = bookService.updateBookItem(itemUpdate);
-                        response = result ? Response.success("更新成功") : Response.error("更新失败");
-                        break;
-                    }
+    /**
+     * 处理订阅请求
+     * 推送帧可能在任意时刻到达，只有按 requestId 匹配响应的持久连接能区分推送与应答，因此要求请求携带 requestId
+     * @param request data.topics 为主题列表，如 ["seats:教学班UUID", "stock:商品UUID", "balance:一卡通号"]
+     * @return 订阅时返回实际生效的主题
+     */
+    private Response handleSubscription(Request request) {
+        if (request.getRequestId() == null) {
+            return Response.error("订阅需在持久连接上以流水线请求发送（携带 requestId）");
+        }
+        Object topicsObj = request.getData() == null ? null : request.getData().get("topics");
+        if (!(topicsObj instanceof List)) {
+            return Response.error("缺少 topics 参数");
+        }
+        List<String> topics = new ArrayList<>();
+        for (Object topic : (List<?>) topicsObj) {
+            String t = String.valueOf(topic);
+            if (!PushHub.isValidTopic(t)) {
+                return Response.error("不支持的推送主题: " + t);
+            }
+            topics.add(t);
+        }
+        if ("unsubscribe".equals(request.getType())) {
+            PushHub.unsubscribe(pushSubscriber, topics);
+            return Response.success("取消订阅成功");
+        }
+        return Response.success("订阅成功", PushHub.subscribe(pushSubscriber, topics));
+    }
 
-                    // 🔍 查询书籍实体（根据 UUID）
-                    case "findBookItem": {
-                        String uuid = (String) request.getData().get("uuid");
-                        if (uuid == null) {
-                            response = Response.error("缺少 uuid 参数");
-                            break;
-                        }
-                        try {
-                            BookItem item = bookService.getBookItemByUuid(uuid);
-                            response = item != null ? Response.success("查询成功", item) : Response.error("未找到对应书籍实体");
-                        } catch (Exception e) {
-                            response = Response.error(500, "查询过程中发生错误: " + e.getMessage());
-                        }
-                        break;
-                    }
+    /**
+     * 在一次往返中执行多个子请求，子请求逐个经 {@link #handleRequest(Request)} 分发
+     * data.parallel 为 true 时子请求并发执行（仅适用于互不依赖的查询），否则按顺序执行；
+     * 单个子请求失败只影响其自身的子响应，不会中断整个批次
+     * @param data 包含 requests 列表及可选 parallel 标志
+     * @return 子响应列表与子请求一一对应
+     */
+    private Response handleBatch(Map<String, Object> data) {
+        if (data == null) {
+            return Response.error("缺少批量请求数据");
+        }
+        Object requestsObj = data.get("requests");
+        if (!(requestsObj instanceof List)) {
+            return Response.error("缺少 requests 参数");
+        }
+        List<?> items = (List<?>) requestsObj;
+        if (items.size() > BATCH_MAX_SIZE) {
+            return Response.error("批量请求数量超过上限: " + BATCH_MAX_SIZE);
+        }
 
-                    // 🔍 根据 ISBN 搜索书籍实体
-                    case "searchBookItems": {
-                        String isbn = (String) request.getData().get("isbn");
-                        if (isbn == null) {
-                            response = Response.error("缺少 ISBN 参数");
-                            break;
-                        }
-                        try {
-                            List<BookItem> itembooks = bookService.retrieveBookItems(isbn);
-                            response = Response.success("查询成功", itembooks);
-                        } catch (Exception e) {
-                            response = Response.error(500, "查询过程中发生错误: " + e.getMessage());
-                        }
-                        break;
-                    }
+        List<Request> subRequests = new ArrayList<>(items.size());
+        for (Object item : items) {
+            subRequests.add(gson.fromJson(gson.toJsonTree(item), Request.class));
+        }
 
-                    default:
-                        response = Response.error("不支持的请求类型: " + request.getType());
-                        break;
+        List<Response> responses = new ArrayList<>(subRequests.size());
+        if (Boolean.TRUE.equals(data.get("parallel")) && subRequests.size() > 1) {
+            List<Future<Response>> futures = new ArrayList<>(subRequests.size());
+            for (Request sub : subRequests) {
+                futures.add(BATCH_POOL.submit(() -> handleSubRequest(sub)));
+            }
+            for (Future<Response> future : futures) {
+                try {
+                    responses.add(future.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Response.error(500, "批量请求被中断");
+                } catch (ExecutionException e) {
+                    responses.add(Response.error(500, "服务器内部错误: " + e.getCause().getMessage()));
                 }
-
-                // 6. 将响应对象序列化为JSON，并发送给客户端
-                sendResponse(out, response);
             }
-        } catch (IOException e) {
-            System.out.println("客户端连接断开: " + e.getMessage());
-        } finally {
-            try {
-                clientSocket.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+        } else {
+            for (Request sub : subRequests) {
+                responses.add(handleSubRequest(sub));
             }
         }
+        return Response.success("批量请求完成", responses);
+    }
+
+    private Response handleSubRequest(Request sub) {
+        if (sub.getType() == null || "batch".equals(sub.getType()) || "streamExport".equals(sub.getType())) {
+            return Response.error("不支持的子请求类型: " + sub.getType());
+        }
+        try {
+            return handleRequest(sub);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return Response.error(500, "服务器内部错误: " + e.getMessage());
+        }
     }
 
     /**
      * 发送响应给客户端
+     * 响应直接流式序列化进本连接复用的帧缓冲，回填长度前缀后整帧写出
      * @param out DataOutputStream对象
+     * @param request 对应的请求（用于访问日志）
      * @param response 响应对象
      * @throws IOException 如果发生I/O错误
      */
-    private void sendResponse(DataOutputStream out, Response response) throws IOException {
-        // 将Response对象转换为JSON字符串
-        String jsonResponse = gson.toJson(response);
-        // 将JSON字符串转换为字节数组
-        byte[] jsonBytes = jsonResponse.getBytes(StandardCharsets.UTF_8);
-        // 先发送数据长度，再发送数据本身
-        out.writeInt(jsonBytes.length);
-        out.write(jsonBytes);
-        out.flush();
-
-        System.out.println("发送响应: " + jsonResponse);
+    private void sendResponse(DataOutputStream out, Request request, Response response) throws IOException {
+        // 流水线请求可能由多个线程同时写回，帧缓冲与输出流均需整帧加锁
+        writeLock.lock();
+        try {
+            writeFrame(request, response, frameBuffer);
+            frameBuffer.writeTo(out);
+            out.flush();
+        } finally {
+            frameBuffer.release();
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 将响应编码为独立的完整帧（含长度前缀），供 NIO 发送队列持有
+     * 序列化使用当前线程复用的帧缓冲，只在最后按实际长度复制一次
+     * @param request 对应的请求（用于访问日志），无法对应时为 null
+     * @param response 响应对象
+     * @return 可直接写出的帧
+     */
+    public ByteBuffer encodeFrame(Request request, Response response) {
+        FrameBuffer buffer = THREAD_FRAME_BUFFER.get();
+        try {
+            writeFrame(request, response, buffer);
+            return buffer.toFrame();
+        } catch (IOException e) {
+            // 目标为内存缓冲，不会发生真正的 I/O 错误
+            throw new IllegalStateException(e);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 以 JSON 编码为完整帧，用于尚未协商编码的连接（如连接数已满时的拒绝应答）
+     * @param response 响应对象
+     * @return 可直接写出的帧
+     */
+    public static ByteBuffer encodeJsonFrame(Response response) {
+        FrameBuffer buffer = THREAD_FRAME_BUFFER.get();
+        try {
+            buffer.begin();
+            JSON_CODEC.encode(response, buffer);
+            buffer.finish(JSON_CODEC.frameFlag());
+            return buffer.toFrame();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 连接数已满时的拒绝应答
+     */
+    public static Response connectionRejected() {
+        return Response.error(AdmissionControl.CODE_TOO_MANY_CONNECTIONS, "服务器连接数已满，请稍后重试");
     }
 
-    // 添加辅助方法，用于从Map创建Student对象
-    private Student createStudentFromMap(Map<String, Object> data) {
-        Student student = new Student();
-
-        if (data.containsKey("identity")) student.setIdentity((String) data.get("identity"));
-        if (data.containsKey("cardNumber")) student.setCardNumber(((Double) data.get("cardNumber")).intValue());
-        if (data.containsKey("studentNumber")) student.setStudentNumber((String) data.get("studentNumber"));
-        if (data.containsKey("major")) student.setMajor((String) data.get("major"));
-        if (data.containsKey("school")) student.setSchool((String) data.get("school"));
-        if (data.containsKey("status")) student.setStatus(StudentStatus.valueOf((String) data.get("status")));
-        if (data.containsKey("enrollment")) student.setEnrollment(new Date(((Double) data.get("enrollment")).longValue()));
-        if (data.containsKey("birth")) student.setBirth(new Date(((Double) data.get("birth")).longValue()));
-        if (data.containsKey("birthPlace")) student.setBirthPlace((String) data.get("birthPlace"));
-        if (data.containsKey("politicalStat")) student.setPoliticalStat(PoliticalStatus.valueOf((String) data.get("politicalStat")));
-        if (data.containsKey("gender")) student.setGender(Gender.valueOf((String) data.get("gender")));
-        if (data.containsKey("name")) student.setName((String) data.get("name"));
-
-        return student;
+    /**
+     * 用本连接协商的编解码器把响应直接写入帧缓冲并回填长度，并记录访问日志
+     */
+    private void writeFrame(Request request, Response response, FrameBuffer buffer) throws IOException {
+        buffer.begin();
+        Codec codec = responseCodec;
+        try {
+            codec.encode(response, buffer);
+        } catch (IOException | RuntimeException e) {
+            buffer.abort();
+            throw e;
+        }
+        int length = buffer.finish(codec.frameFlag());
+        if (compressResponses && length > COMPRESSION_THRESHOLD) {
+            buffer.compress(COMPRESSION_LEVEL);
+        }
+        // 推送帧数量随订阅者放大，不计入访问日志；流式响应只在结束帧记一次
+        if (response.getCode() == ChunkWriter.CODE_CHUNK) {
+            return;
+        }
+        if (response.getTopic() == null) {
+            AccessLog.access(request, response, length, buffer.size() - 4);
+        }
+        if (request != null && request.getReceivedNanos() != 0) {
+            ServerStats.recordRequest(request.getType(), System.nanoTime() - request.getReceivedNanos(),
+                    request.getFrameBytes(), buffer.size() - 4, response.getCode());
+        }
     }
 
     // 添加辅助方法，用于从Map创建Course对象
@@ -1333,28 +2144,6 @@ public class ClientHandler implements Runnable {
         return teacher;
     }
 
-    // 添加辅助方法，用于从Map创建StoreItem对象
-    private StoreItem createStoreItemFromMap(Map<String, Object> data) {
-        StoreItem item = new StoreItem();
-
-        if (data.containsKey("uuid")) {
-            item.setUuid(UUID.fromString((String) data.get("uuid")));
-        } else {
-            item.setUuid(UUID.randomUUID());
-        }
-
-        if (data.containsKey("itemName")) item.setItemName((String) data.get("itemName"));
-        if (data.containsKey("price")) item.setPrice(((Double) data.get("price")).intValue());
-        if (data.containsKey("pictureLink")) item.setPictureLink((String) data.get("pictureLink"));
-        if (data.containsKey("stock")) item.setStock(((Double) data.get("stock")).intValue());
-        if (data.containsKey("salesVolume")) item.setSalesVolume(((Double) data.get("salesVolume")).intValue());
-        if (data.containsKey("description")) item.setDescription((String) data.get("description"));
-        if (data.containsKey("category")) item.setCategory((String) data.get("category"));
-        if (data.containsKey("barcode")) item.setBarcode((String) data.get("barcode"));
-
-        return item;
-    }
-
     // 添加到 ClientHandler 或者单独写一个工具类
     private Book createBookFromMap(Map<String, Object> data) {
         Book book = new Book();
@@ -1444,297 +2233,33 @@ public class ClientHandler implements Runnable {
         return bookItem;
     }
 
-    // 用于表示一个时间段
-    private static class TimeRange {
-        LocalTime start;
-        LocalTime end;
-        TimeRange(LocalTime s, LocalTime e) { start = s; end = e; }
-    }
-
-    // 将 schedule JSON 解析为 Map<day, List<TimeRange>>，兼容单个或逗号分隔的多个时间段
-    private Map<String, List<TimeRange>> parseSchedule(String scheduleJson) {
-        Map<String, List<TimeRange>> map = new HashMap<>();
-        if (scheduleJson == null || scheduleJson.trim().isEmpty()) return map;
-        try {
-            java.lang.reflect.Type mapType = new com.google.gson.reflect.TypeToken<java.util.Map<String, String>>(){}.getType();
-            Map<String, String> raw = gson.fromJson(scheduleJson, mapType);
-            if (raw == null) return map;
-            for (Map.Entry<String, String> e : raw.entrySet()) {
-                String day = e.getKey();
-                String val = e.getValue();
-                if (val == null) continue;
-                // 支持逗号或分号分隔，允许空白符
-                String[] parts = val.split("[,;]\\s*");
-                List<TimeRange> ranges = new ArrayList<>();
-
-                // 节次与时间的映射（根据学校实际时间可调整）
-                String[] periodStart = new String[]{"", "08:00", "08:50", "9:50", "10:40", "11:30", "14:00", "14:50", "15:50", "16:40", "17:30", "19:00", "19:50", "20:40"};
-                String[] periodEnd = new String[]{"", "08:45", "09:35", "10:35", "11:25", "12:15", "14:45", "15:35", "16:35", "17:25", "18:15", "19:45", "20:35", "21:25"};
-
-                for (String p : parts) {
-                    // 规范化中文标点与空白
-                    String rawPart = p.replace('：', ':').replace('－', '-').replace('—', '-').replace('–', '-').trim();
-                    if (rawPart.isEmpty()) continue;
-
-                    // 如果包含 ':'，仍按时间区间解析（如 08:00-09:40）
-                    if (rawPart.contains(":")) {
-                        String[] se = rawPart.split("-");
-                        if (se.length != 2) continue;
-                        String startStr = se[0].trim();
-                        String endStr = se[1].trim();
-                        // 尝试多种时间格式解析（H:mm / HH:mm / H:mm:ss）
-                        java.time.LocalTime s = null, t = null;
-                        java.time.format.DateTimeFormatter[] fmts = new java.time.format.DateTimeFormatter[] {
-                                java.time.format.DateTimeFormatter.ofPattern("H:mm"),
-                                java.time.format.DateTimeFormatter.ofPattern("HH:mm"),
-                                java.time.format.DateTimeFormatter.ofPattern("H:mm:ss"),
-                                java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss")
-                        };
-                        for (java.time.format.DateTimeFormatter fmt : fmts) {
-                            if (s == null) {
-                                try { s = java.time.LocalTime.parse(startStr, fmt); } catch (Exception ignored) {}
-                            }
-                            if (t == null) {
-                                try { t = java.time.LocalTime.parse(endStr, fmt); } catch (Exception ignored) {}
-                            }
-                            if (s != null && t != null) break;
-                        }
-                        if (s != null && t != null) ranges.add(new TimeRange(s, t));
-                        continue;
-                    }
-
-                    // 识别节次格式，例如 "1-2节"、"1-2"、"3节" 或 "3"
-                    java.util.regex.Pattern rangePat = java.util.regex.Pattern.compile("^(\\d+)\\s*-\\s*(\\d+)\\s*节?$");
-                    java.util.regex.Matcher m = rangePat.matcher(rawPart);
-                    if (m.find()) {
-                        try {
-                            int a = Integer.parseInt(m.group(1));
-                            int b = Integer.parseInt(m.group(2));
-                            if (a < 1) a = 1;
-                            if (b < 1) b = 1;
-                            if (a >= periodStart.length) a = periodStart.length - 1;
-                            if (b >= periodEnd.length) b = periodEnd.length - 1;
-                            if (a > b) { int tmp = a; a = b; b = tmp; }
-                            String ss = periodStart[a];
-                            String ee = periodEnd[b];
-                            if (ss != null && ee != null && !ss.isEmpty() && !ee.isEmpty()) {
-                                ranges.add(new TimeRange(java.time.LocalTime.parse(ss), java.time.LocalTime.parse(ee)));
-                                continue;
-                            }
-                        } catch (Exception ignored) {}
-                    }
-                    java.util.regex.Pattern singlePat = java.util.regex.Pattern.compile("^(\\d+)\\s*节?$");
-                    m = singlePat.matcher(rawPart);
-                    if (m.find()) {
-                        try {
-                            int pnum = Integer.parseInt(m.group(1));
-                            if (pnum < 1) pnum = 1;
-                            if (pnum >= periodStart.length) pnum = periodStart.length - 1;
-                            String ss = periodStart[pnum];
-                            String ee = periodEnd[pnum];
-                            if (ss != null && ee != null && !ss.isEmpty() && !ee.isEmpty()) {
-                                ranges.add(new TimeRange(java.time.LocalTime.parse(ss), java.time.LocalTime.parse(ee)));
-                                continue;
-                            }
-                        } catch (Exception ignored) {}
-                    }
-
-                    // 若都无法识别，尝试原有的用 '-' 分割解析（兼容无冒号但有连字符的时间）
-                    String[] se = rawPart.split("-");
-                    if (se.length == 2) {
-                        String startStr = se[0].trim();
-                        String endStr = se[1].trim();
-                        java.time.LocalTime s = null, t = null;
-                        java.time.format.DateTimeFormatter[] fmts = new java.time.format.DateTimeFormatter[] {
-                                java.time.format.DateTimeFormatter.ofPattern("H:mm"),
-                                java.time.format.DateTimeFormatter.ofPattern("HH:mm"),
-                                java.time.format.DateTimeFormatter.ofPattern("H:mm:ss"),
-                                java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss")
-                        };
-                        for (java.time.format.DateTimeFormatter fmt : fmts) {
-                            if (s == null) {
-                                try { s = java.time.LocalTime.parse(startStr, fmt); } catch (Exception ignored) {}
-                            }
-                            if (t == null) {
-                                try { t = java.time.LocalTime.parse(endStr, fmt); } catch (Exception ignored) {}
-                            }
-                            if (s != null && t != null) break;
-                        }
-                        if (s != null && t != null) ranges.add(new TimeRange(s, t));
-                    }
-                }
-                if (!ranges.isEmpty()) map.put(day, ranges);
-            }
-        } catch (Exception ex) {
-            // ignore parse errors
-        }
-        return map;
-    }
-
-    // 检查两个 schedule 是否有冲突（同一周日有重叠时间段即视为冲突）
-    private boolean schedulesConflict(String s1, String s2) {
-        if (s1 == null || s2 == null) return false;
-        Map<String, List<TimeRange>> m1 = parseSchedule(s1);
-        Map<String, List<TimeRange>> m2 = parseSchedule(s2);
-        for (String day : m1.keySet()) {
-            if (!m2.containsKey(day)) continue;
-            List<TimeRange> r1 = m1.get(day);
-            List<TimeRange> r2 = m2.get(day);
-            for (TimeRange a : r1) for (TimeRange b : r2) {
-                if (a.start.isBefore(b.end) && b.start.isBefore(a.end)) return true;
-            }
+    /**
+     * 选课高峰模式下内存座位表的判定结果转为响应，提示与数据库路径一致
+     */
+    private static Response rushSelectionResponse(SeatEngine.Result result, String successMessage) {
+        switch (result) {
+            case OK:
+                return Response.success(successMessage);
+            case UNKNOWN_CLASS:
+                return Response.error("教学班不存在");
+            case UNKNOWN_STUDENT:
+                return Response.error("学生不存在");
+            case ALREADY_SELECTED:
+                return Response.error("您已经选过该课程");
+            case NOT_SELECTED:
+                return Response.error("您没有选过该课程");
+            case CONFLICT:
+                return Response.error("选课失败: 与已选课程时间冲突");
+            default:
+                return Response.error("教学班已满，无法选课");
         }
-        return false;
     }
 
-    // 将前端传来的 schedule 字符串规范化为合法的 JSON 字符串以写入数据库
-    // 返回规范化的 JSON（如: {"周三":"1-2节"} 或 {"周六":"1-2节,6-7节"}），失败返回 null
+    // 将前端传来的 schedule 规范化为写入数据库的 JSON（如: {"周三":"1-2节"} 或 {"周六":"1-2节,6-7节"}）
+    // 客户端可能直接传 Map/List，也可能传各种写法的字符串，统一交给 Schedule 解析；无法识别时返回 null
     private String normalizeScheduleForStorage(Object raw) {
         if (raw == null) return null;
-        // 已经是 Map 对象（客户端可能直接传了对象）
-        if (raw instanceof Map) {
-            try {
-                Map<?, ?> inMap = (Map<?, ?>) raw;
-                Map<String, String> out = new LinkedHashMap<>();
-                for (Map.Entry<?, ?> e : inMap.entrySet()) {
-                    if (e.getKey() == null) continue;
-                    String day = String.valueOf(e.getKey()).trim();
-                    if (day.isEmpty()) continue;
-                    Object v = e.getValue();
-                    if (v == null) continue;
-                    // 值可能是字符串，也可能是 List
-                    if (v instanceof java.util.List) {
-                        List<?> lst = (List<?>) v;
-                        List<String> parts = new ArrayList<>();
-                        for (Object it : lst) {
-                            if (it == null) continue;
-                            String s = String.valueOf(it).trim();
-                            if (!s.isEmpty() && !parts.contains(s)) parts.add(s);
-                        }
-                        if (!parts.isEmpty()) out.put(day, String.join(",", parts));
-                    } else {
-                        String s = String.valueOf(v).trim();
-                        if (!s.isEmpty()) out.put(day, s);
-                    }
-                }
-                if (out.isEmpty()) return null;
-                return gson.toJson(out);
-            } catch (Exception e) {
-                return null;
-            }
-        }
-
-        String s = String.valueOf(raw).trim();
-        // 替换常见中文全角标点
-        s = s.replace('：', ':')
-             .replace('，', ',')
-             .replace('；', ';')
-             .replace('（', '(').replace('）', ')')
-             .replace('“', '"').replace('”', '"')
-             .replace('‘', '\'').replace('’', '\'');
-
-        // 如果字符串里的对象使用了未加引号的 key（例如 {周六: "1-2节"}），为其添加引号，方便 Gson 解析
-        try {
-            if (s.startsWith("{") && s.contains(":")) {
-                // 使用 Pattern/Matcher 代替复杂的字符串字面量正则，避免转义错误
-                java.util.regex.Pattern keyPattern = java.util.regex.Pattern.compile("(\\{|,)\\s*([^\"'\\[\\]{}\\.,:]+?)\\s*:");
-                java.util.regex.Matcher keyMatcher = keyPattern.matcher(s);
-                s = keyMatcher.replaceAll("$1\"$2\":");
-            }
-        } catch (Exception ex) {
-            // 忽略替换失败，后续 Gson 解析会处理或返回 null
-        }
-
-        // 先尝试解析为 JsonElement，支持对象或数组
-        try {
-            com.google.gson.JsonElement je = gson.fromJson(s, com.google.gson.JsonElement.class);
-            if (je == null) return null;
-            Map<String, List<String>> tmp = new LinkedHashMap<>();
-            if (je.isJsonObject()) {
-                com.google.gson.JsonObject jo = je.getAsJsonObject();
-                for (Map.Entry<String, com.google.gson.JsonElement> entry : jo.entrySet()) {
-                    String day = entry.getKey().trim();
-                    com.google.gson.JsonElement val = entry.getValue();
-                    if (val == null || day.isEmpty()) continue;
-                    if (val.isJsonArray()) {
-                        // 值为数组，逐项加入
-                        for (com.google.gson.JsonElement item : val.getAsJsonArray()) {
-                            String t = item.isJsonNull() ? "" : item.getAsString().trim();
-                            if (!t.isEmpty()) {
-                                tmp.computeIfAbsent(day, k -> new ArrayList<>());
-                                if (!tmp.get(day).contains(t)) tmp.get(day).add(t);
-                            }
-                        }
-                    } else if (val.isJsonPrimitive()) {
-                        String t = val.getAsString().trim();
-                        if (!t.isEmpty()) {
-                            tmp.computeIfAbsent(day, k -> new ArrayList<>());
-                            if (!tmp.get(day).contains(t)) tmp.get(day).add(t);
-                        }
-                    } else if (val.isJsonObject()) {
-                        // 如果值是对象，尝试拿 time 字段
-                        com.google.gson.JsonObject vobj = val.getAsJsonObject();
-                        if (vobj.has("time")) {
-                            String t = vobj.get("time").getAsString().trim();
-                            if (!t.isEmpty()) {
-                                tmp.computeIfAbsent(day, k -> new ArrayList<>());
-                                if (!tmp.get(day).contains(t)) tmp.get(day).add(t);
-                            }
-                        }
-                    }
-                }
-            } else if (je.isJsonArray()) {
-                // 支持数组形式: [{"day":"周六","time":"1-2节"}, ...]
-                for (com.google.gson.JsonElement el : je.getAsJsonArray()) {
-                    if (!el.isJsonObject()) continue;
-                    com.google.gson.JsonObject obj = el.getAsJsonObject();
-                    String day = null;
-                    String time = null;
-                    if (obj.has("day")) day = obj.get("day").getAsString().trim();
-                    if (obj.has("time")) time = obj.get("time").getAsString().trim();
-                    // 兼容早期可能使用 fields 名称不同
-                    if ((day == null || day.isEmpty()) && obj.has("d")) day = obj.get("d").getAsString().trim();
-                    if ((time == null || time.isEmpty()) && obj.has("t")) time = obj.get("t").getAsString().trim();
-                    if (day == null || day.isEmpty() || time == null || time.isEmpty()) continue;
-                    tmp.computeIfAbsent(day, k -> new ArrayList<>());
-                    if (!tmp.get(day).contains(time)) tmp.get(day).add(time);
-                }
-            } else {
-                // 既不是对象也不是数组，尝试解析为 Map<String,String>
-                try {
-                    java.lang.reflect.Type mapType = new com.google.gson.reflect.TypeToken<java.util.Map<String, String>>(){}.getType();
-                    Map<String, String> m = gson.fromJson(s, mapType);
-                    if (m != null) {
-                        for (Map.Entry<String, String> e : m.entrySet()) {
-                            if (e.getKey() == null) continue;
-                            String day = e.getKey().trim();
-                            String t = e.getValue() == null ? "" : e.getValue().trim();
-                            if (!day.isEmpty() && !t.isEmpty()) {
-                                tmp.computeIfAbsent(day, k -> new ArrayList<>());
-                                if (!tmp.get(day).contains(t)) tmp.get(day).add(t);
-                            }
-                        }
-                    }
-                } catch (Exception ex) {
-                    // 继续到失败处理
-                }
-            }
-
-            if (tmp.isEmpty()) return null;
-            // 把 List<String> 转为逗号连接的单个字符串（后端数据库当前只保存字符串）
-            Map<String, String> out = new LinkedHashMap<>();
-            for (Map.Entry<String, List<String>> en : tmp.entrySet()) {
-                List<String> vals = en.getValue();
-                // 保持原始顺序，且去重
-                List<String> clean = new ArrayList<>();
-                for (String it : vals) if (it != null && !it.trim().isEmpty() && !clean.contains(it.trim())) clean.add(it.trim());
-                if (!clean.isEmpty()) out.put(en.getKey(), String.join(",", clean));
-            }
-            if (out.isEmpty()) return null;
-            return gson.toJson(out);
-        } catch (Exception e) {
-            System.err.println("normalizeScheduleForStorage 解析失败: " + e.getMessage());
-            return null;
-        }
+        String s = raw instanceof String ? (String) raw : gson.toJson(raw);
+        return Schedule.parse(s).toJson();
     }
 }
@@ -1,6 +1,15 @@
 package Server;
 
+import Server.net.ConnectionRejecter;
+import Server.net.NioServer;
+import Server.service.course.SeatEngine;
+import Server.service.course.TeachingClassService;
+import Server.stats.ServerStats;
+import Server.util.AdmissionControl;
+import Server.util.ServerConfig;
+
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.concurrent.ExecutorService;
@@ -9,18 +18,39 @@ import java.util.concurrent.Executors;
 /**
  * 服务器主类
  * 负责启动服务器并监听客户端连接
+ * 运行模式由启动参数或配置项 server.mode 指定：
+ * - blocking（默认）：每个连接一个平台线程，阻塞读写
+ * - virtual：每个连接一个虚拟线程（Java 21+），仍为阻塞模型
+ * - nio：少量 selector 线程解码帧，有界线程池执行业务
  */
 public class Server {
     private static final int PORT = 8888;
-    private static final ExecutorService threadPool = Executors.newCachedThreadPool();
 
     public static void main(String[] args) {
+        ServerStats.startPeriodicDump();
+        new TeachingClassService().rebuildSlotsIfEmpty();
+        SeatEngine.start();
+        String mode = args.length > 0 ? args[0] : ServerConfig.get("server.mode", "blocking");
+        if ("nio".equalsIgnoreCase(mode)) {
+            startNio();
+            return;
+        }
+
+        ExecutorService threadPool = "virtual".equalsIgnoreCase(mode)
+                ? createVirtualThreadExecutor()
+                : Executors.newCachedThreadPool();
+
         try (ServerSocket serverSocket = new ServerSocket(PORT)) {
-            System.out.println("智慧校园服务器启动，监听端口: " + PORT);
+            System.out.println("智慧校园服务器启动，监听端口: " + PORT + "，模式: " + mode);
 
             // 循环接受客户端连接
             while (true) {
                 Socket clientSocket = serverSocket.accept();
+                // 超出全局连接上限时立即回复拒绝并关闭，不占用处理线程
+                if (!AdmissionControl.tryAcquireConnection()) {
+                    ConnectionRejecter.reject(clientSocket);
+                    continue;
+                }
                 // 为每个客户端连接创建一个新的ClientHandler，并提交到线程池执行
                 threadPool.execute(new ClientHandler(clientSocket));
             }
@@ -30,4 +60,33 @@ public class Server {
             threadPool.shutdown();
         }
     }
+
+    /**
+     * 为每个连接创建一个虚拟线程的执行器（需 Java 21+）
+     * 项目按 Java 17 编译，因此通过反射获取；低版本 JVM 上退回平台线程池。
+     * MyBatis 连接池（3.5.11+）与 mysql-connector-j（8.1+）内部均使用 ReentrantLock 而非 synchronized，
+     * 服务层中阻塞的 JDBC 调用不会钉住载体线程（可用 -Djdk.tracePinnedThreads=short 排查）。
+     */
+    static ExecutorService createVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("当前 JVM 不支持虚拟线程（需 Java 21+），退回平台线程池");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static void startNio() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        NioServer nioServer = new NioServer(PORT,
+                ServerConfig.getInt("server.nio.selectorThreads", Math.max(1, cpus / 2)),
+                ServerConfig.getInt("server.nio.workerThreads", cpus * 8),
+                ServerConfig.getInt("server.nio.workerQueue", 1024));
+        try {
+            nioServer.start();
+        } catch (IOException e) {
+            System.err.println("服务器启动失败: " + e.getMessage());
+        }
+    }
 }
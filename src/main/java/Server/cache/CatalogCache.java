@@ -0,0 +1,204 @@
+package Server.cache;
+
+import Server.codec.RawJson;
+import Server.util.DatabaseUtil;
+import Server.util.ServerConfig;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 课程、教学班、商品等目录类查询的读穿透缓存
+ * 缓存的是序列化好的 JSON（{@link RawJson}），命中时响应直接嵌入该片段，既不查库也不经过 Gson 反射。
+ * 按区域（Region）维护版本号：服务层写操作成功后调用 {@link #invalidate(Region)} 使该区域版本号加一，
+ * 旧版本的条目随即失效（惰性清除）；加载前先读取版本号、写入时带上该版本号，
+ * 因此加载期间发生的写操作不会让旧数据被当作新数据返回。
+ * 条目按最近最少使用淘汰，同时受条目数与总字符数限制。
+ * 版本号同时作为条件获取的 ETag（见 {@link #version(Region)}），前缀为本次启动的纪元，服务重启后旧版本号全部失效。
+ * 同一版本下同一查询键的并发未命中经 {@link SingleFlight} 合并：只执行一次查询与序列化，其余请求共享结果，
+ * 避免写操作使区域失效后大量并发请求同时查库。
+ */
+public final class CatalogCache {
+    /**
+     * 缓存区域：同一区域的数据由同一组写操作修改
+     */
+    public enum Region {
+        COURSES,
+        TEACHING_CLASSES,
+        STORE_ITEMS,
+        LOST_CARDS
+    }
+
+    /**
+     * 缓存结果及其版本号
+     */
+    public static final class Versioned {
+        private final RawJson json;
+        private final String version;
+
+        Versioned(RawJson json, String version) {
+            this.json = json;
+            this.version = version;
+        }
+
+        public RawJson json() {
+            return json;
+        }
+
+        public String version() {
+            return version;
+        }
+    }
+
+    private static final boolean ENABLED = ServerConfig.getBoolean("server.cache.enabled", true);
+    private static final int MAX_ENTRIES = ServerConfig.getInt("server.cache.maxEntries", 256);
+    private static final long MAX_CHARS = ServerConfig.getInt("server.cache.maxKiloChars", 64 * 1024) * 1024L;
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+    private static final AtomicLongArray GENERATIONS = new AtomicLongArray(Region.values().length);
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    // 以下两个字段由 LOCK 保护
+    private static final LinkedHashMap<Key, Entry> ENTRIES = new LinkedHashMap<>(64, 0.75f, true);
+    private static long totalChars;
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    // 键为 区域|版本|查询键：区域失效后到达的请求不会共享失效前开始的加载
+    private static final SingleFlight<String, Versioned> FLIGHTS = new SingleFlight<>();
+
+    private CatalogCache() {}
+
+    /**
+     * 读取缓存，未命中或已失效时调用 loader 查询并缓存序列化结果；同一查询键的并发未命中只调用一次 loader
+     * @param region 数据所属区域
+     * @param key 区域内的查询键，如 "all"、"school:计算机学院"
+     * @param loader 查询数据库；返回 null（查询失败）时不缓存，共享该次加载的请求同样得到 null
+     * @param serializer 序列化方式，需与响应所用 Gson 一致
+     * @return 可直接作为响应数据的 JSON 片段及其版本号；查询失败时返回 null
+     */
+    public static Versioned get(Region region, String key, Supplier<?> loader, Function<Object, String> serializer) {
+        Key cacheKey = new Key(region, key);
+        long generation = GENERATIONS.get(region.ordinal());
+        if (ENABLED) {
+            LOCK.lock();
+            try {
+                Entry entry = ENTRIES.get(cacheKey);
+                if (entry != null && entry.generation == generation) {
+                    HITS.increment();
+                    return new Versioned(entry.json, versionOf(generation));
+                }
+            } finally {
+                LOCK.unlock();
+            }
+        }
+        MISSES.increment();
+
+        return FLIGHTS.load(region.name() + "|" + generation + "|" + key, () -> {
+            Object value = loader.get();
+            if (value == null) {
+                return null;
+            }
+            RawJson json = new RawJson(serializer.apply(value));
+            if (ENABLED && json.length() <= MAX_CHARS / 4) {
+                put(cacheKey, new Entry(generation, json));
+            }
+            // 即使加载期间区域被修改，结果也不早于该版本，客户端凭此版本号再次请求时会拿到新数据
+            return new Versioned(json, versionOf(generation));
+        });
+    }
+
+    /**
+     * 区域当前的版本号
+     */
+    public static String version(Region region) {
+        return versionOf(GENERATIONS.get(region.ordinal()));
+    }
+
+    private static String versionOf(long generation) {
+        return EPOCH + "-" + generation;
+    }
+
+    /**
+     * 使某区域的全部缓存失效，应在写操作提交成功后调用；处于工作单元中时推迟到事务提交之后
+     */
+    public static void invalidate(Region region) {
+        DatabaseUtil.afterCommit(() -> GENERATIONS.incrementAndGet(region.ordinal()));
+    }
+
+    /**
+     * 命中统计，供 serverStats 查看
+     */
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", HITS.sum());
+        stats.put("misses", MISSES.sum());
+        stats.put("coalesced", FLIGHTS.sharedCount());
+        LOCK.lock();
+        try {
+            stats.put("entries", ENTRIES.size());
+            stats.put("chars", totalChars);
+        } finally {
+            LOCK.unlock();
+        }
+        return stats;
+    }
+
+    private static void put(Key key, Entry entry) {
+        LOCK.lock();
+        try {
+            // 加载期间区域已被写操作修改，结果可能是旧数据，不缓存
+            if (entry.generation != GENERATIONS.get(key.region.ordinal())) return;
+            Entry previous = ENTRIES.put(key, entry);
+            if (previous != null) totalChars -= previous.json.length();
+            totalChars += entry.json.length();
+
+            Iterator<Entry> it = ENTRIES.values().iterator();
+            while ((ENTRIES.size() > MAX_ENTRIES || totalChars > MAX_CHARS) && it.hasNext()) {
+                totalChars -= it.next().json.length();
+                it.remove();
+            }
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    private static final class Entry {
+        final long generation;
+        final RawJson json;
+
+        Entry(long generation, RawJson json) {
+            this.generation = generation;
+            this.json = json;
+        }
+    }
+
+    private static final class Key {
+        final Region region;
+        final String key;
+
+        Key(Region region, String key) {
+            this.region = region;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return region == other.region && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * region.hashCode() + Objects.hashCode(key);
+        }
+    }
+}
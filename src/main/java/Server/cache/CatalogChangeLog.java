@@ -0,0 +1,164 @@
+package Server.cache;
+
+import Server.util.DatabaseUtil;
+import Server.util.ServerConfig;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 课程目录变更日志，供 getCatalogChanges 增量同步使用
+ * 课程、教学班的增删改以及选课人数变化在写操作成功后各记一条（只记主键，不记内容），按序号递增；
+ * 客户端带回上次拿到的游标，服务端只返回其后变化过的课程、教学班和选课人数。
+ * 日志是定长环形缓冲区，只保留最近 server.changeLog.capacity 条；游标过旧、来自上次启动（纪元不同）
+ * 或变化条目过多时 {@link #since(String)} 返回 null，客户端应整表重新加载。
+ */
+public final class CatalogChangeLog {
+    /**
+     * 变更类别
+     */
+    public enum Kind {
+        COURSE,
+        TEACHING_CLASS,
+        // 仅选课人数变化
+        SEATS
+    }
+
+    private static final int CAPACITY = Math.max(16, ServerConfig.getInt("server.changeLog.capacity", 65536));
+    private static final int MAX_DELTA = ServerConfig.getInt("server.changeLog.maxDelta", 512);
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    // 以下两个数组按 seq % CAPACITY 存放，由 LOCK 保护
+    private static final Kind[] KINDS = new Kind[CAPACITY];
+    private static final String[] KEYS = new String[CAPACITY];
+    private static volatile long lastSeq;
+
+    private CatalogChangeLog() {}
+
+    /**
+     * 一段增量：游标之后变化过的主键（同一主键只出现一次）
+     */
+    public static final class Delta {
+        private final String cursor;
+        private final Set<String> courseIds;
+        private final Set<String> teachingClassUuids;
+        private final Set<String> seatUuids;
+
+        Delta(String cursor, Set<String> courseIds, Set<String> teachingClassUuids, Set<String> seatUuids) {
+            this.cursor = cursor;
+            this.courseIds = courseIds;
+            this.teachingClassUuids = teachingClassUuids;
+            this.seatUuids = seatUuids;
+        }
+
+        /**
+         * 本段增量截止处的游标，客户端下次请求时带回
+         */
+        public String cursor() {
+            return cursor;
+        }
+
+        public Set<String> courseIds() {
+            return courseIds;
+        }
+
+        /**
+         * 新增、修改或删除过的教学班
+         */
+        public Set<String> teachingClassUuids() {
+            return teachingClassUuids;
+        }
+
+        /**
+         * 只有选课人数变化的教学班（不与 {@link #teachingClassUuids()} 重复）
+         */
+        public Set<String> seatUuids() {
+            return seatUuids;
+        }
+    }
+
+    /**
+     * 记录一次变更，应在写操作成功后调用；处于工作单元中时推迟到事务提交之后
+     * @param key 课程编号或教学班 UUID
+     */
+    public static void record(Kind kind, String key) {
+        if (key == null) return;
+        DatabaseUtil.afterCommit(() -> append(kind, key));
+    }
+
+    private static void append(Kind kind, String key) {
+        LOCK.lock();
+        try {
+            long seq = lastSeq + 1;
+            int slot = (int) (seq % CAPACITY);
+            KINDS[slot] = kind;
+            KEYS[slot] = key;
+            lastSeq = seq;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    /**
+     * 当前游标；客户端整表加载前先取得，之后的变更都不会遗漏
+     */
+    public static String cursor() {
+        return cursorOf(lastSeq);
+    }
+
+    private static String cursorOf(long seq) {
+        return EPOCH + "-" + seq;
+    }
+
+    /**
+     * 取得游标之后的增量
+     * @param cursor 上次拿到的游标
+     * @return 增量；游标无效、已过期或变化过多时返回 null，表示需要整表重新加载
+     */
+    public static Delta since(String cursor) {
+        long from = parse(cursor);
+        if (from < 0) return null;
+        Set<String> courseIds = new LinkedHashSet<>();
+        Set<String> teachingClassUuids = new LinkedHashSet<>();
+        Set<String> seatUuids = new LinkedHashSet<>();
+        long to;
+        LOCK.lock();
+        try {
+            to = lastSeq;
+            if (from > to || to - from > CAPACITY) return null;
+            for (long seq = from + 1; seq <= to; seq++) {
+                int slot = (int) (seq % CAPACITY);
+                switch (KINDS[slot]) {
+                    case COURSE:
+                        courseIds.add(KEYS[slot]);
+                        break;
+                    case TEACHING_CLASS:
+                        teachingClassUuids.add(KEYS[slot]);
+                        break;
+                    default:
+                        seatUuids.add(KEYS[slot]);
+                        break;
+                }
+            }
+        } finally {
+            LOCK.unlock();
+        }
+        seatUuids.removeAll(teachingClassUuids);
+        if (courseIds.size() + teachingClassUuids.size() + seatUuids.size() > MAX_DELTA) return null;
+        return new Delta(cursorOf(to), courseIds, teachingClassUuids, seatUuids);
+    }
+
+    /**
+     * @return 游标中的序号；格式不对或来自上次启动时返回 -1
+     */
+    private static long parse(String cursor) {
+        if (cursor == null || !cursor.startsWith(EPOCH + "-")) return -1;
+        try {
+            return Long.parseLong(cursor.substring(EPOCH.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package Server.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 相同键的并发加载合并（singleflight）
+ * 某个键已有加载在进行时，后到的调用不再各自查库，而是等待并共享这一次加载的结果（或异常）；
+ * 加载结束即移除，本身不做缓存，之后的调用会重新加载。
+ * 用于选课开始时大量客户端在同一时刻请求同一份数据、缓存恰好失效的场景，数据库对每个键同一时刻只执行一次查询。
+ * @param <K> 键类型，需正确实现 equals/hashCode
+ * @param <V> 结果类型
+ */
+public final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * 加载键对应的值；同一键已有加载在进行时等待其结果
+     * @param loader 实际加载，只由第一个到达的调用执行
+     * @return 加载结果（可为 null）
+     */
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            shared.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw e;
+            }
+        }
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * 共享了他人加载结果、未自行加载的调用次数
+     */
+    public long sharedCount() {
+        return shared.sum();
+    }
+}
@@ -0,0 +1,46 @@
+package Server.codec;
+
+import Common.codec.BinaryJsonDecoder;
+import Common.codec.BinaryJsonWriter;
+import Common.codec.WireFormat;
+import Server.model.Request;
+import Server.model.Response;
+import Server.net.FrameBuffer;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+
+/**
+ * 紧凑二进制编解码
+ * 响应经 Gson 的类型适配器直接写成二进制：数值为 varint，字段名在帧内只出现一次，
+ * 对 TeachingClass、StoreItem、CardTransaction 等大列表响应体积与编码耗时均明显小于 JSON。
+ * 请求解码为 JsonElement 树后再绑定到 Request，数据中的数值与 JSON 编码下一样为 Double。
+ */
+public class BinaryCodec implements Codec {
+    private final Gson gson;
+
+    public BinaryCodec(Gson gson) {
+        this.gson = gson;
+    }
+
+    @Override
+    public String name() {
+        return WireFormat.CODEC_BINARY;
+    }
+
+    @Override
+    public int frameFlag() {
+        return WireFormat.BINARY_FLAG;
+    }
+
+    @Override
+    public Request decode(byte[] body, int offset, int length) {
+        return gson.fromJson(BinaryJsonDecoder.decode(body, offset, length), Request.class);
+    }
+
+    @Override
+    public void encode(Response response, FrameBuffer buffer) throws IOException {
+        BinaryJsonWriter writer = new BinaryJsonWriter(buffer);
+        gson.toJson(response, Response.class, writer);
+    }
+}
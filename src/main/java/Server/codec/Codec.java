@@ -0,0 +1,30 @@
+package Server.codec;
+
+import Server.model.Request;
+import Server.model.Response;
+import Server.net.FrameBuffer;
+
+import java.io.IOException;
+
+/**
+ * 请求/响应的线路编解码器
+ * 请求帧按长度前缀上的标记选择解码器；响应帧使用本连接经 hello 协商的编码器，默认 JSON。
+ */
+public interface Codec {
+    /**
+     * @return 协商时使用的编码名称
+     */
+    String name();
+
+    /**
+     * @return 写入长度前缀的帧标记
+     */
+    int frameFlag();
+
+    Request decode(byte[] body, int offset, int length);
+
+    /**
+     * 将响应写入帧缓冲（不含长度前缀，由调用方回填）
+     */
+    void encode(Response response, FrameBuffer buffer) throws IOException;
+}
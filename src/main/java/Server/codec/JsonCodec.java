@@ -0,0 +1,44 @@
+package Server.codec;
+
+import Common.codec.WireFormat;
+import Server.model.Request;
+import Server.model.Response;
+import Server.net.FrameBuffer;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 JSON 编解码（默认，兼容所有客户端）
+ */
+public class JsonCodec implements Codec {
+    private final Gson gson;
+
+    public JsonCodec(Gson gson) {
+        this.gson = gson;
+    }
+
+    @Override
+    public String name() {
+        return WireFormat.CODEC_JSON;
+    }
+
+    @Override
+    public int frameFlag() {
+        return 0;
+    }
+
+    @Override
+    public Request decode(byte[] body, int offset, int length) {
+        return gson.fromJson(new String(body, offset, length, StandardCharsets.UTF_8), Request.class);
+    }
+
+    @Override
+    public void encode(Response response, FrameBuffer buffer) throws IOException {
+        JsonWriter writer = gson.newJsonWriter(buffer.writer());
+        gson.toJson(response, Response.class, writer);
+        writer.flush();
+    }
+}
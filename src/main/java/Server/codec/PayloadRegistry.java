@@ -0,0 +1,50 @@
+package Server.codec;
+
+import Server.model.payload.CardNumberPayload;
+import Server.model.payload.CourseSelectionPayload;
+import Server.model.payload.OrderPayload;
+import Server.model.payload.OrderQueryPayload;
+import Server.model.payload.RechargePayload;
+import Server.model.payload.StoreItemPayload;
+import Server.model.payload.StudentPayload;
+import Server.model.payload.TransactionQueryPayload;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 请求类型到强类型请求数据类的注册表
+ * 已注册类型的 data 在解码时直接绑定为对应类（一次流式解析，不再生成 Map 与装箱 Double），
+ * 未注册类型仍按 Map&lt;String,Object&gt; 解码，与原有处理逻辑兼容。
+ * 仅注册字段固定的请求；按字段是否出现做部分更新的请求（如 updateCourse）需要 Map 语义，不宜注册。
+ */
+public final class PayloadRegistry {
+    private static final Map<String, Class<?>> TYPES = new HashMap<>();
+
+    static {
+        register(CardNumberPayload.class, "getSelf", "deleteStudent", "getStudentSelectedCourses",
+                "getConflictingTeachingClasses", "reportLoss", "getFinanceCard");
+        register(CourseSelectionPayload.class, "selectCourse", "dropCourse");
+        register(TransactionQueryPayload.class, "getTransactions");
+        register(OrderQueryPayload.class, "getUserOrders");
+        register(RechargePayload.class, "rechargeFinanceCard");
+        register(StudentPayload.class, "addStudent", "updateStudent");
+        register(StoreItemPayload.class, "addItem", "updateItem");
+        register(OrderPayload.class, "createOrder");
+    }
+
+    private PayloadRegistry() {}
+
+    private static void register(Class<?> payloadClass, String... requestTypes) {
+        for (String type : requestTypes) {
+            TYPES.put(type, payloadClass);
+        }
+    }
+
+    /**
+     * @return 请求类型对应的请求数据类，未注册时返回 null
+     */
+    public static Class<?> lookup(String requestType) {
+        return requestType == null ? null : TYPES.get(requestType);
+    }
+}
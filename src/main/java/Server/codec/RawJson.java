@@ -0,0 +1,50 @@
+package Server.codec;
+
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * 已序列化好的 JSON 片段
+ * 作为响应数据时原样嵌入输出（二进制编码下按 JSON 树写出），不再经过反射序列化，用于缓存热点响应。
+ */
+public final class RawJson {
+    private final String json;
+
+    public RawJson(String json) {
+        this.json = json;
+    }
+
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * 字符数，用于估算缓存占用
+     */
+    public int length() {
+        return json.length();
+    }
+
+    /**
+     * 需在服务端 Gson 上注册：registerTypeAdapter(RawJson.class, new RawJson.Adapter())
+     */
+    public static final class Adapter extends TypeAdapter<RawJson> {
+        @Override
+        public void write(JsonWriter out, RawJson value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                out.jsonValue(value.json);
+            }
+        }
+
+        @Override
+        public RawJson read(JsonReader in) {
+            return new RawJson(JsonParser.parseReader(in).toString());
+        }
+    }
+}
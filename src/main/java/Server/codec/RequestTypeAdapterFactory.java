@@ -0,0 +1,147 @@
+package Server.codec;
+
+import Server.model.Request;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Request 的流式解码
+ * 读到 data 时若已知 type 且在 {@link PayloadRegistry} 中注册，直接用对应类的适配器从流中读取；
+ * 客户端按字段声明顺序序列化（type 在 data 之前），因此通常一次遍历即可完成。
+ * 少数 data 出现在 type 之前的请求先读为 JsonElement，读完 type 后再绑定。
+ */
+public class RequestTypeAdapterFactory implements TypeAdapterFactory {
+    private static final TypeToken<Map<String, Object>> MAP_TYPE = new TypeToken<Map<String, Object>>() {};
+
+    /**
+     * 请求中的日期字段按客户端约定为毫秒时间戳
+     */
+    private static final TypeAdapter<Date> EPOCH_MILLIS_DATE = new TypeAdapter<Date>() {
+        @Override
+        public void write(JsonWriter out, Date value) throws IOException {
+            if (value == null) out.nullValue(); else out.value(value.getTime());
+        }
+
+        @Override
+        public Date read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return new Date((long) in.nextDouble());
+        }
+    };
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        if (type.getRawType() != Request.class) return null;
+        // 请求数据专用的 Gson：在服务端 Gson 的基础上按请求约定解析日期，不影响响应序列化
+        Gson payloadGson = gson.newBuilder().registerTypeAdapter(Date.class, EPOCH_MILLIS_DATE).create();
+        return (TypeAdapter<T>) new RequestAdapter(payloadGson, gson.getAdapter(MAP_TYPE));
+    }
+
+    private static final class RequestAdapter extends TypeAdapter<Request> {
+        private final Gson payloadGson;
+        private final TypeAdapter<Map<String, Object>> mapAdapter;
+
+        RequestAdapter(Gson payloadGson, TypeAdapter<Map<String, Object>> mapAdapter) {
+            this.payloadGson = payloadGson;
+            this.mapAdapter = mapAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter out, Request request) throws IOException {
+            if (request == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("requestId");
+            if (request.getRequestId() == null) out.nullValue(); else out.value(request.getRequestId());
+            out.name("type").value(request.getType());
+            out.name("data");
+            if (request.getPayload() != null) {
+                payloadGson.toJson(request.getPayload(), request.getPayload().getClass(), out);
+            } else {
+                mapAdapter.write(out, request.getData());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Request read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Request request = new Request();
+            JsonElement deferredData = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "requestId":
+                        request.setRequestId(in.nextLong());
+                        break;
+                    case "type":
+                        request.setType(in.nextString());
+                        break;
+                    case "data":
+                        if (request.getType() != null) {
+                            readData(in, request);
+                        } else {
+                            deferredData = JsonParser.parseReader(in);
+                        }
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+
+            Class<?> payloadClass = PayloadRegistry.lookup(request.getType());
+            if (deferredData != null) {
+                if (payloadClass != null) {
+                    request.setPayload(payloadGson.fromJson(deferredData, payloadClass));
+                } else {
+                    request.setData(mapAdapter.fromJsonTree(deferredData));
+                }
+            }
+            // 已注册类型缺少 data 时给出字段全空的实例，由业务逻辑按参数缺失处理
+            if (payloadClass != null && request.getPayload() == null) {
+                request.setPayload(payloadGson.fromJson("{}", payloadClass));
+            }
+            return request;
+        }
+
+        private void readData(JsonReader in, Request request) throws IOException {
+            Class<?> payloadClass = PayloadRegistry.lookup(request.getType());
+            if (payloadClass == null) {
+                request.setData(mapAdapter.read(in));
+                return;
+            }
+            Object payload = payloadGson.getAdapter(payloadClass).read(in);
+            if (payload == null) {
+                throw new JsonParseException("请求数据格式错误: " + request.getType());
+            }
+            request.setPayload(payload);
+        }
+    }
+}
@@ -23,6 +23,17 @@ public interface BookMapper {
     @Select("SELECT * FROM book WHERE category = #{category} AND (name LIKE CONCAT('%', #{keyword}, '%') OR author LIKE CONCAT('%', #{keyword}, '%') OR description LIKE CONCAT('%', #{keyword}, '%') OR isbn = #{keyword})")
     List<Book> findBookByCategory(@Param("keyword") String keyword, @Param("category") Category category);
 
+    // 分页搜索书籍（键集分页，按 ISBN 升序）；category 为空表示不限类别，afterIsbn 为空表示第一页
+    @Select("<script>" +
+            "SELECT * FROM book WHERE (name LIKE CONCAT('%', #{keyword}, '%') OR author LIKE CONCAT('%', #{keyword}, '%') " +
+            "OR description LIKE CONCAT('%', #{keyword}, '%') OR isbn = #{keyword})" +
+            "<if test='category != null'> AND category = #{category}</if>" +
+            "<if test='afterIsbn != null'> AND isbn &gt; #{afterIsbn}</if>" +
+            " ORDER BY isbn LIMIT #{limit}" +
+            "</script>")
+    List<Book> findBookPage(@Param("keyword") String keyword, @Param("category") Category category,
+                            @Param("afterIsbn") String afterIsbn, @Param("limit") int limit);
+
 //    @Select("SELECT * FROM book WHERE author LIKE CONCAT('%', #{author}, '%')")
 //    List<Book> findByAuthor(@Param("author") String author);
 //
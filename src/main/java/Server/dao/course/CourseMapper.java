@@ -36,5 +36,11 @@ public interface CourseMapper {
     // 获取所有课程
     @Select("SELECT * FROM courses")
     List<Course> findAllCourses();
-    
+
+    // 按课程编号批量查询课程（增量同步用）
+    @Select("<script>" +
+            "SELECT * FROM courses WHERE course_id IN " +
+            "<foreach collection='courseIds' item='courseId' open='(' separator=',' close=')'>#{courseId}</foreach>" +
+            "</script>")
+    List<Course> findByCourseIds(@Param("courseIds") List<String> courseIds);
 }
@@ -2,6 +2,8 @@ package Server.dao.course;
 
 import Server.model.course.StudentTeachingClass;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 import java.util.List;
 
@@ -36,4 +38,9 @@ public interface StudentTeachingClassMapper {
     // 统计学生的选课数量
     @Select("SELECT COUNT(*) FROM student_teaching_class WHERE student_card_number = #{studentCardNumber}")
     int countByStudentCardNumber(@Param("studentCardNumber") Integer studentCardNumber);
+
+    // 以数据库游标逐行读取全部选课关系，用于选课高峰模式启动时加载内存座位表
+    @Select("SELECT student_card_number, teaching_class_uuid FROM student_teaching_class")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<StudentTeachingClass> streamAll();
 }
@@ -57,8 +57,30 @@ public interface TeachingClassMapper {
     // 获取所有教学班
     @Select("SELECT * FROM teaching_classes")
     List<TeachingClass> findAllTeachingClasses();
+
+    // 分页获取教学班（键集分页，按 uuid 升序；afterUuid 为空表示第一页）
+    @Select("<script>" +
+            "SELECT * FROM teaching_classes" +
+            "<if test='afterUuid != null'> WHERE uuid &gt; #{afterUuid}</if>" +
+            " ORDER BY uuid LIMIT #{limit}" +
+            "</script>")
+    List<TeachingClass> findTeachingClassesPage(@Param("afterUuid") String afterUuid, @Param("limit") int limit);
     
     
+    // 按 UUID 批量查询教学班（增量同步用）
+    @Select("<script>" +
+            "SELECT * FROM teaching_classes WHERE uuid IN " +
+            "<foreach collection='uuids' item='uuid' open='(' separator=',' close=')'>#{uuid}</foreach>" +
+            "</script>")
+    List<TeachingClass> findByUuids(@Param("uuids") List<String> uuids);
+
+    // 按 UUID 批量查询选课人数与容量（实时人数，不经目录缓存）
+    @Select("<script>" +
+            "SELECT uuid, capacity, selected_count FROM teaching_classes WHERE uuid IN " +
+            "<foreach collection='uuids' item='uuid' open='(' separator=',' close=')'>#{uuid}</foreach>" +
+            "</script>")
+    List<TeachingClass> findSeatsByUuids(@Param("uuids") List<String> uuids);
+
     // 增加教学班选课人数
     @Update("UPDATE teaching_classes SET selected_count = selected_count + 1 WHERE uuid = #{uuid} AND selected_count < capacity")
     int incrementSelectedCount(@Param("uuid") String uuid);
@@ -66,4 +88,12 @@ public interface TeachingClassMapper {
     // 减少教学班选课人数
     @Update("UPDATE teaching_classes SET selected_count = selected_count - 1 WHERE uuid = #{uuid} AND selected_count > 0")
     int decrementSelectedCount(@Param("uuid") String uuid);
+
+    // 按增量调整选课人数（选课高峰模式批量写回，容量由内存座位表保证）
+    @Update("UPDATE teaching_classes SET selected_count = selected_count + #{delta} WHERE uuid = #{uuid}")
+    int addSelectedCount(@Param("uuid") String uuid, @Param("delta") int delta);
+
+    // 直接设置选课人数（选课高峰模式启动时按实际选课关系校正）
+    @Update("UPDATE teaching_classes SET selected_count = #{selectedCount} WHERE uuid = #{uuid}")
+    int setSelectedCount(@Param("uuid") String uuid, @Param("selectedCount") int selectedCount);
 }
@@ -0,0 +1,86 @@
+package Server.dao.course;
+
+import Server.model.course.TeachingClass;
+import Server.model.course.TeachingClassSlot;
+import org.apache.ibatis.annotations.*;
+
+import java.util.List;
+
+/**
+ * teaching_class_slot：按 (星期, 起始节, 结束节) 展开的教学班上课时间，随教学班增删改由 TeachingClassService 维护。
+ * 两段时间 [s1, e1]、[s2, e2] 在同一天重叠当且仅当 s1 &lt;= e2 AND s2 &lt;= e1。
+ */
+public interface TeachingClassSlotMapper {
+    // 批量插入一个或多个教学班的上课时间
+    @Insert("<script>" +
+            "INSERT INTO teaching_class_slot (teaching_class_uuid, weekday, start_period, end_period, place) VALUES " +
+            "<foreach collection='slots' item='s' separator=','>" +
+            "(#{s.teachingClassUuid}, #{s.weekday}, #{s.startPeriod}, #{s.endPeriod}, #{s.place})" +
+            "</foreach>" +
+            "</script>")
+    int insertSlots(@Param("slots") List<TeachingClassSlot> slots);
+
+    // 删除教学班的全部上课时间
+    @Delete("DELETE FROM teaching_class_slot WHERE teaching_class_uuid = #{teachingClassUuid}")
+    int deleteByTeachingClassUuid(@Param("teachingClassUuid") String teachingClassUuid);
+
+    // 清空全部上课时间（整表重建用）
+    @Delete("DELETE FROM teaching_class_slot")
+    int deleteAll();
+
+    @Select("SELECT COUNT(*) FROM teaching_class_slot")
+    int countAll();
+
+    // 查询教学班的上课时间
+    @Select("SELECT * FROM teaching_class_slot WHERE teaching_class_uuid = #{teachingClassUuid} ORDER BY weekday, start_period")
+    List<TeachingClassSlot> findByTeachingClassUuid(@Param("teachingClassUuid") String teachingClassUuid);
+
+    // 某天第 startPeriod ~ endPeriod 节有课的教学班（走 idx_slot_time）
+    @Select("SELECT * FROM teaching_classes WHERE uuid IN (" +
+            "SELECT teaching_class_uuid FROM teaching_class_slot " +
+            "WHERE weekday = #{weekday} AND start_period <= #{endPeriod} AND end_period >= #{startPeriod})")
+    @Results({
+        @Result(property = "teacherName", column = "teacher_name")
+    })
+    List<TeachingClass> findTeachingClassesAt(@Param("weekday") int weekday,
+                                              @Param("startPeriod") int startPeriod,
+                                              @Param("endPeriod") int endPeriod);
+
+    // 与给定上课时间中任一段重叠的教学班 UUID（去重）
+    @Select("<script>" +
+            "SELECT DISTINCT teaching_class_uuid FROM teaching_class_slot WHERE " +
+            "<foreach collection='slots' item='s' separator=' OR '>" +
+            "(weekday = #{s.weekday} AND start_period &lt;= #{s.endPeriod} AND end_period &gt;= #{s.startPeriod})" +
+            "</foreach>" +
+            "</script>")
+    List<String> findUuidsOverlapping(@Param("slots") List<TeachingClassSlot> slots);
+
+    // 教室在某天第 startPeriod ~ endPeriod 节已有的上课时间（走 idx_slot_place），用于排课时检查教室占用
+    @Select("SELECT * FROM teaching_class_slot " +
+            "WHERE place = #{place} AND weekday = #{weekday} AND start_period <= #{endPeriod} AND end_period >= #{startPeriod}")
+    List<TeachingClassSlot> findByPlaceOverlapping(@Param("place") String place,
+                                                   @Param("weekday") int weekday,
+                                                   @Param("startPeriod") int startPeriod,
+                                                   @Param("endPeriod") int endPeriod);
+
+    // 教师一周的全部上课时间
+    @Select("SELECT s.* FROM teaching_class_slot s JOIN teaching_classes tc ON tc.uuid = s.teaching_class_uuid " +
+            "WHERE tc.teacher_name = #{teacherName} ORDER BY s.weekday, s.start_period")
+    List<TeachingClassSlot> findByTeacherName(@Param("teacherName") String teacherName);
+
+    // 教师一周的总课时（节数）
+    @Select("SELECT COALESCE(SUM(s.end_period - s.start_period + 1), 0) FROM teaching_class_slot s " +
+            "JOIN teaching_classes tc ON tc.uuid = s.teaching_class_uuid WHERE tc.teacher_name = #{teacherName}")
+    int sumPeriodsByTeacherName(@Param("teacherName") String teacherName);
+
+    // 教室和/或教师已占用的上课时间（两者都给出时取并集），用于计算空闲节次
+    @Select("<script>" +
+            "SELECT s.* FROM teaching_class_slot s JOIN teaching_classes tc ON tc.uuid = s.teaching_class_uuid WHERE " +
+            "<choose>" +
+            "<when test='place != null and teacherName != null'>s.place = #{place} OR tc.teacher_name = #{teacherName}</when>" +
+            "<when test='place != null'>s.place = #{place}</when>" +
+            "<otherwise>tc.teacher_name = #{teacherName}</otherwise>" +
+            "</choose>" +
+            "</script>")
+    List<TeachingClassSlot> findOccupied(@Param("place") String place, @Param("teacherName") String teacherName);
+}
@@ -3,7 +3,10 @@ package Server.dao.shop;
 import Server.model.shop.CardTransaction;
 import Server.model.shop.FinanceCard;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -74,6 +77,39 @@ public interface FinanceMapper {
     @Select("SELECT * FROM card_transaction WHERE card_number = #{cardNumber} AND type = #{type} ORDER BY time DESC")
     List<CardTransaction> findTransactionsByType(@Param("cardNumber") Integer cardNumber, @Param("type") String type);
 
+    /**
+     * 分页查询用户的交易记录（键集分页，按 time、uuid 倒序）
+     * type 为空表示全部类型；afterTime 为空表示第一页，否则从上一页最后一条 (afterTime, afterUuid) 之后开始
+     */
+    @Select("<script>" +
+            "SELECT * FROM card_transaction WHERE card_number = #{cardNumber}" +
+            "<if test='type != null'> AND type = #{type}</if>" +
+            "<if test='afterTime != null'> AND (time &lt; #{afterTime} OR (time = #{afterTime} AND uuid &lt; #{afterUuid}))</if>" +
+            " ORDER BY time DESC, uuid DESC LIMIT #{limit}" +
+            "</script>")
+    List<CardTransaction> findTransactionsPage(@Param("cardNumber") Integer cardNumber, @Param("type") String type,
+                                               @Param("afterTime") LocalDateTime afterTime,
+                                               @Param("afterUuid") String afterUuid, @Param("limit") int limit);
+
+    /**
+     * 以数据库游标逐行读取交易记录（按时间升序），用于流式导出
+     * fetchSize 为 Integer.MIN_VALUE 时 MySQL 驱动逐行流式读取结果集，不在内存中缓存整个结果；
+     * 读取期间该连接不能执行其他语句。各条件为空表示不限：from 含、to 不含
+     */
+    @Select("<script>" +
+            "SELECT * FROM card_transaction" +
+            "<where>" +
+            "<if test='cardNumber != null'>card_number = #{cardNumber}</if>" +
+            "<if test='type != null'> AND type = #{type}</if>" +
+            "<if test='from != null'> AND time &gt;= #{from}</if>" +
+            "<if test='to != null'> AND time &lt; #{to}</if>" +
+            "</where>" +
+            " ORDER BY time, uuid" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<CardTransaction> streamTransactions(@Param("cardNumber") Integer cardNumber, @Param("type") String type,
+                                               @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
     /**
      * 挂失一卡通信息DTO（包含用户姓名）
      */
@@ -4,7 +4,10 @@ import Server.model.shop.StoreItem;
 import Server.model.shop.StoreOrder;
 import Server.model.shop.StoreOrderItem;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,6 +23,16 @@ public interface StoreMapper {
     @Select("SELECT * FROM store_item")
     List<StoreItem> findAllItems();
 
+    /**
+     * 分页查询商品（键集分页，按 uuid 升序；afterUuid 为空表示第一页）
+     */
+    @Select("<script>" +
+            "SELECT * FROM store_item" +
+            "<if test='afterUuid != null'> WHERE uuid &gt; #{afterUuid}</if>" +
+            " ORDER BY uuid LIMIT #{limit}" +
+            "</script>")
+    List<StoreItem> findItemsPage(@Param("afterUuid") String afterUuid, @Param("limit") int limit);
+
     /**
      * 根据关键词搜索商品
      */
@@ -210,6 +223,39 @@ public interface StoreMapper {
     @Select("SELECT * FROM store_order ORDER BY time DESC")
     List<StoreOrder> findAllOrders();
 
+    /**
+     * 分页查询订单（键集分页，按 time、uuid 倒序）
+     * cardNumber 为空表示所有用户；afterTime 为空表示第一页，否则从上一页最后一条 (afterTime, afterUuid) 之后开始
+     */
+    @Select("<script>" +
+            "SELECT * FROM store_order" +
+            "<where>" +
+            "<if test='cardNumber != null'>card_number = #{cardNumber}</if>" +
+            "<if test='afterTime != null'> AND (time &lt; #{afterTime} OR (time = #{afterTime} AND uuid &lt; #{afterUuid}))</if>" +
+            "</where>" +
+            " ORDER BY time DESC, uuid DESC LIMIT #{limit}" +
+            "</script>")
+    List<StoreOrder> findOrdersPage(@Param("cardNumber") Integer cardNumber,
+                                    @Param("afterTime") LocalDateTime afterTime,
+                                    @Param("afterUuid") String afterUuid, @Param("limit") int limit);
+
+    /**
+     * 以数据库游标逐行读取订单（按时间升序），用于流式导出
+     * cardNumber 为空表示所有用户；from 含、to 不含，为空表示不限
+     */
+    @Select("<script>" +
+            "SELECT * FROM store_order" +
+            "<where>" +
+            "<if test='cardNumber != null'>card_number = #{cardNumber}</if>" +
+            "<if test='from != null'> AND time &gt;= #{from}</if>" +
+            "<if test='to != null'> AND time &lt; #{to}</if>" +
+            "</where>" +
+            " ORDER BY time, uuid" +
+            "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<StoreOrder> streamOrders(@Param("cardNumber") Integer cardNumber,
+                                    @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
     /**
      * 更新订单状态和备注
      */
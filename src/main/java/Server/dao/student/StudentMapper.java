@@ -3,6 +3,8 @@ package Server.dao.student;
 import Server.model.student.SearchType;
 import Server.model.student.Student;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 import java.util.List;
 
@@ -27,6 +29,31 @@ public interface StudentMapper {
                                  @Param("searchValue") String searchValue,
                                  @Param("fuzzy") Boolean fuzzy);
 
+    // 分页搜索学生信息（键集分页，按一卡通号升序；afterCardNumber 为空表示第一页）
+    @Select("<script>" +
+            "SELECT * FROM student WHERE 1=1" +
+            "<if test='searchType.toString() == \"byName\"'>" +
+            "   <choose>" +
+            "       <when test='fuzzy == true'> AND name LIKE CONCAT('%', #{searchValue}, '%')</when>" +
+            "       <otherwise> AND name = #{searchValue}</otherwise>" +
+            "   </choose>" +
+            "</if>" +
+            "<if test='searchType.toString() == \"byStudentNumber\"'> AND student_number = #{searchValue}</if>" +
+            "<if test='searchType.toString() == \"byCardNumber\"'> AND card_number = #{searchValue}</if>" +
+            "<if test='afterCardNumber != null'> AND card_number &gt; #{afterCardNumber}</if>" +
+            " ORDER BY card_number LIMIT #{limit}" +
+            "</script>")
+    List<Student> searchStudentsPage(@Param("searchType") SearchType searchType,
+                                     @Param("searchValue") String searchValue,
+                                     @Param("fuzzy") Boolean fuzzy,
+                                     @Param("afterCardNumber") Integer afterCardNumber,
+                                     @Param("limit") int limit);
+
+    // 以数据库游标逐行读取全部学生（按一卡通号排序），用于流式导出
+    @Select("SELECT * FROM student ORDER BY card_number")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Student> streamStudents();
+
     // 插入新学生
     @Insert("INSERT INTO student (identity, card_number, student_number, major, school, " +
             "status, enrollment, birth, birth_place, political_stat, gender, name) " +
@@ -0,0 +1,261 @@
+package Server.log;
+
+import Server.codec.RequestTypeAdapterFactory;
+import Server.model.Request;
+import Server.model.Response;
+import Server.model.payload.CardHolder;
+import Server.util.ServerConfig;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步访问日志
+ * 业务线程只把请求类型、一卡通号、耗时、响应大小与状态码写入无锁环形缓冲，
+ * 由单独的日志线程格式化并批量写出，控制台 I/O 不再位于请求处理路径上。
+ * 缓冲写满时丢弃新条目并计数，不阻塞业务线程。请求内容按 server.log.payloadSampleEvery 采样输出（密码字段打码）。
+ * 日志线程没有待写条目时挂起，由发布条目的业务线程唤醒，空闲的服务端不占用 CPU；关闭时写出剩余条目。
+ */
+public final class AccessLog {
+    private static final boolean ENABLED = ServerConfig.getBoolean("server.log.access.enabled", true);
+    private static final int SAMPLE_EVERY = ServerConfig.getInt("server.log.payloadSampleEvery", 0);
+    private static final int PAYLOAD_MAX_CHARS = ServerConfig.getInt("server.log.payloadMaxChars", 2048);
+    // 日志线程空闲时最长挂起时间：发布新条目时立即唤醒，超时只为及时输出丢弃计数
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final LogRing RING = new LogRing(ServerConfig.getInt("server.log.ringSize", 8192));
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final Writer OUT = openWriter(ServerConfig.get("server.log.file", null));
+    private static final Thread WRITER = new Thread(AccessLog::drainLoop, "access-log");
+    // 日志线程已挂起或即将挂起，发布方需要唤醒它
+    private static volatile boolean writerIdle;
+
+    static {
+        WRITER.setDaemon(true);
+        WRITER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(AccessLog::drainNow, "access-log-flush"));
+    }
+
+    private AccessLog() {}
+
+    /**
+     * 记录一条访问日志（响应帧编码完成后调用）
+     * @param request 请求，可为 null（如无法对应到请求的繁忙应答）
+     * @param response 响应
+     * @param bodyBytes 编码后帧体字节数
+     * @param wireBytes 实际发送的帧体字节数（压缩后可能更小）
+     */
+    public static void access(Request request, Response response, int bodyBytes, int wireBytes) {
+        if (!ENABLED) return;
+        long now = System.nanoTime();
+        LogEntry entry = RING.claim();
+        if (entry == null) {
+            DROPPED.increment();
+            return;
+        }
+        entry.timeMillis = System.currentTimeMillis();
+        entry.code = response.getCode();
+        entry.requestId = response.getRequestId();
+        entry.bodyBytes = bodyBytes;
+        entry.wireBytes = wireBytes;
+        if (request != null) {
+            entry.type = request.getType();
+            entry.cardNumber = cardNumberOf(request);
+            entry.latencyNanos = request.getReceivedNanos() == 0 ? -1 : now - request.getReceivedNanos();
+            if (SAMPLE_EVERY > 0 && ThreadLocalRandom.current().nextInt(SAMPLE_EVERY) == 0) {
+                entry.dump = request;
+            }
+        } else {
+            entry.latencyNanos = -1;
+        }
+        RING.publish(entry);
+        wakeWriter();
+    }
+
+    /**
+     * 记录一条普通事件（连接建立、断开等）
+     */
+    public static void event(String message) {
+        LogEntry entry = RING.claim();
+        if (entry == null) {
+            DROPPED.increment();
+            return;
+        }
+        entry.timeMillis = System.currentTimeMillis();
+        entry.message = message;
+        RING.publish(entry);
+        wakeWriter();
+    }
+
+    private static Object cardNumberOf(Request request) {
+        if (request.getPayload() instanceof CardHolder) {
+            return ((CardHolder) request.getPayload()).getCardNumber();
+        }
+        Map<String, Object> data = request.getData();
+        return data == null ? null : data.get("cardNumber");
+    }
+
+    private static void drainLoop() {
+        while (true) {
+            if (drainNow()) continue;
+            writerIdle = true;
+            // 先置位再检查：发布方要么看到置位并唤醒，要么其条目在这里已可见，不会错过唤醒
+            if (RING.poll() == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            writerIdle = false;
+        }
+    }
+
+    private static void wakeWriter() {
+        if (writerIdle) {
+            LockSupport.unpark(WRITER);
+        }
+    }
+
+    /**
+     * 写出缓冲中已发布的全部条目并刷新
+     * @return 是否写出了内容
+     */
+    private static synchronized boolean drainNow() {
+        StringBuilder line = new StringBuilder(160);
+        boolean wrote = false;
+        try {
+            long dropped = DROPPED.sumThenReset();
+            if (dropped > 0) {
+                OUT.write(TIME_FORMAT.format(Instant.now()) + " 访问日志缓冲已满，丢弃 " + dropped + " 条\n");
+                wrote = true;
+            }
+            LogEntry entry;
+            while ((entry = RING.poll()) != null) {
+                line.setLength(0);
+                format(entry, line);
+                RING.release(entry);
+                OUT.append(line);
+                wrote = true;
+            }
+            if (wrote) OUT.flush();
+        } catch (IOException e) {
+            // 日志输出失败不影响服务，丢弃本批
+        }
+        return wrote;
+    }
+
+    private static void format(LogEntry entry, StringBuilder line) {
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(entry.timeMillis), line);
+        if (entry.message != null) {
+            line.append(' ').append(entry.message).append('\n');
+            return;
+        }
+        line.append(" type=").append(entry.type);
+        line.append(" card=");
+        appendNumber(line, entry.cardNumber);
+        line.append(" rid=");
+        appendNumber(line, entry.requestId);
+        line.append(" code=").append(entry.code);
+        if (entry.latencyNanos >= 0) {
+            long micros = entry.latencyNanos / 1000;
+            line.append(' ').append(micros / 1000).append('.');
+            long fraction = micros % 1000;
+            if (fraction < 100) line.append('0');
+            if (fraction < 10) line.append('0');
+            line.append(fraction).append("ms");
+        }
+        line.append(' ').append(entry.bodyBytes).append('B');
+        if (entry.wireBytes != entry.bodyBytes) {
+            line.append("(z").append(entry.wireBytes).append("B)");
+        }
+        line.append('\n');
+        if (entry.dump != null) {
+            String json = DumpFormatter.format(entry.dump);
+            line.append("    payload=");
+            if (json.length() > PAYLOAD_MAX_CHARS) {
+                line.append(json, 0, PAYLOAD_MAX_CHARS).append("...(").append(json.length()).append(" chars)");
+            } else {
+                line.append(json);
+            }
+            line.append('\n');
+        }
+    }
+
+    private static void appendNumber(StringBuilder line, Object value) {
+        if (value == null) {
+            line.append('-');
+        } else if (value instanceof Double && ((Double) value) == Math.rint((Double) value)) {
+            // 来自 Map 数据的数字为 Double
+            line.append(((Double) value).longValue());
+        } else {
+            line.append(value);
+        }
+    }
+
+    private static Writer openWriter(String file) {
+        try {
+            // 直接写标准输出的文件描述符，不与 System.out 争用同一把锁
+            FileOutputStream stream = file == null
+                    ? new FileOutputStream(FileDescriptor.out)
+                    : new FileOutputStream(file, true);
+            return new BufferedWriter(new OutputStreamWriter(stream, Charset.defaultCharset()), 64 * 1024);
+        } catch (IOException e) {
+            System.err.println("无法打开访问日志文件 " + file + "，改为输出到控制台: " + e.getMessage());
+            return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), Charset.defaultCharset()));
+        }
+    }
+
+    /**
+     * 采样输出请求内容时使用：与线路格式一致地序列化，并对密码类字段打码
+     */
+    private static final class DumpFormatter {
+        private static final Gson GSON = new GsonBuilder()
+                .registerTypeAdapterFactory(new RequestTypeAdapterFactory())
+                .create();
+
+        static String format(Request request) {
+            try {
+                JsonElement tree = GSON.toJsonTree(request);
+                mask(tree);
+                return tree.toString();
+            } catch (RuntimeException e) {
+                return "<无法序列化: " + e.getMessage() + ">";
+            }
+        }
+
+        private static void mask(JsonElement element) {
+            if (element.isJsonObject()) {
+                JsonObject object = element.getAsJsonObject();
+                for (Map.Entry<String, JsonElement> field : object.entrySet()) {
+                    if (field.getKey().toLowerCase().contains("password")) {
+                        field.setValue(new JsonPrimitive("***"));
+                    } else {
+                        mask(field.getValue());
+                    }
+                }
+            } else if (element.isJsonArray()) {
+                for (JsonElement item : element.getAsJsonArray()) {
+                    mask(item);
+                }
+            }
+        }
+    }
+}
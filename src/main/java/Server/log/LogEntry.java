@@ -0,0 +1,33 @@
+package Server.log;
+
+import Server.model.Request;
+
+/**
+ * 环形缓冲中的一个可复用日志条目
+ * 访问日志只记录格式化所需的原始字段，字符串拼接留给日志线程完成
+ */
+final class LogEntry {
+    long position;
+    long timeMillis;
+
+    // 非空时为普通事件日志（如连接建立/断开），其余访问字段无意义
+    String message;
+
+    String type;
+    Object cardNumber;
+    Long requestId;
+    int code;
+    long latencyNanos;
+    int bodyBytes;
+    int wireBytes;
+    // 被采样时保留请求本身，由日志线程序列化
+    Request dump;
+
+    void clear() {
+        message = null;
+        type = null;
+        cardNumber = null;
+        requestId = null;
+        dump = null;
+    }
+}
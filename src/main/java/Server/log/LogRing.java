@@ -0,0 +1,77 @@
+package Server.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 多生产者、单消费者的有界无锁环形缓冲
+ * 槽位与日志条目预先分配、循环复用；每个槽位带一个序号：
+ * 序号 == 位置 表示空闲可写，== 位置 + 1 表示已发布可读，消费后推进到位置 + 容量（下一轮可写）。
+ * 生产者仅以一次 CAS 抢占写位置，缓冲写满时直接放弃，不会阻塞业务线程。
+ */
+final class LogRing {
+    private final LogEntry[] entries;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // 仅由消费线程访问
+    private long head;
+
+    LogRing(int minCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, minCapacity) - 1) << 1;
+        this.entries = new LogEntry[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new LogEntry();
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 抢占一个可写槽位；填写完毕后必须调用 {@link #publish(LogEntry)}
+     * @return 槽位条目，缓冲已满时返回 null
+     */
+    LogEntry claim() {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    LogEntry entry = entries[index];
+                    entry.position = pos;
+                    return entry;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                // 其它生产者已抢走该位置
+                pos = tail.get();
+            }
+        }
+    }
+
+    void publish(LogEntry entry) {
+        sequences.set((int) (entry.position & mask), entry.position + 1);
+    }
+
+    /**
+     * 取出下一条已发布的条目（仅消费线程调用），处理完后需调用 {@link #release(LogEntry)}
+     * @return 条目，暂无可读数据时返回 null
+     */
+    LogEntry poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        return entries[index];
+    }
+
+    void release(LogEntry entry) {
+        entry.clear();
+        sequences.set((int) (head & mask), head + entries.length);
+        head++;
+    }
+}
@@ -0,0 +1,37 @@
+package Server.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分页查询结果
+ * nextCursor 为空表示已是最后一页；否则客户端在下一次请求中带上 cursor = nextCursor 取下一页
+ */
+public class Page<T> {
+    private List<T> items;
+    private String nextCursor;
+
+    public Page() {}
+
+    public Page(List<T> items, String nextCursor) {
+        // subList 视图不能脱离原列表序列化，复制一份
+        this.items = new ArrayList<>(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
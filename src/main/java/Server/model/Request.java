@@ -7,8 +7,12 @@ import java.util.Map;
  * 用于接收客户端发送的JSON数据
  */
 public class Request {
+    private Long requestId; // 可选的请求编号：携带时服务端可在同一连接上并发处理并乱序应答，响应原样带回
     private String type; // 请求类型，如 "login", "query", "control"
     private Map<String, Object> data; // 请求数据
+    private transient Object payload; // 已注册请求类型的强类型请求数据（此时 data 为空），见 Server.codec.PayloadRegistry
+    private transient long receivedNanos; // 服务端完成解码时的 System.nanoTime()，用于访问日志统计耗时
+    private transient int frameBytes; // 请求帧体字节数，用于流量统计
 
     // 构造方法
     public Request() { this.data = new java.util.HashMap<>(); }
@@ -19,6 +23,14 @@ public class Request {
     }
 
     // Getter和Setter方法
+    public Long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(Long requestId) {
+        this.requestId = requestId;
+    }
+
     public String getType() {
         return type;
     }
@@ -35,11 +47,36 @@ public class Request {
         this.data = data == null ? new java.util.HashMap<>() : data;
     }
 
+    public Object getPayload() {
+        return payload;
+    }
+
+    public void setPayload(Object payload) {
+        this.payload = payload;
+    }
+
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    public void setReceivedNanos(long receivedNanos) {
+        this.receivedNanos = receivedNanos;
+    }
+
+    public int getFrameBytes() {
+        return frameBytes;
+    }
+
+    public void setFrameBytes(int frameBytes) {
+        this.frameBytes = frameBytes;
+    }
+
     @Override
     public String toString() {
         return "Request{" +
-                "type='" + type + '\'' +
-                ", data=" + data +
+                "requestId=" + requestId +
+                ", type='" + type + '\'' +
+                ", data=" + (payload != null ? payload : data) +
                 '}';
     }
 }
@@ -5,10 +5,13 @@ package Server.model;
  * 用于向客户端返回JSON格式的响应
  */
 public class Response {
-    private int code;    // 状态码：200成功，400客户端错误，500服务器错误
+    private Long requestId; // 对应请求的编号（请求未携带时为 null）
+    private int code;    // 状态码：200成功，206流式响应的数据块（其后还有帧），400客户端错误，500服务器错误
     private String message; // 响应消息
     private Object data; // 响应数据
     private boolean success; // 兼容老前端，表示请求是否成功（code==200）
+    private String version; // 列表数据的版本号，客户端下次以 ifNoneMatch 带回，未变化时返回 304（仅可条件获取的列表响应携带）
+    private String topic; // 服务端推送的主题（仅推送帧携带，推送帧没有 requestId）
 
     // 构造方法
     public Response() {}
@@ -38,7 +41,22 @@ public class Response {
         return error(400, message);
     }
 
+    // 服务端推送的快捷方法
+    public static Response push(String topic, Object data) {
+        Response response = new Response(200, "数据变更", data);
+        response.topic = topic;
+        return response;
+    }
+
     // Getter和Setter方法
+    public Long getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(Long requestId) {
+        this.requestId = requestId;
+    }
+
     public int getCode() {
         return code;
     }
@@ -64,6 +82,22 @@ public class Response {
         this.data = data;
     }
 
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
     public boolean isSuccess() {
         return success;
     }
@@ -75,10 +109,13 @@ public class Response {
     @Override
     public String toString() {
         return "Response{" +
-                "code=" + code +
+                "requestId=" + requestId +
+                ", code=" + code +
                 ", message='" + message + '\'' +
                 ", data=" + data +
                 ", success=" + success +
+                (version != null ? ", version='" + version + '\'' : "") +
+                (topic != null ? ", topic='" + topic + '\'' : "") +
                 '}';
     }
 }
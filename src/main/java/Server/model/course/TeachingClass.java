@@ -1,5 +1,6 @@
 package Server.model.course;
 
+import Common.schedule.ScheduleMask;
 import Server.model.course.Course;
 import Server.model.student.Student;
 import java.util.List;
@@ -14,6 +15,7 @@ public class TeachingClass {
     private Integer capacity;    // 课容量
     private Integer selectedCount; // 选课人数
     private List<Student> students; // 选课学生列表
+    private transient ScheduleMask scheduleMask; // 上课时间的节次位图，由 schedule 计算，不参与序列化
     
     // 构造方法
     public TeachingClass() {}
@@ -68,6 +70,19 @@ public class TeachingClass {
     
     public void setSchedule(String schedule) {
         this.schedule = schedule;
+        this.scheduleMask = null;
+    }
+
+    /**
+     * 上课时间的节次位图，用于时间冲突判断
+     */
+    public ScheduleMask getScheduleMask() {
+        ScheduleMask mask = scheduleMask;
+        if (mask == null) {
+            mask = ScheduleMask.of(schedule);
+            scheduleMask = mask;
+        }
+        return mask;
     }
     
     public String getPlace() {
@@ -0,0 +1,73 @@
+package Server.model.course;
+
+/**
+ * 教学班的一段上课时间（teaching_class_slot 表的一行），由 teaching_classes.schedule 展开而来
+ */
+public class TeachingClassSlot {
+    private String teachingClassUuid; // 教学班UUID
+    private Integer weekday;          // 星期，1 = 周一 ... 7 = 周日
+    private Integer startPeriod;      // 起始节
+    private Integer endPeriod;        // 结束节
+    private String place;             // 上课地点
+
+    public TeachingClassSlot() {}
+
+    public TeachingClassSlot(String teachingClassUuid, Integer weekday, Integer startPeriod, Integer endPeriod, String place) {
+        this.teachingClassUuid = teachingClassUuid;
+        this.weekday = weekday;
+        this.startPeriod = startPeriod;
+        this.endPeriod = endPeriod;
+        this.place = place;
+    }
+
+    public String getTeachingClassUuid() {
+        return teachingClassUuid;
+    }
+
+    public void setTeachingClassUuid(String teachingClassUuid) {
+        this.teachingClassUuid = teachingClassUuid;
+    }
+
+    public Integer getWeekday() {
+        return weekday;
+    }
+
+    public void setWeekday(Integer weekday) {
+        this.weekday = weekday;
+    }
+
+    public Integer getStartPeriod() {
+        return startPeriod;
+    }
+
+    public void setStartPeriod(Integer startPeriod) {
+        this.startPeriod = startPeriod;
+    }
+
+    public Integer getEndPeriod() {
+        return endPeriod;
+    }
+
+    public void setEndPeriod(Integer endPeriod) {
+        this.endPeriod = endPeriod;
+    }
+
+    public String getPlace() {
+        return place;
+    }
+
+    public void setPlace(String place) {
+        this.place = place;
+    }
+
+    @Override
+    public String toString() {
+        return "TeachingClassSlot{" +
+                "teachingClassUuid='" + teachingClassUuid + '\'' +
+                ", weekday=" + weekday +
+                ", startPeriod=" + startPeriod +
+                ", endPeriod=" + endPeriod +
+                ", place='" + place + '\'' +
+                '}';
+    }
+}
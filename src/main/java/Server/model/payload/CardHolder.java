@@ -0,0 +1,8 @@
+package Server.model.payload;
+
+/**
+ * 携带一卡通号的请求数据，供访问日志等按用户归类请求
+ */
+public interface CardHolder {
+    Integer getCardNumber();
+}
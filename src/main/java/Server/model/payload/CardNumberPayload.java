@@ -0,0 +1,16 @@
+package Server.model.payload;
+
+/**
+ * 仅携带一卡通号的请求数据（getSelf、deleteStudent、getStudentSelectedCourses、getConflictingTeachingClasses 等）
+ */
+public class CardNumberPayload implements CardHolder {
+    private Integer cardNumber;
+
+    public Integer getCardNumber() {
+        return cardNumber;
+    }
+
+    public void setCardNumber(Integer cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+}
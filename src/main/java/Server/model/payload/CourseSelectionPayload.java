@@ -0,0 +1,25 @@
+package Server.model.payload;
+
+/**
+ * 选课/退课请求数据
+ */
+public class CourseSelectionPayload implements CardHolder {
+    private Integer cardNumber;
+    private String teachingClassUuid;
+
+    public Integer getCardNumber() {
+        return cardNumber;
+    }
+
+    public void setCardNumber(Integer cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+
+    public String getTeachingClassUuid() {
+        return teachingClassUuid;
+    }
+
+    public void setTeachingClassUuid(String teachingClassUuid) {
+        this.teachingClassUuid = teachingClassUuid;
+    }
+}
@@ -0,0 +1,60 @@
+package Server.model.payload;
+
+import java.util.List;
+
+/**
+ * 创建订单请求数据
+ */
+public class OrderPayload implements CardHolder {
+    private Integer cardNumber;
+    private String remark;
+    private List<Item> items;
+
+    public Integer getCardNumber() {
+        return cardNumber;
+    }
+
+    public void setCardNumber(Integer cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+
+    public String getRemark() {
+        return remark;
+    }
+
+    public void setRemark(String remark) {
+        this.remark = remark;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Item> items) {
+        this.items = items;
+    }
+
+    /**
+     * 订单商品项
+     */
+    public static class Item {
+        private String itemId;
+        private Integer amount;
+
+        public String getItemId() {
+            return itemId;
+        }
+
+        public void setItemId(String itemId) {
+            this.itemId = itemId;
+        }
+
+        public Integer getAmount() {
+            return amount;
+        }
+
+        public void setAmount(Integer amount) {
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package Server.model.payload;
+
+/**
+ * 用户订单查询请求数据，pageSize 为空表示不分页
+ */
+public class OrderQueryPayload implements CardHolder {
+    private Integer cardNumber;
+    private Integer pageSize;
+    private String cursor;
+
+    public Integer getCardNumber() {
+        return cardNumber;
+    }
+
+    public void setCardNumber(Integer cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+}
@@ -0,0 +1,34 @@
+package Server.model.payload;
+
+/**
+ * 一卡通充值请求数据，amount 以分为单位
+ */
+public class RechargePayload implements CardHolder {
+    private Integer cardNumber;
+    private Integer amount;
+    private String description;
+
+    public Integer getCardNumber() {
+        return cardNumber;
+    }
+
+    public void setCardNumber(Integer cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+
+    public Integer getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Integer amount) {
+        this.amount = amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,18 @@
+package Server.model.payload;
+
+import Server.model.shop.StoreItem;
+
+/**
+ * 添加/更新商品请求数据：data.item
+ */
+public class StoreItemPayload {
+    private StoreItem item;
+
+    public StoreItem getItem() {
+        return item;
+    }
+
+    public void setItem(StoreItem item) {
+        this.item = item;
+    }
+}
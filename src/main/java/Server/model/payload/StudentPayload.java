@@ -0,0 +1,18 @@
+package Server.model.payload;
+
+import Server.model.student.Student;
+
+/**
+ * 添加/更新学籍请求数据：data.student，日期字段为毫秒时间戳
+ */
+public class StudentPayload {
+    private Student student;
+
+    public Student getStudent() {
+        return student;
+    }
+
+    public void setStudent(Student student) {
+        this.student = student;
+    }
+}
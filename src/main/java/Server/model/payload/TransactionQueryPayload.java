@@ -0,0 +1,43 @@
+package Server.model.payload;
+
+/**
+ * 交易记录查询请求数据，type 为空表示全部类型，pageSize 为空表示不分页
+ */
+public class TransactionQueryPayload implements CardHolder {
+    private Integer cardNumber;
+    private String type;
+    private Integer pageSize;
+    private String cursor;
+
+    public Integer getCardNumber() {
+        return cardNumber;
+    }
+
+    public void setCardNumber(Integer cardNumber) {
+        this.cardNumber = cardNumber;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+}
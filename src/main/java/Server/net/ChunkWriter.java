@@ -0,0 +1,81 @@
+package Server.net;
+
+import Server.model.Response;
+import Server.util.ServerConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 分块流式响应
+ * 逐行接收数据（通常来自 MyBatis Cursor），每满 server.stream.chunkRows 行写出一帧 206 响应（data 为该块的行数组），
+ * 服务端内存中最多只保留一块。全部写完后由调用方返回一帧普通响应（200 或错误）作为结束帧。
+ * 非线程安全：只在处理该请求的线程上使用。
+ * @param <T> 行类型
+ */
+public final class ChunkWriter<T> {
+    /** 数据块帧的响应码，客户端据此区分数据块与结束帧 */
+    public static final int CODE_CHUNK = 206;
+    private static final int CHUNK_ROWS = Math.max(1, ServerConfig.getInt("server.stream.chunkRows", 500));
+
+    /**
+     * 数据块帧的去向，阻塞写出或在发送队列积压过多时等待，形成背压
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void write(Response chunk) throws IOException;
+    }
+
+    private final Long requestId;
+    private final Sink sink;
+    private final Function<? super T, ?> rowMapper;
+    private List<Object> chunk = new ArrayList<>();
+    private long chunks;
+
+    /**
+     * @param requestId 请求编号，每个数据块帧原样带回
+     * @param rowMapper 行转换为输出对象（如 DTO），不需要转换时传 Function.identity()
+     */
+    public ChunkWriter(Long requestId, Sink sink, Function<? super T, ?> rowMapper) {
+        this.requestId = requestId;
+        this.sink = sink;
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * 追加一行，满一块时写出
+     * @throws UncheckedIOException 写出失败（通常是连接已断开），调用方应停止读取
+     */
+    public void accept(T row) {
+        chunk.add(rowMapper.apply(row));
+        if (chunk.size() >= CHUNK_ROWS) {
+            flush();
+        }
+    }
+
+    /**
+     * 写出不足一块的剩余行
+     */
+    public void flush() {
+        if (chunk.isEmpty()) return;
+        Response response = new Response(CODE_CHUNK, "数据块", chunk);
+        response.setRequestId(requestId);
+        try {
+            sink.write(response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        chunks++;
+        chunk = new ArrayList<>();
+    }
+
+    /**
+     * 已写出的数据块数
+     */
+    public long chunks() {
+        return chunks;
+    }
+}
@@ -0,0 +1,89 @@
+package Server.net;
+
+import Common.codec.WireFormat;
+import Server.ClientHandler;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接数已满时的拒绝应答（阻塞模式与 NIO 模式共用）
+ * 在接受线程上立即写出一帧 503，随后交给后台线程：在短时间内读掉客户端已发出的帧、对每一帧再回复一次 503，然后关闭。
+ * 客户端通常先发 hello 再发业务请求，并把收到的第一帧当作 hello 的应答，只回一帧会让它在读业务响应时遇到 EOF；
+ * 直接关闭仍有未读数据的套接字还会触发 RST，客户端可能连已写出的 503 帧都读不到。
+ */
+public final class ConnectionRejecter {
+    // 最多回复的帧数与等待客户端发帧的时间，超出后直接关闭
+    private static final int MAX_FRAMES = 4;
+    private static final int LINGER_MILLIS = 1000;
+    private static final int MAX_FRAME_LENGTH = 64 * 1024;
+
+    private static final byte[] REJECT_FRAME = ClientHandler.encodeJsonFrame(ClientHandler.connectionRejected()).array();
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+    // 线程与排队都有上限：拒绝风暴时来不及处理的连接写出 503 后直接关闭，不拖慢接受线程
+    private static final ThreadPoolExecutor DRAINER = new ThreadPoolExecutor(1, 4, 30L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(256), r -> {
+                Thread t = new Thread(r, "connection-reject-" + SEQ.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.AbortPolicy());
+
+    private ConnectionRejecter() {}
+
+    /**
+     * 拒绝一个已接受的连接，在接受线程上调用
+     * @param socket 阻塞模式的套接字（NIO 模式下为阻塞模式 SocketChannel 的 socket()）
+     */
+    public static void reject(Socket socket) {
+        try {
+            OutputStream out = socket.getOutputStream();
+            out.write(REJECT_FRAME);
+            out.flush();
+        } catch (IOException e) {
+            // 客户端已断开
+            closeQuietly(socket);
+            return;
+        }
+        try {
+            DRAINER.execute(() -> answerAndClose(socket));
+        } catch (RejectedExecutionException e) {
+            closeQuietly(socket);
+        }
+    }
+
+    /**
+     * 对客户端随后发来的每一帧（无论是 hello 还是业务请求）都回复 503，客户端发完或超时后关闭
+     */
+    private static void answerAndClose(Socket socket) {
+        try (Socket s = socket) {
+            s.setSoTimeout(LINGER_MILLIS);
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            OutputStream out = s.getOutputStream();
+            for (int i = 0; i < MAX_FRAMES; i++) {
+                int length = WireFormat.bodyLength(in.readInt());
+                if (length > MAX_FRAME_LENGTH) break;
+                in.skipNBytes(length);
+                out.write(REJECT_FRAME);
+                out.flush();
+            }
+            s.shutdownOutput();
+        } catch (IOException e) {
+            // 客户端已读完断开或超时未发帧，忽略
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package Server.net;
+
+import Common.codec.WireFormat;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * 可复用的响应帧缓冲区
+ * 先预留 4 字节长度前缀，消息体直接序列化进来，结束时回填长度，
+ * 整帧一次写出，省去 JSON 字符串与独立字节数组两份中间拷贝。
+ * 协商启用压缩后，较大的帧体可原地替换为 deflate 数据，并在长度前缀上置压缩标记。
+ * 非线程安全：由调用方保证同一时刻只有一个线程使用。
+ */
+public final class FrameBuffer extends ByteArrayOutputStream {
+    private static final int INITIAL_SIZE = 8 * 1024;
+    // 超过该容量的缓冲在一帧发送完毕后释放，避免偶发的大响应长期占用内存
+    private static final int RETAIN_LIMIT = 1024 * 1024;
+    private static final int CHAR_BUFFER_SIZE = 8 * 1024;
+
+    private Writer writer;
+    private int flags;
+    private Deflater deflater;
+    private byte[] spare = new byte[0];
+
+    public FrameBuffer() {
+        super(INITIAL_SIZE);
+    }
+
+    /**
+     * 开始一帧：清空内容并预留长度前缀
+     */
+    public void begin() {
+        reset();
+        write(0);
+        write(0);
+        write(0);
+        write(0);
+    }
+
+    /**
+     * 写入本缓冲区的 UTF-8 字符流（随缓冲复用）；写完消息体后需 flush 再调用 {@link #finish(int)}
+     * JsonWriter 逐个写入引号、逗号与短字符串，OutputStreamWriter 每次写入都会新建 char[] 与 CharBuffer，
+     * 因此前面加一层复用的字符缓冲，攒满后整块编码
+     */
+    public Writer writer() {
+        if (writer == null) {
+            writer = new BufferedWriter(new OutputStreamWriter(this, StandardCharsets.UTF_8), CHAR_BUFFER_SIZE);
+        }
+        return writer;
+    }
+
+    /**
+     * 结束一帧：回填消息体长度（大端序，与 DataOutputStream.writeInt 一致）
+     * @param flags 帧标记（见 {@link WireFormat}），如二进制编码标记
+     * @return 消息体字节数
+     */
+    public int finish(int flags) {
+        this.flags = flags;
+        int length = count - 4;
+        writeHeader(length | flags);
+        return length;
+    }
+
+    /**
+     * 压缩已完成的帧体（zlib 格式），并在长度前缀上置压缩标记
+     * 压缩后不比原文小时保持明文不变
+     * @param level Deflater 压缩级别
+     * @return 是否已替换为压缩帧
+     */
+    public boolean compress(int level) {
+        if (deflater == null) {
+            deflater = new Deflater(level);
+        }
+        deflater.reset();
+        deflater.setInput(buf, 4, count - 4);
+        deflater.finish();
+        // 输出只允许写到原帧大小，写不下说明压缩无收益
+        if (spare.length < count) {
+            spare = new byte[count];
+        }
+        int n = 4;
+        while (!deflater.finished() && n < count) {
+            n += deflater.deflate(spare, n, count - n);
+        }
+        if (!deflater.finished()) {
+            return false;
+        }
+
+        byte[] plain = buf;
+        buf = spare;
+        spare = plain;
+        count = n;
+        writeHeader((n - 4) | flags | WireFormat.COMPRESSED_FLAG);
+        return true;
+    }
+
+    private void writeHeader(int header) {
+        buf[0] = (byte) (header >>> 24);
+        buf[1] = (byte) (header >>> 16);
+        buf[2] = (byte) (header >>> 8);
+        buf[3] = (byte) header;
+    }
+
+    /**
+     * 复制出独立的整帧（含长度前缀），供异步发送队列持有
+     */
+    public ByteBuffer toFrame() {
+        return ByteBuffer.wrap(Arrays.copyOf(buf, count));
+    }
+
+    /**
+     * 序列化中途失败时调用：丢弃字符流中可能残留的半帧数据
+     */
+    public void abort() {
+        writer = null;
+        reset();
+    }
+
+    /**
+     * 一帧发送完毕后调用：缓冲过大时回收为初始大小
+     */
+    public void release() {
+        if (buf.length > RETAIN_LIMIT) {
+            buf = new byte[INITIAL_SIZE];
+        }
+        if (spare.length > RETAIN_LIMIT) {
+            spare = new byte[0];
+        }
+        reset();
+    }
+
+    /**
+     * 释放压缩器占用的本地内存
+     */
+    @Override
+    public void close() {
+        if (deflater != null) {
+            deflater.end();
+            deflater = null;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package Server.net;
+
+import Common.codec.WireFormat;
+import Server.ClientHandler;
+import Server.log.AccessLog;
+import Server.util.AdmissionControl;
+import Server.model.Request;
+import Server.model.Response;
+import Server.util.ServerConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NIO 模式下的单个客户端连接
+ * 读写缓冲只在所属 selector 线程上访问。未携带 requestId 的请求按到达顺序逐条提交到工作线程池，
+ * 保证响应顺序与请求顺序一致（与阻塞模式语义相同）；携带 requestId 的流水线请求直接并发处理。
+ * 在途请求数达到 server.pipeline.maxInFlight、或发送队列积压超过高水位时暂停读取该连接，
+ * 不读回复只管发送的客户端不能在工作线程池和发送队列中堆积无限的请求与响应。
+ */
+class NioConnection {
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+    // 流式响应在发送队列积压超过该字节数时暂停写入数据块，等待客户端读走
+    private static final long STREAM_HIGH_WATER = 1024 * 1024;
+    // 单连接已读入但尚未写出响应的请求数上限，与阻塞模式共用配置项
+    private static final int MAX_IN_FLIGHT = Math.max(1, ServerConfig.getInt("server.pipeline.maxInFlight", 32));
+
+    private final SocketChannel channel;
+    private final NioServer.Reactor reactor;
+    private final ExecutorService workers;
+    // 每个连接独占一个处理器，与阻塞模式下每连接一个 ClientHandler 保持一致
+    private final ClientHandler handler = new ClientHandler();
+
+    private SelectionKey key;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private final Queue<ByteBuffer> outbox = new ConcurrentLinkedQueue<>();
+    // 发送队列中尚未写出的字节数，用于流式响应的背压
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final Object drained = new Object();
+    private volatile boolean streamWaiting;
+    // 已解码、响应尚未放入发送队列的请求数
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // 是否已因在途请求或发送积压过多而取消读关注，只在 selector 线程上访问
+    private boolean readPaused;
+
+    // 以下字段由 this 保护
+    private final Queue<Request> inbox = new ArrayDeque<>();
+    private boolean processing;
+    private volatile boolean closed;
+
+    NioConnection(SocketChannel channel, NioServer.Reactor reactor, ExecutorService workers) {
+        this.channel = channel;
+        this.reactor = reactor;
+        this.workers = workers;
+        // 推送帧与流式数据块一样受发送积压高水位约束，在该连接自己的推送发送线程上等待
+        handler.setPushFrameSink(this::writeStreamFrame);
+        handler.setStreamFrameSink(this::writeStreamFrame);
+        handler.setConnectionCloser(this::close);
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * 读就绪：读入数据并切分出完整帧
+     */
+    void onReadable() throws IOException {
+        int n = channel.read(readBuffer);
+        if (n < 0) {
+            AccessLog.event("客户端连接断开: " + channel.socket().getInetAddress());
+            close();
+            return;
+        }
+        drainFrames();
+        updateInterest();
+    }
+
+    /**
+     * 从读缓冲中切分完整帧并分发，在途请求达到上限时停下，余下的帧留在缓冲中待恢复读取后处理
+     */
+    private void drainFrames() throws IOException {
+        readBuffer.flip();
+        while (!saturated() && readBuffer.remaining() >= 4) {
+            int header = readBuffer.getInt(readBuffer.position());
+            int length = WireFormat.bodyLength(header);
+            if (length > MAX_FRAME_LENGTH) {
+                throw new IOException("非法的帧长度: " + length);
+            }
+            if (readBuffer.remaining() < 4 + length) break;
+            readBuffer.getInt();
+            byte[] messageBytes = new byte[length];
+            readBuffer.get(messageBytes);
+            Request request = handler.decodeRequest(header, messageBytes);
+            inFlight.incrementAndGet();
+            if (request.getRequestId() != null) {
+                dispatchPipelined(request);
+            } else {
+                enqueue(request);
+            }
+        }
+        readBuffer.compact();
+
+        // 半包大于当前缓冲区时扩容；处理完大帧后回收为初始大小
+        if (readBuffer.position() >= 4) {
+            int needed = 4 + WireFormat.bodyLength(readBuffer.getInt(0));
+            if (needed > readBuffer.capacity()) {
+                ByteBuffer bigger = ByteBuffer.allocate(needed);
+                readBuffer.flip();
+                bigger.put(readBuffer);
+                readBuffer = bigger;
+            }
+        } else if (readBuffer.position() == 0 && readBuffer.capacity() > INITIAL_BUFFER_SIZE) {
+            readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * 在途请求已达上限，或发送队列积压超过高水位（客户端没有读走响应）
+     */
+    private boolean saturated() {
+        return inFlight.get() >= MAX_IN_FLIGHT || queuedBytes.get() > STREAM_HIGH_WATER;
+    }
+
+    /**
+     * 由 selector 线程调用：按在途请求数与发送队列重新设置读写关注；
+     * 从暂停中恢复时先处理暂停期间留在读缓冲中的帧（客户端可能已全部发完，不会再有读就绪）
+     */
+    private void updateInterest() throws IOException {
+        if (closed || !key.isValid()) return;
+        if (readPaused && !saturated()) {
+            readPaused = false;
+            drainFrames();
+        }
+        readPaused = saturated();
+        int ops = (readPaused ? 0 : SelectionKey.OP_READ) | (outbox.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+        key.interestOps(ops);
+    }
+
+    /**
+     * 写就绪：发送积压的响应帧，全部写完后取消写关注
+     */
+    void onWritable() throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = outbox.peek()) != null) {
+            channel.write(buffer);
+            if (buffer.hasRemaining()) return; // 内核发送缓冲已满，等待下一次写就绪
+            outbox.poll();
+            long queued = queuedBytes.addAndGet(-buffer.limit());
+            if (streamWaiting && queued <= STREAM_HIGH_WATER / 2) {
+                synchronized (drained) {
+                    drained.notifyAll();
+                }
+            }
+        }
+        updateInterest();
+    }
+
+    /**
+     * 由 selector 线程调用：有新的响应待发送（同时意味着在途请求可能已降到上限以下）
+     */
+    void enableWrite() throws IOException {
+        updateInterest();
+    }
+
+    void close() {
+        // selector 线程与业务线程都可能关闭连接，连接名额只归还一次
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+        AdmissionControl.releaseConnection();
+        handler.releaseSubscriptions();
+        synchronized (drained) {
+            drained.notifyAll();
+        }
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void enqueue(Request request) {
+        synchronized (this) {
+            inbox.add(request);
+            if (processing) return;
+            processing = true;
+        }
+        scheduleNext();
+    }
+
+    /**
+     * 提交下一条待处理请求；工作线程池已满时对积压的请求直接返回繁忙响应
+     */
+    private void scheduleNext() {
+        try {
+            workers.execute(this::processOne);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                Request rejected;
+                while ((rejected = inbox.poll()) != null) {
+                    inFlight.decrementAndGet();
+                    writeFrame(handler.encodeFrame(rejected, busy(null)));
+                }
+                processing = false;
+            }
+        }
+    }
+
+    private void processOne() {
+        Request request;
+        synchronized (this) {
+            request = inbox.poll();
+        }
+        if (request != null && !closed) {
+            try {
+                Response response = handler.handleRequest(request);
+                ByteBuffer frame = handler.encodeFrame(request, response);
+                inFlight.decrementAndGet();
+                writeFrame(frame);
+            } catch (RuntimeException e) {
+                // 与阻塞模式一致：业务处理出现未捕获异常时关闭该连接
+                e.printStackTrace();
+                close();
+                return;
+            }
+        }
+        synchronized (this) {
+            if (inbox.isEmpty() || closed) {
+                processing = false;
+                return;
+            }
+        }
+        scheduleNext();
+    }
+
+    private void dispatchPipelined(Request request) {
+        try {
+            workers.execute(() -> {
+                if (closed) return;
+                Response response;
+                try {
+                    response = handler.handleRequest(request);
+                } catch (RuntimeException e) {
+                    // 流水线请求必须有应答，否则客户端对应的等待永远不会结束
+                    e.printStackTrace();
+                    response = Response.error(500, "服务器内部错误: " + e.getMessage());
+                    response.setRequestId(request.getRequestId());
+                }
+                ByteBuffer frame = handler.encodeFrame(request, response);
+                inFlight.decrementAndGet();
+                writeFrame(frame);
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            writeFrame(handler.encodeFrame(request, busy(request.getRequestId())));
+        }
+    }
+
+    private static Response busy(Long requestId) {
+        Response response = Response.error(503, "服务器繁忙，请稍后重试");
+        response.setRequestId(requestId);
+        return response;
+    }
+
+    private void writeFrame(ByteBuffer frame) {
+        queuedBytes.addAndGet(frame.remaining());
+        outbox.add(frame);
+        reactor.requestWrite(this);
+    }
+
+    /**
+     * 写出流式响应的数据块或推送帧；发送队列积压过多时在调用线程上等待，避免慢客户端让整个结果集堆积在服务端内存中
+     * @throws UncheckedIOException 连接已关闭
+     */
+    private void writeStreamFrame(ByteBuffer frame) {
+        synchronized (drained) {
+            while (queuedBytes.get() > STREAM_HIGH_WATER && !closed) {
+                streamWaiting = true;
+                try {
+                    drained.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            streamWaiting = false;
+        }
+        if (closed) {
+            throw new UncheckedIOException(new IOException("连接已关闭"));
+        }
+        writeFrame(frame);
+    }
+}
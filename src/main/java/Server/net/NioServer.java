@@ -0,0 +1,164 @@
+package Server.net;
+
+import Server.log.AccessLog;
+import Server.util.AdmissionControl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 NIO Selector 的服务器传输层
+ * 少量 selector 线程以非阻塞方式解码 "4字节长度 + UTF-8 JSON" 帧，
+ * 业务处理交给有界工作线程池执行，空闲连接不再占用线程。
+ * 线路协议与阻塞模式完全一致，现有客户端无需修改。
+ */
+public class NioServer {
+    private final int port;
+    private final Reactor[] reactors;
+    private final ThreadPoolExecutor workers;
+
+    public NioServer(int port, int selectorThreads, int workerThreads, int workerQueueCapacity) {
+        this.port = port;
+        this.reactors = new Reactor[Math.max(1, selectorThreads)];
+        AtomicInteger workerSeq = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, workerQueueCapacity)),
+                r -> new Thread(r, "nio-worker-" + workerSeq.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 启动 selector 线程并在当前线程上循环接受连接（阻塞直到服务器关闭）
+     */
+    public void start() throws IOException {
+        for (int i = 0; i < reactors.length; i++) {
+            reactors[i] = new Reactor(Selector.open());
+            Thread t = new Thread(reactors[i], "nio-selector-" + (i + 1));
+            t.setDaemon(true);
+            t.start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port));
+            System.out.println("智慧校园服务器启动(NIO)，监听端口: " + port
+                    + "，selector线程: " + reactors.length + "，业务线程: " + workers.getMaximumPoolSize());
+
+            int next = 0;
+            while (true) {
+                SocketChannel channel = serverChannel.accept();
+                // 超出全局连接上限时在阻塞模式下回复拒绝并关闭，不交给 selector
+                if (!AdmissionControl.tryAcquireConnection()) {
+                    ConnectionRejecter.reject(channel.socket());
+                    continue;
+                }
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                // 轮询分配给各 selector 线程
+                reactors[next].register(channel);
+                next = (next + 1) % reactors.length;
+            }
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * 单个 selector 线程：负责所属连接的读、写就绪事件
+     */
+    final class Reactor implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+        private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+        Reactor(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(SocketChannel channel) {
+            pendingChannels.add(channel);
+            selector.wakeup();
+        }
+
+        /**
+         * 由业务线程调用：通知 selector 线程该连接有待发送数据
+         */
+        void requestWrite(NioConnection connection) {
+            pendingWrites.add(connection);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                    registerPendingChannels();
+                    enablePendingWrites();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        NioConnection connection = (NioConnection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) connection.onReadable();
+                            if (key.isValid() && key.isWritable()) connection.onWritable();
+                        } catch (IOException e) {
+                            AccessLog.event("客户端连接断开: " + e.getMessage());
+                            connection.close();
+                        } catch (RuntimeException e) {
+                            // 请求JSON无法解析等异常：仅关闭该连接，不影响 selector 线程上的其它连接
+                            e.printStackTrace();
+                            connection.close();
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("selector 轮询异常: " + e.getMessage());
+                }
+            }
+        }
+
+        private void registerPendingChannels() {
+            SocketChannel channel;
+            while ((channel = pendingChannels.poll()) != null) {
+                try {
+                    NioConnection connection = new NioConnection(channel, this, workers);
+                    connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+                    AccessLog.event("客户端连接: " + channel.socket().getInetAddress());
+                } catch (ClosedChannelException e) {
+                    AdmissionControl.releaseConnection();
+                    AccessLog.event("客户端连接断开: " + e.getMessage());
+                }
+            }
+        }
+
+        private void enablePendingWrites() {
+            NioConnection connection;
+            while ((connection = pendingWrites.poll()) != null) {
+                try {
+                    connection.enableWrite();
+                } catch (IOException e) {
+                    AccessLog.event("客户端连接断开: " + e.getMessage());
+                    connection.close();
+                } catch (RuntimeException e) {
+                    // 恢复读取时处理积压的帧出错：与读就绪时相同，只关闭该连接
+                    e.printStackTrace();
+                    connection.close();
+                }
+            }
+        }
+    }
+}
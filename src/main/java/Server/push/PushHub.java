@@ -0,0 +1,156 @@
+package Server.push;
+
+import Server.model.Response;
+import Server.util.DatabaseUtil;
+import Server.util.ServerConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 服务端推送：连接订阅主题，服务层修改数据后发布变更，由本类推送给订阅者
+ * 主题形如 "seats:教学班UUID"、"stock:商品UUID"、"balance:一卡通号"。
+ * 发布只登记"该主题有变化"及取数方法，由推送线程每隔 server.push.coalesceMillis 合并一次：
+ * 同一主题在一个周期内多次变化只取一次最新数据、推送一次，选课高峰时热门教学班的人数变化不会放大成推送风暴；
+ * 无人订阅的主题发布时直接忽略，不查库。
+ * 推送线程只取数并把事件交给各连接的 {@link PushQueue}，不做套接字 I/O；连接队列溢出时取消其全部订阅。
+ */
+public final class PushHub {
+    public static final String SEATS = "seats";
+    public static final String STOCK = "stock";
+    public static final String BALANCE = "balance";
+
+    private static final int MAX_TOPICS_PER_SUBSCRIBER = ServerConfig.getInt("server.push.maxTopicsPerConnection", 1024);
+    private static final int COALESCE_MILLIS = Math.max(10, ServerConfig.getInt("server.push.coalesceMillis", 100));
+
+    private static final Map<String, Set<Subscriber>> TOPICS = new ConcurrentHashMap<>();
+    private static final Map<Subscriber, Set<String>> SUBSCRIPTIONS = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<?>> PENDING = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService DISPATCHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "push-dispatch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        DISPATCHER.scheduleWithFixedDelay(PushHub::flush, COALESCE_MILLIS, COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private PushHub() {}
+
+    /**
+     * 推送的接收方，每个连接一个
+     * deliver 在推送线程上调用，不得阻塞或写套接字，只应放入连接自己的发送队列（见 {@link PushQueue}）
+     */
+    public interface Subscriber {
+        /**
+         * @return false 表示该连接已跟不上推送（队列已满）或已关闭，推送线程随即取消其全部订阅
+         */
+        boolean deliver(Response event);
+    }
+
+    public static String topic(String kind, Object key) {
+        return kind + ":" + key;
+    }
+
+    /**
+     * 主题格式是否合法（仅支持 seats / stock / balance 三类）
+     */
+    public static boolean isValidTopic(String topic) {
+        if (topic == null) return false;
+        int colon = topic.indexOf(':');
+        if (colon <= 0 || colon == topic.length() - 1 || topic.length() > 128) return false;
+        String kind = topic.substring(0, colon);
+        return SEATS.equals(kind) || STOCK.equals(kind) || BALANCE.equals(kind);
+    }
+
+    /**
+     * 订阅主题
+     * @return 实际生效的订阅（超出单连接上限的部分被忽略）
+     */
+    public static List<String> subscribe(Subscriber subscriber, Collection<String> topics) {
+        Set<String> own = SUBSCRIPTIONS.computeIfAbsent(subscriber, s -> ConcurrentHashMap.newKeySet());
+        List<String> accepted = new ArrayList<>();
+        for (String topic : topics) {
+            if (!own.contains(topic) && own.size() >= MAX_TOPICS_PER_SUBSCRIBER) break;
+            own.add(topic);
+            TOPICS.computeIfAbsent(topic, t -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            accepted.add(topic);
+        }
+        return accepted;
+    }
+
+    public static void unsubscribe(Subscriber subscriber, Collection<String> topics) {
+        Set<String> own = SUBSCRIPTIONS.get(subscriber);
+        if (own == null) return;
+        for (String topic : topics) {
+            own.remove(topic);
+            removeFromTopic(topic, subscriber);
+        }
+    }
+
+    /**
+     * 取消某连接的全部订阅，连接关闭时调用
+     */
+    public static void unsubscribeAll(Subscriber subscriber) {
+        Set<String> own = SUBSCRIPTIONS.remove(subscriber);
+        if (own == null) return;
+        for (String topic : own) {
+            removeFromTopic(topic, subscriber);
+        }
+    }
+
+    private static void removeFromTopic(String topic, Subscriber subscriber) {
+        TOPICS.computeIfPresent(topic, (t, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    /**
+     * 发布变更，应在写操作成功后调用；处于工作单元中时推迟到事务提交之后
+     * @param topic 主题
+     * @param loader 取得主题最新数据，在推送线程上调用；返回 null 时本次不推送
+     */
+    public static void publish(String topic, Supplier<?> loader) {
+        if (!TOPICS.containsKey(topic)) return;
+        DatabaseUtil.afterCommit(() -> PENDING.put(topic, loader));
+    }
+
+    private static void flush() {
+        Iterator<Map.Entry<String, Supplier<?>>> it = PENDING.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Supplier<?>> entry = it.next();
+            it.remove();
+            Set<Subscriber> subscribers = TOPICS.get(entry.getKey());
+            if (subscribers == null || subscribers.isEmpty()) continue;
+            Object data;
+            try {
+                data = entry.getValue().get();
+            } catch (RuntimeException e) {
+                System.err.println("推送数据加载失败: " + entry.getKey() + " " + e.getMessage());
+                continue;
+            }
+            if (data == null) continue;
+            Response event = Response.push(entry.getKey(), data);
+            for (Subscriber subscriber : subscribers) {
+                try {
+                    if (!subscriber.deliver(event)) unsubscribeAll(subscriber);
+                } catch (RuntimeException e) {
+                    // 单个连接出错不影响其他订阅者
+                    unsubscribeAll(subscriber);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package Server.push;
+
+import Server.model.Response;
+import Server.util.ServerConfig;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个连接的推送发送队列
+ * 推送线程只把事件放入队列，由该连接自己的发送任务（共享的 push-writer 线程池，每个连接同一时刻至多一个任务）写出，
+ * 推送线程不做任何套接字 I/O，一个慢客户端不会拖住其他连接的推送。
+ * 队列按主题合并：同一主题尚未写出时只保留最新一条；积压的主题数超过 server.push.queueCapacity 时
+ * 视为客户端跟不上，放弃该连接（由 onOverflow 断开），客户端重连后重新订阅、重新加载即可取得最新数据。
+ */
+public final class PushQueue {
+    private static final int CAPACITY = Math.max(1, ServerConfig.getInt("server.push.queueCapacity", 256));
+
+    private static final AtomicInteger SEQ = new AtomicInteger();
+    // 发送任务可能阻塞在慢客户端上，线程数随连接数伸缩，空闲线程 60 秒后回收
+    private static final ExecutorService WRITERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "push-writer-" + SEQ.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 把一条推送写给连接，在 push-writer 线程上调用，允许阻塞
+     */
+    public interface Writer {
+        void write(Response event) throws IOException;
+    }
+
+    private final Writer writer;
+    private final Runnable onOverflow;
+
+    // 以下字段由 this 保护
+    private final Map<String, Response> pending = new LinkedHashMap<>();
+    private boolean draining;
+    private boolean closed;
+
+    /**
+     * @param writer 写出一条推送
+     * @param onOverflow 队列溢出或写出失败时调用一次，应断开连接
+     */
+    public PushQueue(Writer writer, Runnable onOverflow) {
+        this.writer = writer;
+        this.onOverflow = onOverflow;
+    }
+
+    /**
+     * 放入一条推送事件，在推送线程上调用，不阻塞
+     * @return false 表示队列已满或已关闭，事件被丢弃
+     */
+    public boolean offer(Response event) {
+        boolean overflow;
+        synchronized (this) {
+            if (closed) return false;
+            overflow = !pending.containsKey(event.getTopic()) && pending.size() >= CAPACITY;
+            if (!overflow) {
+                pending.put(event.getTopic(), event);
+                if (draining) return true;
+                draining = true;
+            }
+        }
+        if (overflow) {
+            fail();
+            return false;
+        }
+        WRITERS.execute(this::drain);
+        return true;
+    }
+
+    /**
+     * 关闭队列并丢弃未写出的推送，连接关闭时调用
+     */
+    public synchronized void close() {
+        closed = true;
+        pending.clear();
+    }
+
+    private void drain() {
+        while (true) {
+            Response event;
+            synchronized (this) {
+                Iterator<Response> it = pending.values().iterator();
+                if (closed || !it.hasNext()) {
+                    draining = false;
+                    return;
+                }
+                event = it.next();
+                it.remove();
+            }
+            try {
+                writer.write(event);
+            } catch (IOException | UncheckedIOException e) {
+                // 连接已断开
+                synchronized (this) {
+                    draining = false;
+                }
+                fail();
+                return;
+            }
+        }
+    }
+
+    private void fail() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            pending.clear();
+        }
+        onOverflow.run();
+    }
+}
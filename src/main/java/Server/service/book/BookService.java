@@ -4,6 +4,7 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
+import Server.model.Page;
 import Server.model.Response;
 import org.apache.ibatis.session.SqlSession;
 
@@ -16,6 +17,7 @@ import Server.model.book.BookRecord;
 import Server.model.book.BookStatus;
 import Server.model.book.Category;
 import Server.util.DatabaseUtil;
+import Server.util.PageCursor;
 
 public class BookService {
 
@@ -42,6 +44,15 @@ public class BookService {
         }
     }
 
+    // 分页检索书籍（按ISBN排序），category为空时不限类别，after为空时返回第一页
+    public Page<Book> searchBooksPage(String keyword, Category category, PageCursor after, int pageSize) {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            BookMapper bookMapper = sqlSession.getMapper(BookMapper.class);
+            List<Book> rows = bookMapper.findBookPage(keyword, category, after == null ? null : after.key(), pageSize + 1);
+            return PageCursor.page(rows, pageSize, book -> PageCursor.of(book.getIsbn()));
+        }
+    }
+
     // 根据ISBN检索实体书籍
     public List<BookItem> retrieveBookItems(String isbn) {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
@@ -0,0 +1,400 @@
+package Server.service.course;
+
+import Common.schedule.Schedule;
+import Server.model.course.TeachingClass;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 教室与教师占用的内存区间索引，用于排课时检查重复占用
+ * 每个教室、每位教师一条时间轴：一周按 周一第1节 ~ 周日第13节 排成 91 个位置，教学班的每段上课时间是轴上的一个区间，
+ * 按起点存放在 TreeMap 中。一段上课时间不跨天、最长 13 节，与 [s, e] 重叠的区间起点必落在 [s - 12, e]，
+ * 因此一次查询是 O(log n) 的 subMap 定位加上至多 13 + (e - s) 个起点的扫描，无需加载与解析全部教学班。
+ * 首次使用时由全部教学班构建，之后随教学班增删改（事务提交后）更新；构建失败时不做检查，下次使用时重试。
+ */
+public final class BookingIndex {
+    private static final int PERIODS = Schedule.PERIODS;
+
+    private static final ReentrantReadWriteLock LOCK = new ReentrantReadWriteLock();
+    private static final Map<String, Timeline> PLACES = new HashMap<>();
+    private static final Map<String, Timeline> TEACHERS = new HashMap<>();
+    private static final Map<String, Booking> BOOKINGS = new HashMap<>();
+    private static volatile boolean loaded;
+
+    /**
+     * 被占用的资源类型
+     */
+    public enum Resource {
+        PLACE("教室"), TEACHER("教师");
+
+        private final String label;
+
+        Resource(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * 一处重复占用：教学班 uuid 与 otherUuid 在同一教室或同一教师上的上课时间重叠
+     */
+    public static final class Collision {
+        private final Resource resource;
+        private final String key;
+        private final String uuid;
+        private final String otherUuid;
+        private final int day;
+        private final int startPeriod;
+        private final int endPeriod;
+
+        Collision(Resource resource, String key, String uuid, String otherUuid, int day, int startPeriod, int endPeriod) {
+            this.resource = resource;
+            this.key = key;
+            this.uuid = uuid;
+            this.otherUuid = otherUuid;
+            this.day = day;
+            this.startPeriod = startPeriod;
+            this.endPeriod = endPeriod;
+        }
+
+        public Resource getResource() {
+            return resource;
+        }
+
+        /**
+         * 教室名或教师姓名
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public String getUuid() {
+            return uuid;
+        }
+
+        public String getOtherUuid() {
+            return otherUuid;
+        }
+
+        /**
+         * 重叠部分的星期下标，0 = 周一
+         */
+        public int getDay() {
+            return day;
+        }
+
+        public int getStartPeriod() {
+            return startPeriod;
+        }
+
+        public int getEndPeriod() {
+            return endPeriod;
+        }
+
+        /**
+         * 界面上显示的说明，如 "教室 J1-101 在 周一 1-2节 已被教学班 xxx 占用"
+         */
+        public String describe() {
+            String periods = startPeriod == endPeriod ? startPeriod + "节" : startPeriod + "-" + endPeriod + "节";
+            return resource.label() + " " + key + " 在 " + Schedule.DAY_NAMES.get(day) + " " + periods + " 已被教学班 " + otherUuid + " 占用";
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> m = new HashMap<>();
+            m.put("resource", resource.label());
+            m.put("key", key);
+            m.put("uuid", uuid);
+            m.put("otherUuid", otherUuid);
+            m.put("day", Schedule.DAY_NAMES.get(day));
+            m.put("startPeriod", startPeriod);
+            m.put("endPeriod", endPeriod);
+            m.put("message", describe());
+            return m;
+        }
+    }
+
+    // 时间轴上的一个区间，位置 = 星期下标 * 13 + 节次
+    private static final class Interval {
+        final String uuid;
+        final int start;
+        final int end;
+
+        Interval(String uuid, int start, int end) {
+            this.uuid = uuid;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // 一个教学班在索引中的全部内容，更新与删除时据此移除
+    private static final class Booking {
+        final String place;
+        final String teacher;
+        final List<Interval> intervals;
+
+        Booking(String place, String teacher, List<Interval> intervals) {
+            this.place = place;
+            this.teacher = teacher;
+            this.intervals = intervals;
+        }
+    }
+
+    // 一个教室或一位教师的时间轴
+    private static final class Timeline {
+        final TreeMap<Integer, List<Interval>> byStart = new TreeMap<>();
+
+        void add(Interval interval) {
+            byStart.computeIfAbsent(interval.start, k -> new ArrayList<>(1)).add(interval);
+        }
+
+        void remove(Interval interval) {
+            List<Interval> list = byStart.get(interval.start);
+            if (list == null) return;
+            list.removeIf(iv -> iv.uuid.equals(interval.uuid) && iv.end == interval.end);
+            if (list.isEmpty()) byStart.remove(interval.start);
+        }
+
+        boolean isEmpty() {
+            return byStart.isEmpty();
+        }
+
+        /**
+         * 与 [start, end] 重叠的区间
+         */
+        List<Interval> overlapping(int start, int end) {
+            List<Interval> hits = new ArrayList<>();
+            NavigableMap<Integer, List<Interval>> window = byStart.subMap(start - (PERIODS - 1), true, end, true);
+            for (List<Interval> list : window.values()) {
+                for (Interval iv : list) {
+                    if (iv.end >= start) hits.add(iv);
+                }
+            }
+            return hits;
+        }
+    }
+
+    private BookingIndex() {}
+
+    /**
+     * 教学班与索引中其他教学班的重复占用（忽略同一 uuid，适用于新增与更新前的检查）
+     * @return 重复占用列表；索引无法构建时返回空列表
+     */
+    public static List<Collision> conflictsOf(TeachingClass tc) {
+        if (!ensureLoaded()) return new ArrayList<>();
+        String uuid = tc.getUuid() == null ? "" : tc.getUuid();
+        Booking booking = bookingOf(tc, uuid);
+        List<Collision> out = new ArrayList<>();
+        LOCK.readLock().lock();
+        try {
+            collide(uuid, booking, PLACES, TEACHERS, new HashSet<>(), out);
+        } finally {
+            LOCK.readLock().unlock();
+        }
+        return out;
+    }
+
+    /**
+     * 批量导入前的检查：每个教学班依次与索引中的教学班及排在它之前的同批教学班比较
+     * 同批中与已有教学班 uuid 相同的视为更新，不与其旧的上课时间比较；没有 uuid 的以 "#序号"（从 1 开始）标识
+     */
+    public static List<Collision> collisions(List<TeachingClass> batch) {
+        if (!ensureLoaded()) return new ArrayList<>();
+        Set<String> replaced = new HashSet<>();
+        for (TeachingClass tc : batch) {
+            if (tc != null && tc.getUuid() != null) replaced.add(tc.getUuid());
+        }
+        Map<String, Timeline> batchPlaces = new HashMap<>();
+        Map<String, Timeline> batchTeachers = new HashMap<>();
+        List<Collision> out = new ArrayList<>();
+        LOCK.readLock().lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                TeachingClass tc = batch.get(i);
+                if (tc == null) continue;
+                String uuid = tc.getUuid() == null ? "#" + (i + 1) : tc.getUuid();
+                Booking booking = bookingOf(tc, uuid);
+                collide(uuid, booking, PLACES, TEACHERS, replaced, out);
+                collide(uuid, booking, batchPlaces, batchTeachers, new HashSet<>(), out);
+                add(booking, batchPlaces, batchTeachers);
+            }
+        } finally {
+            LOCK.readLock().unlock();
+        }
+        return out;
+    }
+
+    /**
+     * 索引中已有教学班之间的全部重复占用，每对重叠只报告一次
+     */
+    public static List<Collision> collisions() {
+        if (!ensureLoaded()) return new ArrayList<>();
+        List<Collision> out = new ArrayList<>();
+        LOCK.readLock().lock();
+        try {
+            for (Map.Entry<String, Booking> e : BOOKINGS.entrySet()) {
+                List<Collision> mine = new ArrayList<>();
+                collide(e.getKey(), e.getValue(), PLACES, TEACHERS, new HashSet<>(), mine);
+                for (Collision c : mine) {
+                    if (c.uuid.compareTo(c.otherUuid) < 0) out.add(c);
+                }
+            }
+        } finally {
+            LOCK.readLock().unlock();
+        }
+        return out;
+    }
+
+    /**
+     * 新增或更新教学班后调用，以其当前的上课时间、地点与教师替换索引中的旧内容
+     */
+    public static void put(TeachingClass tc) {
+        if (!loaded || tc == null || tc.getUuid() == null) return;
+        LOCK.writeLock().lock();
+        try {
+            removeLocked(tc.getUuid());
+            Booking booking = bookingOf(tc, tc.getUuid());
+            BOOKINGS.put(tc.getUuid(), booking);
+            add(booking, PLACES, TEACHERS);
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除教学班后调用
+     */
+    public static void remove(String uuid) {
+        if (!loaded || uuid == null) return;
+        LOCK.writeLock().lock();
+        try {
+            removeLocked(uuid);
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 索引概况，供 serverStats 查看
+     */
+    public static Map<String, Object> stats() {
+        Map<String, Object> m = new HashMap<>();
+        m.put("loaded", loaded);
+        LOCK.readLock().lock();
+        try {
+            m.put("classes", BOOKINGS.size());
+            m.put("places", PLACES.size());
+            m.put("teachers", TEACHERS.size());
+        } finally {
+            LOCK.readLock().unlock();
+        }
+        return m;
+    }
+
+    /**
+     * 清空索引，下次使用时从数据库重新构建；仅供同包的测试使用（测试直接清表，不经过服务层删除）
+     */
+    static void resetForTest() {
+        LOCK.writeLock().lock();
+        try {
+            PLACES.clear();
+            TEACHERS.clear();
+            BOOKINGS.clear();
+            loaded = false;
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    private static boolean ensureLoaded() {
+        if (loaded) return true;
+        LOCK.writeLock().lock();
+        try {
+            if (loaded) return true;
+            List<TeachingClass> all = new TeachingClassService().getAllTeachingClasses();
+            if (all == null) return false;
+            for (TeachingClass tc : all) {
+                if (tc == null || tc.getUuid() == null) continue;
+                Booking booking = bookingOf(tc, tc.getUuid());
+                BOOKINGS.put(tc.getUuid(), booking);
+                add(booking, PLACES, TEACHERS);
+            }
+            loaded = true;
+            return true;
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    private static void removeLocked(String uuid) {
+        Booking old = BOOKINGS.remove(uuid);
+        if (old == null) return;
+        removeFrom(PLACES, old.place, old.intervals);
+        removeFrom(TEACHERS, old.teacher, old.intervals);
+    }
+
+    private static void removeFrom(Map<String, Timeline> timelines, String key, List<Interval> intervals) {
+        if (key == null) return;
+        Timeline timeline = timelines.get(key);
+        if (timeline == null) return;
+        for (Interval iv : intervals) {
+            timeline.remove(iv);
+        }
+        if (timeline.isEmpty()) timelines.remove(key);
+    }
+
+    private static void add(Booking booking, Map<String, Timeline> places, Map<String, Timeline> teachers) {
+        for (Interval iv : booking.intervals) {
+            if (booking.place != null) places.computeIfAbsent(booking.place, k -> new Timeline()).add(iv);
+            if (booking.teacher != null) teachers.computeIfAbsent(booking.teacher, k -> new Timeline()).add(iv);
+        }
+    }
+
+    private static void collide(String uuid, Booking booking, Map<String, Timeline> places, Map<String, Timeline> teachers,
+                                Set<String> ignore, List<Collision> out) {
+        collide(uuid, booking.intervals, Resource.PLACE, booking.place, places, ignore, out);
+        collide(uuid, booking.intervals, Resource.TEACHER, booking.teacher, teachers, ignore, out);
+    }
+
+    private static void collide(String uuid, List<Interval> intervals, Resource resource, String key,
+                                Map<String, Timeline> timelines, Set<String> ignore, List<Collision> out) {
+        if (key == null) return;
+        Timeline timeline = timelines.get(key);
+        if (timeline == null) return;
+        for (Interval mine : intervals) {
+            for (Interval other : timeline.overlapping(mine.start, mine.end)) {
+                if (other.uuid.equals(uuid) || ignore.contains(other.uuid)) continue;
+                int start = Math.max(mine.start, other.start);
+                int end = Math.min(mine.end, other.end);
+                int day = (start - 1) / PERIODS;
+                out.add(new Collision(resource, key, uuid, other.uuid, day, start - day * PERIODS, end - day * PERIODS));
+            }
+        }
+    }
+
+    private static Booking bookingOf(TeachingClass tc, String uuid) {
+        List<Interval> intervals = new ArrayList<>();
+        for (Schedule.Slot slot : Schedule.parse(tc.getSchedule()).slots()) {
+            if (slot.day() < 0) continue;
+            int base = slot.day() * PERIODS;
+            intervals.add(new Interval(uuid, base + slot.startPeriod(), base + slot.endPeriod()));
+        }
+        return new Booking(keyOf(tc.getPlace()), keyOf(tc.getTeacherName()), intervals);
+    }
+
+    private static String keyOf(String raw) {
+        if (raw == null) return null;
+        String key = raw.trim();
+        return key.isEmpty() ? null : key;
+    }
+}
@@ -0,0 +1,90 @@
+package Server.service.course;
+
+import Server.cache.CatalogChangeLog;
+import Server.dao.course.CourseMapper;
+import Server.dao.course.TeachingClassMapper;
+import Server.model.Response;
+import Server.model.course.Course;
+import Server.model.course.TeachingClass;
+import Server.util.DatabaseUtil;
+import org.apache.ibatis.session.SqlSession;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 课程目录增量同步
+ * 根据 {@link CatalogChangeLog} 只返回客户端游标之后变化过的课程、教学班与选课人数，
+ * 选课高峰期客户端频繁刷新时无需反复下载整张课程表。
+ */
+public class CatalogSyncService {
+
+    public CatalogSyncService() {
+        // 无状态服务
+    }
+
+    /**
+     * 查询游标之后的变化
+     * 返回数据：
+     * - cursor：新的游标，下次请求时作为 since 带回
+     * - reset：为 true 时增量不可用（首次请求、游标过期或服务重启），客户端应整表重新加载，随后从 cursor 开始增量同步
+     * - courses / deletedCourses：变化过的课程、已删除的课程编号（课程删除时其教学班一并删除）
+     * - teachingClasses / deletedTeachingClasses：变化过的教学班、已删除的教学班 UUID
+     * - seats：只有选课人数变化的教学班，UUID -> selectedCount
+     * @param since 上次拿到的游标，可为 null
+     */
+    public Response getCatalogChanges(String since) {
+        // 先取游标再查库：查到的数据不早于该游标，之后的变更下次再取，不会遗漏
+        CatalogChangeLog.Delta delta = since == null ? null : CatalogChangeLog.since(since);
+        if (delta == null) {
+            Map<String, Object> reset = new LinkedHashMap<>();
+            reset.put("cursor", CatalogChangeLog.cursor());
+            reset.put("reset", true);
+            return Response.success("需要重新加载课程目录", reset);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cursor", delta.cursor());
+        result.put("reset", false);
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            List<Course> courses = new ArrayList<>();
+            Set<String> deletedCourses = new HashSet<>(delta.courseIds());
+            if (!delta.courseIds().isEmpty()) {
+                courses = sqlSession.getMapper(CourseMapper.class).findByCourseIds(new ArrayList<>(delta.courseIds()));
+                for (Course course : courses) {
+                    deletedCourses.remove(course.getCourseId());
+                }
+            }
+
+            List<TeachingClass> teachingClasses = new ArrayList<>();
+            Set<String> deletedTeachingClasses = new HashSet<>(delta.teachingClassUuids());
+            Map<String, Integer> seats = new LinkedHashMap<>();
+            if (!delta.teachingClassUuids().isEmpty() || !delta.seatUuids().isEmpty()) {
+                List<String> uuids = new ArrayList<>(delta.teachingClassUuids());
+                uuids.addAll(delta.seatUuids());
+                for (TeachingClass tc : sqlSession.getMapper(TeachingClassMapper.class).findByUuids(uuids)) {
+                    if (delta.teachingClassUuids().contains(tc.getUuid())) {
+                        teachingClasses.add(tc);
+                        deletedTeachingClasses.remove(tc.getUuid());
+                    } else {
+                        seats.put(tc.getUuid(), tc.getSelectedCount());
+                    }
+                }
+            }
+
+            result.put("courses", courses);
+            result.put("deletedCourses", deletedCourses);
+            result.put("teachingClasses", teachingClasses);
+            result.put("deletedTeachingClasses", deletedTeachingClasses);
+            result.put("seats", seats);
+            return Response.success("获取课程目录变化成功", result);
+        } catch (Exception e) {
+            System.err.println("获取课程目录变化失败: " + e.getMessage());
+            return Response.error(500, "获取课程目录变化失败");
+        }
+    }
+}
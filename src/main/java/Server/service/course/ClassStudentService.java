@@ -13,14 +13,13 @@ import java.util.List;
 
 public class ClassStudentService {
 
-    private ClassStudentMapper classStudentMapper;
-
     public ClassStudentService() {
-        SqlSession sqlSession = DatabaseUtil.getSqlSession();
-        this.classStudentMapper = sqlSession.getMapper(ClassStudentMapper.class);
+        // 无状态服务，SqlSession 在每个方法中按需获取并关闭，避免连接泄露，也保证并发调用安全
     }
+
     public ClassStudent findByCardNumber(Integer cardNumber) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            ClassStudentMapper classStudentMapper = sqlSession.getMapper(ClassStudentMapper.class);
             return classStudentMapper.findByCardNumber(cardNumber);
         } catch (Exception e) {
             System.err.println("查询学生信息失败: " + e.getMessage());
@@ -29,7 +28,8 @@ public class ClassStudentService {
     }
 
     public ClassStudent findByStudentNumber(String studentNumber) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            ClassStudentMapper classStudentMapper = sqlSession.getMapper(ClassStudentMapper.class);
             return classStudentMapper.findByStudentNumber(studentNumber);
         } catch (Exception e) {
             System.err.println("查询学生信息失败: " + e.getMessage());
@@ -38,7 +38,8 @@ public class ClassStudentService {
     }
 
     public boolean addStudent(ClassStudent student) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            ClassStudentMapper classStudentMapper = sqlSession.getMapper(ClassStudentMapper.class);
             // 检查一卡通号是否已存在
             ClassStudent existingStudent = classStudentMapper.findByCardNumber(student.getCardNumber());
             if (existingStudent != null) {
@@ -62,7 +63,8 @@ public class ClassStudentService {
     }
 
     public boolean updateStudent(ClassStudent student) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            ClassStudentMapper classStudentMapper = sqlSession.getMapper(ClassStudentMapper.class);
             // 检查学生是否存在
             ClassStudent existingStudent = classStudentMapper.findByCardNumber(student.getCardNumber());
             if (existingStudent == null) {
@@ -79,7 +81,8 @@ public class ClassStudentService {
     }
 
     public boolean deleteStudent(Integer cardNumber) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            ClassStudentMapper classStudentMapper = sqlSession.getMapper(ClassStudentMapper.class);
             // 检查学生是否存在
             ClassStudent existingStudent = classStudentMapper.findByCardNumber(cardNumber);
             if (existingStudent == null) {
@@ -96,7 +99,8 @@ public class ClassStudentService {
     }
 
     public List<ClassStudent> getAllStudents() {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            ClassStudentMapper classStudentMapper = sqlSession.getMapper(ClassStudentMapper.class);
             return classStudentMapper.findAllStudents();
         } catch (Exception e) {
             System.err.println("获取所有学生失败: " + e.getMessage());
@@ -105,7 +109,8 @@ public class ClassStudentService {
     }
 
     public List<ClassStudent> getStudentsByTeachingClassUuid(String teachingClassUuid) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            ClassStudentMapper classStudentMapper = sqlSession.getMapper(ClassStudentMapper.class);
             return classStudentMapper.findByTeachingClassUuid(teachingClassUuid);
         } catch (Exception e) {
             System.err.println("根据教学班查询学生失败: " + e.getMessage());
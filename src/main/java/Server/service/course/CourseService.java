@@ -1,22 +1,25 @@
 package Server.service.course;
 
+import Server.cache.CatalogCache;
+import Server.cache.CatalogChangeLog;
 import Server.dao.course.CourseMapper;
+import Server.dao.course.TeachingClassMapper;
 import Server.model.course.Course;
+import Server.model.course.TeachingClass;
 import Server.util.DatabaseUtil;
 import org.apache.ibatis.session.SqlSession;
 import java.util.List;
 
 public class CourseService {
 
-    private CourseMapper courseMapper;
-
     public CourseService() {
-        SqlSession sqlSession = DatabaseUtil.getSqlSession();
-        this.courseMapper = sqlSession.getMapper(CourseMapper.class);
+        // 无状态服务，SqlSession 在每个方法中按需获取并关闭，避免连接泄露，也保证并发调用安全
     }
 
+
     public Course findByCourseId(String courseId) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            CourseMapper courseMapper = sqlSession.getMapper(CourseMapper.class);
             return courseMapper.findByCourseId(courseId);
         } catch (Exception e) {
             System.err.println("查询课程信息失败: " + e.getMessage());
@@ -25,7 +28,8 @@ public class CourseService {
     }
 
     public Course findByCourseName(String courseName) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            CourseMapper courseMapper = sqlSession.getMapper(CourseMapper.class);
             return courseMapper.findByCourseName(courseName);
         } catch (Exception e) {
             System.err.println("查询课程信息失败: " + e.getMessage());
@@ -34,7 +38,8 @@ public class CourseService {
     }
 
     public boolean addCourse(Course course) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            CourseMapper courseMapper = sqlSession.getMapper(CourseMapper.class);
             // 检查课程ID是否已存在
             Course existingCourse = courseMapper.findByCourseId(course.getCourseId());
             if (existingCourse != null) {
@@ -43,6 +48,10 @@ public class CourseService {
             }
             
             int result = courseMapper.insertCourse(course);
+            if (result > 0) {
+                CatalogCache.invalidate(CatalogCache.Region.COURSES);
+                CatalogChangeLog.record(CatalogChangeLog.Kind.COURSE, course.getCourseId());
+            }
             return result > 0;
         } catch (Exception e) {
             System.err.println("添加课程失败: " + e.getMessage());
@@ -51,7 +60,8 @@ public class CourseService {
     }
 
     public boolean updateCourse(Course course) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            CourseMapper courseMapper = sqlSession.getMapper(CourseMapper.class);
             // 检查课程是否存在
             Course existingCourse = courseMapper.findByCourseId(course.getCourseId());
             if (existingCourse == null) {
@@ -60,6 +70,10 @@ public class CourseService {
             }
             
             int result = courseMapper.updateCourse(course);
+            if (result > 0) {
+                CatalogCache.invalidate(CatalogCache.Region.COURSES);
+                CatalogChangeLog.record(CatalogChangeLog.Kind.COURSE, course.getCourseId());
+            }
             return result > 0;
         } catch (Exception e) {
             System.err.println("更新课程失败: " + e.getMessage());
@@ -68,15 +82,30 @@ public class CourseService {
     }
 
     public boolean deleteCourse(String courseId) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            CourseMapper courseMapper = sqlSession.getMapper(CourseMapper.class);
             // 检查课程是否存在
             Course existingCourse = courseMapper.findByCourseId(courseId);
             if (existingCourse == null) {
                 System.err.println("课程不存在: " + courseId);
                 return false;
             }
-            
+            // 删除课程会级联删除其教学班，先记下这些教学班，提交后从内存中的排课索引与座位表里移除
+            List<TeachingClass> cascaded = sqlSession.getMapper(TeachingClassMapper.class).findByCourseId(courseId);
+
             int result = courseMapper.deleteCourse(courseId);
+            if (result > 0) {
+                CatalogCache.invalidate(CatalogCache.Region.COURSES);
+                CatalogCache.invalidate(CatalogCache.Region.TEACHING_CLASSES);
+                CatalogChangeLog.record(CatalogChangeLog.Kind.COURSE, courseId);
+                for (TeachingClass tc : cascaded) {
+                    String uuid = tc.getUuid();
+                    DatabaseUtil.afterCommit(() -> {
+                        BookingIndex.remove(uuid);
+                        SeatEngine.classRemoved(uuid);
+                    });
+                }
+            }
             return result > 0;
         } catch (Exception e) {
             System.err.println("删除课程失败: " + e.getMessage());
@@ -85,7 +114,8 @@ public class CourseService {
     }
 
     public List<Course> getAllCourses() {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            CourseMapper courseMapper = sqlSession.getMapper(CourseMapper.class);
             return courseMapper.findAllCourses();
         } catch (Exception e) {
             System.err.println("获取所有课程失败: " + e.getMessage());
@@ -94,7 +124,8 @@ public class CourseService {
     }
 
     public List<Course> getCoursesBySchool(String school) {
-        try {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            CourseMapper courseMapper = sqlSession.getMapper(CourseMapper.class);
             return courseMapper.findBySchool(school);
         } catch (Exception e) {
             System.err.println("根据学院查询课程失败: " + e.getMessage());
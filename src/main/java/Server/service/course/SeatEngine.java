@@ -0,0 +1,487 @@
+package Server.service.course;
+
+import Common.schedule.ScheduleMask;
+import Server.cache.CatalogChangeLog;
+import Server.dao.course.StudentTeachingClassMapper;
+import Server.dao.course.TeachingClassMapper;
+import Server.dao.student.StudentMapper;
+import Server.model.course.StudentTeachingClass;
+import Server.model.course.TeachingClass;
+import Server.push.PushHub;
+import Server.util.DatabaseUtil;
+import Server.util.ServerConfig;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 选课高峰模式的内存座位表
+ * 开启 server.rush.enabled 后，启动时从数据库加载各教学班的容量、上课时间与全部选课关系，
+ * 之后 selectCourse / dropCourse 只在内存中判定：每个教学班一个 CAS 座位计数器，每个学生一个选课集合。
+ * 判定成功的选课、退课进入写回队列，由后台线程每隔 server.rush.flushMillis 毫秒
+ * 以批量事务写入 student_teaching_class 与 teaching_classes.selected_count，
+ * 热门教学班不再在同一数据库行锁上排队。
+ * 内存座位表是选课结果的唯一依据：同一时间只能有一个服务端实例开启此模式。
+ */
+public final class SeatEngine {
+    /**
+     * 选课、退课的判定结果
+     */
+    public enum Result {
+        OK,
+        UNKNOWN_CLASS,
+        UNKNOWN_STUDENT,
+        ALREADY_SELECTED,
+        NOT_SELECTED,
+        CONFLICT,
+        FULL
+    }
+
+    private static final boolean ENABLED = ServerConfig.getBoolean("server.rush.enabled", false);
+    private static final long FLUSH_MILLIS = Math.max(1, ServerConfig.getInt("server.rush.flushMillis", 50));
+    private static final int BATCH_SIZE = Math.max(1, ServerConfig.getInt("server.rush.batchSize", 1000));
+    // 一批写回连续失败达到次数后改为逐条写回，跳过无法写入的记录，避免一条坏数据堵住整个队列
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+
+    private static final ConcurrentHashMap<String, Seats> CLASSES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Integer, Selections> STUDENTS = new ConcurrentHashMap<>();
+    private static final ConcurrentLinkedQueue<Op> PENDING = new ConcurrentLinkedQueue<>();
+    // 写回失败待重试的一批，只由写回线程访问
+    private static final ArrayDeque<Op> RETRY = new ArrayDeque<>();
+    private static final ReentrantLock FLUSH_LOCK = new ReentrantLock();
+    private static final LongAdder WRITTEN = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static int retryAttempts;
+    private static volatile boolean active;
+    private static volatile Store store = new DatabaseStore();
+
+    private SeatEngine() {}
+
+    /**
+     * 教学班的座位：已选人数只通过 CAS 增减，不超过容量
+     */
+    private static final class Seats {
+        final AtomicInteger selected;
+        volatile int capacity;
+        volatile ScheduleMask schedule;
+
+        Seats(int selected, int capacity, ScheduleMask schedule) {
+            this.selected = new AtomicInteger(selected);
+            this.capacity = capacity;
+            this.schedule = schedule;
+        }
+
+        boolean tryReserve() {
+            while (true) {
+                int current = selected.get();
+                if (current >= capacity) return false;
+                if (selected.compareAndSet(current, current + 1)) return true;
+            }
+        }
+
+        void release() {
+            selected.updateAndGet(current -> current > 0 ? current - 1 : 0);
+        }
+    }
+
+    /**
+     * 一个学生已选的教学班；锁只在同一学生的并发请求间竞争，保证时间冲突检查与加入集合是原子的
+     */
+    private static final class Selections {
+        final ReentrantLock lock = new ReentrantLock();
+        final Set<String> uuids = new HashSet<>();
+    }
+
+    /**
+     * 一条待写回的选课（select = true）或退课记录
+     */
+    static final class Op {
+        final boolean select;
+        final Integer cardNumber;
+        final String uuid;
+
+        Op(boolean select, Integer cardNumber, String uuid) {
+            this.select = select;
+            this.cardNumber = cardNumber;
+            this.uuid = uuid;
+        }
+    }
+
+    /**
+     * 写回目标：默认写入数据库，测试中可替换
+     */
+    interface Store {
+        /**
+         * 在一个事务中写入一批记录，失败时抛出异常且不留下部分写入
+         */
+        void writeBatch(List<Op> batch);
+
+        /**
+         * 在单独的事务中写入一条记录，失败时抛出异常
+         */
+        void writeOne(Op op);
+    }
+
+    /**
+     * 选课请求是否由内存座位表处理（已开启且加载成功）
+     */
+    public static boolean isActive() {
+        return active;
+    }
+
+    /**
+     * 开启高峰模式时加载座位表并启动写回线程；未开启时什么也不做。
+     * 加载失败时保持关闭，选课照常走数据库。
+     */
+    public static void start() {
+        if (!ENABLED || active) return;
+        try {
+            load();
+        } catch (RuntimeException e) {
+            System.err.println("加载选课座位表失败，选课高峰模式未开启: " + e.getMessage());
+            CLASSES.clear();
+            STUDENTS.clear();
+            return;
+        }
+        ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "seat-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.scheduleWithFixedDelay(SeatEngine::flush, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(SeatEngine::flush, "seat-write-behind-flush"));
+        active = true;
+        System.out.println("选课高峰模式已开启：教学班 " + CLASSES.size() + " 个，已有选课学生 " + STUDENTS.size() + " 人");
+    }
+
+    private static void load() {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
+            Map<String, Integer> counts = new HashMap<>();
+            try (Cursor<StudentTeachingClass> rows = sqlSession.getMapper(StudentTeachingClassMapper.class).streamAll()) {
+                for (StudentTeachingClass row : rows) {
+                    STUDENTS.computeIfAbsent(row.getStudentCardNumber(), k -> new Selections()).uuids.add(row.getTeachingClassUuid());
+                    counts.merge(row.getTeachingClassUuid(), 1, Integer::sum);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            for (TeachingClass tc : teachingClassMapper.findAllTeachingClasses()) {
+                // 已选人数以实际选课关系为准，与 selected_count 列不一致时顺便校正
+                int selected = counts.getOrDefault(tc.getUuid(), 0);
+                if (tc.getSelectedCount() == null || tc.getSelectedCount() != selected) {
+                    System.err.println("校正教学班 " + tc.getUuid() + " 的选课人数: " + tc.getSelectedCount() + " -> " + selected);
+                    teachingClassMapper.setSelectedCount(tc.getUuid(), selected);
+                }
+                CLASSES.put(tc.getUuid(), new Seats(selected, tc.getCapacity() == null ? 0 : tc.getCapacity(), tc.getScheduleMask()));
+            }
+        }
+    }
+
+    /**
+     * 选课：依次检查是否已选、与已选教学班的时间冲突（节次位图求交），然后占用座位，成功后记入写回队列
+     */
+    public static Result select(Integer cardNumber, String uuid) {
+        Seats seats = CLASSES.get(uuid);
+        if (seats == null) return Result.UNKNOWN_CLASS;
+        Selections mine = selectionsOf(cardNumber);
+        if (mine == null) return Result.UNKNOWN_STUDENT;
+        mine.lock.lock();
+        try {
+            if (mine.uuids.contains(uuid)) return Result.ALREADY_SELECTED;
+            for (String selected : mine.uuids) {
+                Seats other = CLASSES.get(selected);
+                if (other != null && other.schedule.intersects(seats.schedule)) return Result.CONFLICT;
+            }
+            if (!seats.tryReserve()) return Result.FULL;
+            mine.uuids.add(uuid);
+            PENDING.add(new Op(true, cardNumber, uuid));
+            return Result.OK;
+        } finally {
+            mine.lock.unlock();
+        }
+    }
+
+    /**
+     * 退课：释放座位并记入写回队列
+     */
+    public static Result drop(Integer cardNumber, String uuid) {
+        Selections mine = STUDENTS.get(cardNumber);
+        if (mine == null) return Result.NOT_SELECTED;
+        mine.lock.lock();
+        try {
+            if (!mine.uuids.remove(uuid)) return Result.NOT_SELECTED;
+            Seats seats = CLASSES.get(uuid);
+            if (seats != null) seats.release();
+            PENDING.add(new Op(false, cardNumber, uuid));
+            return Result.OK;
+        } finally {
+            mine.lock.unlock();
+        }
+    }
+
+    /**
+     * 学生当前已选的教学班 UUID（含尚未写回数据库的选课）
+     */
+    public static List<String> selections(Integer cardNumber) {
+        Selections mine = STUDENTS.get(cardNumber);
+        if (mine == null) return new ArrayList<>();
+        mine.lock.lock();
+        try {
+            return new ArrayList<>(mine.uuids);
+        } finally {
+            mine.lock.unlock();
+        }
+    }
+
+    /**
+     * 教学班当前已选人数，不在座位表中时返回 null
+     */
+    public static Integer selectedCount(String uuid) {
+        Seats seats = CLASSES.get(uuid);
+        return seats == null ? null : seats.selected.get();
+    }
+
+    /**
+     * 首次出现的一卡通号到数据库确认学生存在（写回时的外键约束），之后留在内存中
+     */
+    private static Selections selectionsOf(Integer cardNumber) {
+        if (cardNumber == null) return null;
+        Selections mine = STUDENTS.get(cardNumber);
+        if (mine != null) return mine;
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            if (sqlSession.getMapper(StudentMapper.class).findByCardNumber(cardNumber) == null) return null;
+        }
+        return STUDENTS.computeIfAbsent(cardNumber, k -> new Selections());
+    }
+
+    /**
+     * 教学班新增或修改后同步容量与上课时间，已选人数保持内存中的值
+     */
+    public static void classChanged(TeachingClass tc) {
+        if (!active || tc == null || tc.getUuid() == null) return;
+        Seats seats = CLASSES.computeIfAbsent(tc.getUuid(), k -> new Seats(0, 0, ScheduleMask.EMPTY));
+        if (tc.getCapacity() != null) seats.capacity = tc.getCapacity();
+        seats.schedule = tc.getScheduleMask();
+    }
+
+    /**
+     * 教学班删除后移出座位表；数据库中的选课关系已随外键级联删除
+     */
+    public static void classRemoved(String uuid) {
+        if (!active || CLASSES.remove(uuid) == null) return;
+        for (Selections mine : STUDENTS.values()) {
+            mine.lock.lock();
+            try {
+                mine.uuids.remove(uuid);
+            } finally {
+                mine.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 把写回队列中的记录分批写入数据库；由写回线程定时调用，关闭时再调用一次
+     */
+    static void flush() {
+        FLUSH_LOCK.lock();
+        try {
+            while (true) {
+                List<Op> batch = new ArrayList<>(RETRY);
+                Op op;
+                while (batch.size() < BATCH_SIZE && (op = PENDING.poll()) != null) {
+                    batch.add(op);
+                }
+                if (batch.isEmpty()) return;
+                RETRY.clear();
+                if (!write(batch)) return;
+            }
+        } finally {
+            FLUSH_LOCK.unlock();
+        }
+    }
+
+    /**
+     * 写入一批记录，成功后推送最新人数
+     * @return 是否写入成功；失败的一批留待下次重试，多次失败后逐条写入
+     */
+    private static boolean write(List<Op> batch) {
+        // 已删除的教学班不再写回，数据库中的记录已随外键级联删除
+        batch.removeIf(op -> !CLASSES.containsKey(op.uuid));
+        if (batch.isEmpty()) return true;
+        try {
+            store.writeBatch(batch);
+        } catch (RuntimeException e) {
+            if (++retryAttempts < MAX_BATCH_ATTEMPTS) {
+                System.err.println("选课写回失败（第 " + retryAttempts + " 次），稍后重试: " + e.getMessage());
+                RETRY.addAll(batch);
+                return false;
+            }
+            retryAttempts = 0;
+            writeOneByOne(batch);
+            return true;
+        }
+        retryAttempts = 0;
+        WRITTEN.add(batch.size());
+        Set<String> changed = new LinkedHashSet<>();
+        for (Op op : batch) {
+            changed.add(op.uuid);
+        }
+        announce(changed);
+        return true;
+    }
+
+    /**
+     * 逐条写回，每条一个事务；写入失败的记录打印后丢弃，需人工核对
+     */
+    private static void writeOneByOne(List<Op> batch) {
+        Set<String> changed = new HashSet<>();
+        for (Op op : batch) {
+            try {
+                store.writeOne(op);
+                WRITTEN.increment();
+                changed.add(op.uuid);
+            } catch (RuntimeException e) {
+                DROPPED.increment();
+                System.err.println("选课写回失败，已跳过（" + (op.select ? "选课" : "退课") + " "
+                        + op.cardNumber + " " + op.uuid + "）: " + e.getMessage());
+            }
+        }
+        announce(changed);
+    }
+
+    /**
+     * 写回数据库：批量时选课关系逐条插入或删除，选课人数按教学班合并为一条增量 UPDATE
+     */
+    private static final class DatabaseStore implements Store {
+        @Override
+        public void writeBatch(List<Op> batch) {
+            Map<String, Integer> deltas = new LinkedHashMap<>();
+            try (SqlSession sqlSession = DatabaseUtil.getBatchSqlSession()) {
+                StudentTeachingClassMapper selectionMapper = sqlSession.getMapper(StudentTeachingClassMapper.class);
+                for (Op op : batch) {
+                    if (op.select) {
+                        selectionMapper.insertStudentTeachingClass(new StudentTeachingClass(op.cardNumber, op.uuid));
+                    } else {
+                        selectionMapper.deleteStudentTeachingClass(op.cardNumber, op.uuid);
+                    }
+                    deltas.merge(op.uuid, op.select ? 1 : -1, Integer::sum);
+                }
+                TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
+                for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+                    if (delta.getValue() != 0) {
+                        teachingClassMapper.addSelectedCount(delta.getKey(), delta.getValue());
+                    }
+                }
+                sqlSession.commit();
+            }
+        }
+
+        @Override
+        public void writeOne(Op op) {
+            try (SqlSession sqlSession = DatabaseUtil.getSqlSession(false)) {
+                StudentTeachingClassMapper selectionMapper = sqlSession.getMapper(StudentTeachingClassMapper.class);
+                int rows = op.select
+                        ? selectionMapper.insertStudentTeachingClass(new StudentTeachingClass(op.cardNumber, op.uuid))
+                        : selectionMapper.deleteStudentTeachingClass(op.cardNumber, op.uuid);
+                if (rows > 0) {
+                    sqlSession.getMapper(TeachingClassMapper.class).addSelectedCount(op.uuid, op.select ? 1 : -1);
+                }
+                sqlSession.commit();
+            }
+        }
+    }
+
+    /**
+     * 写回提交后统一记录变更并推送最新人数（每批一次，而不是每次选课一次）；
+     * 与数据库模式一致，人数变化不使目录缓存失效
+     */
+    private static void announce(Set<String> uuids) {
+        if (uuids.isEmpty()) return;
+        for (String uuid : uuids) {
+            CatalogChangeLog.record(CatalogChangeLog.Kind.SEATS, uuid);
+            PushHub.publish(PushHub.topic(PushHub.SEATS, uuid), () -> {
+                Seats seats = CLASSES.get(uuid);
+                if (seats == null) return null;
+                Map<String, Object> data = new HashMap<>();
+                data.put("uuid", uuid);
+                data.put("selectedCount", seats.selected.get());
+                data.put("capacity", seats.capacity);
+                return data;
+            });
+        }
+    }
+
+    /**
+     * 运行统计，供 serverStats 查看
+     */
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", active);
+        stats.put("classes", CLASSES.size());
+        stats.put("students", STUDENTS.size());
+        stats.put("pending", PENDING.size());
+        stats.put("written", WRITTEN.sum());
+        stats.put("dropped", DROPPED.sum());
+        return stats;
+    }
+
+    // 以下仅供同包的测试使用：不加载数据库、不启动写回线程，由测试直接调用 flush()
+
+    /**
+     * 清空座位表与写回队列，以给定的写回目标开启
+     */
+    static void startForTest(Store testStore) {
+        resetForTest(testStore, true);
+    }
+
+    /**
+     * 清空座位表与写回队列并关闭，恢复写回数据库
+     */
+    static void stopForTest() {
+        resetForTest(new DatabaseStore(), false);
+    }
+
+    private static void resetForTest(Store testStore, boolean activate) {
+        FLUSH_LOCK.lock();
+        try {
+            CLASSES.clear();
+            STUDENTS.clear();
+            PENDING.clear();
+            RETRY.clear();
+            WRITTEN.reset();
+            DROPPED.reset();
+            retryAttempts = 0;
+            store = testStore;
+            active = activate;
+        } finally {
+            FLUSH_LOCK.unlock();
+        }
+    }
+
+    static void putClassForTest(String uuid, int capacity, ScheduleMask schedule) {
+        CLASSES.put(uuid, new Seats(0, capacity, schedule));
+    }
+
+    static void putStudentForTest(Integer cardNumber) {
+        STUDENTS.computeIfAbsent(cardNumber, k -> new Selections());
+    }
+}
@@ -5,6 +5,8 @@ import Server.model.course.StudentTeachingClass;
 import Server.util.DatabaseUtil;
 import org.apache.ibatis.session.SqlSession;
 
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.List;
 
 public class StudentTeachingClassService {
@@ -54,6 +56,44 @@ public class StudentTeachingClassService {
         }
     }
 
+    /**
+     * 插入选课关系，由唯一键 (student_card_number, teaching_class_uuid) 保证同一学生不会重复选同一教学班，
+     * 不需要事先查询是否已选
+     * @return 1 插入成功；0 已选过该教学班；-1 其他失败
+     */
+    public int insertSelection(Integer studentCardNumber, String teachingClassUuid) {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            StudentTeachingClassMapper mapper = sqlSession.getMapper(StudentTeachingClassMapper.class);
+            return mapper.insertStudentTeachingClass(new StudentTeachingClass(studentCardNumber, teachingClassUuid)) > 0 ? 1 : -1;
+        } catch (Exception e) {
+            if (isDuplicateKey(e)) {
+                return 0;
+            }
+            System.err.println("添加选课关系失败: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 是否为唯一键冲突：JDBC 的 SQLIntegrityConstraintViolationException、SQLState 23 类（完整性约束违反），
+     * 或 MySQL 错误码 1062（ER_DUP_ENTRY）；不依赖具体驱动，换用其他数据库（如测试用的 H2）时同样识别
+     */
+    private static boolean isDuplicateKey(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                SQLException sql = (SQLException) t;
+                String state = sql.getSQLState();
+                if (sql.getErrorCode() == 1062 || (state != null && state.startsWith("23"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     public boolean deleteStudentTeachingClass(Integer studentCardNumber, String teachingClassUuid) {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
             StudentTeachingClassMapper mapper = sqlSession.getMapper(StudentTeachingClassMapper.class);
@@ -1,14 +1,34 @@
 package Server.service.course;
 
+import Common.schedule.Schedule;
+import Server.cache.CatalogCache;
+import Server.cache.CatalogChangeLog;
 import Server.dao.course.CourseMapper;
 import Server.dao.course.TeachingClassMapper;
+import Server.dao.course.TeachingClassSlotMapper;
+import Server.log.AccessLog;
+import Server.model.Page;
+import Server.model.Response;
 import Server.model.course.TeachingClass;
+import Server.model.course.TeachingClassSlot;
+import Server.push.PushHub;
 import Server.util.DatabaseUtil;
+import Server.util.PageCursor;
 import org.apache.ibatis.session.SqlSession;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class TeachingClassService {
+    // 排课锁：教室、教师重复占用的检查与教学班写入在此锁内串行。工作单元在返回前提交并执行 afterCommit，
+    // BookingIndex 因而在释放锁之前已更新；外层已有工作单元时索引随外层事务提交才更新，调用方不应在外层事务中排课
+    private static final ReentrantLock BOOKING_LOCK = new ReentrantLock();
 
     public TeachingClassService() {
         // 无状态服务，SqlSession 在每个方法中按需获取并关闭，避免连接泄露
@@ -45,7 +65,18 @@ public class TeachingClassService {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
             TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
             CourseMapper courseMapper = sqlSession.getMapper(CourseMapper.class);
-            List<TeachingClass> list = teachingClassMapper.findByStudentCardNumber(studentCardNumber);
+            List<TeachingClass> list;
+            if (SeatEngine.isActive()) {
+                // 选课高峰模式：已选教学班与人数以内存座位表为准，包含尚未写回数据库的选课
+                List<String> uuids = SeatEngine.selections(studentCardNumber);
+                list = uuids.isEmpty() ? new ArrayList<>() : teachingClassMapper.findByUuids(uuids);
+                for (TeachingClass tc : list) {
+                    Integer selected = SeatEngine.selectedCount(tc.getUuid());
+                    if (selected != null) tc.setSelectedCount(selected);
+                }
+            } else {
+                list = teachingClassMapper.findByStudentCardNumber(studentCardNumber);
+            }
             if (list != null) {
                 for (TeachingClass tc : list) {
                     if (tc != null) {
@@ -60,7 +91,106 @@ public class TeachingClassService {
         }
     }
 
+    /**
+     * 学生已选的教学班，只有一次 JOIN 查询，不补充课程信息（用于时间冲突检测等只需教学班本身的场景）
+     */
+    public List<TeachingClass> findSelectedByStudentCardNumber(Integer studentCardNumber) {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
+            return teachingClassMapper.findByStudentCardNumber(studentCardNumber);
+        } catch (Exception e) {
+            System.err.println("根据学生一卡通号查询已选教学班失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 与学生已选教学班时间冲突的全部教学班（不含已选的），用于选课界面一次性标出冲突
+     * 由已选教学班的上课时间在 teaching_class_slot 上做一次区间重叠查询，不再逐个解析全部教学班的 schedule
+     */
+    public List<String> findConflictingUuids(Integer studentCardNumber) {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
+            List<TeachingClass> selected;
+            if (SeatEngine.isActive()) {
+                List<String> uuids = SeatEngine.selections(studentCardNumber);
+                selected = uuids.isEmpty() ? new ArrayList<>() : teachingClassMapper.findByUuids(uuids);
+            } else {
+                selected = teachingClassMapper.findByStudentCardNumber(studentCardNumber);
+            }
+            List<TeachingClassSlot> timetable = new ArrayList<>();
+            Set<String> selectedUuids = new HashSet<>();
+            for (TeachingClass tc : selected) {
+                timetable.addAll(slotsOf(tc));
+                selectedUuids.add(tc.getUuid());
+            }
+            List<String> conflicting = new ArrayList<>();
+            if (timetable.isEmpty()) return conflicting;
+            for (String uuid : sqlSession.getMapper(TeachingClassSlotMapper.class).findUuidsOverlapping(timetable)) {
+                if (!selectedUuids.contains(uuid)) conflicting.add(uuid);
+            }
+            return conflicting;
+        } catch (Exception e) {
+            System.err.println("查询冲突教学班失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+
+    /**
+     * 批量导入课表前的检查：给出时返回这批教学班与已有教学班及彼此之间的全部重复占用，
+     * 不给出时返回已有教学班之间的全部重复占用
+     */
+    public List<BookingIndex.Collision> findBookingCollisions(List<TeachingClass> batch) {
+        return batch == null ? BookingIndex.collisions() : BookingIndex.collisions(batch);
+    }
+
+    /**
+     * 新增教学班，教室、教师不能与已有教学班在同一时间重复占用
+     * 重复占用检查（按 {@link BookingIndex} 查询）、写入与提交后的索引更新都在排课锁内完成，
+     * 并发的两个请求不会都在对方写入索引之前通过检查
+     */
+    public Response addTeachingClassIfFree(TeachingClass teachingClass) {
+        BOOKING_LOCK.lock();
+        try {
+            List<BookingIndex.Collision> clashes = BookingIndex.conflictsOf(teachingClass);
+            if (!clashes.isEmpty()) {
+                return Response.error("时间冲突: " + clashes.get(0).describe());
+            }
+            return addTeachingClass(teachingClass) ?
+                    Response.success("添加教学班成功") :
+                    Response.error("添加教学班失败");
+        } finally {
+            BOOKING_LOCK.unlock();
+        }
+    }
+
+    /**
+     * 修改教学班，检查与写入方式同 {@link #addTeachingClassIfFree}，不与自身旧的上课时间比较
+     */
+    public Response updateTeachingClassIfFree(TeachingClass teachingClass) {
+        BOOKING_LOCK.lock();
+        try {
+            List<BookingIndex.Collision> clashes = BookingIndex.conflictsOf(teachingClass);
+            if (!clashes.isEmpty()) {
+                return Response.error("时间冲突: " + clashes.get(0).describe());
+            }
+            return updateTeachingClass(teachingClass) ?
+                    Response.success("更新教学班成功") :
+                    Response.error("更新教学班失败");
+        } finally {
+            BOOKING_LOCK.unlock();
+        }
+    }
+
+    /**
+     * 新增教学班：教学班行与其 teaching_class_slot 行在同一事务中写入，任一步失败整体回滚
+     */
     public boolean addTeachingClass(TeachingClass teachingClass) {
+        return DatabaseUtil.inUnitOfWork(() -> insertTeachingClass(teachingClass), ok -> ok);
+    }
+
+    private boolean insertTeachingClass(TeachingClass teachingClass) {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
             TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
             TeachingClass existingTeachingClass = teachingClassMapper.findByUuid(teachingClass.getUuid());
@@ -73,9 +203,17 @@ public class TeachingClassService {
             if (teachingClass.getCapacity() == null) teachingClass.setCapacity(0);
 
             // 调试日志：打印将要插入的对象（便于定位 null 问题）
-            System.out.println("插入 TeachingClass: " + teachingClass);
+            AccessLog.event("插入 TeachingClass: " + teachingClass);
             int result = teachingClassMapper.insertTeachingClass(teachingClass);
-            sqlSession.commit();
+            if (result > 0) {
+                writeSlots(sqlSession, teachingClass);
+                CatalogCache.invalidate(CatalogCache.Region.TEACHING_CLASSES);
+                CatalogChangeLog.record(CatalogChangeLog.Kind.TEACHING_CLASS, teachingClass.getUuid());
+                DatabaseUtil.afterCommit(() -> {
+                    SeatEngine.classChanged(teachingClass);
+                    BookingIndex.put(teachingClass);
+                });
+            }
             return result > 0;
         } catch (Exception e) {
             System.err.println("添加教学班失败: " + e.getMessage());
@@ -83,7 +221,14 @@ public class TeachingClassService {
         }
     }
 
+    /**
+     * 修改教学班：教学班行与重写的 teaching_class_slot 行在同一事务中写入，任一步失败整体回滚
+     */
     public boolean updateTeachingClass(TeachingClass teachingClass) {
+        return DatabaseUtil.inUnitOfWork(() -> updateTeachingClassAndSlots(teachingClass), ok -> ok);
+    }
+
+    private boolean updateTeachingClassAndSlots(TeachingClass teachingClass) {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
             TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
             TeachingClass existingTeachingClass = teachingClassMapper.findByUuid(teachingClass.getUuid());
@@ -94,10 +239,21 @@ public class TeachingClassService {
             // 防御性：避免将 null 写入 NOT NULL 列
             if (teachingClass.getSelectedCount() == null) teachingClass.setSelectedCount(existingTeachingClass.getSelectedCount() == null ? 0 : existingTeachingClass.getSelectedCount());
             if (teachingClass.getCapacity() == null) teachingClass.setCapacity(existingTeachingClass.getCapacity() == null ? 0 : existingTeachingClass.getCapacity());
+            // 选课高峰模式下已选人数以内存座位表为准，由后台写回，这里不覆盖
+            if (SeatEngine.isActive()) teachingClass.setSelectedCount(null);
 
-            System.out.println("更新 TeachingClass: " + teachingClass);
+            AccessLog.event("更新 TeachingClass: " + teachingClass);
             int result = teachingClassMapper.updateTeachingClass(teachingClass);
-            sqlSession.commit();
+            if (result > 0) {
+                writeSlots(sqlSession, teachingClass);
+                CatalogCache.invalidate(CatalogCache.Region.TEACHING_CLASSES);
+                CatalogChangeLog.record(CatalogChangeLog.Kind.TEACHING_CLASS, teachingClass.getUuid());
+                publishSeats(teachingClass.getUuid());
+                DatabaseUtil.afterCommit(() -> {
+                    SeatEngine.classChanged(teachingClass);
+                    BookingIndex.put(teachingClass);
+                });
+            }
             return result > 0;
         } catch (Exception e) {
             System.err.println("更新教学班失败: " + e.getMessage());
@@ -105,7 +261,14 @@ public class TeachingClassService {
         }
     }
 
+    /**
+     * 删除教学班及其 teaching_class_slot 行，在同一事务中执行
+     */
     public boolean deleteTeachingClass(String uuid) {
+        return DatabaseUtil.inUnitOfWork(() -> deleteTeachingClassAndSlots(uuid), ok -> ok);
+    }
+
+    private boolean deleteTeachingClassAndSlots(String uuid) {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
             TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
             TeachingClass existingTeachingClass = teachingClassMapper.findByUuid(uuid);
@@ -113,8 +276,16 @@ public class TeachingClassService {
                 System.err.println("教学班不存在: " + uuid);
                 return false;
             }
+            sqlSession.getMapper(TeachingClassSlotMapper.class).deleteByTeachingClassUuid(uuid);
             int result = teachingClassMapper.deleteTeachingClass(uuid);
-            sqlSession.commit();
+            if (result > 0) {
+                CatalogCache.invalidate(CatalogCache.Region.TEACHING_CLASSES);
+                CatalogChangeLog.record(CatalogChangeLog.Kind.TEACHING_CLASS, uuid);
+                DatabaseUtil.afterCommit(() -> {
+                    SeatEngine.classRemoved(uuid);
+                    BookingIndex.remove(uuid);
+                });
+            }
             return result > 0;
         } catch (Exception e) {
             System.err.println("删除教学班失败: " + e.getMessage());
@@ -122,6 +293,125 @@ public class TeachingClassService {
         }
     }
 
+    /**
+     * 教学班的上课时间展开为 teaching_class_slot 行；只写了时间没写星期的时间段不计入
+     */
+    static List<TeachingClassSlot> slotsOf(TeachingClass tc) {
+        List<TeachingClassSlot> slots = new ArrayList<>();
+        for (Schedule.Slot slot : Schedule.parse(tc.getSchedule()).slots()) {
+            if (slot.day() < 0) continue;
+            slots.add(new TeachingClassSlot(tc.getUuid(), slot.day() + 1, slot.startPeriod(), slot.endPeriod(), tc.getPlace()));
+        }
+        return slots;
+    }
+
+    /**
+     * 用教学班当前的 schedule 与 place 重写其 teaching_class_slot 行，在调用方的工作单元中与教学班本身的写入一同提交
+     */
+    private void writeSlots(SqlSession sqlSession, TeachingClass tc) {
+        TeachingClassSlotMapper slotMapper = sqlSession.getMapper(TeachingClassSlotMapper.class);
+        slotMapper.deleteByTeachingClassUuid(tc.getUuid());
+        List<TeachingClassSlot> slots = slotsOf(tc);
+        if (!slots.isEmpty()) slotMapper.insertSlots(slots);
+    }
+
+    /**
+     * 建立 teaching_class_slot 表（已存在时跳过，见 sql/teaching_class_slot.sql），
+     * 表为空（新建表或升级前的数据）时按全部教学班重建，服务端启动时调用；重建在一个事务中完成，中途失败不会留下半张表
+     */
+    public void rebuildSlotsIfEmpty() {
+        try {
+            DatabaseUtil.runScript("sql/teaching_class_slot.sql");
+        } catch (Exception e) {
+            System.err.println("建立上课时间表失败: " + e.getMessage());
+            return;
+        }
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession(false)) {
+            TeachingClassSlotMapper slotMapper = sqlSession.getMapper(TeachingClassSlotMapper.class);
+            if (slotMapper.countAll() > 0) return;
+            List<TeachingClassSlot> batch = new ArrayList<>();
+            int total = 0;
+            for (TeachingClass tc : sqlSession.getMapper(TeachingClassMapper.class).findAllTeachingClasses()) {
+                batch.addAll(slotsOf(tc));
+                if (batch.size() >= 500) {
+                    total += slotMapper.insertSlots(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) total += slotMapper.insertSlots(batch);
+            sqlSession.commit();
+            if (total > 0) System.out.println("已按教学班 schedule 重建上课时间表：" + total + " 行");
+        } catch (Exception e) {
+            System.err.println("重建上课时间表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 某天第 startPeriod ~ endPeriod 节有课的教学班
+     * @param weekday 星期，1 = 周一 ... 7 = 周日
+     */
+    public List<TeachingClass> findTeachingClassesAt(int weekday, int startPeriod, int endPeriod) {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            return sqlSession.getMapper(TeachingClassSlotMapper.class).findTeachingClassesAt(weekday, startPeriod, endPeriod);
+        } catch (Exception e) {
+            System.err.println("按上课时间查询教学班失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 教师一周的上课时间，按星期、起始节排序
+     */
+    public List<TeachingClassSlot> getTeacherWeeklySlots(String teacherName) {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            return sqlSession.getMapper(TeachingClassSlotMapper.class).findByTeacherName(teacherName);
+        } catch (Exception e) {
+            System.err.println("查询教师课表失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 教师一周的总课时（节数）
+     * @return 节数；查询失败时返回 -1
+     */
+    public int getTeacherWeeklyPeriods(String teacherName) {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            return sqlSession.getMapper(TeachingClassSlotMapper.class).sumPeriodsByTeacherName(teacherName);
+        } catch (Exception e) {
+            System.err.println("统计教师课时失败: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * 教室和/或教师一周的空闲节次（两者都给出时为共同空闲）
+     * @return 星期（周一 ~ 周日）到空闲节次的映射；两者都为空或查询失败时返回 null
+     */
+    public Map<String, List<Integer>> findFreePeriods(String place, String teacherName) {
+        if (place == null && teacherName == null) return null;
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            boolean[][] busy = new boolean[Schedule.DAYS][Schedule.PERIODS + 1];
+            for (TeachingClassSlot slot : sqlSession.getMapper(TeachingClassSlotMapper.class).findOccupied(place, teacherName)) {
+                for (int p = slot.getStartPeriod(); p <= slot.getEndPeriod(); p++) {
+                    busy[slot.getWeekday() - 1][p] = true;
+                }
+            }
+            Map<String, List<Integer>> free = new LinkedHashMap<>();
+            for (int d = 0; d < Schedule.DAYS; d++) {
+                List<Integer> periods = new ArrayList<>();
+                for (int p = 1; p <= Schedule.PERIODS; p++) {
+                    if (!busy[d][p]) periods.add(p);
+                }
+                free.put(Schedule.DAY_NAMES.get(d), periods);
+            }
+            return free;
+        } catch (Exception e) {
+            System.err.println("查询空闲节次失败: " + e.getMessage());
+            return null;
+        }
+    }
+
     public List<TeachingClass> getAllTeachingClasses() {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
             TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
@@ -132,6 +422,18 @@ public class TeachingClassService {
         }
     }
 
+    public Page<TeachingClass> getTeachingClassesPage(PageCursor after, int pageSize) {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
+            List<TeachingClass> rows = teachingClassMapper.findTeachingClassesPage(
+                    after == null ? null : after.key(), pageSize + 1);
+            return PageCursor.page(rows, pageSize, tc -> PageCursor.of(tc.getUuid()));
+        } catch (Exception e) {
+            System.err.println("分页获取教学班失败: " + e.getMessage());
+            return null;
+        }
+    }
+
     public List<TeachingClass> getTeachingClassesByTeacherName(String teacherName) {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
             TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
@@ -165,15 +467,43 @@ public class TeachingClassService {
         }
     }
 
+    /**
+     * 教学班的实时选课人数与容量，不经目录缓存；选课高峰模式下人数以内存座位表为准
+     * 选课人数变化不使目录缓存失效（否则选课期间缓存几乎全部失效），目录中的 selectedCount 只是上次目录写操作时的快照，
+     * 客户端加载目录后以此覆盖，之后经 seats 推送或增量同步更新
+     * @return UUID -> {selectedCount, capacity}，不存在的教学班不在结果中；查询失败时返回 null
+     */
+    public Map<String, Map<String, Object>> getSeatCounts(List<String> uuids) {
+        Map<String, Map<String, Object>> seats = new LinkedHashMap<>();
+        if (uuids.isEmpty()) return seats;
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            for (TeachingClass tc : sqlSession.getMapper(TeachingClassMapper.class).findSeatsByUuids(uuids)) {
+                Integer selected = SeatEngine.isActive() ? SeatEngine.selectedCount(tc.getUuid()) : null;
+                Map<String, Object> seat = new HashMap<>();
+                seat.put("selectedCount", selected != null ? selected : tc.getSelectedCount());
+                seat.put("capacity", tc.getCapacity());
+                seats.put(tc.getUuid(), seat);
+            }
+            return seats;
+        } catch (Exception e) {
+            System.err.println("查询选课人数失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 占用一个座位：单条条件 UPDATE（selected_count &lt; capacity）原子地检查并加一，不存在先查后改的竞态
+     * 只记录人数变化、推送最新人数，不使目录缓存失效（见 {@link #getSeatCounts(List)}）
+     * @return 是否占用成功；教学班不存在或已满时返回 false
+     */
     public boolean incrementSelectedCount(String uuid) {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
             TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
-            TeachingClass existingTeachingClass = teachingClassMapper.findByUuid(uuid);
-            if (existingTeachingClass == null) {
-                System.err.println("教学班不存在: " + uuid);
-                return false;
-            }
             int result = teachingClassMapper.incrementSelectedCount(uuid);
+            if (result > 0) {
+                CatalogChangeLog.record(CatalogChangeLog.Kind.SEATS, uuid);
+                publishSeats(uuid);
+            }
             return result > 0;
         } catch (Exception e) {
             System.err.println("增加选课人数失败: " + e.getMessage());
@@ -181,15 +511,18 @@ public class TeachingClassService {
         }
     }
 
+    /**
+     * 释放一个座位，已选人数不会减到负数
+     * @return 是否释放成功；教学班不存在或人数已为 0 时返回 false
+     */
     public boolean decrementSelectedCount(String uuid) {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
             TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
-            TeachingClass existingTeachingClass = teachingClassMapper.findByUuid(uuid);
-            if (existingTeachingClass == null) {
-                System.err.println("教学班不存在: " + uuid);
-                return false;
-            }
             int result = teachingClassMapper.decrementSelectedCount(uuid);
+            if (result > 0) {
+                CatalogChangeLog.record(CatalogChangeLog.Kind.SEATS, uuid);
+                publishSeats(uuid);
+            }
             return result > 0;
         } catch (Exception e) {
             System.err.println("减少选课人数失败: " + e.getMessage());
@@ -197,6 +530,21 @@ public class TeachingClassService {
         }
     }
 
+    /**
+     * 推送教学班的最新选课人数
+     */
+    private void publishSeats(String uuid) {
+        PushHub.publish(PushHub.topic(PushHub.SEATS, uuid), () -> {
+            TeachingClass tc = findByUuid(uuid);
+            if (tc == null) return null;
+            Map<String, Object> seats = new HashMap<>();
+            seats.put("uuid", uuid);
+            seats.put("selectedCount", tc.getSelectedCount());
+            seats.put("capacity", tc.getCapacity());
+            return seats;
+        });
+    }
+
     public boolean hasAvailableSeats(String uuid) {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
             TeachingClassMapper teachingClassMapper = sqlSession.getMapper(TeachingClassMapper.class);
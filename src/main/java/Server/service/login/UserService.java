@@ -52,6 +52,22 @@ public class UserService {
         }
     }
 
+    /**
+     * 校验管理员身份（规定 cardNumber 小于 1000 的是管理员）
+     * @param cardNumber 一卡通号
+     * @param password 密码
+     * @return 账号密码正确且为管理员时返回 true
+     */
+    public boolean verifyAdmin(Integer cardNumber, String password) {
+        if (cardNumber == null || cardNumber >= 1000 || password == null) {
+            return false;
+        }
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            return userMapper.findByCardNumberAndPassword(cardNumber, password) != null;
+        }
+    }
+
     /**
      * 处理用户登录
      * @param data 包含cardNumber和password的Map对象
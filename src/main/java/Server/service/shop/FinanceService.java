@@ -1,13 +1,22 @@
 package Server.service.shop;
 
+import Server.cache.CatalogCache;
 import Server.dao.shop.FinanceMapper;
+import Server.model.Page;
 import Server.model.Response;
 import Server.model.shop.CardTransaction;
 import Server.model.shop.FinanceCard;
+import Server.push.PushHub;
 import Server.util.DatabaseUtil;
+import Server.util.PageCursor;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.session.SqlSession;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static Server.model.shop.FinanceCard.STATUS_LOST;
 
@@ -38,6 +47,10 @@ public class FinanceService {
             int updateResult = financeMapper.updateFinanceCardStatus(cardNumber, FinanceCard.STATUS_LOST);
 
             sqlSession.commit();
+            if (updateResult > 0) {
+                CatalogCache.invalidate(CatalogCache.Region.LOST_CARDS);
+                publishBalance(cardNumber);
+            }
             return updateResult > 0 ?
                     Response.success("挂失成功") :
                     Response.error("挂失失败");
@@ -69,6 +82,10 @@ public class FinanceService {
             int updateResult = financeMapper.updateFinanceCardStatus(targetCardNumber, FinanceCard.STATUS_NORMAL);
 
             sqlSession.commit();
+            if (updateResult > 0) {
+                CatalogCache.invalidate(CatalogCache.Region.LOST_CARDS);
+                publishBalance(targetCardNumber);
+            }
             return updateResult > 0 ?
                     Response.success("解除挂失成功") :
                     Response.error("解除挂失失败");
@@ -82,16 +99,22 @@ public class FinanceService {
      * 查询所有挂失的一卡通账号信息（管理员功能）
      */
     public Response findAllLostCards() {
+        List<FinanceMapper.LostCardInfo> lostCards = getLostCards();
+        return lostCards != null ?
+                Response.success("查询挂失一卡通成功", lostCards) :
+                Response.error(500, "查询挂失一卡通失败");
+    }
+
+    /**
+     * 查询所有挂失的一卡通账号，失败时返回 null
+     */
+    public List<FinanceMapper.LostCardInfo> getLostCards() {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
             FinanceMapper financeMapper = sqlSession.getMapper(FinanceMapper.class);
-
-            // 查询所有挂失的一卡通账号
-            List<FinanceMapper.LostCardInfo> lostCards = financeMapper.findAllLostCards();
-
-            return Response.success("查询挂失一卡通成功", lostCards);
+            return financeMapper.findAllLostCards();
         } catch (Exception e) {
             e.printStackTrace();
-            return Response.error(500, "查询挂失一卡通失败: " + e.getMessage());
+            return null;
         }
     }
 
@@ -138,6 +161,7 @@ public class FinanceService {
             }
 
             sqlSession.commit();
+            if (updateResult > 0) publishBalance(cardNumber);
             return updateResult > 0;
         }
     }
@@ -179,6 +203,7 @@ public class FinanceService {
             }
 
             sqlSession.commit();
+            if (updateResult > 0) publishBalance(cardNumber);
             return updateResult > 0;
         }
     }
@@ -214,10 +239,30 @@ public class FinanceService {
             }
 
             sqlSession.commit();
+            if (updateResult > 0) {
+                // 挂失列表中包含余额
+                CatalogCache.invalidate(CatalogCache.Region.LOST_CARDS);
+                publishBalance(cardNumber);
+            }
             return updateResult > 0;
         }
     }
 
+    /**
+     * 推送一卡通的最新余额与状态
+     */
+    private void publishBalance(Integer cardNumber) {
+        PushHub.publish(PushHub.topic(PushHub.BALANCE, cardNumber), () -> {
+            FinanceCard card = getFinanceCard(cardNumber);
+            if (card == null) return null;
+            Map<String, Object> balance = new HashMap<>();
+            balance.put("cardNumber", cardNumber);
+            balance.put("balance", card.getBalance());
+            balance.put("status", card.getStatus());
+            return balance;
+        });
+    }
+
     /**
      * 查询交易记录
      */
@@ -232,4 +277,43 @@ public class FinanceService {
             }
         }
     }
+
+    /**
+     * 分页获取交易记录（按时间倒序）
+     * @param after 上一页返回的游标，为空表示第一页
+     */
+    public Page<CardTransaction> getTransactionsPage(Integer cardNumber, String type, PageCursor after, int pageSize) {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            FinanceMapper financeMapper = sqlSession.getMapper(FinanceMapper.class);
+            List<CardTransaction> rows = financeMapper.findTransactionsPage(cardNumber,
+                    type == null || type.isEmpty() ? null : type,
+                    after == null ? null : after.time(), after == null ? null : after.key(), pageSize + 1);
+            return PageCursor.page(rows, pageSize, t -> PageCursor.of(t.getTime(), t.getUuid().toString()));
+        }
+    }
+
+    /**
+     * 逐行读取交易记录（按时间升序），用于流式导出；结果不在内存中整体加载
+     * @param cardNumber 一卡通号，为空表示全部
+     * @param type 交易类型，为空表示全部
+     * @param from 起始时间（含），为空表示不限
+     * @param to 截止时间（不含），为空表示不限
+     * @param action 每读到一行调用一次，在当前线程上执行
+     * @return 读取的行数
+     */
+    public long forEachTransaction(Integer cardNumber, String type, LocalDateTime from, LocalDateTime to,
+                                   Consumer<CardTransaction> action) {
+        // 关闭会话时一并关闭游标
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            FinanceMapper financeMapper = sqlSession.getMapper(FinanceMapper.class);
+            Cursor<CardTransaction> cursor = financeMapper.streamTransactions(cardNumber,
+                    type == null || type.isEmpty() ? null : type, from, to);
+            long rows = 0;
+            for (CardTransaction transaction : cursor) {
+                action.accept(transaction);
+                rows++;
+            }
+            return rows;
+        }
+    }
 }
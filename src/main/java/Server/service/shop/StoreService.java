@@ -1,14 +1,23 @@
 package Server.service.shop;
 
+import Server.cache.CatalogCache;
 import Server.dao.shop.StoreMapper;
+import Server.model.Page;
 import Server.model.shop.StoreItem;
 import Server.model.shop.StoreOrder;
 import Server.model.shop.StoreOrderItem;
+import Server.push.PushHub;
 import Server.util.DatabaseUtil;
+import Server.util.PageCursor;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.session.SqlSession;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static Server.model.shop.StoreOrder.*;
 
@@ -28,6 +37,18 @@ public class StoreService {
         }
     }
 
+    /**
+     * 分页获取商品
+     * @param after 上一页返回的游标，为空表示第一页
+     */
+    public Page<StoreItem> getItemsPage(PageCursor after, int pageSize) {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            StoreMapper storeMapper = sqlSession.getMapper(StoreMapper.class);
+            List<StoreItem> rows = storeMapper.findItemsPage(after == null ? null : after.key(), pageSize + 1);
+            return PageCursor.page(rows, pageSize, item -> PageCursor.of(item.getUuid().toString()));
+        }
+    }
+
     /**
      * 搜索商品
      */
@@ -56,6 +77,7 @@ public class StoreService {
             StoreMapper storeMapper = sqlSession.getMapper(StoreMapper.class);
             int result = storeMapper.insertItem(item);
             sqlSession.commit();
+            if (result > 0) CatalogCache.invalidate(CatalogCache.Region.STORE_ITEMS);
             return result > 0;
         }
     }
@@ -68,6 +90,10 @@ public class StoreService {
             StoreMapper storeMapper = sqlSession.getMapper(StoreMapper.class);
             int result = storeMapper.updateItem(item);
             sqlSession.commit();
+            if (result > 0) {
+                CatalogCache.invalidate(CatalogCache.Region.STORE_ITEMS);
+                publishStock(item.getUuid());
+            }
             return result > 0;
         }
     }
@@ -80,6 +106,7 @@ public class StoreService {
             StoreMapper storeMapper = sqlSession.getMapper(StoreMapper.class);
             int result = storeMapper.deleteItem(uuid);
             sqlSession.commit();
+            if (result > 0) CatalogCache.invalidate(CatalogCache.Region.STORE_ITEMS);
             return result > 0;
         }
     }
@@ -151,7 +178,11 @@ public class StoreService {
             }
 
             sqlSession.commit();
+            publishStock(order);
             return order;
+        } finally {
+            // 会话为自动提交，中途失败时库存/销量也可能已被修改
+            CatalogCache.invalidate(CatalogCache.Region.STORE_ITEMS);
         }
     }
 
@@ -186,10 +217,14 @@ public class StoreService {
                     storeMapper.increaseItemSales(item.getItemUuid(), item.getAmount());
                 }
                 sqlSession.commit();
+                publishStock(order);
                 return updateResult > 0;
             } else {
                 throw new RuntimeException("支付失败");
             }
+        } finally {
+            // 会话为自动提交，中途失败时库存/销量也可能已被修改
+            CatalogCache.invalidate(CatalogCache.Region.STORE_ITEMS);
         }
     }
 
@@ -224,7 +259,11 @@ public class StoreService {
 
             int upd = storeMapper.updateOrderStatus(orderId, STATUS_CANCELLED);
             sqlSession.commit();
+            publishStock(order);
             return upd > 0;
+        } finally {
+            // 会话为自动提交，中途失败时库存/销量也可能已被修改
+            CatalogCache.invalidate(CatalogCache.Region.STORE_ITEMS);
         }
     }
 
@@ -264,13 +303,39 @@ public class StoreService {
                     }
                 }
                 sqlSession.commit();
+                publishStock(order);
                 return updateResult > 0;
             } else {
                 throw new RuntimeException("退款失败");
             }
+        } finally {
+            // 会话为自动提交，中途失败时库存/销量也可能已被修改
+            CatalogCache.invalidate(CatalogCache.Region.STORE_ITEMS);
         }
     }
 
+    /**
+     * 推送订单中各商品的最新库存与销量
+     */
+    private void publishStock(StoreOrder order) {
+        for (StoreOrderItem item : order.getItems()) {
+            publishStock(item.getItemUuid());
+        }
+    }
+
+    private void publishStock(UUID uuid) {
+        if (uuid == null) return;
+        PushHub.publish(PushHub.topic(PushHub.STOCK, uuid), () -> {
+            StoreItem item = getItemById(uuid);
+            if (item == null) return null;
+            Map<String, Object> stock = new HashMap<>();
+            stock.put("uuid", uuid);
+            stock.put("stock", item.getStock());
+            stock.put("salesVolume", item.getSalesVolume());
+            return stock;
+        });
+    }
+
     /**
      * 获取用户订单
      */
@@ -291,6 +356,42 @@ public class StoreService {
         }
     }
 
+    /**
+     * 分页获取订单（按时间倒序）
+     * @param cardNumber 用户一卡通号，为空表示所有用户（管理员功能）
+     * @param after 上一页返回的游标，为空表示第一页
+     */
+    public Page<StoreOrder> getOrdersPage(Integer cardNumber, PageCursor after, int pageSize) {
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            StoreMapper storeMapper = sqlSession.getMapper(StoreMapper.class);
+            List<StoreOrder> rows = storeMapper.findOrdersPage(cardNumber,
+                    after == null ? null : after.time(), after == null ? null : after.key(), pageSize + 1);
+            return PageCursor.page(rows, pageSize, order -> PageCursor.of(order.getTime(), order.getId()));
+        }
+    }
+
+    /**
+     * 逐行读取订单（按时间升序），用于流式导出；结果不在内存中整体加载
+     * @param cardNumber 用户一卡通号，为空表示所有用户
+     * @param from 起始时间（含），为空表示不限
+     * @param to 截止时间（不含），为空表示不限
+     * @param action 每读到一行调用一次，在当前线程上执行
+     * @return 读取的行数
+     */
+    public long forEachOrder(Integer cardNumber, LocalDateTime from, LocalDateTime to, Consumer<StoreOrder> action) {
+        // 关闭会话时一并关闭游标
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            StoreMapper storeMapper = sqlSession.getMapper(StoreMapper.class);
+            Cursor<StoreOrder> cursor = storeMapper.streamOrders(cardNumber, from, to);
+            long rows = 0;
+            for (StoreOrder order : cursor) {
+                action.accept(order);
+                rows++;
+            }
+            return rows;
+        }
+    }
+
     // 添加获取完整订单信息的方法
     public StoreOrder getOrderById(String orderId) {
         try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
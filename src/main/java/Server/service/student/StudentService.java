@@ -1,14 +1,18 @@
 package Server.service.student;
 
 import Server.dao.student.StudentMapper;
+import Server.model.Page;
 import Server.model.login.User;
 import Server.model.student.SearchType;
 import Server.model.student.Student;
 import Server.service.login.UserService;
 import Server.util.DatabaseUtil;
+import Server.util.PageCursor;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.session.SqlSession;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public class StudentService {
 
@@ -55,6 +59,54 @@ public class StudentService {
         }
     }
 
+    /**
+     * 分页搜索学生信息（按一卡通号排序）
+     * @param after 上一页返回的游标，为空表示第一页
+     */
+    public Page<Student> searchStudentsPage(String searchTypeStr, String searchValue, Boolean fuzzy,
+                                            PageCursor after, int pageSize) {
+        SearchType searchType;
+        try {
+            searchType = SearchType.fromValue(searchTypeStr);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的搜索类型: " + searchTypeStr);
+        }
+        if (fuzzy == null) {
+            fuzzy = searchType.isFuzzyDefault();
+        }
+        Integer afterCardNumber;
+        try {
+            afterCardNumber = after == null ? null : Integer.valueOf(after.key());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            StudentMapper studentMapper = sqlSession.getMapper(StudentMapper.class);
+            List<Student> rows = studentMapper.searchStudentsPage(searchType, searchValue, fuzzy,
+                    afterCardNumber, pageSize + 1);
+            return PageCursor.page(rows, pageSize, s -> PageCursor.of(String.valueOf(s.getCardNumber())));
+        }
+    }
+
+    /**
+     * 逐行读取全部学生（按一卡通号排序），用于流式导出；结果不在内存中整体加载
+     * @param action 每读到一行调用一次，在当前线程上执行
+     * @return 读取的行数
+     */
+    public long forEachStudent(Consumer<Student> action) {
+        // 关闭会话时一并关闭游标
+        try (SqlSession sqlSession = DatabaseUtil.getSqlSession()) {
+            StudentMapper studentMapper = sqlSession.getMapper(StudentMapper.class);
+            Cursor<Student> cursor = studentMapper.streamStudents();
+            long rows = 0;
+            for (Student student : cursor) {
+                action.accept(student);
+                rows++;
+            }
+            return rows;
+        }
+    }
+
     /**
      * 更新学生信息
      */
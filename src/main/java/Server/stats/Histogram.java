@@ -0,0 +1,86 @@
+package Server.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 低开销的并发耗时直方图（单位：微秒）
+ * 采用对数-线性分桶：每个 2 的幂区间再均分 16 个子桶，相对误差约 6%，
+ * 覆盖 0 ~ 2^40 微秒（约 12 天），共 608 个桶。记录只是几次无锁的原子累加，不分配对象。
+ */
+public final class Histogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一次耗时
+     * @param micros 耗时（微秒），负数按 0 计
+     */
+    public void record(long micros) {
+        long v = Math.max(0, micros);
+        counts.incrementAndGet(bucketOf(v));
+        total.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long sumMicros() {
+        return sum.sum();
+    }
+
+    public long maxMicros() {
+        return max.get();
+    }
+
+    /**
+     * 估算分位数（返回所在桶的上界，偏保守）
+     * @param quantile 0~1，如 0.99
+     * @return 耗时（微秒），无数据时为 0
+     */
+    public long percentile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros());
+            }
+        }
+        return maxMicros();
+    }
+
+    static int bucketOf(long v) {
+        if (v < 2 * SUB_COUNT) return (int) v;
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        // 取最高 5 位（首位恒为 1），在 [16, 31] 内
+        int mantissa = (int) (v >>> (exponent - SUB_BITS));
+        return (exponent - SUB_BITS) * SUB_COUNT + mantissa;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < 2 * SUB_COUNT) return bucket;
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        long mantissa = bucket % SUB_COUNT + SUB_COUNT;
+        return ((mantissa + 1) << (exponent - SUB_BITS)) - 1;
+    }
+}
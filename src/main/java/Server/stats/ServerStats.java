@@ -0,0 +1,189 @@
+package Server.stats;
+
+import Server.cache.CatalogCache;
+import Server.service.course.BookingIndex;
+import Server.service.course.SeatEngine;
+import Server.util.AdmissionControl;
+import Server.util.ServerConfig;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 服务器运行统计
+ * 按请求类型统计耗时分布（p50/p99/p999）、请求数、错误数与收发字节数，
+ * 按 Mapper 方法统计数据库耗时（见 {@link SqlTimingInterceptor}）。
+ * 可通过管理员请求 serverStats 查看，并按 server.stats.dumpIntervalSeconds 定期追加写入 server.stats.file。
+ */
+public final class ServerStats {
+    // 客户端可发送任意类型名，超出上限的类型合并统计
+    private static final int MAX_KEYS = 512;
+    private static final String OTHER = "<other>";
+
+    private static final long STARTED_AT = System.currentTimeMillis();
+    private static final Map<String, RequestStats> REQUESTS = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> STATEMENTS = new ConcurrentHashMap<>();
+
+    private static final Comparator<Map<String, Object>> BY_TOTAL_TIME =
+            Comparator.comparingDouble((Map<String, Object> row) -> (Double) row.get("totalMs")).reversed();
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private ServerStats() {}
+
+    /**
+     * 单个请求类型的统计
+     */
+    private static final class RequestStats {
+        final Histogram latency = new Histogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder bytesIn = new LongAdder();
+        final LongAdder bytesOut = new LongAdder();
+    }
+
+    /**
+     * 记录一个已应答的请求
+     * @param type 请求类型
+     * @param latencyNanos 从解码完成到响应编码完成的耗时
+     * @param bytesIn 请求帧体字节数
+     * @param bytesOut 实际发送的响应帧体字节数
+     * @param code 响应码，400 及以上计为错误
+     */
+    public static void recordRequest(String type, long latencyNanos, int bytesIn, int bytesOut, int code) {
+        RequestStats stats = bounded(REQUESTS, type == null ? OTHER : type, RequestStats::new);
+        stats.latency.record(latencyNanos / 1000);
+        stats.bytesIn.add(bytesIn);
+        stats.bytesOut.add(bytesOut);
+        if (code >= 400) stats.errors.increment();
+    }
+
+    /**
+     * 记录一次 SQL 执行耗时
+     * @param statementId Mapper 方法全名，如 Server.dao.course.TeachingClassMapper.findAll
+     */
+    public static void recordStatement(String statementId, long nanos) {
+        bounded(STATEMENTS, statementId, Histogram::new).record(nanos / 1000);
+    }
+
+    private static <T> T bounded(Map<String, T> map, String key, Supplier<T> factory) {
+        T value = map.get(key);
+        if (value != null) return value;
+        if (map.size() >= MAX_KEYS) key = OTHER;
+        return map.computeIfAbsent(key, k -> factory.get());
+    }
+
+    /**
+     * 当前统计快照，按总耗时降序排列（最值得优化的在前）
+     */
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", STARTED_AT);
+        result.put("uptimeSeconds", (System.currentTimeMillis() - STARTED_AT) / 1000);
+        result.put("connections", AdmissionControl.connectionCount());
+
+        List<Map<String, Object>> requests = new ArrayList<>();
+        REQUESTS.forEach((type, stats) -> {
+            Map<String, Object> row = latencyRow("type", type, stats.latency);
+            row.put("errors", stats.errors.sum());
+            row.put("bytesIn", stats.bytesIn.sum());
+            row.put("bytesOut", stats.bytesOut.sum());
+            requests.add(row);
+        });
+        requests.sort(BY_TOTAL_TIME);
+        result.put("requests", requests);
+
+        List<Map<String, Object>> statements = new ArrayList<>();
+        STATEMENTS.forEach((id, histogram) -> statements.add(latencyRow("statement", id, histogram)));
+        statements.sort(BY_TOTAL_TIME);
+        result.put("statements", statements);
+        result.put("catalogCache", CatalogCache.stats());
+        result.put("seatEngine", SeatEngine.stats());
+        result.put("bookingIndex", BookingIndex.stats());
+        return result;
+    }
+
+    private static Map<String, Object> latencyRow(String keyName, String key, Histogram histogram) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put(keyName, key);
+        row.put("count", histogram.count());
+        row.put("totalMs", millis(histogram.sumMicros()));
+        row.put("p50Ms", millis(histogram.percentile(0.50)));
+        row.put("p99Ms", millis(histogram.percentile(0.99)));
+        row.put("p999Ms", millis(histogram.percentile(0.999)));
+        row.put("maxMs", millis(histogram.maxMicros()));
+        return row;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * 以文本表格形式输出统计，用于定期写入文件
+     */
+    @SuppressWarnings("unchecked")
+    public static String report() {
+        Map<String, Object> snapshot = snapshot();
+        StringBuilder sb = new StringBuilder();
+        sb.append("==== ").append(TIME_FORMAT.format(Instant.now()))
+                .append("  运行 ").append(snapshot.get("uptimeSeconds")).append(" 秒")
+                .append("  连接 ").append(snapshot.get("connections")).append(" ====\n");
+        sb.append(String.format("%-40s %10s %8s %10s %10s %10s %10s %12s %12s%n",
+                "type", "count", "errors", "p50ms", "p99ms", "p999ms", "maxms", "bytesIn", "bytesOut"));
+        for (Map<String, Object> row : (List<Map<String, Object>>) snapshot.get("requests")) {
+            sb.append(String.format("%-40s %10d %8d %10.3f %10.3f %10.3f %10.3f %12d %12d%n",
+                    row.get("type"), row.get("count"), row.get("errors"), row.get("p50Ms"), row.get("p99Ms"),
+                    row.get("p999Ms"), row.get("maxMs"), row.get("bytesIn"), row.get("bytesOut")));
+        }
+        sb.append(String.format("%-72s %10s %10s %10s %10s %12s%n",
+                "statement", "count", "p50ms", "p99ms", "p999ms", "totalms"));
+        for (Map<String, Object> row : (List<Map<String, Object>>) snapshot.get("statements")) {
+            sb.append(String.format("%-72s %10d %10.3f %10.3f %10.3f %12.3f%n",
+                    row.get("statement"), row.get("count"), row.get("p50Ms"), row.get("p99Ms"),
+                    row.get("p999Ms"), row.get("totalMs")));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 启动定期转储（server.stats.dumpIntervalSeconds 为 0 时不启动）
+     */
+    public static void startPeriodicDump() {
+        int interval = ServerConfig.getInt("server.stats.dumpIntervalSeconds", 60);
+        if (interval <= 0) return;
+        String file = ServerConfig.get("server.stats.file", "server-stats.log");
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stats-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> dump(file), interval, interval, TimeUnit.SECONDS);
+    }
+
+    private static void dump(String file) {
+        if (REQUESTS.isEmpty() && STATEMENTS.isEmpty()) return;
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            writer.write(report());
+            writer.write('\n');
+        } catch (IOException e) {
+            System.err.println("写入统计文件失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package Server.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 准入控制：按请求类型限制并发，并限制全局连接数
+ * 超出上限的请求立即拒绝（不排队），由客户端退避重试，避免高峰期所有请求在数据库连接池上一起排队超时。
+ * 配置项：
+ * - server.admission.maxConnections：全局连接上限，0 表示不限
+ * - server.admission.defaultLimit：未单独配置的请求类型的并发上限，0 表示不限
+ * - server.admission.groups：分组名列表（逗号分隔），server.admission.group.&lt;组名&gt; 列出组内请求类型，
+ *   同组请求共享一个并发额度（如统计类查询合计不超过 N 个，不会挤占选课）
+ * - server.admission.limit.&lt;组名或请求类型&gt;：对应的并发上限
+ */
+public final class AdmissionControl {
+    // 响应码：请求类型并发已满 / 连接数已满
+    public static final int CODE_TOO_MANY_REQUESTS = 429;
+    public static final int CODE_TOO_MANY_CONNECTIONS = 503;
+
+    private static final int MAX_CONNECTIONS = ServerConfig.getInt("server.admission.maxConnections", 0);
+    private static final int DEFAULT_LIMIT = ServerConfig.getInt("server.admission.defaultLimit", 0);
+    // 客户端可发送任意类型名，缓存条目数设上限，防止被刷爆
+    private static final int MAX_CACHED_TYPES = 1024;
+
+    private static final AtomicInteger CONNECTIONS = new AtomicInteger();
+    // 请求类型 -> 所属组名（未分组的类型不在表中）
+    private static final Map<String, String> GROUP_OF_TYPE = new ConcurrentHashMap<>();
+    // 组名或请求类型 -> 并发额度；不限流的以 UNLIMITED 占位
+    private static final Map<String, Semaphore> LIMITERS = new ConcurrentHashMap<>();
+    private static final Semaphore UNLIMITED = new Semaphore(0);
+
+    static {
+        for (String group : ServerConfig.get("server.admission.groups", "").split(",")) {
+            group = group.trim();
+            if (group.isEmpty()) continue;
+            for (String type : ServerConfig.get("server.admission.group." + group, "").split(",")) {
+                if (!type.trim().isEmpty()) GROUP_OF_TYPE.put(type.trim(), group);
+            }
+        }
+    }
+
+    private AdmissionControl() {}
+
+    /**
+     * 尝试为一个请求占用其类型的并发额度
+     * @param type 请求类型
+     * @return 已占用的额度，处理结束后须调用 {@link #release(Semaphore)}；超出上限时返回 null
+     */
+    public static Semaphore tryAcquire(String type) {
+        Semaphore limiter = limiterFor(type);
+        if (limiter == UNLIMITED) return UNLIMITED;
+        return limiter.tryAcquire() ? limiter : null;
+    }
+
+    public static void release(Semaphore limiter) {
+        if (limiter != UNLIMITED) limiter.release();
+    }
+
+    /**
+     * 尝试占用一个连接名额，连接关闭时须调用 {@link #releaseConnection()}
+     * @return 未超出全局连接上限时返回 true
+     */
+    public static boolean tryAcquireConnection() {
+        if (MAX_CONNECTIONS <= 0) {
+            CONNECTIONS.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int current = CONNECTIONS.get();
+            if (current >= MAX_CONNECTIONS) return false;
+            if (CONNECTIONS.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    public static void releaseConnection() {
+        CONNECTIONS.decrementAndGet();
+    }
+
+    public static int connectionCount() {
+        return CONNECTIONS.get();
+    }
+
+    private static Semaphore limiterFor(String type) {
+        String key = type == null ? "" : GROUP_OF_TYPE.getOrDefault(type, type);
+        Semaphore limiter = LIMITERS.get(key);
+        if (limiter != null) return limiter;
+        int limit = ServerConfig.getInt("server.admission.limit." + key, DEFAULT_LIMIT);
+        limiter = limit > 0 ? new Semaphore(limit) : UNLIMITED;
+        if (LIMITERS.size() >= MAX_CACHED_TYPES && limiter == UNLIMITED) {
+            return limiter;
+        }
+        Semaphore existing = LIMITERS.putIfAbsent(key, limiter);
+        return existing != null ? existing : limiter;
+    }
+}
@@ -1,12 +1,22 @@
 package Server.util;
 
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * 数据库工具类
@@ -14,6 +24,8 @@ import java.io.InputStream;
  */
 public class DatabaseUtil {
     private static SqlSessionFactory sqlSessionFactory;
+    // 当前线程正在进行的工作单元，没有时为 null
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
 
     static {
         try {
@@ -29,16 +41,127 @@ public class DatabaseUtil {
 
     /**
      * 获取SqlSession实例
+     * 处于工作单元中时返回该工作单元共用的会话
      * @return SqlSession实例
      */
     public static SqlSession getSqlSession() {
-        return sqlSessionFactory.openSession(true);
+        UnitOfWork unit = CURRENT.get();
+        return unit != null ? unit.view : sqlSessionFactory.openSession(true);
     }
 
     /**
      * 获取 SqlSession，可指定是否自动提交（用于需要事务控制的场景）
+     * 处于工作单元中时返回该工作单元共用的会话，事务由工作单元统一提交
      */
     public static SqlSession getSqlSession(boolean autoCommit) {
-        return sqlSessionFactory.openSession(autoCommit);
+        UnitOfWork unit = CURRENT.get();
+        return unit != null ? unit.view : sqlSessionFactory.openSession(autoCommit);
+    }
+
+    /**
+     * 获取批量执行的 SqlSession（非自动提交），同类语句在 commit 时以 JDBC batch 一次发送，用于后台批量写回
+     */
+    public static SqlSession getBatchSqlSession() {
+        return sqlSessionFactory.openSession(ExecutorType.BATCH, false);
+    }
+
+    /**
+     * 执行类路径上的 SQL 脚本（建表等初始化语句，应可重复执行），遇到错误即停止并抛出异常
+     * @param resource 脚本路径，如 "sql/teaching_class_slot.sql"
+     */
+    public static void runScript(String resource) throws IOException {
+        try (SqlSession sqlSession = sqlSessionFactory.openSession(true);
+             Reader reader = Resources.getResourceAsReader(resource)) {
+            ScriptRunner runner = new ScriptRunner(sqlSession.getConnection());
+            runner.setAutoCommit(true);
+            runner.setStopOnError(true);
+            runner.setLogWriter(null);
+            runner.runScript(reader);
+        }
+    }
+
+    /**
+     * 在一个工作单元中执行一段业务逻辑：期间本线程通过 getSqlSession() 取得的都是同一个连接上的同一个事务，
+     * 服务层各自的 close/commit 不再生效，rollback 只标记整个事务回滚；结束时统一提交或回滚。
+     * 已处于工作单元中时直接在外层事务中执行。
+     * @param work 业务逻辑
+     * @param commitIf 根据结果决定是否提交；逻辑抛出异常时总是回滚
+     * @return 业务逻辑的结果
+     */
+    public static <T> T inUnitOfWork(Supplier<T> work, Predicate<? super T> commitIf) {
+        if (CURRENT.get() != null) {
+            return work.get();
+        }
+        UnitOfWork unit = new UnitOfWork(sqlSessionFactory.openSession(false));
+        CURRENT.set(unit);
+        boolean committed = false;
+        try {
+            T result = work.get();
+            if (!unit.rollbackOnly && commitIf.test(result)) {
+                unit.session.commit();
+                committed = true;
+            } else {
+                unit.session.rollback();
+            }
+            return result;
+        } catch (RuntimeException | Error e) {
+            unit.session.rollback();
+            throw e;
+        } finally {
+            CURRENT.remove();
+            unit.session.close();
+            if (committed) {
+                for (Runnable action : unit.afterCommit) {
+                    action.run();
+                }
+            }
+        }
+    }
+
+    /**
+     * 登记写操作成功后的后续动作（缓存失效、变更日志、推送等）
+     * 处于工作单元中时推迟到事务提交之后执行、回滚则丢弃，避免其他线程在提交前读到旧数据并当作新数据缓存；
+     * 否则（自动提交）立即执行
+     */
+    public static void afterCommit(Runnable action) {
+        UnitOfWork unit = CURRENT.get();
+        if (unit != null) {
+            unit.afterCommit.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 一个工作单元：共用的非自动提交会话，以及交给服务层使用的视图
+     */
+    private static final class UnitOfWork {
+        final SqlSession session;
+        final SqlSession view;
+        final List<Runnable> afterCommit = new ArrayList<>();
+        boolean rollbackOnly;
+
+        UnitOfWork(SqlSession session) {
+            this.session = session;
+            this.view = (SqlSession) Proxy.newProxyInstance(SqlSession.class.getClassLoader(),
+                    new Class<?>[]{SqlSession.class}, this::invoke);
+        }
+
+        private Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                    return null;
+                case "rollback":
+                    rollbackOnly = true;
+                    return null;
+                default:
+                    try {
+                        return method.invoke(session, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
     }
 }
@@ -0,0 +1,126 @@
+package Server.util;
+
+import Server.model.Page;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 键集分页（keyset pagination）游标
+ * 游标记录上一页最后一行的排序键：按时间倒序的表为 (time, uuid)，其余为主键。
+ * 下一页查询从该键之后开始（WHERE 键 &lt; / &gt; 游标 ... LIMIT n），耗时与内存只取决于页大小，与偏移量和表大小无关。
+ * 对客户端而言游标是不透明字符串（Base64），只需原样带回。
+ */
+public final class PageCursor {
+    private static final int MAX_PAGE_SIZE = Math.max(1, ServerConfig.getInt("server.page.maxSize", 200));
+    private static final String TIME_PREFIX = "t:";
+    private static final String KEY_PREFIX = "k:";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final LocalDateTime time;
+    private final String key;
+
+    private PageCursor(LocalDateTime time, String key) {
+        this.time = time;
+        this.key = key;
+    }
+
+    /**
+     * 上一页最后一行的时间，仅 (time, uuid) 游标有值
+     */
+    public LocalDateTime time() {
+        return time;
+    }
+
+    /**
+     * 上一页最后一行的 uuid 或主键
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * 解析请求中的页大小
+     * @param raw 请求数据中的 pageSize，可为数字或数字字符串
+     * @return 限制在 1 ~ server.page.maxSize 之间的页大小；未提供时返回 null，表示不分页（兼容旧客户端）
+     * @throws IllegalArgumentException pageSize 不是数字
+     */
+    public static Integer pageSize(Object raw) {
+        if (raw == null) return null;
+        int size;
+        if (raw instanceof Number) {
+            size = ((Number) raw).intValue();
+        } else {
+            try {
+                size = Integer.parseInt(raw.toString().trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的分页大小: " + raw);
+            }
+        }
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * 解析游标
+     * @return 游标；为空表示从第一页开始，返回 null
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static PageCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) return null;
+        String text;
+        try {
+            text = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        if (text.startsWith(KEY_PREFIX)) {
+            return new PageCursor(null, text.substring(KEY_PREFIX.length()));
+        }
+        int split = text.indexOf('|');
+        if (!text.startsWith(TIME_PREFIX) || split < 0) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        try {
+            LocalDateTime time = LocalDateTime.parse(text.substring(TIME_PREFIX.length(), split));
+            return new PageCursor(time, text.substring(split + 1));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 按 (time, uuid) 排序的表的游标
+     */
+    public static String of(LocalDateTime time, String uuid) {
+        return encode(TIME_PREFIX + time + "|" + uuid);
+    }
+
+    /**
+     * 按主键排序的表的游标
+     */
+    public static String of(String key) {
+        return encode(KEY_PREFIX + key);
+    }
+
+    private static String encode(String text) {
+        return ENCODER.encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 由多查一行的查询结果组装一页：查询时 LIMIT pageSize + 1，多出的一行只用来判断是否还有下一页
+     * @param rows 查询结果，最多 pageSize + 1 行
+     * @param cursorOf 由一行生成指向其后的游标
+     */
+    public static <T> Page<T> page(List<T> rows, int pageSize, Function<T, String> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, pageSize);
+        return new Page<>(items, cursorOf.apply(items.get(pageSize - 1)));
+    }
+}
@@ -0,0 +1,46 @@
+package Server.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * 服务器配置工具类
+ * 从 classpath 下 application.properties 读取 server.* 等配置，
+ * 同名 JVM 系统属性（-Dkey=value）优先于配置文件
+ */
+public final class ServerConfig {
+    private static final Properties PROPS = new Properties();
+
+    static {
+        try (InputStream in = ServerConfig.class.getClassLoader().getResourceAsStream("application.properties")) {
+            if (in != null) PROPS.load(in);
+        } catch (IOException e) {
+            System.err.println("读取 application.properties 失败: " + e.getMessage());
+        }
+    }
+
+    private ServerConfig() {}
+
+    public static String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) value = PROPS.getProperty(key);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("配置项 " + key + " 不是合法整数: " + value);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,14 @@
+-- teaching_class_slot：教学班上课时间表（由 teaching_classes.schedule 展开，随教学班增删改维护）
+-- 服务端启动时执行；表已存在时跳过，为空时由服务端按全部教学班重建
+CREATE TABLE IF NOT EXISTS teaching_class_slot (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    teaching_class_uuid VARCHAR(36) NOT NULL,   -- 教学班uuid
+    weekday TINYINT NOT NULL,          -- 星期，1 = 周一 ... 7 = 周日
+    start_period TINYINT NOT NULL,     -- 起始节
+    end_period TINYINT NOT NULL,       -- 结束节
+    place VARCHAR(100),                -- 上课地点（冗余自 teaching_classes，便于按教室查询）
+    INDEX idx_slot_time (weekday, start_period, end_period), -- 按时间段查询有课的教学班
+    INDEX idx_slot_place (place, weekday, start_period),     -- 按教室查询占用
+    INDEX idx_slot_class (teaching_class_uuid),
+    FOREIGN KEY (teaching_class_uuid) REFERENCES teaching_classes(uuid) ON DELETE CASCADE
+);
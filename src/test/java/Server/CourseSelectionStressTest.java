@@ -0,0 +1,129 @@
+package Server;
+
+import Server.model.Response;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 选课并发压力测试：多个线程同时经 ClientHandler 选同一个教学班，走完整的数据库路径（H2，MySQL 兼容模式）
+ * 验证条件 UPDATE 占座位 + 唯一键拦截重复选课在并发下不会超卖，失败的请求整体回滚、不留下多占的座位
+ */
+class CourseSelectionStressTest {
+    private static final String COURSE_ID = "STRESS01";
+    private static final String CLASS_UUID = "00000000-0000-0000-0000-00000000c1a5";
+    private static final int CAPACITY = 10;
+    private static final int STUDENTS = 40;
+    // 每个学生重复发送的选课请求数，模拟连点
+    private static final int ATTEMPTS_PER_STUDENT = 3;
+    private static final String FULL = "教学班已满，无法选课";
+    private static final String DUPLICATE = "您已经选过该课程";
+
+    @BeforeAll
+    static void createSchema() throws Exception {
+        TestDatabase.createSchema();
+    }
+
+    @BeforeEach
+    void resetData() throws SQLException {
+        TestDatabase.execute("DELETE FROM student_teaching_class",
+                "DELETE FROM teaching_classes",
+                "DELETE FROM courses",
+                "INSERT INTO courses (course_id, course_name, school, credit) VALUES ('" + COURSE_ID + "', '压力测试', '测试学院', 2)",
+                "INSERT INTO teaching_classes (uuid, course_id, teacher_name, capacity, selected_count) " +
+                        "VALUES ('" + CLASS_UUID + "', '" + COURSE_ID + "', '测试教师', " + CAPACITY + ", 0)");
+    }
+
+    @Test
+    void concurrentSelectionsNeverExceedCapacity() throws Exception {
+        int threads = STUDENTS * ATTEMPTS_PER_STUDENT;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Response>> results = new ArrayList<>();
+        for (int s = 0; s < STUDENTS; s++) {
+            int cardNumber = 213000000 + s;
+            for (int a = 0; a < ATTEMPTS_PER_STUDENT; a++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return select(cardNumber);
+                }));
+            }
+        }
+        start.countDown();
+
+        int granted = 0;
+        for (Future<Response> result : results) {
+            Response response = result.get(60, TimeUnit.SECONDS);
+            if (response.getCode() == 200) {
+                granted++;
+            } else {
+                // 失败只能是已满或重复选课，重复选课被唯一键拦截时不应报成其他错误
+                assertTrue(FULL.equals(response.getMessage()) || DUPLICATE.equals(response.getMessage()), response.getMessage());
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(CAPACITY, granted, "成功选课数应恰好等于课容量");
+        assertEquals(CAPACITY, TestDatabase.queryInt("SELECT selected_count FROM teaching_classes WHERE uuid = '" + CLASS_UUID + "'"),
+                "已选人数应与成功选课数一致");
+        assertEquals(CAPACITY, TestDatabase.queryInt("SELECT COUNT(*) FROM student_teaching_class"),
+                "选课关系条数应与成功选课数一致");
+        assertEquals(TestDatabase.queryInt("SELECT COUNT(*) FROM student_teaching_class"),
+                TestDatabase.queryInt("SELECT selected_count FROM teaching_classes WHERE uuid = '" + CLASS_UUID + "'"),
+                "选课关系条数应与已选人数一致");
+        assertEquals(CAPACITY, TestDatabase.queryInt("SELECT COUNT(DISTINCT student_card_number) FROM student_teaching_class"),
+                "同一学生不应重复选中同一教学班");
+    }
+
+    @Test
+    void repeatedSelectionsReturnDuplicate() throws Exception {
+        int cardNumber = 215000000;
+        assertEquals(200, select(cardNumber).getCode());
+        for (int a = 0; a < ATTEMPTS_PER_STUDENT; a++) {
+            Response again = select(cardNumber);
+            assertEquals(DUPLICATE, again.getMessage(), "重复选课应提示已选过");
+        }
+
+        assertEquals(1, TestDatabase.queryInt("SELECT COUNT(*) FROM student_teaching_class"));
+        assertEquals(TestDatabase.queryInt("SELECT COUNT(*) FROM student_teaching_class"),
+                TestDatabase.queryInt("SELECT selected_count FROM teaching_classes WHERE uuid = '" + CLASS_UUID + "'"),
+                "重复选课回滚后已选人数应与选课关系条数一致");
+    }
+
+    @Test
+    void fullClassRejectsFurtherSelections() throws Exception {
+        for (int s = 0; s < CAPACITY; s++) {
+            assertEquals(200, select(214000000 + s).getCode());
+        }
+        Response rejected = select(214999999);
+        assertTrue(rejected.getCode() != 200, "已满的教学班不应再选上");
+        assertEquals(CAPACITY, TestDatabase.queryInt("SELECT selected_count FROM teaching_classes WHERE uuid = '" + CLASS_UUID + "'"));
+    }
+
+    /**
+     * 以一个新连接的身份发送一次选课请求；被准入控制限流时稍后重试
+     */
+    private static Response select(int cardNumber) throws InterruptedException {
+        ClientHandler handler = new ClientHandler();
+        String json = "{\"type\":\"selectCourse\",\"data\":{\"cardNumber\":" + cardNumber +
+                ",\"teachingClassUuid\":\"" + CLASS_UUID + "\"}}";
+        while (true) {
+            Response response = handler.handleRequest(handler.decodeRequest(0, json.getBytes(StandardCharsets.UTF_8)));
+            if (response.getCode() != 429) return response;
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package Server;
+
+import Server.model.Response;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 响应帧编码的内存分配对比：原先先生成 JSON 字符串、再转字节数组、再复制进带长度前缀的帧，
+ * 现在由 encodeFrame 经编解码器流式写入线程复用的 FrameBuffer，只按实际长度复制一次。
+ * 用 ThreadMXBean.getThreadAllocatedBytes 统计当前线程在两种方式下编码同一个较大响应的分配字节数。
+ */
+class FrameEncodingAllocationTest {
+    private static final int ROWS = 2000;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 200;
+
+    // 与 ClientHandler 的配置一致；本测试的响应只含字符串与数字，不涉及其额外的类型适配器
+    private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+
+    @Test
+    void frameBufferAllocatesLessThanStringPath() {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        assumeTrue(threads != null && threads.isThreadAllocatedMemorySupported(), "当前 JVM 不支持统计线程分配字节数");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        ClientHandler handler = new ClientHandler();
+        Response response = largeResponse();
+
+        ByteBuffer oldFrame = encodeViaString(response);
+        ByteBuffer newFrame = handler.encodeFrame(null, response);
+        // 长度前缀的高位现在带有编码标志，只比较消息体
+        assertArrayEquals(Arrays.copyOfRange(oldFrame.array(), 4, oldFrame.limit()),
+                Arrays.copyOfRange(newFrame.array(), 4, newFrame.limit()), "两种方式应编码出相同的消息体");
+
+        for (int i = 0; i < WARMUP; i++) {
+            encodeViaString(response);
+            handler.encodeFrame(null, response);
+        }
+
+        long tid = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < ITERATIONS; i++) {
+            encodeViaString(response);
+        }
+        long viaString = (threads.getThreadAllocatedBytes(tid) - before) / ITERATIONS;
+
+        before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < ITERATIONS; i++) {
+            handler.encodeFrame(null, response);
+        }
+        long viaFrameBuffer = (threads.getThreadAllocatedBytes(tid) - before) / ITERATIONS;
+
+        System.out.printf("帧长 %d 字节：字符串方式每帧分配 %d 字节，FrameBuffer 方式每帧分配 %d 字节（%.2f 倍）%n",
+                newFrame.capacity(), viaString, viaFrameBuffer, (double) viaFrameBuffer / viaString);
+        assertTrue(viaFrameBuffer * 2 < viaString,
+                "FrameBuffer 方式的分配应不到字符串方式的一半: " + viaFrameBuffer + " vs " + viaString);
+    }
+
+    /**
+     * 改动前的编码方式：JSON 字符串 -> UTF-8 字节数组 -> 带长度前缀的帧
+     */
+    private static ByteBuffer encodeViaString(Response response) {
+        byte[] body = GSON.toJson(response).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(4 + body.length);
+        frame.putInt(body.length);
+        frame.put(body);
+        frame.flip();
+        return frame;
+    }
+
+    // 类似 getAllTeachingClasses 的列表响应
+    private static Response largeResponse() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("uuid", String.format("00000000-0000-0000-0000-%012d", i));
+            row.put("courseId", "CS" + (1000 + i % 300));
+            row.put("teacherName", "教师" + i % 150);
+            row.put("schedule", "{\"周一\":\"1-2节\",\"周三\":\"3-4节\"}");
+            row.put("place", "教一-" + (100 + i % 60));
+            row.put("capacity", 60);
+            row.put("selectedCount", i % 61);
+            rows.add(row);
+        }
+        return Response.success("获取所有教学班成功", rows);
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+}
@@ -0,0 +1,63 @@
+package Server;
+
+import Server.model.Response;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 流式导出仅限管理员：身份校验不通过时返回 403，不打开游标
+ */
+class StreamExportAuthTest {
+    private static final int ADMIN = 100;
+    private static final int STUDENT = 213000001;
+
+    @BeforeAll
+    static void createUsers() throws Exception {
+        TestDatabase.createSchema();
+        TestDatabase.execute("DELETE FROM user WHERE card_number IN (" + ADMIN + ", " + STUDENT + ")",
+                "INSERT INTO user (card_number, password, id, name) VALUES (" + ADMIN + ", 'admin-pw', 'A100', '管理员')",
+                "INSERT INTO user (card_number, password, id, name) VALUES (" + STUDENT + ", 'student-pw', 'S213', '学生')");
+    }
+
+    @Test
+    void exportWithoutCredentialsIsForbidden() {
+        assertEquals(403, export("{\"dataset\":\"students\"}").getCode());
+    }
+
+    @Test
+    void nonAdminCannotExportOrFilterByCardNumber() {
+        Response all = export("{\"dataset\":\"transactions\",\"adminCardNumber\":" + STUDENT + ",\"password\":\"student-pw\"}");
+        assertEquals(403, all.getCode());
+
+        // 用 cardNumber 按他人一卡通号筛选，同样拒绝
+        Response filtered = export("{\"dataset\":\"orders\",\"cardNumber\":" + ADMIN +
+                ",\"adminCardNumber\":" + STUDENT + ",\"password\":\"student-pw\"}");
+        assertEquals(403, filtered.getCode());
+
+        // 筛选条件中的 cardNumber 不能当作身份
+        Response spoofed = export("{\"dataset\":\"transactions\",\"cardNumber\":" + ADMIN + ",\"password\":\"admin-pw\"}");
+        assertEquals(403, spoofed.getCode());
+    }
+
+    @Test
+    void adminWithWrongPasswordIsForbidden() {
+        assertEquals(403, export("{\"dataset\":\"students\",\"adminCardNumber\":" + ADMIN + ",\"password\":\"wrong\"}").getCode());
+    }
+
+    @Test
+    void adminPassesTheCheck() {
+        // 通过校验后才检查数据集，未知数据集返回 400 而不是 403
+        Response response = export("{\"dataset\":\"nope\",\"adminCardNumber\":" + ADMIN + ",\"password\":\"admin-pw\"}");
+        assertEquals(400, response.getCode());
+    }
+
+    private static Response export(String data) {
+        ClientHandler handler = new ClientHandler();
+        String json = "{\"type\":\"streamExport\",\"requestId\":1,\"data\":" + data + "}";
+        return handler.handleRequest(handler.decodeRequest(0, json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
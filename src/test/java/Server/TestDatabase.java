@@ -0,0 +1,54 @@
+package Server;
+
+import Server.util.DatabaseUtil;
+import org.apache.ibatis.session.SqlSession;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * 测试用内存数据库（H2，见 src/test/resources/mybatis-config.xml）：建表与直接执行 SQL
+ */
+public final class TestDatabase {
+    private static boolean created;
+
+    private TestDatabase() {}
+
+    /**
+     * 建立测试用表（schema.sql 与服务端启动时执行的建表脚本），同一进程内只执行一次
+     */
+    public static synchronized void createSchema() throws IOException, SQLException {
+        if (created) return;
+        String ddl;
+        try (InputStream in = TestDatabase.class.getResourceAsStream("/schema.sql")) {
+            ddl = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        for (String sql : ddl.replaceAll("(?m)^--.*$", "").split(";")) {
+            if (!sql.isBlank()) execute(sql);
+        }
+        DatabaseUtil.runScript("sql/teaching_class_slot.sql");
+        created = true;
+    }
+
+    public static void execute(String... statements) throws SQLException {
+        try (SqlSession session = DatabaseUtil.getSqlSession();
+             Statement st = session.getConnection().createStatement()) {
+            for (String sql : statements) {
+                st.execute(sql);
+            }
+        }
+    }
+
+    public static int queryInt(String sql) throws SQLException {
+        try (SqlSession session = DatabaseUtil.getSqlSession();
+             Statement st = session.getConnection().createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package Server;
+
+import Server.model.Response;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * blocking 与 virtual 两种运行模式的吞吐量对比：模拟大量连接，每个连接在自己的线程上
+ * 阻塞等待下一帧（以 sleep 模拟客户端思考时间与网络往返）后经 ClientHandler 查询数据库（H2），
+ * 分别交给 blocking 模式的平台线程池与 virtual 模式的虚拟线程执行器，输出每秒完成的请求数。
+ * 虚拟线程需 Java 21+，低版本 JVM 上只测平台线程，虚拟线程部分跳过。
+ */
+class ThreadModeThroughputTest {
+    private static final String COURSE_ID = "TPUT01";
+    private static final int CONNECTIONS = 1000;
+    private static final int REQUESTS_PER_CONNECTION = 5;
+    // 每个请求前阻塞等待的时间，对应连接线程阻塞在套接字读取上的时间
+    private static final long WAIT_MILLIS = 20;
+
+    @BeforeAll
+    static void createData() throws Exception {
+        TestDatabase.createSchema();
+        TestDatabase.execute("DELETE FROM courses WHERE course_id = '" + COURSE_ID + "'",
+                "INSERT INTO courses (course_id, course_name, school, credit) VALUES ('" + COURSE_ID + "', '吞吐量测试', '测试学院', 2)");
+    }
+
+    @Test
+    void compareBlockingAndVirtualModes() throws Exception {
+        // 预热：类加载、连接池建立与 JIT
+        run(Executors.newCachedThreadPool(), 50);
+
+        double platform = run(Executors.newCachedThreadPool(), CONNECTIONS);
+        System.out.printf("blocking（平台线程）: %d 个连接 × %d 个请求，%.0f 请求/秒%n",
+                CONNECTIONS, REQUESTS_PER_CONNECTION, platform);
+
+        assumeTrue(Runtime.version().feature() >= 21, "当前 JVM 不支持虚拟线程（需 Java 21+），跳过 virtual 模式");
+        double virtual = run(Server.createVirtualThreadExecutor(), CONNECTIONS);
+        System.out.printf("virtual（虚拟线程）: %d 个连接 × %d 个请求，%.0f 请求/秒（blocking 的 %.2f 倍）%n",
+                CONNECTIONS, REQUESTS_PER_CONNECTION, virtual, virtual / platform);
+    }
+
+    /**
+     * 每个连接一个任务，全部完成后返回每秒完成的请求数；任一请求失败则测试失败
+     */
+    private static double run(ExecutorService executor, int connections) throws Exception {
+        long start = System.nanoTime();
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int c = 0; c < connections; c++) {
+                results.add(executor.submit(ThreadModeThroughputTest::serveConnection));
+            }
+            int ok = 0;
+            for (Future<Integer> result : results) {
+                ok += result.get(120, TimeUnit.SECONDS);
+            }
+            assertEquals(connections * REQUESTS_PER_CONNECTION, ok, "全部请求都应成功");
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return connections * REQUESTS_PER_CONNECTION / seconds;
+    }
+
+    /**
+     * 一个连接：依次阻塞等待并处理若干请求，返回成功的请求数
+     */
+    private static int serveConnection() throws InterruptedException {
+        ClientHandler handler = new ClientHandler();
+        byte[] frame = ("{\"type\":\"getCourseById\",\"data\":{\"courseId\":\"" + COURSE_ID + "\"}}")
+                .getBytes(StandardCharsets.UTF_8);
+        int ok = 0;
+        for (int i = 0; i < REQUESTS_PER_CONNECTION; i++) {
+            Thread.sleep(WAIT_MILLIS);
+            Response response = handler.handleRequest(handler.decodeRequest(0, frame));
+            if (response.getCode() == 200) ok++;
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,116 @@
+package Server.service.course;
+
+import Server.TestDatabase;
+import Server.model.Response;
+import Server.model.course.TeachingClass;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 并发排课：多个请求同时把不同的教学班排进同一教室的同一时间，只能有一个写入成功，其余返回时间冲突
+ */
+class BookingRaceTest {
+    private static final String COURSE_ID = "BOOK01";
+    private static final String PLACE = "教二-202";
+    private static final String SCHEDULE = "{\"周二\":\"3-4节\"}";
+    private static final int THREADS = 16;
+
+    private final TeachingClassService service = new TeachingClassService();
+
+    @BeforeAll
+    static void createSchema() throws Exception {
+        TestDatabase.createSchema();
+    }
+
+    @BeforeEach
+    void resetData() throws SQLException {
+        TestDatabase.execute("DELETE FROM teaching_class_slot",
+                "DELETE FROM student_teaching_class",
+                "DELETE FROM teaching_classes",
+                "DELETE FROM courses",
+                "INSERT INTO courses (course_id, course_name, school, credit) VALUES ('" + COURSE_ID + "', '排课并发测试', '测试学院', 2)");
+        BookingIndex.resetForTest();
+    }
+
+    @Test
+    void concurrentAddsBookRoomOnce() throws Exception {
+        List<Response> results = race(i -> service.addTeachingClassIfFree(teachingClass(i, PLACE, SCHEDULE)));
+
+        assertEquals(1, successes(results), "同一教室同一时间只能排入一个教学班");
+        for (Response r : results) {
+            if (r.getCode() != 200) assertTrue(r.getMessage().startsWith("时间冲突"), r.getMessage());
+        }
+        assertEquals(1, TestDatabase.queryInt("SELECT COUNT(*) FROM teaching_classes"));
+        assertEquals(1, TestDatabase.queryInt("SELECT COUNT(*) FROM teaching_class_slot WHERE place = '" + PLACE + "'"));
+    }
+
+    @Test
+    void concurrentUpdatesMoveIntoRoomOnce() throws Exception {
+        // 各自在不同教室，同时改到同一教室同一时间
+        for (int i = 0; i < THREADS; i++) {
+            assertEquals(200, service.addTeachingClassIfFree(teachingClass(i, "教三-" + i, SCHEDULE)).getCode());
+        }
+
+        List<Response> results = race(i -> service.updateTeachingClassIfFree(teachingClass(i, PLACE, SCHEDULE)));
+
+        assertEquals(1, successes(results), "同一教室同一时间只能排入一个教学班");
+        assertEquals(1, TestDatabase.queryInt("SELECT COUNT(*) FROM teaching_classes WHERE place = '" + PLACE + "'"));
+        assertTrue(service.findBookingCollisions(null).isEmpty(), "索引中不应留下重复占用");
+    }
+
+    private interface Attempt {
+        Response run(int i);
+    }
+
+    private static List<Response> race(Attempt attempt) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int n = i;
+                Callable<Response> task = () -> {
+                    start.await();
+                    return attempt.run(n);
+                };
+                futures.add(pool.submit(task));
+            }
+            start.countDown();
+            List<Response> results = new ArrayList<>();
+            for (Future<Response> f : futures) {
+                results.add(f.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static int successes(List<Response> results) {
+        int n = 0;
+        for (Response r : results) {
+            if (r.getCode() == 200) n++;
+        }
+        return n;
+    }
+
+    // 教师各不相同，只在教室上冲突
+    private static TeachingClass teachingClass(int i, String place, String schedule) {
+        String uuid = String.format("00000000-0000-0000-0000-%012d", 700 + i);
+        return new TeachingClass(uuid, COURSE_ID, "教师" + i, schedule, place, 30, 0);
+    }
+}
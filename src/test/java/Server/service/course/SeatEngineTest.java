@@ -0,0 +1,201 @@
+package Server.service.course;
+
+import Common.schedule.ScheduleMask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 选课高峰模式内存座位表：并发判定不超卖、不重复，写回失败时重试，多次失败后逐条写回并丢弃坏记录
+ */
+class SeatEngineTest {
+    private static final String CLASS_UUID = "00000000-0000-0000-0000-0000000005ea";
+    private static final int CAPACITY = 25;
+    private static final int STUDENTS = 200;
+
+    private final RecordingStore store = new RecordingStore();
+
+    @BeforeEach
+    void setUp() {
+        SeatEngine.startForTest(store);
+        SeatEngine.putClassForTest(CLASS_UUID, CAPACITY, ScheduleMask.EMPTY);
+        for (int s = 0; s < STUDENTS; s++) {
+            SeatEngine.putStudentForTest(card(s));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        SeatEngine.stopForTest();
+    }
+
+    @Test
+    void concurrentSelectionsGrantExactlyCapacity() throws Exception {
+        // 每个学生两个线程同时选同一教学班
+        List<SeatEngine.Result> results = race(STUDENTS * 2, i -> SeatEngine.select(card(i / 2), CLASS_UUID));
+
+        assertEquals(CAPACITY, results.stream().filter(r -> r == SeatEngine.Result.OK).count());
+        assertEquals(CAPACITY, SeatEngine.selectedCount(CLASS_UUID));
+        Set<Integer> holders = new HashSet<>();
+        for (int s = 0; s < STUDENTS; s++) {
+            List<String> mine = SeatEngine.selections(card(s));
+            assertTrue(mine.size() <= 1, "同一学生不应重复选中同一教学班");
+            if (!mine.isEmpty()) holders.add(card(s));
+        }
+        assertEquals(CAPACITY, holders.size());
+
+        SeatEngine.flush();
+        assertEquals(CAPACITY, store.batchOps.size());
+        assertEquals(holders, new HashSet<>(store.batchCards()));
+    }
+
+    @Test
+    void sameStudentRacingGetsOneSeat() throws Exception {
+        List<SeatEngine.Result> results = race(64, i -> SeatEngine.select(card(0), CLASS_UUID));
+
+        assertEquals(1, results.stream().filter(r -> r == SeatEngine.Result.OK).count());
+        assertEquals(63, results.stream().filter(r -> r == SeatEngine.Result.ALREADY_SELECTED).count());
+        assertEquals(1, SeatEngine.selectedCount(CLASS_UUID));
+    }
+
+    @Test
+    void failedBatchIsRetriedThenWrittenOneByOne() {
+        for (int s = 0; s < 5; s++) {
+            assertEquals(SeatEngine.Result.OK, SeatEngine.select(card(s), CLASS_UUID));
+        }
+        store.failBatches = Integer.MAX_VALUE;
+        store.badCard = card(2);
+
+        // 前两次整批失败，留待重试
+        SeatEngine.flush();
+        SeatEngine.flush();
+        assertEquals(2, store.batchAttempts);
+        assertTrue(store.oneByOne.isEmpty());
+        assertEquals(0L, SeatEngine.stats().get("written"));
+
+        // 第三次失败后改为逐条写回，无法写入的一条被丢弃
+        SeatEngine.flush();
+        assertEquals(3, store.batchAttempts);
+        assertEquals(5, store.oneByOne.size());
+        assertEquals(4L, SeatEngine.stats().get("written"));
+        assertEquals(1L, SeatEngine.stats().get("dropped"));
+
+        // 队列已清空，之后的写回不再重复
+        SeatEngine.flush();
+        assertEquals(3, store.batchAttempts);
+    }
+
+    @Test
+    void batchSucceedsAfterTransientFailure() {
+        for (int s = 0; s < 3; s++) {
+            SeatEngine.select(card(s), CLASS_UUID);
+        }
+        store.failBatches = 1;
+
+        SeatEngine.flush();
+        assertTrue(store.batchOps.isEmpty());
+        SeatEngine.select(card(3), CLASS_UUID);
+        SeatEngine.flush();
+
+        // 重试的一批与新记录一起写入，不丢失也不重复
+        assertEquals(4, store.batchOps.size());
+        assertEquals(4, new HashSet<>(store.batchCards()).size());
+        assertTrue(store.oneByOne.isEmpty());
+        assertEquals(4L, SeatEngine.stats().get("written"));
+    }
+
+    @Test
+    void removedClassIsNotWrittenBack() {
+        SeatEngine.select(card(0), CLASS_UUID);
+        SeatEngine.classRemoved(CLASS_UUID);
+
+        SeatEngine.flush();
+        assertEquals(0, store.batchAttempts);
+        assertFalse(SeatEngine.selections(card(0)).contains(CLASS_UUID));
+    }
+
+    private static Integer card(int s) {
+        return 213000000 + s;
+    }
+
+    private interface Attempt {
+        SeatEngine.Result run(int i);
+    }
+
+    /**
+     * 所有线程就绪后同时开始，返回各自的判定结果
+     */
+    private static List<SeatEngine.Result> race(int threads, Attempt attempt) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SeatEngine.Result>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> {
+                ready.countDown();
+                start.await();
+                return attempt.run(index);
+            }));
+        }
+        ready.await();
+        start.countDown();
+        List<SeatEngine.Result> results = new ArrayList<>();
+        for (Future<SeatEngine.Result> future : futures) {
+            results.add(future.get(30, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        return results;
+    }
+
+    /**
+     * 记录写回内容的写回目标；可令前 failBatches 次整批写回失败、某个学生的逐条写回始终失败
+     */
+    private static final class RecordingStore implements SeatEngine.Store {
+        final List<SeatEngine.Op> batchOps = new ArrayList<>();
+        final List<SeatEngine.Op> oneByOne = new ArrayList<>();
+        int batchAttempts;
+        int failBatches;
+        Integer badCard;
+
+        @Override
+        public void writeBatch(List<SeatEngine.Op> batch) {
+            batchAttempts++;
+            if (failBatches > 0) {
+                failBatches--;
+                throw new IllegalStateException("模拟数据库故障");
+            }
+            batchOps.addAll(batch);
+        }
+
+        @Override
+        public void writeOne(SeatEngine.Op op) {
+            oneByOne.add(op);
+            if (op.cardNumber.equals(badCard)) {
+                throw new IllegalStateException("模拟外键冲突");
+            }
+        }
+
+        List<Integer> batchCards() {
+            List<Integer> cards = new ArrayList<>();
+            for (SeatEngine.Op op : batchOps) {
+                cards.add(op.cardNumber);
+            }
+            return cards;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package Server.service.course;
+
+import Common.schedule.Schedule;
+import Server.TestDatabase;
+import Server.model.course.TeachingClass;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 教学班增删改与 teaching_class_slot 在同一事务中：上课时间写入失败时教学班本身也回滚；
+ * 以及基于 teaching_class_slot 的时段、教师课表与空闲节次查询
+ */
+class TeachingClassServiceTest {
+    private static final String COURSE_ID = "SLOT01";
+    private static final String UUID = "00000000-0000-0000-0000-0000000051a7";
+
+    private final TeachingClassService service = new TeachingClassService();
+
+    @BeforeAll
+    static void createSchema() throws Exception {
+        TestDatabase.createSchema();
+    }
+
+    @BeforeEach
+    void resetData() throws SQLException {
+        TestDatabase.execute("DELETE FROM teaching_class_slot",
+                "DELETE FROM student_teaching_class",
+                "DELETE FROM teaching_classes",
+                "DELETE FROM courses",
+                "INSERT INTO courses (course_id, course_name, school, credit) VALUES ('" + COURSE_ID + "', '排课测试', '测试学院', 2)");
+    }
+
+    @AfterEach
+    void dropFaultInjection() throws SQLException {
+        TestDatabase.execute("ALTER TABLE teaching_class_slot DROP CONSTRAINT IF EXISTS chk_no_friday");
+    }
+
+    @Test
+    void addWritesClassAndSlotsTogether() throws SQLException {
+        assertTrue(service.addTeachingClass(teachingClass("{\"周一\":\"1-2节\",\"周三\":\"3-4节\"}")));
+
+        assertEquals(1, countClasses());
+        assertEquals(2, countSlots());
+    }
+
+    @Test
+    void addRollsBackClassWhenSlotsFail() throws SQLException {
+        rejectFridaySlots();
+
+        assertFalse(service.addTeachingClass(teachingClass("{\"周五\":\"1-2节\"}")));
+
+        assertEquals(0, countClasses(), "上课时间写入失败时教学班不应留在库中");
+        assertEquals(0, countSlots());
+    }
+
+    @Test
+    void updateRollsBackClassWhenSlotsFail() throws SQLException {
+        assertTrue(service.addTeachingClass(teachingClass("{\"周一\":\"1-2节\"}")));
+        rejectFridaySlots();
+
+        TeachingClass moved = teachingClass("{\"周五\":\"1-2节\"}");
+        moved.setCapacity(99);
+        assertFalse(service.updateTeachingClass(moved));
+
+        assertEquals(30, TestDatabase.queryInt("SELECT capacity FROM teaching_classes WHERE uuid = '" + UUID + "'"),
+                "上课时间写入失败时教学班的修改应一并回滚");
+        assertEquals(1, TestDatabase.queryInt("SELECT COUNT(*) FROM teaching_class_slot WHERE weekday = 1"),
+                "原有的上课时间不应被删掉");
+    }
+
+    @Test
+    void deleteRemovesClassAndSlots() throws SQLException {
+        assertTrue(service.addTeachingClass(teachingClass("{\"周二\":\"5-6节\"}")));
+
+        assertTrue(service.deleteTeachingClass(UUID));
+
+        assertEquals(0, countClasses());
+        assertEquals(0, countSlots());
+    }
+
+    @Test
+    void slotQueriesReflectWrittenSlots() {
+        assertTrue(service.addTeachingClass(teachingClass("{\"周一\":\"1-2节\",\"周三\":\"3-4节\"}")));
+
+        assertEquals(1, service.findTeachingClassesAt(1, 2, 3).size());
+        assertTrue(service.findTeachingClassesAt(1, 3, 5).isEmpty());
+        assertEquals(2, service.getTeacherWeeklySlots("测试教师").size());
+        assertEquals(4, service.getTeacherWeeklyPeriods("测试教师"));
+
+        Map<String, List<Integer>> free = service.findFreePeriods("教一-101", null);
+        assertFalse(free.get("周一").contains(1));
+        assertTrue(free.get("周一").contains(3));
+        assertEquals(Schedule.PERIODS, free.get("周二").size());
+    }
+
+    private static TeachingClass teachingClass(String schedule) {
+        return new TeachingClass(UUID, COURSE_ID, "测试教师", schedule, "教一-101", 30, 0);
+    }
+
+    /**
+     * 模拟上课时间写入失败：周五的时间段违反约束
+     */
+    private static void rejectFridaySlots() throws SQLException {
+        TestDatabase.execute("ALTER TABLE teaching_class_slot ADD CONSTRAINT chk_no_friday CHECK (weekday <> 5)");
+    }
+
+    private static int countClasses() throws SQLException {
+        return TestDatabase.queryInt("SELECT COUNT(*) FROM teaching_classes");
+    }
+
+    private static int countSlots() throws SQLException {
+        return TestDatabase.queryInt("SELECT COUNT(*) FROM teaching_class_slot");
+    }
+}
@@ -0,0 +1,34 @@
+-- 测试用表（同 README 中的定义，去掉了测试不涉及的外键）；teaching_class_slot 使用正式的建表脚本 sql/teaching_class_slot.sql
+CREATE TABLE IF NOT EXISTS user (
+    card_number INT PRIMARY KEY,
+    password VARCHAR(255) NOT NULL,
+    id VARCHAR(18) UNIQUE NOT NULL,
+    name VARCHAR(50) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS courses (
+    course_id VARCHAR(20) PRIMARY KEY,
+    course_name VARCHAR(100) NOT NULL,
+    school VARCHAR(100) NOT NULL,
+    credit FLOAT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS teaching_classes (
+    uuid VARCHAR(36) PRIMARY KEY,
+    course_id VARCHAR(20) NOT NULL,
+    teacher_name VARCHAR(100) NOT NULL,
+    schedule JSON,
+    place VARCHAR(100),
+    capacity INT NOT NULL DEFAULT 0,
+    selected_count INT NOT NULL DEFAULT 0,
+    FOREIGN KEY (course_id) REFERENCES courses(course_id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS student_teaching_class (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    student_card_number INT NOT NULL,
+    teaching_class_uuid VARCHAR(36) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY unique_student_class (student_card_number, teaching_class_uuid),
+    FOREIGN KEY (teaching_class_uuid) REFERENCES teaching_classes(uuid) ON DELETE CASCADE
+);